@@ -0,0 +1,38 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.benchmarks;
+
+import com.yahoo.bard.webservice.web.apirequest.DataApiRequest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks parsing a data request from its URL parts into a {@link DataApiRequest}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DataApiRequestBenchmark {
+
+    /**
+     * Parse the request.
+     *
+     * @param state  The request to parse
+     *
+     * @return the parsed request
+     */
+    @Benchmark
+    public DataApiRequest parse(WikiRequestState state) {
+        return state.parseRequest();
+    }
+}
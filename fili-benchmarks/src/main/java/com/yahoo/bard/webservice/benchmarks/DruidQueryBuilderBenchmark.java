@@ -0,0 +1,40 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.benchmarks;
+
+import com.yahoo.bard.webservice.druid.model.query.DruidAggregationQuery;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks building the Druid query of a parsed data request, including physical table resolution.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DruidQueryBuilderBenchmark {
+
+    /**
+     * Merge the metric templates of the request and build its query.
+     *
+     * @param state  The parsed request
+     *
+     * @return the Druid query
+     *
+     * @throws Exception if the query cannot be built
+     */
+    @Benchmark
+    public DruidAggregationQuery<?> buildQuery(WikiRequestState state) throws Exception {
+        return state.queryBuilder.buildQuery(state.apiRequest, state.templateMerger.merge(state.apiRequest));
+    }
+}
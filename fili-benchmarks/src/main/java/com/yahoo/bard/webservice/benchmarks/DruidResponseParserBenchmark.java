@@ -0,0 +1,45 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.benchmarks;
+
+import com.yahoo.bard.webservice.data.ResultSet;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.joda.time.DateTimeZone;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks parsing a Druid response into a {@link ResultSet}, for each query type.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DruidResponseParserBenchmark {
+
+    /**
+     * Parse the response tree.
+     *
+     * @param state  The Druid query and its response
+     *
+     * @return the result set
+     */
+    @Benchmark
+    public ResultSet parse(WikiRequestState state) {
+        return state.responseParser.parse(
+                state.druidResponse,
+                state.schema,
+                state.druidQuery.getQueryType(),
+                DateTimeZone.UTC
+        );
+    }
+}
@@ -0,0 +1,222 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.benchmarks;
+
+import static com.yahoo.bard.webservice.druid.client.impl.AsyncDruidWebServiceImpl.DRUID_QUERY_TIMER;
+
+import com.yahoo.bard.webservice.logging.RequestLog;
+import com.yahoo.bard.webservice.logging.TimedPhase;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the request log bookkeeping of a request whose query is split into {@code fanOut} Druid queries.
+ * <p>
+ * The request times the usual phases of building its query, then hands its request log to every split query and
+ * accumulates their logs back, as the split query handlers and response processors do on the threads of Druid
+ * callbacks. Timers are stopped without being registered, so only the request log itself is measured.
+ * <p>
+ * {@link #mapBaseline} performs the same steps on a model of the map based request log that {@link RequestLog}
+ * replaced, which copied its phases and threads on every hand off and drew its id from {@link UUID#randomUUID()}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RequestLogBenchmark {
+
+    private static final String[] PHASES = {
+            "DataApiRequest",
+            "DataApiRequestMappers",
+            "GeneratingDimensions",
+            "GeneratingFilters",
+            "GeneratingIntervals",
+            "GeneratingLogicalMetrics",
+            "BuildingDruidFilter",
+            "DruidQueryBuilder",
+            "DruidQuerySerializationSeq",
+            "BuildRequestContext",
+    };
+
+    @Param({"1", "16", "256"})
+    public int fanOut;
+
+    private String[] druidTimers;
+
+    /**
+     * Name the timers of the split queries.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        druidTimers = new String[fanOut];
+        for (int i = 0; i < fanOut; i++) {
+            druidTimers[i] = DRUID_QUERY_TIMER + "query_" + i;
+        }
+        RequestLog.dump();
+    }
+
+    /**
+     * Time a split request with the request log.
+     *
+     * @return the id of the request
+     */
+    @Benchmark
+    public String requestLog() {
+        String id = RequestLog.getId();
+        for (String phase : PHASES) {
+            RequestLog.startTiming(phase).stop();
+        }
+
+        RequestLog request = RequestLog.copy();
+        for (String druidTimer : druidTimers) {
+            // Hand the request to the thread of the split query, and back to the thread accumulating the responses
+            RequestLog accumulated = RequestLog.dump();
+            RequestLog.restore(request);
+            RequestLog.startTiming(druidTimer).stop();
+            RequestLog split = RequestLog.dump();
+            RequestLog.restore(accumulated);
+            RequestLog.accumulate(split);
+        }
+
+        RequestLog.getDurations();
+        RequestLog.dump();
+        return id;
+    }
+
+    /**
+     * Time a split request with a model of the map based request log.
+     *
+     * @return the id of the request
+     */
+    @Benchmark
+    public String mapBaseline() {
+        MapRequestLog current = new MapRequestLog();
+        String id = current.init();
+        for (String phase : PHASES) {
+            current.startTiming(phase).stop();
+        }
+
+        MapRequestLog request = new MapRequestLog(current);
+        for (String druidTimer : druidTimers) {
+            MapRequestLog accumulated = new MapRequestLog(current);
+            current.restore(request);
+            current.startTiming(druidTimer).stop();
+            MapRequestLog split = new MapRequestLog(current);
+            current.restore(accumulated);
+            current.accumulate(split);
+        }
+
+        current.durations();
+        return id;
+    }
+
+    /**
+     * The phases, threads and id of a request, held as the map based request log held them.
+     */
+    private static class MapRequestLog {
+        private String logId;
+        private final Map<String, TimedPhase> times;
+        private final Set<String> threadIds;
+
+        /**
+         * Constructor.
+         */
+        MapRequestLog() {
+            times = new LinkedHashMap<>();
+            threadIds = new LinkedHashSet<>();
+        }
+
+        /**
+         * Copy constructor.
+         *
+         * @param log  The request log to copy
+         */
+        MapRequestLog(MapRequestLog log) {
+            logId = log.logId;
+            times = new LinkedHashMap<>(log.times);
+            threadIds = new LinkedHashSet<>(log.threadIds);
+        }
+
+        /**
+         * Start the request.
+         *
+         * @return the id of the request
+         */
+        String init() {
+            logId = UUID.randomUUID().toString();
+            threadIds.add(Thread.currentThread().getName());
+            return logId;
+        }
+
+        /**
+         * Start a phase.
+         *
+         * @param name  The name of the phase
+         *
+         * @return the phase
+         */
+        TimedPhase startTiming(String name) {
+            return times.computeIfAbsent(name, TimedPhase::new).start();
+        }
+
+        /**
+         * Replace this request log with a copy of another.
+         *
+         * @param log  The request log to restore
+         */
+        void restore(MapRequestLog log) {
+            logId = log.logId;
+            times.clear();
+            threadIds.clear();
+            times.putAll(log.times);
+            threadIds.addAll(log.threadIds);
+            threadIds.add(Thread.currentThread().getName());
+        }
+
+        /**
+         * Add the Druid query timers and threads of another request log to this one.
+         *
+         * @param log  The request log to accumulate
+         */
+        void accumulate(MapRequestLog log) {
+            log.times.forEach((name, phase) -> {
+                if (name.contains(DRUID_QUERY_TIMER)) {
+                    times.put(name, phase);
+                }
+            });
+            threadIds.addAll(log.threadIds);
+            threadIds.add(Thread.currentThread().getName());
+        }
+
+        /**
+         * Get the durations of the phases.
+         *
+         * @return the durations by phase name
+         */
+        Map<String, Long> durations() {
+            Map<String, Long> durations = new LinkedHashMap<>();
+            times.forEach((name, phase) -> durations.put(name, phase.getDuration()));
+            return durations;
+        }
+    }
+}
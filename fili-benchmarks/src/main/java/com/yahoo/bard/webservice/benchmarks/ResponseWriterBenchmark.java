@@ -0,0 +1,89 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.benchmarks;
+
+import com.yahoo.bard.webservice.web.CsvResponseWriter;
+import com.yahoo.bard.webservice.web.JsonResponseWriter;
+import com.yahoo.bard.webservice.web.ResponseData;
+import com.yahoo.bard.webservice.web.ResponseWriter;
+
+import com.google.common.io.ByteStreams;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks writing the response of a request, as JSON and as CSV, to a stream which discards it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResponseWriterBenchmark {
+
+    private final OutputStream discard = ByteStreams.nullOutputStream();
+
+    private ResponseWriter jsonWriter;
+    private ResponseWriter csvWriter;
+
+    /**
+     * Build the writers.
+     *
+     * @param state  The request whose response is written
+     */
+    @Setup(Level.Trial)
+    public void setUp(WikiRequestState state) {
+        jsonWriter = new JsonResponseWriter(state.objectMappers);
+        csvWriter = new CsvResponseWriter(state.objectMappers);
+    }
+
+    /**
+     * Write the response as JSON.
+     *
+     * @param state  The request and its results
+     *
+     * @throws IOException if the response cannot be written
+     */
+    @Benchmark
+    public void json(WikiRequestState state) throws IOException {
+        jsonWriter.write(state.apiRequest, buildResponseData(state), discard);
+    }
+
+    /**
+     * Write the response as CSV.
+     *
+     * @param state  The request and its results
+     *
+     * @throws IOException if the response cannot be written
+     */
+    @Benchmark
+    public void csv(WikiRequestState state) throws IOException {
+        csvWriter.write(state.apiRequest, buildResponseData(state), discard);
+    }
+
+    /**
+     * Build the response data, as each request does before writing it.
+     *
+     * @param state  The request and its results
+     *
+     * @return the response data
+     */
+    private ResponseData buildResponseData(WikiRequestState state) {
+        return state.buildResponseData(state.resultSet);
+    }
+}
@@ -0,0 +1,123 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.benchmarks;
+
+import com.yahoo.bard.webservice.data.ResultSet;
+import com.yahoo.bard.webservice.data.metric.mappers.PaginationMapper;
+import com.yahoo.bard.webservice.data.metric.mappers.ResultSetMapper;
+import com.yahoo.bard.webservice.data.metric.mappers.SketchRoundUpMapper;
+import com.yahoo.bard.webservice.data.metric.mappers.TopNResultSetMapper;
+import com.yahoo.bard.webservice.web.responseprocessors.ResultSetResponseProcessor;
+import com.yahoo.bard.webservice.web.util.PaginationParameters;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rx.subjects.PublishSubject;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.core.UriBuilder;
+
+/**
+ * Benchmarks the result set mappers applied to a parsed Druid response, alone and chained as a request applies them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResultSetMapperBenchmark {
+
+    private ResultSetMapper paginationMapper;
+    private ResultSetMapper topNMapper;
+    private ResultSetMapper sketchRoundUpMapper;
+    private List<ResultSetMapper> chain;
+
+    /**
+     * Build the mappers.
+     *
+     * @param state  The request the mappers apply to
+     */
+    @Setup(Level.Trial)
+    public void setUp(WikiRequestState state) {
+        paginationMapper = new PaginationMapper(
+                new PaginationParameters(5, 1),
+                new ResultSetResponseProcessor(
+                        state.apiRequest,
+                        PublishSubject.create(),
+                        state.responseParser,
+                        state.objectMappers,
+                        null
+                ),
+                UriBuilder.fromUri("http://localhost/v1/data/wikipedia/day")
+        );
+        topNMapper = new TopNResultSetMapper(10);
+        sketchRoundUpMapper = new SketchRoundUpMapper("added");
+        chain = Arrays.asList(sketchRoundUpMapper, topNMapper, paginationMapper);
+    }
+
+    /**
+     * Cut the result set down to a page.
+     *
+     * @param state  The parsed result set
+     *
+     * @return the page of results
+     */
+    @Benchmark
+    public ResultSet pagination(WikiRequestState state) {
+        return paginationMapper.map(state.resultSet);
+    }
+
+    /**
+     * Keep the top rows of each bucket of the result set.
+     *
+     * @param state  The parsed result set
+     *
+     * @return the top results
+     */
+    @Benchmark
+    public ResultSet topN(WikiRequestState state) {
+        return topNMapper.map(state.resultSet);
+    }
+
+    /**
+     * Round up a metric of every row of the result set.
+     *
+     * @param state  The parsed result set
+     *
+     * @return the rounded results
+     */
+    @Benchmark
+    public ResultSet sketchRoundUp(WikiRequestState state) {
+        return sketchRoundUpMapper.map(state.resultSet);
+    }
+
+    /**
+     * Apply the mappers one after the other.
+     *
+     * @param state  The parsed result set
+     *
+     * @return the mapped results
+     */
+    @Benchmark
+    public ResultSet chain(WikiRequestState state) {
+        ResultSet mapped = state.resultSet;
+        for (ResultSetMapper mapper : chain) {
+            mapped = mapper.map(mapped);
+        }
+        return mapped;
+    }
+}
@@ -0,0 +1,107 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.benchmarks;
+
+import com.yahoo.bard.webservice.util.SimplifiedIntervalList;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Interval;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the set operations of {@link SimplifiedIntervalList}s, as used to compute availability and missing
+ * intervals.
+ * <p>
+ * The left list holds {@code size} disjoint hours, one every other hour, and the right list the same hours shifted by
+ * half an hour, so every interval of one list partly overlaps two of the other.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SimplifiedIntervalListBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    private List<Interval> raw;
+    private SimplifiedIntervalList left;
+    private SimplifiedIntervalList right;
+
+    /**
+     * Build the interval lists.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        DateTime start = new DateTime(2015, 1, 1, 0, 0, DateTimeZone.UTC);
+        List<Interval> leftIntervals = new ArrayList<>(size);
+        List<Interval> rightIntervals = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            DateTime hour = start.plusHours(2 * i);
+            leftIntervals.add(new Interval(hour, hour.plusHours(1)));
+            rightIntervals.add(new Interval(hour.plusMinutes(30), hour.plusMinutes(90)));
+        }
+        raw = new ArrayList<>(leftIntervals);
+        raw.addAll(rightIntervals);
+        left = new SimplifiedIntervalList(leftIntervals);
+        right = new SimplifiedIntervalList(rightIntervals);
+    }
+
+    /**
+     * Simplify unsorted, overlapping intervals.
+     *
+     * @return the simplified intervals
+     */
+    @Benchmark
+    public SimplifiedIntervalList simplify() {
+        return new SimplifiedIntervalList(raw);
+    }
+
+    /**
+     * Union two lists.
+     *
+     * @return the union
+     */
+    @Benchmark
+    public SimplifiedIntervalList union() {
+        return left.union(right);
+    }
+
+    /**
+     * Intersect two lists.
+     *
+     * @return the intersection
+     */
+    @Benchmark
+    public SimplifiedIntervalList intersect() {
+        return left.intersect(right);
+    }
+
+    /**
+     * Subtract one list from another.
+     *
+     * @return the difference
+     */
+    @Benchmark
+    public SimplifiedIntervalList subtract() {
+        return left.subtract(right);
+    }
+}
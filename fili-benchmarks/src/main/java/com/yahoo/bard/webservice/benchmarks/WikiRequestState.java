@@ -0,0 +1,303 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.benchmarks;
+
+import com.yahoo.bard.webservice.application.ObjectMappersSuite;
+import com.yahoo.bard.webservice.data.DruidQueryBuilder;
+import com.yahoo.bard.webservice.data.DruidResponseParser;
+import com.yahoo.bard.webservice.data.ResultSet;
+import com.yahoo.bard.webservice.data.ResultSetSchema;
+import com.yahoo.bard.webservice.data.config.ConfigurationLoader;
+import com.yahoo.bard.webservice.data.config.names.DataSourceName;
+import com.yahoo.bard.webservice.data.config.dimension.TypeAwareDimensionLoader;
+import com.yahoo.bard.webservice.data.dimension.DimensionColumn;
+import com.yahoo.bard.webservice.data.filterbuilders.DefaultDruidFilterBuilder;
+import com.yahoo.bard.webservice.data.filterbuilders.DruidFilterBuilder;
+import com.yahoo.bard.webservice.data.metric.LogicalMetric;
+import com.yahoo.bard.webservice.data.metric.MetricColumn;
+import com.yahoo.bard.webservice.data.metric.TemplateDruidQuery;
+import com.yahoo.bard.webservice.data.metric.TemplateDruidQueryMerger;
+import com.yahoo.bard.webservice.data.time.GranularityParser;
+import com.yahoo.bard.webservice.data.time.StandardGranularityParser;
+import com.yahoo.bard.webservice.druid.model.DefaultQueryType;
+import com.yahoo.bard.webservice.druid.model.query.DruidAggregationQuery;
+import com.yahoo.bard.webservice.metadata.DataSourceMetadata;
+import com.yahoo.bard.webservice.metadata.DataSourceMetadataService;
+import com.yahoo.bard.webservice.table.Column;
+import com.yahoo.bard.webservice.table.PhysicalTable;
+import com.yahoo.bard.webservice.table.PhysicalTableSchema;
+import com.yahoo.bard.webservice.table.resolver.DefaultPhysicalTableResolver;
+import com.yahoo.bard.webservice.util.SimplifiedIntervalList;
+import com.yahoo.bard.webservice.web.apirequest.DataApiRequest;
+import com.yahoo.bard.webservice.web.apirequest.DataApiRequestImpl;
+import com.yahoo.bard.webservice.web.apirequest.DefaultHavingApiGenerator;
+import com.yahoo.bard.webservice.web.apirequest.HavingGenerator;
+import com.yahoo.bard.webservice.web.ResponseData;
+import com.yahoo.wiki.webservice.data.config.dimension.WikiDimensions;
+import com.yahoo.wiki.webservice.data.config.metric.WikiMetricLoader;
+import com.yahoo.wiki.webservice.data.config.table.WikiTableLoader;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import org.glassfish.jersey.uri.UriComponent;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Interval;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import io.druid.timeline.DataSegment;
+import io.druid.timeline.partition.NoneShardSpec;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.ws.rs.core.PathSegment;
+
+/**
+ * A data request against the Wikipedia example configuration, with its Druid query and a synthetic Druid response,
+ * shared by the benchmarks of each stage of the request hot path.
+ * <p>
+ * The request asks for a week of days, and the Druid response holds {@code rowsPerBucket} rows in each day.
+ */
+@State(Scope.Benchmark)
+public class WikiRequestState {
+
+    /**
+     * The shapes of request benchmarked, one for each type of Druid query they build.
+     */
+    public enum RequestShape {
+        GROUP_BY("page/user", "count,added,deleted", null, null),
+        TOP_N("page", "count,added,deleted", "added|desc", "10"),
+        TIMESERIES("", "count,added,deleted", null, null);
+
+        private final String dimensions;
+        private final String metrics;
+        private final String sorts;
+        private final String topN;
+
+        /**
+         * Constructor.
+         *
+         * @param dimensions  The grouping dimensions path of the request
+         * @param metrics  The metrics of the request
+         * @param sorts  The sorts of the request, if any
+         * @param topN  The number of top rows per bucket of the request, if any
+         */
+        RequestShape(String dimensions, String metrics, String sorts, String topN) {
+            this.dimensions = dimensions;
+            this.metrics = metrics;
+            this.sorts = sorts;
+            this.topN = topN;
+        }
+    }
+
+    public static final String TABLE = "wikipedia";
+    public static final String GRAIN = "day";
+    public static final String INTERVALS = "2015-09-12/2015-09-19";
+
+    @Param({"GROUP_BY", "TOP_N", "TIMESERIES"})
+    public RequestShape shape;
+
+    @Param({"100"})
+    public int rowsPerBucket;
+
+    public ConfigurationLoader configurationLoader;
+    public DruidFilterBuilder filterBuilder;
+    public HavingGenerator havingGenerator;
+    public GranularityParser granularityParser;
+    public DruidQueryBuilder queryBuilder;
+    public TemplateDruidQueryMerger templateMerger;
+    public DruidResponseParser responseParser;
+    public ObjectMappersSuite objectMappers;
+
+    public DataApiRequest apiRequest;
+    public TemplateDruidQuery template;
+    public DruidAggregationQuery<?> druidQuery;
+    public ResultSetSchema schema;
+    public JsonNode druidResponse;
+    public ResultSet resultSet;
+
+    /**
+     * Load the Wikipedia configuration and run the request through each stage once.
+     *
+     * @throws Exception if the request cannot be built
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        DataSourceMetadataService metadataService = new DataSourceMetadataService();
+        configurationLoader = new ConfigurationLoader(
+                new TypeAwareDimensionLoader(new WikiDimensions().getAllDimensionConfigurations()),
+                new WikiMetricLoader(),
+                new WikiTableLoader(metadataService)
+        );
+        configurationLoader.load();
+        publishSegments(metadataService);
+
+        filterBuilder = new DefaultDruidFilterBuilder();
+        havingGenerator = new DefaultHavingApiGenerator(configurationLoader);
+        granularityParser = new StandardGranularityParser();
+        queryBuilder = new DruidQueryBuilder(
+                configurationLoader.getLogicalTableDictionary(),
+                new DefaultPhysicalTableResolver(null, null)
+        );
+        templateMerger = new TemplateDruidQueryMerger();
+        responseParser = new DruidResponseParser();
+        objectMappers = new ObjectMappersSuite();
+
+        apiRequest = parseRequest();
+        template = templateMerger.merge(apiRequest);
+        druidQuery = queryBuilder.buildQuery(apiRequest, template);
+        schema = new ResultSetSchema(
+                apiRequest.getGranularity(),
+                druidQuery.buildSchemaColumns().collect(Collectors.toCollection(LinkedHashSet::new))
+        );
+        druidResponse = buildDruidResponse();
+        resultSet = responseParser.parse(druidResponse, schema, druidQuery.getQueryType(), DateTimeZone.UTC);
+    }
+
+    /**
+     * Publish a segment covering the request intervals for each data source, so the tables are available to query.
+     *
+     * @param metadataService  The metadata service of the tables
+     */
+    private void publishSegments(DataSourceMetadataService metadataService) {
+        for (PhysicalTable table : configurationLoader.getPhysicalTableDictionary().values()) {
+            PhysicalTableSchema tableSchema = table.getSchema();
+            List<String> dimensions = tableSchema.getColumns(DimensionColumn.class).stream()
+                    .map(column -> tableSchema.getPhysicalColumnName(column.getName()))
+                    .collect(Collectors.toList());
+            List<String> metrics = tableSchema.getColumns(MetricColumn.class).stream()
+                    .map(Column::getName)
+                    .collect(Collectors.toList());
+            for (DataSourceName dataSourceName : table.getDataSourceNames()) {
+                DataSegment segment = new DataSegment(
+                        dataSourceName.asName(),
+                        new Interval(INTERVALS),
+                        "v1",
+                        null,
+                        dimensions,
+                        metrics,
+                        new NoneShardSpec(),
+                        9,
+                        1L
+                );
+                metadataService.update(
+                        dataSourceName,
+                        new DataSourceMetadata(
+                                dataSourceName.asName(),
+                                Collections.emptyMap(),
+                                Collections.singletonList(segment)
+                        )
+                );
+            }
+        }
+    }
+
+    /**
+     * Parse the request from its URL parts.
+     *
+     * @return the parsed request
+     */
+    public DataApiRequest parseRequest() {
+        List<PathSegment> dimensions = shape.dimensions.isEmpty()
+                ? Collections.emptyList()
+                : UriComponent.decodePath(shape.dimensions, true);
+        return new DataApiRequestImpl(
+                TABLE,
+                GRAIN,
+                dimensions,
+                shape.metrics,
+                INTERVALS,
+                null,
+                null,
+                shape.sorts,
+                null,
+                shape.topN,
+                null,
+                null,
+                null,
+                "",
+                "",
+                configurationLoader.getDimensionDictionary(),
+                configurationLoader.getMetricDictionary(),
+                configurationLoader.getLogicalTableDictionary(),
+                DateTimeZone.UTC,
+                granularityParser,
+                filterBuilder,
+                havingGenerator
+        );
+    }
+
+    /**
+     * Build the response data written for the request.
+     *
+     * @param results  The results to write
+     *
+     * @return the response data
+     */
+    public ResponseData buildResponseData(ResultSet results) {
+        return new ResponseData(
+                results,
+                apiRequest.getLogicalMetrics().stream()
+                        .map(LogicalMetric::getName)
+                        .collect(Collectors.toCollection(LinkedHashSet::new)),
+                apiRequest.getDimensionFields(),
+                new SimplifiedIntervalList(),
+                new SimplifiedIntervalList(),
+                null,
+                Collections.emptyMap()
+        );
+    }
+
+    /**
+     * Build a Druid response to the query, shaped as Druid answers its query type.
+     *
+     * @return the Druid response
+     */
+    private JsonNode buildDruidResponse() {
+        Set<DimensionColumn> dimensionColumns = schema.getColumns(DimensionColumn.class);
+        Set<MetricColumn> metricColumns = schema.getColumns(MetricColumn.class);
+        DefaultQueryType queryType = (DefaultQueryType) druidQuery.getQueryType();
+
+        JsonNodeFactory nodes = JsonNodeFactory.instance;
+        ArrayNode response = nodes.arrayNode();
+        DateTime start = new DateTime(INTERVALS.split("/")[0], DateTimeZone.UTC);
+        for (int day = 0; day < 7; day++) {
+            String timestamp = start.plusDays(day).toString();
+            ArrayNode bucketRows = nodes.arrayNode();
+            int rows = queryType == DefaultQueryType.TIMESERIES ? 1 : rowsPerBucket;
+            for (int row = 0; row < rows; row++) {
+                ObjectNode values = nodes.objectNode();
+                for (Column column : dimensionColumns) {
+                    values.put(column.getName(), column.getName() + "_" + row);
+                }
+                int metric = 0;
+                for (Column column : metricColumns) {
+                    values.put(column.getName(), (row + 1) * (day + 1) * (++metric) + 0.5);
+                }
+                bucketRows.add(values);
+            }
+
+            if (queryType == DefaultQueryType.GROUP_BY) {
+                for (JsonNode event : bucketRows) {
+                    response.addObject().put("version", "v1").put("timestamp", timestamp).set("event", event);
+                }
+            } else if (queryType == DefaultQueryType.TOP_N) {
+                response.addObject().put("timestamp", timestamp).set("result", bucketRows);
+            } else {
+                response.addObject().put("timestamp", timestamp).set("result", bucketRows.get(0));
+            }
+        }
+        return response;
+    }
+}
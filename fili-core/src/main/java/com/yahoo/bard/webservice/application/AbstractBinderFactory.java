@@ -45,6 +45,7 @@ import com.yahoo.bard.webservice.data.cache.HashDataCache;
 import com.yahoo.bard.webservice.data.cache.MemDataCache;
 import com.yahoo.bard.webservice.data.cache.MemTupleDataCache;
 import com.yahoo.bard.webservice.data.cache.StubDataCache;
+import com.yahoo.bard.webservice.data.cache.TieredTupleDataCache;
 import com.yahoo.bard.webservice.data.config.ConfigurationLoader;
 import com.yahoo.bard.webservice.data.config.ResourceDictionaries;
 import com.yahoo.bard.webservice.data.config.dimension.DimensionConfig;
@@ -119,6 +120,8 @@ import com.yahoo.bard.webservice.web.apirequest.TablesApiRequest;
 import com.yahoo.bard.webservice.web.handlers.workflow.DruidWorkflow;
 import com.yahoo.bard.webservice.web.handlers.workflow.RequestWorkflowProvider;
 import com.yahoo.bard.webservice.web.ratelimit.DefaultRateLimiter;
+import com.yahoo.bard.webservice.web.ratelimit.SlicedIntervalRequestCostEstimator;
+import com.yahoo.bard.webservice.web.ratelimit.TokenBucketRateLimiter;
 import com.yahoo.bard.webservice.web.responseprocessors.ResponseProcessorFactory;
 import com.yahoo.bard.webservice.web.responseprocessors.ResultSetResponseProcessorFactory;
 import com.yahoo.bard.webservice.web.util.QueryWeightUtil;
@@ -210,6 +213,16 @@ public abstract class AbstractBinderFactory implements BinderFactory {
             0
     );
 
+    public static final long QUERY_RESPONSE_NEAR_CACHE_MAX_BYTES = SYSTEM_CONFIG.getLongProperty(
+            SYSTEM_CONFIG.getPackageVariableName("query_response_near_cache_max_bytes"),
+            0L
+    );
+
+    public static final long QUERY_RESPONSE_NEAR_CACHE_EXPIRATION_SECONDS = SYSTEM_CONFIG.getLongProperty(
+            SYSTEM_CONFIG.getPackageVariableName("query_response_near_cache_expiration_seconds"),
+            3600L
+    );
+
     public static final String SYSTEM_CONFIG_TIMEZONE_KEY = "timezone";
 
     private ObjectMappersSuite objectMappers;
@@ -941,6 +954,14 @@ public abstract class AbstractBinderFactory implements BinderFactory {
         try {
             MemTupleDataCache<Long, String> cache = new MemTupleDataCache<>();
             LOG.info("MemcachedClient Version 2 started {}", cache);
+            if (QUERY_RESPONSE_NEAR_CACHE_MAX_BYTES > 0) {
+                LOG.info("Near cache of {} bytes enabled in front of {}", QUERY_RESPONSE_NEAR_CACHE_MAX_BYTES, cache);
+                return new TieredTupleDataCache<>(
+                        cache,
+                        QUERY_RESPONSE_NEAR_CACHE_MAX_BYTES,
+                        QUERY_RESPONSE_NEAR_CACHE_EXPIRATION_SECONDS
+                );
+            }
             return cache;
         } catch (IOException e) {
             LOG.error("MemcachedClient Version 2 failed to start {}", e);
@@ -1289,6 +1310,9 @@ public abstract class AbstractBinderFactory implements BinderFactory {
      * @return a RateLimiter implementation
      */
     protected RateLimiter buildRateLimiter() {
+        if (BardFeatureFlag.TOKEN_BUCKET_RATE_LIMIT.isOn()) {
+            return new TokenBucketRateLimiter(new SlicedIntervalRequestCostEstimator(new QueryWeightUtil()));
+        }
         return new DefaultRateLimiter();
     }
 
@@ -20,7 +20,12 @@ public enum BardFeatureFlag implements FeatureFlag {
     DRUID_COORDINATOR_METADATA("druid_coordinator_metadata_enabled"),
     DRUID_LOOKUP_METADATA("druid_lookup_metadata_enabled"),
     DRUID_DIMENSIONS_LOADER("druid_dimensions_loader_enabled"),
-    CASE_SENSITIVE_KEYS("case_sensitive_keys_enabled");
+    CASE_SENSITIVE_KEYS("case_sensitive_keys_enabled"),
+    STREAMING_DRUID_RESPONSE("streaming_druid_response_enabled"),
+    COLUMNAR_RESULT_SET("columnar_result_set_enabled"),
+    INTERVAL_SLICED_CACHE("interval_sliced_cache_enabled"),
+    TOKEN_BUCKET_RATE_LIMIT("token_bucket_rate_limit_enabled"),
+    SPECULATIVE_WEIGHT_CHECK("speculative_weight_check_enabled");
 
     static final SystemConfig SYSTEM_CONFIG = SystemConfigProvider.getInstance();
 
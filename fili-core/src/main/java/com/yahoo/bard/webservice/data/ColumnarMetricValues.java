@@ -0,0 +1,207 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.data;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The values of one metric column of a {@link ColumnarResultSet}, indexed by row.
+ * <p>
+ * Values start out in a {@code long[]}, move to a {@code double[]} when the first fractional value arrives and fall
+ * back to boxed values only when a value cannot be stored exactly as a primitive (Strings, booleans, JsonNodes, nulls
+ * or numbers outside of the primitive range). Reading a value back always gives a value equal to the one stored.
+ */
+class ColumnarMetricValues {
+
+    /**
+     * Largest magnitude a long can have and still be exactly representable as a double.
+     */
+    private static final long MAX_EXACT_DOUBLE_LONG = 1L << 53;
+
+    /**
+     * The representation currently backing the values.
+     */
+    private enum Storage {
+        LONG,
+        DOUBLE,
+        OBJECT
+    }
+
+    private Storage storage;
+    private long[] longValues;
+    private double[] doubleValues;
+    private Object[] objectValues;
+
+    // Rows which have a value for this metric
+    private final BitSet present;
+    // Rows of a double column whose value had no fractional part (scale 0), so they read back as integers
+    private final BitSet integral;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity  The number of rows to allocate storage for up front
+     */
+    ColumnarMetricValues(int capacity) {
+        this.storage = Storage.LONG;
+        this.longValues = new long[capacity];
+        this.present = new BitSet(capacity);
+        this.integral = new BitSet();
+    }
+
+    /**
+     * Resize the backing storage to hold exactly {@code capacity} rows.
+     *
+     * @param capacity  The new number of rows
+     */
+    void resize(int capacity) {
+        switch (storage) {
+            case LONG:
+                longValues = Arrays.copyOf(longValues, capacity);
+                break;
+            case DOUBLE:
+                doubleValues = Arrays.copyOf(doubleValues, capacity);
+                break;
+            default:
+                objectValues = Arrays.copyOf(objectValues, capacity);
+        }
+    }
+
+    /**
+     * Whether or not the row has a value for this metric.
+     *
+     * @param row  The row index
+     *
+     * @return true if a value was set for the row, even if that value is null
+     */
+    boolean isPresent(int row) {
+        return present.get(row);
+    }
+
+    /**
+     * Get the value of a row.
+     *
+     * @param row  The row index
+     *
+     * @return the value of the row, numbers are returned as BigDecimals
+     */
+    Object get(int row) {
+        switch (storage) {
+            case LONG:
+                return BigDecimal.valueOf(longValues[row]);
+            case DOUBLE:
+                return integral.get(row)
+                        ? BigDecimal.valueOf((long) doubleValues[row])
+                        : BigDecimal.valueOf(doubleValues[row]);
+            default:
+                return objectValues[row];
+        }
+    }
+
+    /**
+     * Set the value of a row, widening the storage if the value does not fit in it exactly.
+     *
+     * @param row  The row index, which must be within the current capacity
+     * @param value  The value of the row
+     */
+    void set(int row, Object value) {
+        present.set(row);
+        BigDecimal number = value instanceof BigDecimal ? (BigDecimal) value : null;
+
+        if (storage == Storage.LONG) {
+            if (number != null && isLong(number)) {
+                longValues[row] = number.longValue();
+                return;
+            }
+            if (number != null && isDouble(number) && canWidenToDouble()) {
+                widenToDouble();
+            } else {
+                widenToObject();
+            }
+        }
+
+        if (storage == Storage.DOUBLE) {
+            if (number != null && isLong(number) && Math.abs(number.longValue()) <= MAX_EXACT_DOUBLE_LONG) {
+                doubleValues[row] = number.longValue();
+                integral.set(row);
+                return;
+            }
+            if (number != null && isDouble(number)) {
+                doubleValues[row] = number.doubleValue();
+                integral.clear(row);
+                return;
+            }
+            widenToObject();
+        }
+
+        objectValues[row] = value;
+    }
+
+    /**
+     * Whether the number is an integer which fits in a long.
+     *
+     * @param number  The number to check
+     *
+     * @return true if the number can be stored as a long and read back as an equal BigDecimal
+     */
+    private static boolean isLong(BigDecimal number) {
+        return number.scale() == 0 && number.unscaledValue().bitLength() < Long.SIZE;
+    }
+
+    /**
+     * Whether the number survives a round trip through a double.
+     *
+     * @param number  The number to check
+     *
+     * @return true if the number can be stored as a double and read back as an equal BigDecimal
+     */
+    private static boolean isDouble(BigDecimal number) {
+        double doubleValue = number.doubleValue();
+        return !Double.isInfinite(doubleValue) && BigDecimal.valueOf(doubleValue).equals(number);
+    }
+
+    /**
+     * Whether every long stored so far can be represented exactly as a double.
+     *
+     * @return true if the long values can be moved to double storage
+     */
+    private boolean canWidenToDouble() {
+        for (int row = present.nextSetBit(0); row >= 0; row = present.nextSetBit(row + 1)) {
+            if (Math.abs(longValues[row]) > MAX_EXACT_DOUBLE_LONG) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Move long storage to double storage.
+     */
+    private void widenToDouble() {
+        doubleValues = new double[longValues.length];
+        for (int row = present.nextSetBit(0); row >= 0; row = present.nextSetBit(row + 1)) {
+            doubleValues[row] = longValues[row];
+            integral.set(row);
+        }
+        longValues = null;
+        storage = Storage.DOUBLE;
+    }
+
+    /**
+     * Move primitive storage to boxed storage.
+     */
+    private void widenToObject() {
+        int capacity = storage == Storage.LONG ? longValues.length : doubleValues.length;
+        Object[] boxed = new Object[capacity];
+        for (int row = present.nextSetBit(0); row >= 0 && row < capacity; row = present.nextSetBit(row + 1)) {
+            boxed[row] = get(row);
+        }
+        objectValues = boxed;
+        longValues = null;
+        doubleValues = null;
+        integral.clear();
+        storage = Storage.OBJECT;
+    }
+}
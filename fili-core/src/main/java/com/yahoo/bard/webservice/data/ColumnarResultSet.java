@@ -0,0 +1,442 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.data;
+
+import com.yahoo.bard.webservice.data.dimension.DimensionColumn;
+import com.yahoo.bard.webservice.data.dimension.DimensionRow;
+import com.yahoo.bard.webservice.data.metric.MetricColumn;
+import com.yahoo.bard.webservice.data.metric.mappers.ResultSetMapper;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * A result set which stores its rows column by column rather than as {@link Result} objects.
+ * <p>
+ * Timestamps are held as epoch millis in a {@code long[]}, numeric metrics in {@code long[]} or {@code double[]}
+ * columns and dimension rows as {@code int[]} codes into a per-column dictionary of distinct dimension rows. Rows are
+ * exposed as {@link Result}s which are built on access, so result set mappers and response writers work unchanged, and
+ * {@link ResultSetMapper}s map a columnar result set into another one. The most recently read row is kept, so reading
+ * the same row again does not build it again, but callers should still iterate rather than read rows at random.
+ * <p>
+ * The first change to the result set copies its rows into the list it extends, after which it is an ordinary result
+ * set and its columns are dropped.
+ * <p>
+ * Use a {@link ColumnarResultSetBuilder} to build one.
+ */
+public class ColumnarResultSet extends ResultSet {
+
+    private static final int UNSET = -1;
+
+    private final DateTimeZone dateTimeZone;
+    private final List<DimensionColumn> dimensionColumns;
+    private final List<MetricColumn> metricColumns;
+
+    // The columns, dropped once the rows are copied into the list
+    private int size;
+    private long[] timestamps;
+    private int[][] dimensionRowCodes;
+    private DimensionRow[][] dimensionDictionaries;
+    private ColumnarMetricValues[] metricValues;
+    private boolean materialized;
+
+    // The most recently read row
+    private BuiltRow lastRow;
+
+    // List view over this result set, whose iterators and sub lists are used until the rows are copied into the list
+    private final List<Result> rows;
+
+    /**
+     * Constructor.
+     *
+     * @param schema  The associated schema
+     * @param dateTimeZone  The time zone of the timestamps
+     * @param timestamps  The timestamp of each row, in epoch millis, one per row
+     * @param dimensionColumns  The dimension columns, in the order of the code arrays
+     * @param dimensionRowCodes  For each dimension column, the dictionary code of each row, or -1 if it has none
+     * @param dimensionDictionaries  For each dimension column, the distinct dimension rows indexed by code
+     * @param metricColumns  The metric columns, in the order of the metric values
+     * @param metricValues  For each metric column, the value of each row
+     */
+    ColumnarResultSet(
+            ResultSetSchema schema,
+            DateTimeZone dateTimeZone,
+            long[] timestamps,
+            List<DimensionColumn> dimensionColumns,
+            int[][] dimensionRowCodes,
+            DimensionRow[][] dimensionDictionaries,
+            List<MetricColumn> metricColumns,
+            ColumnarMetricValues[] metricValues
+    ) {
+        super(schema, Collections.emptyList());
+        this.dateTimeZone = dateTimeZone;
+        this.size = timestamps.length;
+        this.timestamps = timestamps;
+        this.dimensionColumns = dimensionColumns;
+        this.dimensionRowCodes = dimensionRowCodes;
+        this.dimensionDictionaries = dimensionDictionaries;
+        this.metricColumns = metricColumns;
+        this.metricValues = metricValues;
+        this.rows = new AbstractList<Result>() {
+            @Override
+            public Result get(int index) {
+                return ColumnarResultSet.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return ColumnarResultSet.this.size();
+            }
+
+            @Override
+            public Result set(int index, Result element) {
+                return ColumnarResultSet.this.set(index, element);
+            }
+
+            @Override
+            public void add(int index, Result element) {
+                ColumnarResultSet.this.add(index, element);
+            }
+
+            @Override
+            public Result remove(int index) {
+                return ColumnarResultSet.this.remove(index);
+            }
+        };
+    }
+
+    /**
+     * The time zone of the timestamps of the rows.
+     *
+     * @return the time zone
+     */
+    public DateTimeZone getDateTimeZone() {
+        return dateTimeZone;
+    }
+
+    /**
+     * Whether the rows are still stored by column, rather than copied into the list by a change.
+     *
+     * @return true if the rows are stored by column
+     */
+    public boolean isColumnar() {
+        return !materialized;
+    }
+
+    /**
+     * The timestamp of a row in epoch millis, without building the row.
+     *
+     * @param row  The row index
+     *
+     * @return the timestamp of the row
+     */
+    public long getTimeStampMillis(int row) {
+        if (materialized) {
+            return super.get(row).getTimeStamp().getMillis();
+        }
+        return timestamps[checkRow(row)];
+    }
+
+    /**
+     * The number of distinct dimension rows of a dimension column.
+     *
+     * @param dimensionColumn  The dimension column
+     *
+     * @return the number of distinct rows, or 0 if the column is not part of the result set
+     */
+    public int getDistinctDimensionRowCount(DimensionColumn dimensionColumn) {
+        if (materialized) {
+            return (int) super.stream()
+                    .map(result -> result.getDimensionRow(dimensionColumn))
+                    .filter(Objects::nonNull)
+                    .distinct()
+                    .count();
+        }
+        int column = dimensionColumns.indexOf(dimensionColumn);
+        return column < 0 ? 0 : dimensionDictionaries[column].length;
+    }
+
+    @Override
+    public Result get(int index) {
+        return materialized ? super.get(index) : buildRow(index);
+    }
+
+    @Override
+    public int size() {
+        return materialized ? super.size() : size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public Iterator<Result> iterator() {
+        return materialized ? super.iterator() : rows.iterator();
+    }
+
+    @Override
+    public ListIterator<Result> listIterator() {
+        return listIterator(0);
+    }
+
+    @Override
+    public ListIterator<Result> listIterator(int index) {
+        return materialized ? super.listIterator(index) : rows.listIterator(index);
+    }
+
+    @Override
+    public List<Result> subList(int fromIndex, int toIndex) {
+        return materialized ? super.subList(fromIndex, toIndex) : rows.subList(fromIndex, toIndex);
+    }
+
+    @Override
+    public Spliterator<Result> spliterator() {
+        return materialized
+                ? super.spliterator()
+                : Spliterators.spliterator(rows, Spliterator.ORDERED);
+    }
+
+    @Override
+    public void forEach(Consumer<? super Result> action) {
+        if (materialized) {
+            super.forEach(action);
+        } else {
+            rows.forEach(action);
+        }
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return materialized ? super.contains(o) : rows.contains(o);
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return materialized ? super.indexOf(o) : rows.indexOf(o);
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return materialized ? super.lastIndexOf(o) : rows.lastIndexOf(o);
+    }
+
+    @Override
+    public Object[] toArray() {
+        return materialized ? super.toArray() : rows.toArray();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+        return materialized ? super.toArray(a) : rows.toArray(a);
+    }
+
+    @Override
+    public Object clone() {
+        materialize();
+        return super.clone();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return materialized ? super.equals(o) : rows.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return materialized ? super.hashCode() : rows.hashCode();
+    }
+
+    @Override
+    public boolean add(Result result) {
+        materialize();
+        return super.add(result);
+    }
+
+    @Override
+    public void add(int index, Result element) {
+        materialize();
+        super.add(index, element);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Result> c) {
+        materialize();
+        return super.addAll(c);
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends Result> c) {
+        materialize();
+        return super.addAll(index, c);
+    }
+
+    @Override
+    public Result set(int index, Result element) {
+        materialize();
+        return super.set(index, element);
+    }
+
+    @Override
+    public Result remove(int index) {
+        materialize();
+        return super.remove(index);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        materialize();
+        return super.remove(o);
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        materialize();
+        return super.removeAll(c);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        materialize();
+        return super.retainAll(c);
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super Result> filter) {
+        materialize();
+        return super.removeIf(filter);
+    }
+
+    @Override
+    public void replaceAll(UnaryOperator<Result> operator) {
+        materialize();
+        super.replaceAll(operator);
+    }
+
+    @Override
+    public void sort(Comparator<? super Result> c) {
+        materialize();
+        super.sort(c);
+    }
+
+    @Override
+    public void clear() {
+        materialize();
+        super.clear();
+    }
+
+    @Override
+    public void ensureCapacity(int minCapacity) {
+        materialize();
+        super.ensureCapacity(minCapacity);
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        materialize();
+        super.removeRange(fromIndex, toIndex);
+    }
+
+    /**
+     * Copy the rows into the list this result set extends, ahead of the first change to it, and drop the columns.
+     */
+    private void materialize() {
+        if (materialized) {
+            return;
+        }
+        List<Result> copy = new ArrayList<>(rows);
+        materialized = true;
+        super.addAll(copy);
+
+        size = 0;
+        timestamps = null;
+        dimensionRowCodes = null;
+        dimensionDictionaries = null;
+        metricValues = null;
+        lastRow = null;
+    }
+
+    /**
+     * Build a row from the columns, or reuse it if it was the last row read.
+     *
+     * @param index  The row index
+     *
+     * @return the row
+     */
+    private Result buildRow(int index) {
+        int row = checkRow(index);
+        BuiltRow last = lastRow;
+        if (last != null && last.index == row) {
+            return last.result;
+        }
+
+        LinkedHashMap<DimensionColumn, DimensionRow> dimensionRows = new LinkedHashMap<>();
+        for (int column = 0; column < dimensionColumns.size(); column++) {
+            int code = dimensionRowCodes[column][row];
+            if (code != UNSET) {
+                dimensionRows.put(dimensionColumns.get(column), dimensionDictionaries[column][code]);
+            }
+        }
+
+        LinkedHashMap<MetricColumn, Object> metrics = new LinkedHashMap<>();
+        for (int column = 0; column < metricColumns.size(); column++) {
+            if (metricValues[column].isPresent(row)) {
+                metrics.put(metricColumns.get(column), metricValues[column].get(row));
+            }
+        }
+
+        Result result = new Result(dimensionRows, metrics, new DateTime(timestamps[row], dateTimeZone));
+        lastRow = new BuiltRow(row, result);
+        return result;
+    }
+
+    /**
+     * Verify that a row index is within the result set.
+     *
+     * @param row  The row index
+     *
+     * @return the row index
+     */
+    private int checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Index: " + row + ", Size: " + size);
+        }
+        return row;
+    }
+
+    /**
+     * A row built from the columns, with its index.
+     */
+    private static final class BuiltRow {
+        private final int index;
+        private final Result result;
+
+        /**
+         * Constructor.
+         *
+         * @param index  The row index
+         * @param result  The row
+         */
+        private BuiltRow(int index, Result result) {
+            this.index = index;
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.data;
+
+import com.yahoo.bard.webservice.data.dimension.DimensionColumn;
+import com.yahoo.bard.webservice.data.dimension.DimensionRow;
+import com.yahoo.bard.webservice.data.metric.MetricColumn;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Accumulates result rows column by column and builds a {@link ColumnarResultSet} from them.
+ * <p>
+ * Columns are addressed by their position among the dimension (or metric) columns of the schema. Rows are added with
+ * {@link #addRow()} and can be filled in any order, which lets a parser fill a row before it knows its timestamp. A
+ * dimension column which is never set for a row is left out of that row, as is a metric column. A builder builds a
+ * single result set.
+ */
+public class ColumnarResultSetBuilder {
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int UNSET = -1;
+
+    private final ResultSetSchema schema;
+    private final DateTimeZone dateTimeZone;
+    private final List<DimensionColumn> dimensionColumns;
+    private final List<MetricColumn> metricColumns;
+
+    private final List<Map<DimensionRow, Integer>> dimensionCodes;
+    private final List<List<DimensionRow>> dimensionDictionaries;
+    private final ColumnarMetricValues[] metricValues;
+
+    private long[] timestamps;
+    private int[][] dimensionRowCodes;
+    private int capacity;
+    private int size;
+    private boolean built;
+
+    /**
+     * Constructor.
+     *
+     * @param schema  The schema of the result set being built
+     * @param dateTimeZone  The time zone of every timestamp in the result set
+     */
+    public ColumnarResultSetBuilder(ResultSetSchema schema, DateTimeZone dateTimeZone) {
+        this.schema = schema;
+        this.dateTimeZone = dateTimeZone;
+        this.dimensionColumns = new ArrayList<>(schema.getColumns(DimensionColumn.class));
+        this.metricColumns = new ArrayList<>(schema.getColumns(MetricColumn.class));
+
+        this.capacity = INITIAL_CAPACITY;
+        this.timestamps = new long[capacity];
+
+        this.dimensionCodes = new ArrayList<>(dimensionColumns.size());
+        this.dimensionDictionaries = new ArrayList<>(dimensionColumns.size());
+        this.dimensionRowCodes = new int[dimensionColumns.size()][];
+        for (int column = 0; column < dimensionColumns.size(); column++) {
+            dimensionCodes.add(new HashMap<>());
+            dimensionDictionaries.add(new ArrayList<>());
+            dimensionRowCodes[column] = new int[capacity];
+        }
+
+        this.metricValues = new ColumnarMetricValues[metricColumns.size()];
+        for (int column = 0; column < metricColumns.size(); column++) {
+            metricValues[column] = new ColumnarMetricValues(capacity);
+        }
+    }
+
+    /**
+     * The dimension columns of the schema, in the order used to address them.
+     *
+     * @return the dimension columns
+     */
+    public List<DimensionColumn> getDimensionColumns() {
+        return dimensionColumns;
+    }
+
+    /**
+     * The metric columns of the schema, in the order used to address them.
+     *
+     * @return the metric columns
+     */
+    public List<MetricColumn> getMetricColumns() {
+        return metricColumns;
+    }
+
+    /**
+     * Add an empty row.
+     *
+     * @return the index of the new row
+     */
+    public int addRow() {
+        checkNotBuilt();
+        if (size == capacity) {
+            grow();
+        }
+        for (int[] codes : dimensionRowCodes) {
+            codes[size] = UNSET;
+        }
+        return size++;
+    }
+
+    /**
+     * Set the timestamp of a row.
+     *
+     * @param row  The row index
+     * @param timeStamp  The timestamp, which must be in the time zone of the builder
+     *
+     * @return the builder
+     */
+    public ColumnarResultSetBuilder setTimeStamp(int row, DateTime timeStamp) {
+        if (!dateTimeZone.equals(timeStamp.getZone())) {
+            throw new IllegalArgumentException(
+                    String.format("Timestamp %s is not in the result set time zone %s", timeStamp, dateTimeZone)
+            );
+        }
+        timestamps[checkRow(row)] = timeStamp.getMillis();
+        return this;
+    }
+
+    /**
+     * Set the dimension row of a dimension column of a row.
+     *
+     * @param row  The row index
+     * @param column  The index of the column among the dimension columns
+     * @param dimensionRow  The dimension row
+     *
+     * @return the builder
+     */
+    public ColumnarResultSetBuilder setDimensionRow(int row, int column, DimensionRow dimensionRow) {
+        checkRow(row);
+        Map<DimensionRow, Integer> codes = dimensionCodes.get(column);
+        Integer code = codes.get(dimensionRow);
+        if (code == null) {
+            List<DimensionRow> dictionary = dimensionDictionaries.get(column);
+            code = dictionary.size();
+            dictionary.add(dimensionRow);
+            codes.put(dimensionRow, code);
+        }
+        dimensionRowCodes[column][row] = code;
+        return this;
+    }
+
+    /**
+     * Set the value of a metric column of a row.
+     *
+     * @param row  The row index
+     * @param column  The index of the column among the metric columns
+     * @param value  The metric value
+     *
+     * @return the builder
+     */
+    public ColumnarResultSetBuilder setMetricValue(int row, int column, Object value) {
+        metricValues[column].set(checkRow(row), value);
+        return this;
+    }
+
+    /**
+     * Whether a result can be added without losing any of its values, which it can if its timestamp is in the time
+     * zone of the builder and all of its columns are columns of the schema.
+     *
+     * @param result  The result
+     *
+     * @return true if the result can be added
+     */
+    public boolean fits(Result result) {
+        return dateTimeZone.equals(result.getTimeStamp().getZone())
+                && dimensionColumns.containsAll(result.getDimensionRows().keySet())
+                && metricColumns.containsAll(result.getMetricValues().keySet());
+    }
+
+    /**
+     * Add a row holding the values of a result.
+     *
+     * @param result  The result to add
+     *
+     * @return the builder
+     */
+    public ColumnarResultSetBuilder add(Result result) {
+        int row = addRow();
+        setTimeStamp(row, result.getTimeStamp());
+        for (int column = 0; column < dimensionColumns.size(); column++) {
+            DimensionRow dimensionRow = result.getDimensionRow(dimensionColumns.get(column));
+            if (dimensionRow != null) {
+                setDimensionRow(row, column, dimensionRow);
+            }
+        }
+        Map<MetricColumn, Object> values = result.getMetricValues();
+        for (int column = 0; column < metricColumns.size(); column++) {
+            MetricColumn metricColumn = metricColumns.get(column);
+            if (values.containsKey(metricColumn)) {
+                setMetricValue(row, column, values.get(metricColumn));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Build the result set from the rows added so far.
+     *
+     * @return the columnar result set
+     */
+    public ColumnarResultSet build() {
+        checkNotBuilt();
+        DimensionRow[][] dictionaries = new DimensionRow[dimensionColumns.size()][];
+        int[][] codes = new int[dimensionColumns.size()][];
+        for (int column = 0; column < dimensionColumns.size(); column++) {
+            dictionaries[column] = dimensionDictionaries.get(column).toArray(new DimensionRow[0]);
+            codes[column] = Arrays.copyOf(dimensionRowCodes[column], size);
+        }
+        for (ColumnarMetricValues values : metricValues) {
+            values.resize(size);
+        }
+
+        ColumnarResultSet resultSet = new ColumnarResultSet(
+                schema,
+                dateTimeZone,
+                Arrays.copyOf(timestamps, size),
+                dimensionColumns,
+                codes,
+                dictionaries,
+                metricColumns,
+                metricValues
+        );
+
+        // The metric storage now belongs to the result set, so the builder must not touch it again
+        built = true;
+        return resultSet;
+    }
+
+    /**
+     * Verify that a row index refers to a row that has been added.
+     *
+     * @param row  The row index
+     *
+     * @return the row index
+     */
+    private int checkRow(int row) {
+        checkNotBuilt();
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " has not been added, size is " + size);
+        }
+        return row;
+    }
+
+    /**
+     * Verify that the result set has not been built yet.
+     */
+    private void checkNotBuilt() {
+        if (built) {
+            throw new IllegalStateException("The result set has already been built");
+        }
+    }
+
+    /**
+     * Double the capacity of all of the column storage.
+     */
+    private void grow() {
+        capacity *= 2;
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        for (int column = 0; column < dimensionRowCodes.length; column++) {
+            dimensionRowCodes[column] = Arrays.copyOf(dimensionRowCodes[column], capacity);
+        }
+        for (ColumnarMetricValues values : metricValues) {
+            values.resize(capacity);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.data;
+
+import com.yahoo.bard.webservice.data.dimension.Dimension;
+import com.yahoo.bard.webservice.data.dimension.DimensionColumn;
+import com.yahoo.bard.webservice.data.dimension.DimensionRow;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves the key values of the dimension columns of a Druid response into dimension rows, in bulk.
+ * <p>
+ * A hydrator lives for the parse of a single response. The key values are first requested, then hydrated together
+ * with one bulk lookup for each dimension column, rather than one lookup for each cell of the response. Each key
+ * value resolves to a single row instance, shared by every result with that key value. Key values without a stored
+ * row resolve to an empty row.
+ */
+public class DimensionRowHydrator {
+
+    private final Map<DimensionColumn, Map<String, DimensionRow>> resolved = new HashMap<>();
+    private final Map<DimensionColumn, Set<String>> pending = new LinkedHashMap<>();
+
+    /**
+     * Request the row of a key value, to be fetched by the next hydration.
+     *
+     * @param column  The dimension column of the key value
+     * @param keyValue  The key value
+     */
+    public void request(DimensionColumn column, String keyValue) {
+        Map<String, DimensionRow> rows = resolved.get(column);
+        if (rows == null || !rows.containsKey(keyValue)) {
+            pending.computeIfAbsent(column, ignored -> new HashSet<>()).add(keyValue);
+        }
+    }
+
+    /**
+     * Fetch the rows of all of the key values requested since the last hydration, with one lookup for each column.
+     */
+    public void hydrate() {
+        for (Map.Entry<DimensionColumn, Set<String>> entry : pending.entrySet()) {
+            Dimension dimension = entry.getKey().getDimension();
+            Map<String, DimensionRow> found = dimension.findDimensionRowsByKeyValues(entry.getValue());
+            Map<String, DimensionRow> rows = resolved.computeIfAbsent(entry.getKey(), ignored -> new HashMap<>());
+            for (String keyValue : entry.getValue()) {
+                DimensionRow row = found.get(keyValue);
+                rows.put(keyValue, row == null ? dimension.createEmptyDimensionRow(keyValue) : row);
+            }
+        }
+        pending.clear();
+    }
+
+    /**
+     * Get the row of a key value.
+     * <p>
+     * A key value which was not hydrated yet is fetched on its own.
+     *
+     * @param column  The dimension column of the key value
+     * @param keyValue  The key value
+     *
+     * @return the row of the key value, or an empty row if the dimension has none
+     */
+    public DimensionRow getDimensionRow(DimensionColumn column, String keyValue) {
+        DimensionRow row = resolved.getOrDefault(column, Collections.emptyMap()).get(keyValue);
+        if (row == null) {
+            request(column, keyValue);
+            hydrate();
+            row = resolved.get(column).get(keyValue);
+        }
+        return row;
+    }
+}
@@ -4,6 +4,7 @@ package com.yahoo.bard.webservice.data;
 
 import static com.yahoo.bard.webservice.web.ErrorMessageFormat.RESULT_SET_ERROR;
 
+import com.yahoo.bard.webservice.config.BardFeatureFlag;
 import com.yahoo.bard.webservice.data.dimension.DimensionColumn;
 import com.yahoo.bard.webservice.data.dimension.DimensionRow;
 import com.yahoo.bard.webservice.data.metric.MetricColumn;
@@ -12,16 +13,25 @@ import com.yahoo.bard.webservice.druid.model.QueryType;
 import com.yahoo.bard.webservice.druid.model.query.DruidAggregationQuery;
 import com.yahoo.bard.webservice.table.Column;
 
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Stream;
 
@@ -36,6 +46,16 @@ public class DruidResponseParser {
 
     private static final Logger LOG = LoggerFactory.getLogger(DruidResponseParser.class);
 
+    /**
+     * Used only to read complex (object or array) metric values out of a token stream.
+     */
+    private static final ObjectMapper COMPLEX_VALUE_READER = new ObjectMapper();
+
+    /**
+     * The number of rows read from a streamed response before their dimension rows are fetched.
+     */
+    private static final int HYDRATION_BATCH_SIZE = 10000;
+
     /**
      * Parse Druid GroupBy result into ResultSet.
      *
@@ -89,6 +109,170 @@ public class DruidResponseParser {
         return new ResultSet(schema, results);
     }
 
+    /**
+     * Parse a Druid response into a ResultSet straight from a stream of JSON tokens.
+     * <p>
+     * Unlike {@link #parse(JsonNode, ResultSetSchema, QueryType, DateTimeZone)}, the response is never materialized as
+     * a tree. Rows are turned into results in batches of {@value #HYDRATION_BATCH_SIZE}, once the dimension rows of
+     * the batch have been fetched in bulk, so only the result set and one batch are retained while parsing. When
+     * columnar result sets are enabled the rows are stored straight into a {@link ColumnarResultSet}.
+     *
+     * @param parser  Parser over the Druid response, positioned before or on the opening array token
+     * @param schema  Schema for results
+     * @param queryType  the type of query, note that this implementation only supports instances of
+     * {@link DefaultQueryType}
+     * @param dateTimeZone the time zone used for format the results
+     *
+     * @return the set of results
+     *
+     * @throws IOException if the token stream cannot be read or is not shaped like a Druid response
+     */
+    public ResultSet parse(
+            JsonParser parser,
+            ResultSetSchema schema,
+            QueryType queryType,
+            DateTimeZone dateTimeZone
+    ) throws IOException {
+
+        LOG.trace("Streaming parse of druid query {} using schema: {}", queryType, schema);
+
+        if (!(queryType instanceof DefaultQueryType)) {
+            // Throw an exception for unsupported query types
+            unsupportedQueryType(queryType);
+        }
+        DefaultQueryType defaultQueryType = (DefaultQueryType) queryType;
+
+        /* Get dimension and metric columns */
+        List<DimensionColumn> dimensionColumns = new ArrayList<>(schema.getColumns(DimensionColumn.class));
+        List<MetricColumn> metricColumns = new ArrayList<>(schema.getColumns(MetricColumn.class));
+
+        String rowsFieldName = null;
+        switch (defaultQueryType) {
+            case GROUP_BY:
+                rowsFieldName = "event";
+                break;
+            case TOP_N:
+            case LOOKBACK:
+                rowsFieldName = "result";
+                break;
+            case TIMESERIES:
+                rowsFieldName = "result";
+                // Timeseries results never carry dimensions
+                dimensionColumns = Collections.emptyList();
+                break;
+            default:
+                // Throw an exception for unsupported query types
+                unsupportedQueryType(queryType);
+        }
+
+        StreamingRowReader rowReader = new StreamingRowReader(dimensionColumns, metricColumns);
+        DimensionRowHydrator hydrator = new DimensionRowHydrator();
+        ResultSet resultSet = new ResultSet(schema, Collections.emptyList());
+        ColumnarResultSetBuilder columnarBuilder = BardFeatureFlag.COLUMNAR_RESULT_SET.isOn()
+                ? new ColumnarResultSetBuilder(schema, dateTimeZone)
+                : null;
+
+        if (parser.getCurrentToken() == null) {
+            parser.nextToken();
+        }
+        expectToken(parser, JsonToken.START_ARRAY);
+
+        // Rows of the current record, held only until the record's timestamp is known
+        List<StreamedRow> recordRows = new ArrayList<>();
+        // Rows read since the last hydration, held until their dimension rows are fetched
+        List<StreamedRow> batchRows = new ArrayList<>();
+        List<DateTime> batchTimeStamps = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            String timestamp = null;
+            recordRows.clear();
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                JsonToken valueToken = parser.nextToken();
+                if ("timestamp".equals(fieldName)) {
+                    timestamp = parser.getText();
+                } else if (rowsFieldName.equals(fieldName) && valueToken == JsonToken.START_OBJECT) {
+                    recordRows.add(rowReader.readRow(parser));
+                } else if (rowsFieldName.equals(fieldName) && valueToken == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        recordRows.add(rowReader.readRow(parser));
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            expectToken(parser, JsonToken.END_OBJECT);
+
+            if (timestamp == null) {
+                throw new JsonParseException("Druid result record has no timestamp", parser.getCurrentLocation());
+            }
+            DateTime timeStamp = new DateTime(timestamp, dateTimeZone);
+            for (StreamedRow row : recordRows) {
+                rowReader.requestDimensionRows(row, hydrator);
+                batchRows.add(row);
+                batchTimeStamps.add(timeStamp);
+            }
+            if (batchRows.size() >= HYDRATION_BATCH_SIZE) {
+                addBatch(batchRows, batchTimeStamps, rowReader, hydrator, resultSet, columnarBuilder);
+            }
+        }
+        expectToken(parser, JsonToken.END_ARRAY);
+        addBatch(batchRows, batchTimeStamps, rowReader, hydrator, resultSet, columnarBuilder);
+
+        if (columnarBuilder != null) {
+            resultSet = columnarBuilder.build();
+        }
+        LOG.trace("Streamed druid query {} results: {}", queryType, resultSet.size());
+        return resultSet;
+    }
+
+    /**
+     * Hydrate the dimension rows of a batch of streamed rows, add the rows to the results and empty the batch.
+     *
+     * @param batchRows  The rows of the batch
+     * @param batchTimeStamps  The timestamp of each row of the batch
+     * @param rowReader  The reader which read the rows
+     * @param hydrator  The hydrator the dimension rows of the batch were requested from
+     * @param resultSet  The result set to add the rows to, if there is no columnar builder
+     * @param columnarBuilder  The builder of the columnar result set to add the rows to, or null
+     */
+    private static void addBatch(
+            List<StreamedRow> batchRows,
+            List<DateTime> batchTimeStamps,
+            StreamingRowReader rowReader,
+            DimensionRowHydrator hydrator,
+            ResultSet resultSet,
+            ColumnarResultSetBuilder columnarBuilder
+    ) {
+        hydrator.hydrate();
+        for (int i = 0; i < batchRows.size(); i++) {
+            if (columnarBuilder == null) {
+                resultSet.add(rowReader.toResult(batchRows.get(i), batchTimeStamps.get(i), hydrator));
+            } else {
+                rowReader.addTo(columnarBuilder, batchRows.get(i), batchTimeStamps.get(i), hydrator);
+            }
+        }
+        batchRows.clear();
+        batchTimeStamps.clear();
+    }
+
+    /**
+     * Verify that the parser is positioned on the expected token.
+     *
+     * @param parser  The parser to check
+     * @param expected  The token the parser should be on
+     *
+     * @throws JsonParseException if the parser is on any other token
+     */
+    private static void expectToken(JsonParser parser, JsonToken expected) throws JsonParseException {
+        if (parser.getCurrentToken() != expected) {
+            throw new JsonParseException(
+                    String.format("Expected %s in Druid response but found %s", expected, parser.getCurrentToken()),
+                    parser.getCurrentLocation()
+            );
+        }
+    }
+
     /**
      * Log an error message and throw an exception for an unsupported query type.
      *
@@ -118,11 +302,21 @@ public class DruidResponseParser {
     ) {
         List<Result> results = new ArrayList<>();
 
+        DimensionRowHydrator hydrator = new DimensionRowHydrator();
+        for (JsonNode record : jsonResult) {
+            requestDimensionRows(dimensionColumns, record.get("event"), hydrator);
+        }
+        hydrator.hydrate();
+
         for (JsonNode record : jsonResult) {
             DateTime timeStamp = new DateTime(record.get("timestamp").asText(), dateTimeZone);
 
             JsonNode event = record.get("event");
-            LinkedHashMap<DimensionColumn, DimensionRow> dimensionRows = extractDimensionRows(dimensionColumns, event);
+            LinkedHashMap<DimensionColumn, DimensionRow> dimensionRows = extractDimensionRows(
+                    dimensionColumns,
+                    event,
+                    hydrator
+            );
             LinkedHashMap<MetricColumn, Object> metricValues = extractMetricValues(metricColumns, event);
 
             results.add(new Result(dimensionRows, metricValues, timeStamp));
@@ -149,6 +343,14 @@ public class DruidResponseParser {
     ) {
         List<Result> results = new ArrayList<>();
 
+        DimensionRowHydrator hydrator = new DimensionRowHydrator();
+        for (JsonNode record : jsonResult) {
+            for (JsonNode entry : record.get("result")) {
+                requestDimensionRows(dimensionColumns, entry, hydrator);
+            }
+        }
+        hydrator.hydrate();
+
         /* loop over all records */
         for (JsonNode record : jsonResult) {
             DateTime timeStamp = new DateTime(record.get("timestamp").asText(), dateTimeZone);
@@ -158,7 +360,8 @@ public class DruidResponseParser {
             for (final JsonNode entry : result) {
                 LinkedHashMap<DimensionColumn, DimensionRow> dimensionRows = extractDimensionRows(
                         dimensionColumns,
-                        entry
+                        entry,
+                        hydrator
                 );
                 LinkedHashMap<MetricColumn, Object> metricValues = extractMetricValues(metricColumns, entry);
 
@@ -216,6 +419,14 @@ public class DruidResponseParser {
     ) {
         List<Result> results = new ArrayList<>();
 
+        DimensionRowHydrator hydrator = new DimensionRowHydrator();
+        if (dimensionColumns != null) {
+            for (JsonNode record : jsonResult) {
+                requestDimensionRows(dimensionColumns, record.get("result"), hydrator);
+            }
+            hydrator.hydrate();
+        }
+
         for (JsonNode record : jsonResult) {
             DateTime timeStamp = new DateTime(record.get("timestamp").asText(), dateTimeZone);
 
@@ -227,7 +438,7 @@ public class DruidResponseParser {
 
             dimensionRows = dimensionColumns == null ?
                     new LinkedHashMap<>() :
-                    extractDimensionRows(dimensionColumns, result);
+                    extractDimensionRows(dimensionColumns, result, hydrator);
 
 
             results.add(new Result(dimensionRows, metricValues, timeStamp));
@@ -235,38 +446,61 @@ public class DruidResponseParser {
         return results;
     }
 
+    /**
+     * Request the dimension rows of a json object from a hydrator, to be fetched in bulk before the rows are
+     * extracted.
+     *
+     * @param dimensionColumns  the set of dimension columns
+     * @param entry  the json object
+     * @param hydrator  the hydrator of the dimension rows of the response
+     */
+    private void requestDimensionRows(
+            Set<DimensionColumn> dimensionColumns,
+            JsonNode entry,
+            DimensionRowHydrator hydrator
+    ) {
+        for (DimensionColumn dc : dimensionColumns) {
+            hydrator.request(dc, getDimensionKeyValue(dc, entry));
+        }
+    }
+
     /**
      * Extract the dimension rows for a json object given the set of all available dimension columns and the json
      * object.
      *
      * @param dimensionColumns  the set of dimension columns
      * @param entry  the json object
+     * @param hydrator  the hydrator of the dimension rows of the response
      *
      * @return map of dimension columns to dimension rows
      */
     private LinkedHashMap<DimensionColumn, DimensionRow> extractDimensionRows(
             Set<DimensionColumn> dimensionColumns,
-            JsonNode entry
+            JsonNode entry,
+            DimensionRowHydrator hydrator
     ) {
         LinkedHashMap<DimensionColumn, DimensionRow> dimensionRows = new LinkedHashMap<>();
 
         for (DimensionColumn dc : dimensionColumns) {
-            JsonNode fieldNode = entry.get(dc.getName());
-            String fieldValue = "";
-            if (fieldNode != null) {
-                fieldValue = fieldNode.asText("");
-            }
-
-            DimensionRow drow = dc.getDimension().findDimensionRowByKeyValue(fieldValue);
-            if (drow == null) {
-                drow = dc.getDimension().createEmptyDimensionRow(fieldValue);
-            }
-            dimensionRows.put(dc, drow);
+            dimensionRows.put(dc, hydrator.getDimensionRow(dc, getDimensionKeyValue(dc, entry)));
         }
 
         return dimensionRows;
     }
 
+    /**
+     * Get the key value of a dimension column in a json object.
+     *
+     * @param dimensionColumn  the dimension column
+     * @param entry  the json object
+     *
+     * @return the key value, or the empty string if the json object has none
+     */
+    private static String getDimensionKeyValue(DimensionColumn dimensionColumn, JsonNode entry) {
+        JsonNode fieldNode = entry.get(dimensionColumn.getName());
+        return fieldNode == null ? "" : fieldNode.asText("");
+    }
+
     /**
      * Extract the metric values for a json object given the set of all available metric columns and the json object.
      *
@@ -309,6 +543,215 @@ public class DruidResponseParser {
                 node;
     }
 
+    /**
+     * Reads a single value from a token stream, matching the representation produced by {@link #getNodeValue}.
+     *
+     * @param parser  The parser positioned on the first token of the value
+     *
+     * @return the value as a BigDecimal if it is a number, a String if it is textual, a boolean if it is a boolean,
+     * null if it is null, and a JsonNode otherwise.
+     *
+     * @throws IOException if the value cannot be read
+     */
+    private static Object readValue(JsonParser parser) throws IOException {
+        switch (parser.getCurrentToken()) {
+            case VALUE_NUMBER_INT:
+                return parser.getDecimalValue();
+            case VALUE_NUMBER_FLOAT:
+                // Tree parsing reads floats as doubles, keep the same scale
+                return BigDecimal.valueOf(parser.getDoubleValue());
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_TRUE:
+                return true;
+            case VALUE_FALSE:
+                return false;
+            case VALUE_NULL:
+                return null;
+            default:
+                return COMPLEX_VALUE_READER.readTree(parser);
+        }
+    }
+
+    /**
+     * Builds the dimension and metric maps of a result row from the fields of a single JSON object.
+     * <p>
+     * Column lookups by name are resolved once per response rather than once per row.
+     */
+    private static class StreamingRowReader {
+        private final List<DimensionColumn> dimensionColumns;
+        private final List<MetricColumn> metricColumns;
+        private final Map<String, Integer> dimensionIndexes;
+        private final Map<String, Integer> metricIndexes;
+
+        /**
+         * Constructor.
+         *
+         * @param dimensionColumns  The dimension columns, in schema order
+         * @param metricColumns  The metric columns, in schema order
+         */
+        StreamingRowReader(List<DimensionColumn> dimensionColumns, List<MetricColumn> metricColumns) {
+            this.dimensionColumns = dimensionColumns;
+            this.metricColumns = metricColumns;
+            this.dimensionIndexes = new HashMap<>();
+            this.metricIndexes = new HashMap<>();
+            for (int i = 0; i < dimensionColumns.size(); i++) {
+                dimensionIndexes.put(dimensionColumns.get(i).getName(), i);
+            }
+            for (int i = 0; i < metricColumns.size(); i++) {
+                metricIndexes.put(metricColumns.get(i).getName(), i);
+            }
+        }
+
+        /**
+         * Read the object the parser is positioned on into a row, leaving the parser on its closing token.
+         *
+         * @param parser  The parser positioned on the opening token of a row object
+         *
+         * @return the dimension key values and metric values of the row, in schema order
+         *
+         * @throws IOException if the row cannot be read
+         */
+        StreamedRow readRow(JsonParser parser) throws IOException {
+            String[] dimensionKeys = new String[dimensionColumns.size()];
+            Object[] metricValues = new Object[metricColumns.size()];
+            boolean[] metricFound = new boolean[metricColumns.size()];
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                JsonToken valueToken = parser.nextToken();
+                Integer dimensionIndex = dimensionIndexes.get(fieldName);
+                Integer metricIndex = metricIndexes.get(fieldName);
+
+                if (dimensionIndex == null && metricIndex == null) {
+                    parser.skipChildren();
+                    continue;
+                }
+
+                if (valueToken.isScalarValue()) {
+                    if (dimensionIndex != null) {
+                        dimensionKeys[dimensionIndex] = valueToken == JsonToken.VALUE_NULL ? "" : parser.getText();
+                    }
+                    if (metricIndex != null) {
+                        metricValues[metricIndex] = readValue(parser);
+                        metricFound[metricIndex] = true;
+                    }
+                } else {
+                    JsonNode node = COMPLEX_VALUE_READER.readTree(parser);
+                    if (dimensionIndex != null) {
+                        dimensionKeys[dimensionIndex] = node.asText("");
+                    }
+                    if (metricIndex != null) {
+                        metricValues[metricIndex] = node;
+                        metricFound[metricIndex] = true;
+                    }
+                }
+            }
+
+            for (int i = 0; i < dimensionKeys.length; i++) {
+                if (dimensionKeys[i] == null) {
+                    dimensionKeys[i] = "";
+                }
+            }
+
+            for (int i = 0; i < metricValues.length; i++) {
+                if (!metricFound[i]) {
+                    LOG.warn("Found null node for metric column {}", metricColumns.get(i).getName());
+                }
+            }
+
+            return new StreamedRow(dimensionKeys, metricValues, metricFound);
+        }
+
+        /**
+         * Request the dimension rows of a row from a hydrator.
+         *
+         * @param row  The row read from the response
+         * @param hydrator  The hydrator of the dimension rows of the response
+         */
+        void requestDimensionRows(StreamedRow row, DimensionRowHydrator hydrator) {
+            for (int i = 0; i < row.dimensionKeys.length; i++) {
+                hydrator.request(dimensionColumns.get(i), row.dimensionKeys[i]);
+            }
+        }
+
+        /**
+         * Build a result from a row.
+         *
+         * @param row  The row read from the response
+         * @param timeStamp  The timestamp of the row
+         * @param hydrator  The hydrator the dimension rows of the row were requested from
+         *
+         * @return the result
+         */
+        Result toResult(StreamedRow row, DateTime timeStamp, DimensionRowHydrator hydrator) {
+            LinkedHashMap<DimensionColumn, DimensionRow> dimensionRows = new LinkedHashMap<>();
+            for (int i = 0; i < row.dimensionKeys.length; i++) {
+                DimensionColumn dc = dimensionColumns.get(i);
+                dimensionRows.put(dc, hydrator.getDimensionRow(dc, row.dimensionKeys[i]));
+            }
+
+            LinkedHashMap<MetricColumn, Object> metrics = new LinkedHashMap<>();
+            for (int i = 0; i < row.metricValues.length; i++) {
+                if (row.metricFound[i]) {
+                    metrics.put(metricColumns.get(i), row.metricValues[i]);
+                }
+            }
+
+            return new Result(dimensionRows, metrics, timeStamp);
+        }
+
+        /**
+         * Add a row to a columnar result set being built over the same schema.
+         *
+         * @param builder  The builder of the columnar result set
+         * @param row  The row read from the response
+         * @param timeStamp  The timestamp of the row
+         * @param hydrator  The hydrator the dimension rows of the row were requested from
+         */
+        void addTo(
+                ColumnarResultSetBuilder builder,
+                StreamedRow row,
+                DateTime timeStamp,
+                DimensionRowHydrator hydrator
+        ) {
+            int index = builder.addRow();
+            builder.setTimeStamp(index, timeStamp);
+            for (int i = 0; i < row.dimensionKeys.length; i++) {
+                DimensionColumn dc = dimensionColumns.get(i);
+                builder.setDimensionRow(index, i, hydrator.getDimensionRow(dc, row.dimensionKeys[i]));
+            }
+            for (int i = 0; i < row.metricValues.length; i++) {
+                if (row.metricFound[i]) {
+                    builder.setMetricValue(index, i, row.metricValues[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * The dimension key values and metric values of a result row whose timestamp and dimension rows are not yet known,
+     * in schema order.
+     */
+    private static class StreamedRow {
+        private final String[] dimensionKeys;
+        private final Object[] metricValues;
+        private final boolean[] metricFound;
+
+        /**
+         * Constructor.
+         *
+         * @param dimensionKeys  The dimension key values of the row
+         * @param metricValues  The metric values of the row
+         * @param metricFound  Whether or not each metric was present in the row
+         */
+        StreamedRow(String[] dimensionKeys, Object[] metricValues, boolean[] metricFound) {
+            this.dimensionKeys = dimensionKeys;
+            this.metricValues = metricValues;
+            this.metricFound = metricFound;
+        }
+    }
+
     /**
      * Produce the schema-defining columns for a given druid query.
      *
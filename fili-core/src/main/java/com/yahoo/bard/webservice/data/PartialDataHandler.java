@@ -4,6 +4,7 @@ package com.yahoo.bard.webservice.data;
 
 import com.yahoo.bard.webservice.data.time.AllGranularity;
 import com.yahoo.bard.webservice.data.time.Granularity;
+import com.yahoo.bard.webservice.util.IntervalSet;
 import com.yahoo.bard.webservice.util.SimplifiedIntervalList;
 
 import org.joda.time.Interval;
@@ -82,7 +83,8 @@ public class PartialDataHandler {
         Iterable<Interval> bucketIterable = granularity.intervalsIterable(bucketedIntervals);
 
         // Not in returns true if any part of the stream interval is not 'covered' by the remove intervals.
-        Predicate<Interval> notIn = new SimplifiedIntervalList.IsSubinterval(supplyIntervals).negate();
+        IntervalSet supply = supplyIntervals.toIntervalSet();
+        Predicate<Interval> notIn = interval -> !supply.contains(interval);
         return StreamSupport.stream(bucketIterable.spliterator(), false)
                 .filter(notIn)
                 .collect(SimplifiedIntervalList.getCollector());
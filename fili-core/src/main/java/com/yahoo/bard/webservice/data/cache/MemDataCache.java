@@ -15,6 +15,9 @@ import net.spy.memcached.MemcachedClient;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -81,6 +84,24 @@ public class MemDataCache<T extends Serializable> implements DataCache<T> {
         }
     }
 
+    /**
+     * Read the values of many keys from the cache in one bulk get.
+     *
+     * @param keys  The keys whose associated values are to be returned
+     *
+     * @return the value of each key which has one, keys without a value are left out
+     */
+    protected Map<String, T> getBulk(Collection<String> keys) {
+        try {
+            @SuppressWarnings("unchecked")
+            Map<String, T> values = (Map<String, T>) (Map<String, ?>) client.getBulk(keys);
+            return values;
+        } catch (RuntimeException warnThenIgnore) {
+            LOG.warn(warnThenIgnore.getMessage(), warnThenIgnore);
+            return Collections.emptyMap();
+        }
+    }
+
     @Override
     public boolean set(String key, T value) throws IllegalStateException {
         try {
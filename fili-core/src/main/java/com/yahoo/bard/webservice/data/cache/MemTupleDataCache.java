@@ -13,6 +13,11 @@ import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiPredicate;
 
 import javax.inject.Singleton;
 
@@ -112,6 +117,22 @@ public class MemTupleDataCache<T extends Serializable, V extends Serializable>
         return super.get(hash(key));
     }
 
+    @Override
+    public Map<String, TupleDataCache.DataEntry<String, T, V>> getAll(
+            Collection<String> keys,
+            BiPredicate<String, T> isValid
+    ) {
+        Map<String, String> keysByHash = new HashMap<>(keys.size());
+        for (String key : keys) {
+            keysByHash.put(hash(key), key);
+        }
+        Map<String, TupleDataCache.DataEntry<String, T, V>> values = getBulk(keysByHash.keySet());
+
+        Map<String, TupleDataCache.DataEntry<String, T, V>> entries = new LinkedHashMap<>(values.size());
+        values.forEach((hash, entry) -> entries.put(keysByHash.get(hash), entry));
+        return entries;
+    }
+
     @Override
     public boolean set(String key, T meta, V value) {
         return set(hash(key), new DataEntry<>(key, meta, value));
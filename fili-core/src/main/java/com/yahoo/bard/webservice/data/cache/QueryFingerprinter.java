@@ -0,0 +1,103 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.data.cache;
+
+import com.yahoo.bard.webservice.druid.model.query.DruidAggregationQuery;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.filter.FilteringGeneratorDelegate;
+import com.fasterxml.jackson.core.filter.TokenFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.hash.Funnels;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Computes compact cache keys for Druid queries.
+ * <p>
+ * A fingerprint is a SHA-256 hash of the JSON serialization of a query, leaving out its context and the contexts of
+ * its inner queries, rendered as 64 hex characters. Fingerprints are shared as cache keys by every instance, so the
+ * hash is collision resistant. The whole query is serialized in one pass straight into the hash function, without
+ * building a JSON tree or string, so that parts such as dimensions find their physical names from their enclosing
+ * query as they do when the query is sent to Druid.
+ */
+public class QueryFingerprinter {
+
+    private static final HashFunction HASH_FUNCTION = Hashing.sha256();
+
+    private static final String CONTEXT = "context";
+
+    // Contexts hold the per request query ids, so they are left out at every depth, as inner queries have them too
+    private static final TokenFilter FILTER = new TokenFilter() {
+        @Override
+        public TokenFilter includeProperty(String name) {
+            return CONTEXT.equals(name) ? null : this;
+        }
+    };
+
+    private final ObjectMapper mapper;
+    private final ObjectWriter writer;
+
+    /**
+     * Constructor.
+     *
+     * @param mapper  The mapper used to serialize queries
+     */
+    public QueryFingerprinter(ObjectMapper mapper) {
+        this.mapper = mapper;
+        this.writer = mapper.writer();
+    }
+
+    /**
+     * Compute the fingerprint of a query.
+     *
+     * @param druidQuery  The query to fingerprint
+     *
+     * @return the fingerprint, as 64 hex characters
+     * @throws JsonProcessingException if the query cannot be serialized to JSON
+     */
+    public String fingerprint(DruidAggregationQuery<?> druidQuery) throws JsonProcessingException {
+        Hasher hasher = HASH_FUNCTION.newHasher();
+        OutputStream out = Funnels.asOutputStream(hasher);
+        try (JsonGenerator generator = new ContextPreservingFilter(mapper.getFactory().createGenerator(out))) {
+            writer.writeValue(generator, druidQuery);
+        } catch (JsonProcessingException e) {
+            throw e;
+        } catch (IOException e) {
+            // Writing to a hash never fails, so this cannot happen
+            throw new UncheckedIOException(e);
+        }
+        return hasher.hash().toString();
+    }
+
+    /**
+     * A generator leaving out contexts, which exposes the output context of the generator it writes to.
+     * <p>
+     * Serializers set the values being written on the output context of the generator written to, and the serializers
+     * of dimensions walk up that context to find their enclosing query, so it has to be the context they see.
+     */
+    private static class ContextPreservingFilter extends FilteringGeneratorDelegate {
+
+        /**
+         * Constructor.
+         *
+         * @param generator  The generator to write the fields that are not left out to
+         */
+        ContextPreservingFilter(JsonGenerator generator) {
+            super(generator, FILTER, true, true);
+        }
+
+        @Override
+        public JsonStreamContext getOutputContext() {
+            return delegate.getOutputContext();
+        }
+    }
+}
@@ -0,0 +1,336 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.data.cache;
+
+import com.yahoo.bard.webservice.application.MetricRegistryFactory;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A tuple data cache which keeps a bounded, in-process near tier in front of a remote tuple data cache.
+ * <p>
+ * The near tier holds the most recently used entries with their values deflate compressed, bounded by the total size
+ * of the compressed values and keys. Reads are served from the near tier when possible and otherwise from the remote
+ * tier, promoting the remote entry to the near tier. Writes go to both tiers.
+ * <p>
+ * When reading with a validity check on the metadata, such as the segment set id of the query, a near entry which
+ * fails the check is dropped and the remote tier is consulted, so a stale near entry never hides a fresh remote one.
+ * If the remote tier has no entry, the read misses rather than returning the dropped near entry. Reads of many keys
+ * at once read all the keys the near tier cannot serve from the remote tier together.
+ *
+ * @param <M>  The metadata type of the cache.
+ */
+public class TieredTupleDataCache<M extends Serializable> implements TupleDataCache<String, M, String> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TieredTupleDataCache.class);
+    private static final MetricRegistry REGISTRY = MetricRegistryFactory.getRegistry();
+
+    public static final Meter NEAR_HITS = REGISTRY.meter("queries.meter.cache.near.hits");
+    public static final Meter NEAR_MISSES = REGISTRY.meter("queries.meter.cache.near.misses");
+    public static final Meter NEAR_EVICTIONS = REGISTRY.meter("queries.meter.cache.near.evictions");
+    public static final Meter REMOTE_HITS = REGISTRY.meter("queries.meter.cache.remote.hits");
+    public static final Meter REMOTE_MISSES = REGISTRY.meter("queries.meter.cache.remote.misses");
+
+    private static final String NEAR_HIT_RATIO = "queries.meter.cache.near.hit_ratio";
+    private static final String REMOTE_HIT_RATIO = "queries.meter.cache.remote.hit_ratio";
+
+    private final TupleDataCache<String, M, String> remote;
+    private final Cache<String, CompressedDataEntry<M>> near;
+
+    /**
+     * Constructor.
+     *
+     * @param remote  The remote cache behind the near tier
+     * @param maxNearBytes  The maximum total size of the compressed values and keys held by the near tier
+     * @param nearExpirationSeconds  How long an entry stays in the near tier after it is written
+     */
+    public TieredTupleDataCache(
+            TupleDataCache<String, M, String> remote,
+            long maxNearBytes,
+            long nearExpirationSeconds
+    ) {
+        this.remote = remote;
+        this.near = CacheBuilder.newBuilder()
+                .maximumWeight(maxNearBytes)
+                .weigher((String key, CompressedDataEntry<M> entry) -> entry.getWeight())
+                .expireAfterWrite(nearExpirationSeconds, TimeUnit.SECONDS)
+                .removalListener((RemovalListener<String, CompressedDataEntry<M>>) notification -> {
+                    if (notification.wasEvicted()) {
+                        NEAR_EVICTIONS.mark();
+                    }
+                })
+                .build();
+
+        registerHitRatio(NEAR_HIT_RATIO, NEAR_HITS, NEAR_MISSES);
+        registerHitRatio(REMOTE_HIT_RATIO, REMOTE_HITS, REMOTE_MISSES);
+    }
+
+    @Override
+    public DataEntry<String, M, String> get(String key) {
+        return get(key, meta -> true);
+    }
+
+    @Override
+    public DataEntry<String, M, String> get(String key, Predicate<M> isValid) {
+        CompressedDataEntry<M> nearEntry = near.getIfPresent(key);
+        if (nearEntry != null && isValid.test(nearEntry.getMeta())) {
+            NEAR_HITS.mark();
+            return nearEntry;
+        }
+        NEAR_MISSES.mark();
+        if (nearEntry != null) {
+            // Drop the stale entry before reading the remote tier, and never serve it if the remote tier misses
+            near.invalidate(key);
+        }
+
+        DataEntry<String, M, String> remoteEntry = remote.get(key);
+        if (remoteEntry == null) {
+            REMOTE_MISSES.mark();
+            return null;
+        }
+        REMOTE_HITS.mark();
+        if (isValid.test(remoteEntry.getMeta()) && key.equals(remoteEntry.getKey())) {
+            putNear(key, remoteEntry.getMeta(), remoteEntry.getValue());
+        }
+        return remoteEntry;
+    }
+
+    @Override
+    public Map<String, DataEntry<String, M, String>> getAll(
+            Collection<String> keys,
+            BiPredicate<String, M> isValid
+    ) {
+        Map<String, DataEntry<String, M, String>> entries = new LinkedHashMap<>();
+        List<String> remoteKeys = new ArrayList<>();
+        for (String key : keys) {
+            CompressedDataEntry<M> nearEntry = near.getIfPresent(key);
+            if (nearEntry != null && isValid.test(key, nearEntry.getMeta())) {
+                NEAR_HITS.mark();
+                entries.put(key, nearEntry);
+                continue;
+            }
+            NEAR_MISSES.mark();
+            if (nearEntry != null) {
+                near.invalidate(key);
+            }
+            remoteKeys.add(key);
+        }
+        if (remoteKeys.isEmpty()) {
+            return entries;
+        }
+
+        // The keys the near tier could not answer are read from the remote tier together
+        Map<String, DataEntry<String, M, String>> remoteEntries = remote.getAll(remoteKeys, isValid);
+        REMOTE_HITS.mark(remoteEntries.size());
+        REMOTE_MISSES.mark(remoteKeys.size() - remoteEntries.size());
+        remoteEntries.forEach((key, remoteEntry) -> {
+            if (isValid.test(key, remoteEntry.getMeta()) && key.equals(remoteEntry.getKey())) {
+                putNear(key, remoteEntry.getMeta(), remoteEntry.getValue());
+            }
+            entries.put(key, remoteEntry);
+        });
+        return entries;
+    }
+
+    @Override
+    public String getDataValue(String key) {
+        DataEntry<String, M, String> entry = get(key);
+        return entry == null || !key.equals(entry.getKey()) ? null : entry.getValue();
+    }
+
+    @Override
+    public boolean set(String key, M meta, String value) {
+        putNear(key, meta, value);
+        return remote.set(key, meta, value);
+    }
+
+    @Override
+    public boolean set(String key, DataEntry<String, M, String> value) throws IllegalStateException {
+        putNear(key, value.getMeta(), value.getValue());
+        return remote.set(key, value);
+    }
+
+    @Override
+    public void clear() {
+        near.invalidateAll();
+        remote.clear();
+    }
+
+    /**
+     * Get the number of entries in the near tier.
+     *
+     * @return the approximate number of near entries
+     */
+    public long getNearSize() {
+        return near.size();
+    }
+
+    /**
+     * Compress a value and put it in the near tier.
+     *
+     * @param key  The key of the entry
+     * @param meta  The metadata of the entry
+     * @param value  The value of the entry
+     */
+    private void putNear(String key, M meta, String value) {
+        try {
+            near.put(key, new CompressedDataEntry<>(key, meta, value));
+        } catch (RuntimeException e) {
+            // The near tier is only an optimization, so failing to fill it must not fail the write
+            LOG.warn("Unable to add entry to the near cache", e);
+        }
+    }
+
+    /**
+     * Register a ratio gauge of hits over reads for a tier, unless one is already registered.
+     *
+     * @param name  The name of the gauge
+     * @param hits  The hits of the tier
+     * @param misses  The misses of the tier
+     */
+    private static void registerHitRatio(String name, Meter hits, Meter misses) {
+        if (!REGISTRY.getGauges().containsKey(name)) {
+            REGISTRY.register(
+                    name,
+                    new RatioGauge() {
+                        @Override
+                        protected Ratio getRatio() {
+                            long reads = hits.getCount() + misses.getCount();
+                            return reads != 0 ? Ratio.of(hits.getCount(), reads) : Ratio.of(0, 1);
+                        }
+                    }
+            );
+        }
+    }
+
+    /**
+     * A data entry of the near tier, which keeps its value deflate compressed and inflates it on each read.
+     *
+     * @param <M>  The metadata type of the cache.
+     */
+    private static final class CompressedDataEntry<M extends Serializable>
+            implements TupleDataCache.DataEntry<String, M, String> {
+        private static final long serialVersionUID = 5297421861536913374L;
+        private static final int BUFFER_SIZE = 8192;
+
+        private final String key;
+        private final M meta;
+        private final byte[] compressedValue;
+        private final int valueLength;
+
+        /**
+         * Constructor.
+         *
+         * @param key  The key of this data cache entry.
+         * @param meta  The metadata associated with this data cache entry.
+         * @param value  The raw data associated with this data cache entry.
+         */
+        private CompressedDataEntry(String key, M meta, String value) {
+            this.key = key;
+            this.meta = meta;
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            this.valueLength = bytes.length;
+            this.compressedValue = compress(bytes);
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public M getMeta() {
+            return meta;
+        }
+
+        @Override
+        public String getValue() {
+            return new String(decompress(compressedValue, valueLength), StandardCharsets.UTF_8);
+        }
+
+        /**
+         * The approximate number of bytes this entry holds on to.
+         *
+         * @return the weight of the entry
+         */
+        private int getWeight() {
+            return compressedValue.length + 2 * key.length();
+        }
+
+        /**
+         * Deflate a byte array.
+         *
+         * @param bytes  The bytes to compress
+         *
+         * @return the compressed bytes
+         */
+        private static byte[] compress(byte[] bytes) {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                deflater.setInput(bytes);
+                deflater.finish();
+                ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(bytes.length / 4, 64));
+                byte[] buffer = new byte[BUFFER_SIZE];
+                while (!deflater.finished()) {
+                    out.write(buffer, 0, deflater.deflate(buffer));
+                }
+                return out.toByteArray();
+            } finally {
+                deflater.end();
+            }
+        }
+
+        /**
+         * Inflate a byte array.
+         *
+         * @param compressed  The compressed bytes
+         * @param length  The length of the uncompressed bytes
+         *
+         * @return the uncompressed bytes
+         */
+        private static byte[] decompress(byte[] compressed, int length) {
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(compressed);
+                byte[] bytes = new byte[length];
+                int read = 0;
+                while (read < length && !inflater.finished()) {
+                    int inflated = inflater.inflate(bytes, read, length - read);
+                    if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    read += inflated;
+                }
+                return read == length ? bytes : Arrays.copyOf(bytes, read);
+            } catch (DataFormatException e) {
+                throw new IllegalStateException("Corrupt near cache entry", e);
+            } finally {
+                inflater.end();
+            }
+        }
+    }
+}
@@ -3,6 +3,11 @@
 package com.yahoo.bard.webservice.data.cache;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
 
 /**
  * Versatile data cache interface that allows for parametrized types for the key, the metadata and the raw data value
@@ -25,6 +30,44 @@ public interface TupleDataCache<K, M extends Serializable, V extends Serializabl
     @Override
     DataEntry<K, M, V> get(String key);
 
+    /**
+     * Retrieve the complete data entry from the cache, preferring an entry whose metadata is valid.
+     * <p>
+     * Caches made of several tiers use the check to look past a stale entry in one tier to a valid entry in the next.
+     * By default this is the same as {@link #get(String)}, and the entry returned may still fail the check.
+     *
+     * @param key  The key associated with data entry to be retrieved
+     * @param isValid  Whether the metadata of an entry shows the entry is still valid
+     *
+     * @return The complete data entry containing metadata and raw data, or {@code null} if the cache contains no
+     * mapping for the key
+     */
+    default DataEntry<K, M, V> get(String key, Predicate<M> isValid) {
+        return get(key);
+    }
+
+    /**
+     * Retrieve the complete data entries of many keys at once, preferring entries whose metadata is valid.
+     * <p>
+     * Caches backed by a remote service should fetch all of the keys in as few round trips as they can. By default
+     * each key is read on its own with {@link #get(String, Predicate)}.
+     *
+     * @param keys  The keys associated with the data entries to be retrieved
+     * @param isValid  Whether the metadata of the entry of a key shows the entry is still valid
+     *
+     * @return the entry of each key which has one, keys without an entry are left out
+     */
+    default Map<String, DataEntry<K, M, V>> getAll(Collection<String> keys, BiPredicate<String, M> isValid) {
+        Map<String, DataEntry<K, M, V>> entries = new LinkedHashMap<>();
+        for (String key : keys) {
+            DataEntry<K, M, V> entry = get(key, meta -> isValid.test(key, meta));
+            if (entry != null) {
+                entries.put(key, entry);
+            }
+        }
+        return entries;
+    }
+
     /**
      * Read the raw data from cache.
      *
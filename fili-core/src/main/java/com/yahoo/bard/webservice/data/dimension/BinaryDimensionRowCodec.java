@@ -0,0 +1,164 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.data.dimension;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+
+/**
+ * Encodes dimension rows compactly, as their values alone, in the order of the fields of their dimension.
+ * <p>
+ * An encoded row starts with a header: a NUL character, which never starts a JSON row, the version of the format, the
+ * number of fields and a 12 bit hash of their names. Each value follows, prefixed by its length. Numbers are written as
+ * variable length sequences of ASCII characters, 6 bits to a character, so that stores keeping their values as UTF-8
+ * spend a single byte on each number below 64.
+ * <p>
+ * Rows of a dimension which has gained fields since they were written decode with empty values for the new fields.
+ * Rows written before the fields of their dimension were renamed, reordered or removed can't be decoded, and need to be
+ * loaded again.
+ */
+public class BinaryDimensionRowCodec implements DimensionRowCodec {
+
+    private static final char MAGIC = '\u0000';
+    private static final char VERSION = '\u0001';
+
+    private static final int VARINT_DATA_BITS = 6;
+    private static final int VARINT_DATA_MASK = (1 << VARINT_DATA_BITS) - 1;
+    private static final int VARINT_CONTINUATION = 1 << VARINT_DATA_BITS;
+
+    // Two characters of hash are enough to tell apart the fields a row was written for from the current ones
+    private static final int FIELDS_HASH_MASK = 0xfff;
+
+    private final JsonDimensionRowCodec jsonCodec = new JsonDimensionRowCodec();
+
+    @Override
+    public String encode(Dimension dimension, DimensionRow dimensionRow) {
+        LinkedHashSet<DimensionField> fields = dimension.getDimensionFields();
+        StringBuilder encoded = new StringBuilder(16 + 2 * fields.size());
+        encoded.append(MAGIC).append(VERSION);
+        writeNumber(encoded, fields.size());
+        writeNumber(encoded, fieldsHash(fields, fields.size()));
+        for (DimensionField field : fields) {
+            String value = dimensionRow.get(field);
+            if (value == null) {
+                value = "";
+            }
+            writeNumber(encoded, value.length());
+            encoded.append(value);
+        }
+        return encoded.toString();
+    }
+
+    @Override
+    public DimensionRow decode(Dimension dimension, String encodedRow) {
+        if (isBinaryEncoded(encodedRow)) {
+            return decodeBinary(dimension, encodedRow);
+        }
+        return jsonCodec.decodeJson(dimension, encodedRow);
+    }
+
+    /**
+     * Whether an encoded row was encoded by this codec.
+     *
+     * @param encodedRow  The encoded row
+     *
+     * @return true if the row starts with the header of this codec
+     */
+    static boolean isBinaryEncoded(String encodedRow) {
+        return !encodedRow.isEmpty() && encodedRow.charAt(0) == MAGIC;
+    }
+
+    /**
+     * Decode a dimension row encoded by this codec.
+     *
+     * @param dimension  The dimension of the row
+     * @param encodedRow  The encoded row
+     *
+     * @return the row
+     *
+     * @throws IllegalArgumentException if the row was encoded by another version of this codec, or for other fields
+     */
+    static DimensionRow decodeBinary(Dimension dimension, String encodedRow) {
+        if (encodedRow.length() < 2 || encodedRow.charAt(1) != VERSION) {
+            throw new IllegalArgumentException(
+                    String.format("Unknown encoding of a row of dimension %s", dimension.getApiName())
+            );
+        }
+        LinkedHashSet<DimensionField> fields = dimension.getDimensionFields();
+        int[] position = {2};
+        int fieldCount = readNumber(encodedRow, position);
+        int hash = readNumber(encodedRow, position);
+        if (fieldCount > fields.size() || hash != fieldsHash(fields, fieldCount)) {
+            throw new IllegalArgumentException(String.format(
+                    "A row of dimension %s was stored for other dimension fields, the dimension must be loaded again",
+                    dimension.getApiName()
+            ));
+        }
+
+        LinkedHashMap<DimensionField, String> values = new LinkedHashMap<>(fields.size());
+        Iterator<DimensionField> iterator = fields.iterator();
+        for (int i = 0; i < fields.size(); i++) {
+            String value = "";
+            if (i < fieldCount) {
+                int length = readNumber(encodedRow, position);
+                value = encodedRow.substring(position[0], position[0] + length);
+                position[0] += length;
+            }
+            values.put(iterator.next(), value);
+        }
+        return new DimensionRow(dimension.getKey(), values);
+    }
+
+    /**
+     * Hash the names of the first fields of a dimension, in order, down to 12 bits.
+     *
+     * @param fields  The fields of the dimension
+     * @param count  The number of fields to hash
+     *
+     * @return the hash of the field names
+     */
+    private static int fieldsHash(LinkedHashSet<DimensionField> fields, int count) {
+        int hash = 1;
+        Iterator<DimensionField> iterator = fields.iterator();
+        for (int i = 0; i < count; i++) {
+            hash = 31 * hash + iterator.next().getName().hashCode();
+        }
+        return hash & FIELDS_HASH_MASK;
+    }
+
+    /**
+     * Write a non negative number, or any number seen as unsigned, 6 bits to a character.
+     *
+     * @param encoded  The encoded row to write to
+     * @param number  The number
+     */
+    private static void writeNumber(StringBuilder encoded, int number) {
+        int remaining = number;
+        while ((remaining & ~VARINT_DATA_MASK) != 0) {
+            encoded.append((char) ((remaining & VARINT_DATA_MASK) | VARINT_CONTINUATION));
+            remaining >>>= VARINT_DATA_BITS;
+        }
+        encoded.append((char) remaining);
+    }
+
+    /**
+     * Read a number written by {@link #writeNumber(StringBuilder, int)}.
+     *
+     * @param encoded  The encoded row
+     * @param position  The position to read from, which is moved past the number
+     *
+     * @return the number
+     */
+    private static int readNumber(String encoded, int[] position) {
+        int number = 0;
+        int shift = 0;
+        char c;
+        do {
+            c = encoded.charAt(position[0]++);
+            number |= (c & VARINT_DATA_MASK) << shift;
+            shift += VARINT_DATA_BITS;
+        } while ((c & VARINT_CONTINUATION) != 0);
+        return number;
+    }
+}
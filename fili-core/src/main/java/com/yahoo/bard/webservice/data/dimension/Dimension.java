@@ -9,6 +9,8 @@ import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
 import org.joda.time.DateTime;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
@@ -111,6 +113,26 @@ public interface Dimension {
      */
     DimensionRow findDimensionRowByKeyValue(String value);
 
+    /**
+     * Get the dimension rows of many key values at once.
+     * <p>
+     * Dimensions backed by a remote store should fetch all of the rows in as few round trips as they can.
+     *
+     * @param values  key values
+     *
+     * @return the dimension row of each key value which has one, key values without a row are left out
+     */
+    default Map<String, DimensionRow> findDimensionRowsByKeyValues(Collection<String> values) {
+        Map<String, DimensionRow> rows = new HashMap<>(values.size());
+        for (String value : values) {
+            DimensionRow row = findDimensionRowByKeyValue(value);
+            if (row != null) {
+                rows.put(value, row);
+            }
+        }
+        return rows;
+    }
+
     /**
      * Get primary key field for this dimension.
      *
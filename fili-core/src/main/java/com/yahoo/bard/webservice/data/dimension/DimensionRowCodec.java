@@ -0,0 +1,32 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.data.dimension;
+
+/**
+ * Encodes dimension rows into the values a {@link KeyValueStore} holds, and decodes them back.
+ * <p>
+ * Every codec decodes the rows encoded by the other codecs Fili provides, so that the codec of a store can be changed
+ * without reloading it. Rows are encoded anew as they are written.
+ */
+public interface DimensionRowCodec {
+
+    /**
+     * Encode a dimension row.
+     *
+     * @param dimension  The dimension of the row
+     * @param dimensionRow  The row
+     *
+     * @return the encoded row
+     */
+    String encode(Dimension dimension, DimensionRow dimensionRow);
+
+    /**
+     * Decode a dimension row.
+     *
+     * @param dimension  The dimension of the row
+     * @param encodedRow  The encoded row, in the format of this codec or of another codec Fili provides
+     *
+     * @return the row
+     */
+    DimensionRow decode(Dimension dimension, String encodedRow);
+}
@@ -0,0 +1,47 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.data.dimension;
+
+import com.yahoo.bard.webservice.config.SystemConfig;
+import com.yahoo.bard.webservice.config.SystemConfigProvider;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Provides the configured codec of the dimension rows held by key value stores.
+ */
+public class DimensionRowCodecProvider {
+    private static final Logger LOG = LoggerFactory.getLogger(DimensionRowCodecProvider.class);
+    private static final SystemConfig SYSTEM_CONFIG = SystemConfigProvider.getInstance();
+
+    public static final String DIMENSION_ROW_CODEC_IMPLEMENTATION_SETTING_NAME = "dimension_row_codec_implementation";
+
+    private static final String DEFAULT_DIMENSION_ROW_CODEC_IMPL = JsonDimensionRowCodec.class.getCanonicalName();
+
+    /**
+     * The instance of the dimension row codec.
+     */
+    private static DimensionRowCodec dimensionRowCodec;
+
+    /**
+     * Get an instance of DimensionRowCodec.
+     *
+     * @return an instance of DimensionRowCodec
+     */
+    public static synchronized DimensionRowCodec getInstance() {
+        if (dimensionRowCodec == null) {
+            String dimensionRowCodecImplementation = SYSTEM_CONFIG.getStringProperty(
+                    SYSTEM_CONFIG.getPackageVariableName(DIMENSION_ROW_CODEC_IMPLEMENTATION_SETTING_NAME),
+                    DEFAULT_DIMENSION_ROW_CODEC_IMPL
+            );
+            try {
+                dimensionRowCodec = (DimensionRowCodec) Class.forName(dimensionRowCodecImplementation).newInstance();
+            } catch (Exception exception) {
+                LOG.error("Exception while loading dimension row codec: {}", exception);
+                throw new IllegalStateException(exception);
+            }
+        }
+        return dimensionRowCodec;
+    }
+}
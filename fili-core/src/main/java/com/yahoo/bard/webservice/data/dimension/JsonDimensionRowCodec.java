@@ -0,0 +1,71 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.data.dimension;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+
+/**
+ * Encodes dimension rows as JSON maps of field names to values.
+ */
+public class JsonDimensionRowCodec implements DimensionRowCodec {
+    private static final Logger LOG = LoggerFactory.getLogger(JsonDimensionRowCodec.class);
+
+    private static final TypeReference<LinkedHashMap<String, String>> ROW_MAP_TYPE =
+            new TypeReference<LinkedHashMap<String, String>>() { };
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Constructor.
+     */
+    public JsonDimensionRowCodec() {
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.configure(SerializationFeature.INDENT_OUTPUT, true);
+        this.objectMapper.registerModule(new AfterburnerModule());
+    }
+
+    @Override
+    public String encode(Dimension dimension, DimensionRow dimensionRow) {
+        try {
+            return objectMapper.writeValueAsString(dimensionRow);
+        } catch (JsonProcessingException e) {
+            LOG.error("Exception while encoding dimension row {}", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public DimensionRow decode(Dimension dimension, String encodedRow) {
+        if (BinaryDimensionRowCodec.isBinaryEncoded(encodedRow)) {
+            return BinaryDimensionRowCodec.decodeBinary(dimension, encodedRow);
+        }
+        return decodeJson(dimension, encodedRow);
+    }
+
+    /**
+     * Decode a dimension row encoded as JSON.
+     *
+     * @param dimension  The dimension of the row
+     * @param encodedRow  The JSON map of field names to values
+     *
+     * @return the row
+     */
+    DimensionRow decodeJson(Dimension dimension, String encodedRow) {
+        try {
+            return dimension.parseDimensionRow(objectMapper.readValue(encodedRow, ROW_MAP_TYPE));
+        } catch (IOException e) {
+            LOG.error("Cannot map string to DimensionRow object. {}", e);
+            throw new RuntimeException(e);
+        }
+    }
+}
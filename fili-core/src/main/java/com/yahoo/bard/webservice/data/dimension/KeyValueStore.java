@@ -5,6 +5,8 @@ package com.yahoo.bard.webservice.data.dimension;
 import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 
 import javax.validation.constraints.NotNull;
@@ -49,6 +51,30 @@ public interface KeyValueStore extends Closeable {
      */
     String get(@NotNull String key);
 
+    /**
+     * Get the values for many keys from store at once.
+     * <p>
+     * Stores backed by a remote service should fetch all of the keys in as few round trips as they can.
+     *
+     * @param keys  Keys to get the values for
+     *
+     * @return the value of each key which has one, keys without a value are left out
+     */
+    default Map<String, String> getAll(@NotNull Collection<String> keys) {
+        if (keys == null) {
+            throw new IllegalArgumentException("Cannot get null keys");
+        }
+
+        Map<String, String> values = new HashMap<>(keys.size());
+        for (String key : keys) {
+            String value = get(key);
+            if (value != null) {
+                values.put(key, value);
+            }
+        }
+        return values;
+    }
+
     /**
      * Get the value for a key from store or provide a default.
      *
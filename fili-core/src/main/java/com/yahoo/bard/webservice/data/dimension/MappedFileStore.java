@@ -0,0 +1,728 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.data.dimension;
+
+import com.yahoo.bard.webservice.util.Utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * A KeyValueStore kept off-heap in memory-mapped files, so that a store of many millions of keys neither weighs on
+ * the heap nor costs a network hop to read.
+ * <p>
+ * A store is a directory holding two files:
+ * <ul>
+ *     <li>{@code log}, an append-only log of records, each the lengths of a key and its value followed by their UTF-8
+ *     bytes. The log is mapped in segments, and a record never straddles two segments.</li>
+ *     <li>{@code index}, an open-addressing hash table with linear probing, holding for each key the position of its
+ *     latest record in the log. Its header also holds the end of the log.</li>
+ * </ul>
+ * Overwriting a key appends a new record, and removing a key only marks its slot as deleted, so the log keeps the
+ * records which are no longer current until a rebuilt store is swapped in with {@link #replaceStore(String)}.
+ * <p>
+ * The files stay on disk when the store is closed, so a store opened again on the same directory, for instance after
+ * a restart, holds the same keys without being loaded again.
+ * <p>
+ * Reads share a read lock and writes take the write lock, so readers see all of a {@link #putAll(Map)} or none of it.
+ */
+public class MappedFileStore implements KeyValueStore {
+    private static final Logger LOG = LoggerFactory.getLogger(MappedFileStore.class);
+
+    /**
+     * The size of the segments the log of a new store is mapped in, which bounds the size of a record.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 1 << 28;
+
+    private static final String LOG_FILE = "log";
+    private static final String INDEX_FILE = "index";
+    private static final String INDEX_REBUILD_FILE = "index.rebuild";
+
+    private static final int MAGIC = 0x46494c49;
+    private static final int VERSION = 1;
+
+    // The index header: magic, version, capacity, size, used slots, log segment size and log end
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int SIZE_OFFSET = 12;
+    private static final int USED_OFFSET = 16;
+    private static final int SEGMENT_SIZE_OFFSET = 20;
+    private static final int LOG_END_OFFSET = 24;
+    private static final int HEADER_BYTES = 32;
+
+    // Each slot is the position of a record in the log plus one, or EMPTY or DELETED, followed by the hash of its key
+    private static final int SLOT_BYTES = 12;
+    private static final long EMPTY = 0;
+    private static final long DELETED = -1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+    // The most slots an index mapped as a single buffer can hold
+    private static final int MAX_CAPACITY = 1 << 27;
+
+    // Each record starts with the lengths of its key and of its value
+    private static final int RECORD_HEADER_BYTES = 8;
+
+    private final Path directory;
+    private final int newSegmentSize;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean isOpen;
+    private boolean isHealthy;
+
+    private FileChannel indexChannel;
+    private MappedByteBuffer index;
+    private int capacity;
+
+    private FileChannel logChannel;
+    private final List<MappedByteBuffer> logSegments = new CopyOnWriteArrayList<>();
+    private int segmentSize;
+
+    /**
+     * Open a store, creating it if the directory holds none.
+     *
+     * @param directory  The directory of the store
+     */
+    public MappedFileStore(Path directory) {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Open a store, creating it if the directory holds none.
+     *
+     * @param directory  The directory of the store
+     * @param segmentSize  The size of the segments the log is mapped in, if the store is created
+     */
+    public MappedFileStore(Path directory, int segmentSize) {
+        if (segmentSize <= RECORD_HEADER_BYTES) {
+            throw new IllegalArgumentException("Segment size must be larger than a record header: " + segmentSize);
+        }
+        this.directory = directory;
+        this.newSegmentSize = segmentSize;
+        open();
+    }
+
+    @Override
+    public void open() {
+        lock.writeLock().lock();
+        try {
+            if (isOpen) {
+                return;
+            }
+            Files.createDirectories(directory);
+
+            indexChannel = openChannel(directory.resolve(INDEX_FILE));
+            if (indexChannel.size() == 0) {
+                capacity = INITIAL_CAPACITY;
+                segmentSize = newSegmentSize;
+                index = mapIndex(indexChannel, capacity);
+                writeHeader(index, capacity, 0, 0, segmentSize, 0);
+            } else {
+                index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, indexChannel.size());
+                if (index.getInt(0) != MAGIC || index.getInt(4) != VERSION) {
+                    indexChannel.close();
+                    throw new IllegalStateException(String.format("%s does not hold a mapped file store", directory));
+                }
+                capacity = index.getInt(CAPACITY_OFFSET);
+                segmentSize = index.getInt(SEGMENT_SIZE_OFFSET);
+            }
+            logChannel = openChannel(directory.resolve(LOG_FILE));
+
+            isOpen = true;
+            isHealthy = true;
+        } catch (IOException e) {
+            throw ioFailure("Unable to open store in " + directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (!isOpen) {
+                return;
+            }
+            isOpen = false;
+            index.force();
+            logSegments.forEach(MappedByteBuffer::force);
+            indexChannel.close();
+            logChannel.close();
+        } catch (IOException e) {
+            throw ioFailure("Unable to close store in " + directory, e);
+        } finally {
+            // The buffers are unmapped once they are garbage collected
+            index = null;
+            logSegments.clear();
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return isOpen;
+    }
+
+    @Override
+    public boolean isHealthy() {
+        return isOpen && isHealthy;
+    }
+
+    /**
+     * Get the number of keys in the store.
+     *
+     * @return the number of keys
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            return index.getInt(SIZE_OFFSET);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String remove(@NotNull String key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Cannot remove null key");
+        }
+
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            return delete(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public String get(@NotNull String key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Cannot get null key");
+        }
+
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            return read(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<String, String> getAll(@NotNull Collection<String> keys) {
+        if (keys == null) {
+            throw new IllegalArgumentException("Cannot get null keys");
+        }
+
+        Map<String, String> values = new HashMap<>(keys.size());
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            for (String key : keys) {
+                String value = read(key);
+                if (value != null) {
+                    values.put(key, value);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return values;
+    }
+
+    @Override
+    public String put(@NotNull String key, String value) {
+        if (key == null) {
+            throw new IllegalArgumentException("Cannot set null key");
+        }
+
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            return value == null ? delete(key) : write(key, value);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Set multiple key/value pairs, all at once for readers.
+     *
+     * @param entries  Map of key/value pairs to put
+     *
+     * @return The previous values for the keys
+     */
+    @Override
+    public Map<String, String> putAll(@NotNull Map<String, String> entries) {
+        if (entries == null) {
+            throw new IllegalArgumentException("Cannot set null entries");
+        }
+
+        Map<String, String> oldValues = new HashMap<>(entries.size());
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                String key = entry.getKey();
+                if (key == null) {
+                    throw new IllegalArgumentException("Cannot set null key");
+                }
+                String value = entry.getValue();
+                oldValues.put(key, value == null ? delete(key) : write(key, value));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return oldValues;
+    }
+
+    /**
+     * Replace the contents of this store with those of another store, such as one rebuilt by a reload.
+     * <p>
+     * The other store must be closed, and its directory must be on the same file system as the directory of this
+     * store, which it is moved to. Readers see either the old contents or the new ones.
+     *
+     * @param newStorePath  The directory of the store to replace this one with
+     */
+    @Override
+    public void replaceStore(String newStorePath) {
+        LOG.debug("Replacing mapped file store in {} with store in {}", directory, newStorePath);
+
+        lock.writeLock().lock();
+        try {
+            close();
+            Path oldDirectory = directory.resolveSibling(directory.getFileName() + "_old");
+            if (Files.exists(oldDirectory)) {
+                Utils.deleteFiles(oldDirectory.toString());
+            }
+            Files.move(directory, oldDirectory, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(Paths.get(newStorePath), directory, StandardCopyOption.ATOMIC_MOVE);
+            Utils.deleteFiles(oldDirectory.toString());
+            open();
+        } catch (IOException e) {
+            throw ioFailure(String.format("Unable to replace store in %s with %s", directory, newStorePath), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Read the value of a key, holding at least the read lock.
+     *
+     * @param key  The key
+     *
+     * @return the value of the key, or null if it has none
+     */
+    private String read(String key) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int slot = findSlot(keyBytes, hash(key));
+        return slot < 0 ? null : readValue(getPosition(slot));
+    }
+
+    /**
+     * Set the value of a key, holding the write lock.
+     *
+     * @param key  The key
+     * @param value  The value
+     *
+     * @return the previous value of the key, or null if it had none
+     */
+    private String write(String key, String value) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(key);
+        int slot = findSlot(keyBytes, hash);
+        String previous = slot < 0 ? null : readValue(getPosition(slot));
+
+        long position = append(keyBytes, value.getBytes(StandardCharsets.UTF_8));
+        if (slot < 0) {
+            ensureCapacity();
+            slot = findFreeSlot(hash);
+            if (getEntry(slot) == EMPTY) {
+                index.putInt(USED_OFFSET, index.getInt(USED_OFFSET) + 1);
+            }
+            index.putInt(SIZE_OFFSET, index.getInt(SIZE_OFFSET) + 1);
+        }
+        setSlot(index, slot, position, hash);
+        return previous;
+    }
+
+    /**
+     * Remove a key, holding the write lock.
+     *
+     * @param key  The key
+     *
+     * @return the previous value of the key, or null if it had none
+     */
+    private String delete(String key) {
+        int slot = findSlot(key.getBytes(StandardCharsets.UTF_8), hash(key));
+        if (slot < 0) {
+            return null;
+        }
+        String previous = readValue(getPosition(slot));
+        index.putLong(slotOffset(slot), DELETED);
+        index.putInt(SIZE_OFFSET, index.getInt(SIZE_OFFSET) - 1);
+        return previous;
+    }
+
+    /**
+     * Find the slot of a key.
+     *
+     * @param key  The UTF-8 bytes of the key
+     * @param hash  The hash of the key
+     *
+     * @return the slot of the key, or -1 if the store doesn't hold it
+     */
+    private int findSlot(byte[] key, int hash) {
+        int mask = capacity - 1;
+        for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+            long entry = getEntry(slot);
+            if (entry == EMPTY) {
+                return -1;
+            }
+            if (entry != DELETED && index.getInt(slotOffset(slot) + 8) == hash && keyMatches(entry - 1, key)) {
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * Find the first slot, empty or deleted, a new key with a given hash can take.
+     *
+     * @param hash  The hash of the key
+     *
+     * @return the slot
+     */
+    private int findFreeSlot(int hash) {
+        int mask = capacity - 1;
+        int slot = hash & mask;
+        while (getEntry(slot) != EMPTY && getEntry(slot) != DELETED) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Make room in the index for one more key, rebuilding it larger, or just without its deleted slots, once half of
+     * its slots are used.
+     *
+     * @throws IllegalStateException if the index can't grow any larger
+     */
+    private void ensureCapacity() {
+        if (index.getInt(USED_OFFSET) + 1 <= capacity / 2) {
+            return;
+        }
+        int size = index.getInt(SIZE_OFFSET);
+        int newCapacity = size + 1 > capacity / 4 ? capacity * 2 : capacity;
+        if (newCapacity > MAX_CAPACITY) {
+            throw new IllegalStateException(String.format("Mapped file store in %s is full", directory));
+        }
+
+        Path rebuildPath = directory.resolve(INDEX_REBUILD_FILE);
+        try {
+            Files.deleteIfExists(rebuildPath);
+            FileChannel newChannel = openChannel(rebuildPath);
+            MappedByteBuffer newIndex = mapIndex(newChannel, newCapacity);
+            writeHeader(newIndex, newCapacity, size, size, segmentSize, index.getLong(LOG_END_OFFSET));
+
+            int mask = newCapacity - 1;
+            for (int slot = 0; slot < capacity; slot++) {
+                long entry = getEntry(slot);
+                if (entry != EMPTY && entry != DELETED) {
+                    int hash = index.getInt(slotOffset(slot) + 8);
+                    int newSlot = hash & mask;
+                    while (newIndex.getLong(slotOffset(newSlot)) != EMPTY) {
+                        newSlot = (newSlot + 1) & mask;
+                    }
+                    setSlot(newIndex, newSlot, entry - 1, hash);
+                }
+            }
+            newIndex.force();
+
+            Files.move(
+                    rebuildPath,
+                    directory.resolve(INDEX_FILE),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE
+            );
+            indexChannel.close();
+            indexChannel = newChannel;
+            index = newIndex;
+            capacity = newCapacity;
+        } catch (IOException e) {
+            throw ioFailure("Unable to grow the index of store in " + directory, e);
+        }
+    }
+
+    /**
+     * Append a record to the log, starting a new segment if the record doesn't fit in the current one.
+     *
+     * @param key  The UTF-8 bytes of the key
+     * @param value  The UTF-8 bytes of the value
+     *
+     * @return the position of the record in the log
+     */
+    private long append(byte[] key, byte[] value) {
+        int recordLength = RECORD_HEADER_BYTES + key.length + value.length;
+        if (recordLength > segmentSize) {
+            throw new IllegalArgumentException(
+                    String.format("Record of %d bytes is larger than a segment of %d bytes", recordLength, segmentSize)
+            );
+        }
+
+        long position = index.getLong(LOG_END_OFFSET);
+        if (position % segmentSize + recordLength > segmentSize) {
+            position += segmentSize - position % segmentSize;
+        }
+        ByteBuffer record = segmentBuffer(position);
+        record.putInt(key.length).putInt(value.length).put(key).put(value);
+        index.putLong(LOG_END_OFFSET, position + recordLength);
+        return position;
+    }
+
+    /**
+     * Whether the record at a position in the log has a given key.
+     *
+     * @param position  The position of the record
+     * @param key  The UTF-8 bytes of the key
+     *
+     * @return true if the record has the key
+     */
+    private boolean keyMatches(long position, byte[] key) {
+        MappedByteBuffer segment = getSegment(position);
+        int offset = (int) (position % segmentSize);
+        if (segment.getInt(offset) != key.length) {
+            return false;
+        }
+        int keyOffset = offset + RECORD_HEADER_BYTES;
+        for (int i = 0; i < key.length; i++) {
+            if (segment.get(keyOffset + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Read the value of the record at a position in the log.
+     *
+     * @param position  The position of the record
+     *
+     * @return the value
+     */
+    private String readValue(long position) {
+        ByteBuffer record = segmentBuffer(position);
+        int keyLength = record.getInt();
+        byte[] value = new byte[record.getInt()];
+        record.position(record.position() + keyLength);
+        record.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get a buffer over the segment of the log holding a position, positioned at it.
+     *
+     * @param position  The position in the log
+     *
+     * @return a buffer of its own, so that readers don't share buffer positions
+     */
+    private ByteBuffer segmentBuffer(long position) {
+        ByteBuffer buffer = getSegment(position).duplicate();
+        buffer.position((int) (position % segmentSize));
+        return buffer;
+    }
+
+    /**
+     * Get the segment of the log holding a position, mapping the segments up to it if they are not mapped yet.
+     * <p>
+     * Segments are only mapped while the log grows, under the write lock, or by readers of positions which were
+     * written before the store was opened, so mapping is synchronized since readers share the read lock.
+     *
+     * @param position  The position in the log
+     *
+     * @return the segment
+     */
+    private MappedByteBuffer getSegment(long position) {
+        int segment = (int) (position / segmentSize);
+        if (segment < logSegments.size()) {
+            return logSegments.get(segment);
+        }
+        synchronized (logSegments) {
+            try {
+                while (logSegments.size() <= segment) {
+                    long start = (long) logSegments.size() * segmentSize;
+                    logSegments.add(logChannel.map(FileChannel.MapMode.READ_WRITE, start, segmentSize));
+                }
+            } catch (IOException e) {
+                throw ioFailure("Unable to map the log of store in " + directory, e);
+            }
+            return logSegments.get(segment);
+        }
+    }
+
+    /**
+     * Get the entry of a slot of the index.
+     *
+     * @param slot  The slot
+     *
+     * @return the position of a record plus one, or EMPTY or DELETED
+     */
+    private long getEntry(int slot) {
+        return index.getLong(slotOffset(slot));
+    }
+
+    /**
+     * Get the position of the record a slot of the index points at.
+     *
+     * @param slot  The slot, which must be neither empty nor deleted
+     *
+     * @return the position of the record
+     */
+    private long getPosition(int slot) {
+        return getEntry(slot) - 1;
+    }
+
+    /**
+     * Point a slot of an index at a record.
+     *
+     * @param index  The index
+     * @param slot  The slot
+     * @param position  The position of the record
+     * @param hash  The hash of the key of the record
+     */
+    private static void setSlot(MappedByteBuffer index, int slot, long position, int hash) {
+        index.putLong(slotOffset(slot), position + 1);
+        index.putInt(slotOffset(slot) + 8, hash);
+    }
+
+    /**
+     * Get the offset of a slot in the index.
+     *
+     * @param slot  The slot
+     *
+     * @return the offset of the slot
+     */
+    private static int slotOffset(int slot) {
+        return HEADER_BYTES + slot * SLOT_BYTES;
+    }
+
+    /**
+     * Hash a key, spreading the bits of its hash code so that similar keys land in distant slots.
+     * <p>
+     * String hash codes are fully specified, so hashes stay the same when the store is opened by another JVM.
+     *
+     * @param key  The key
+     *
+     * @return the hash of the key
+     */
+    private static int hash(String key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Map an index with a given number of slots.
+     *
+     * @param channel  The channel of the index file
+     * @param capacity  The number of slots
+     *
+     * @return the index
+     *
+     * @throws IOException if the file can't be mapped
+     */
+    private static MappedByteBuffer mapIndex(FileChannel channel, int capacity) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) capacity * SLOT_BYTES);
+    }
+
+    /**
+     * Write the header of an index.
+     *
+     * @param index  The index
+     * @param capacity  The number of slots of the index
+     * @param size  The number of keys
+     * @param used  The number of slots which are not empty
+     * @param segmentSize  The size of the segments of the log
+     * @param logEnd  The end of the log
+     */
+    private static void writeHeader(
+            MappedByteBuffer index,
+            int capacity,
+            int size,
+            int used,
+            int segmentSize,
+            long logEnd
+    ) {
+        index.putInt(0, MAGIC);
+        index.putInt(4, VERSION);
+        index.putInt(CAPACITY_OFFSET, capacity);
+        index.putInt(SIZE_OFFSET, size);
+        index.putInt(USED_OFFSET, used);
+        index.putInt(SEGMENT_SIZE_OFFSET, segmentSize);
+        index.putLong(LOG_END_OFFSET, logEnd);
+    }
+
+    /**
+     * Open a file for reading and writing, creating it if it doesn't exist.
+     *
+     * @param path  The path of the file
+     *
+     * @return a channel on the file
+     *
+     * @throws IOException if the file can't be opened
+     */
+    private static FileChannel openChannel(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Check that the store is open.
+     *
+     * @throws IllegalStateException if the store is closed
+     */
+    private void checkOpen() {
+        if (!isOpen) {
+            throw new IllegalStateException(String.format("Mapped file store in %s is closed", directory));
+        }
+    }
+
+    /**
+     * Mark the store unhealthy after a failure to read or write its files.
+     *
+     * @param message  What failed
+     * @param cause  The cause of the failure
+     *
+     * @return an exception to throw
+     */
+    private RuntimeException ioFailure(String message, IOException cause) {
+        isHealthy = false;
+        LOG.error(message, cause);
+        return new RuntimeException(message, cause);
+    }
+}
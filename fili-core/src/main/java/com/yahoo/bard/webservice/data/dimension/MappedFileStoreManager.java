@@ -0,0 +1,87 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.data.dimension;
+
+import com.yahoo.bard.webservice.config.SystemConfig;
+import com.yahoo.bard.webservice.config.SystemConfigProvider;
+import com.yahoo.bard.webservice.util.Utils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Mapped File Store instance manager.
+ * <p>
+ * Each store keeps its files in its own directory under the configured mapped file store path, where they outlive
+ * the process.
+ */
+public class MappedFileStoreManager {
+    private static final SystemConfig SYSTEM_CONFIG = SystemConfigProvider.getInstance();
+
+    private static final String MAPPED_FILE_STORE_PATH = SYSTEM_CONFIG.getPackageVariableName(
+            "mapped_file_store_path"
+    );
+
+    // Hold singleton instances by name
+    private static final Map<String, MappedFileStore> MAPPED_FILE_STORES = new HashMap<>();
+
+    /**
+     * Factory for singleton instances by name.
+     * <p>
+     * Only a single instance can exist for each name. An instance opens the files a previous instance of the same
+     * name left, if there are any.
+     *
+     * @param storeName Name for the singleton instance
+     *
+     * @return The singleton instance for the given name
+     */
+    public static synchronized MappedFileStore getInstance(String storeName) {
+        MappedFileStore mappedFileStore = MAPPED_FILE_STORES.get(storeName);
+
+        if (mappedFileStore == null) {
+            mappedFileStore = new MappedFileStore(getStorePath(storeName));
+            MAPPED_FILE_STORES.put(storeName, mappedFileStore);
+        }
+
+        return mappedFileStore;
+    }
+
+    /**
+     * Delete the named singleton instance.
+     * <p>
+     * Also deletes the files of the instance.
+     *
+     * @param storeName Name of the singleton instance to delete
+     */
+    public static synchronized void removeInstance(String storeName) {
+        MappedFileStore mappedFileStore = MAPPED_FILE_STORES.remove(storeName);
+        if (mappedFileStore != null) {
+            mappedFileStore.close();
+        }
+
+        Path storePath = getStorePath(storeName);
+        if (Files.exists(storePath)) {
+            Utils.deleteFiles(storePath.toString());
+        }
+    }
+
+    /**
+     * Get the directory of the files of a store.
+     *
+     * @param storeName  Name of the store
+     *
+     * @return the directory of the files of the store
+     */
+    private static Path getStorePath(String storeName) {
+        // Path eg: /home/y/var/bard_webservice/dimensionCache/dimension1/mapped_file_store/
+        return Paths.get(
+                SYSTEM_CONFIG.getStringProperty(MAPPED_FILE_STORE_PATH),
+                "dimensionCache",
+                storeName,
+                "mapped_file_store"
+        );
+    }
+}
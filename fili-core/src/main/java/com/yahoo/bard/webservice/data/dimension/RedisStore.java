@@ -7,10 +7,15 @@ import org.slf4j.LoggerFactory;
 
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
 import redis.clients.jedis.exceptions.JedisException;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -22,6 +27,11 @@ import javax.validation.constraints.NotNull;
 public class RedisStore implements KeyValueStore {
     private static final Logger LOG = LoggerFactory.getLogger(RedisStore.class);
 
+    /**
+     * The most keys fetched by a single MGET, so a large fetch doesn't block Redis for long.
+     */
+    private static final int MGET_BATCH_SIZE = 1000;
+
     private boolean redisIsHealthy;
     private final JedisPool pool;
     private final String storeName;
@@ -105,6 +115,58 @@ public class RedisStore implements KeyValueStore {
         }
     }
 
+    /**
+     * Get the values for many keys, with one MGET for each batch of keys, all pipelined on one connection.
+     *
+     * @param keys  Keys to get the values for
+     *
+     * @return the value of each key which has one, keys without a value are left out
+     */
+    @Override
+    public Map<String, String> getAll(@NotNull Collection<String> keys) {
+        if (keys == null) {
+            throw new IllegalArgumentException("Cannot get null keys");
+        }
+        if (keys.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        List<String> keyList = new ArrayList<>(keys);
+        List<Response<List<String>>> responses = new ArrayList<>();
+        try (Jedis jedis = pool.getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+            for (int start = 0; start < keyList.size(); start += MGET_BATCH_SIZE) {
+                List<String> batch = keyList.subList(start, Math.min(start + MGET_BATCH_SIZE, keyList.size()));
+                String[] rKeys = new String[batch.size()];
+                for (int i = 0; i < rKeys.length; i++) {
+                    if (batch.get(i) == null) {
+                        throw new IllegalArgumentException("Cannot get null key");
+                    }
+                    rKeys[i] = redisKey(storeName, batch.get(i));
+                }
+                responses.add(pipeline.mget(rKeys));
+            }
+            pipeline.sync();
+        } catch (JedisException e) {
+            redisIsHealthy = false;
+            String msg = String.format("Unable to get %d keys", keyList.size());
+            LOG.error(msg);
+            throw new RuntimeException(msg, e);
+        }
+
+        Map<String, String> values = new HashMap<>(keyList.size());
+        int index = 0;
+        for (Response<List<String>> response : responses) {
+            for (String value : response.get()) {
+                if (value != null) {
+                    values.put(keyList.get(index), value);
+                }
+                index++;
+            }
+        }
+        return values;
+    }
+
     @Override
     public boolean isHealthy() {
         // If we know we're not healthy, don't bother pinging.
@@ -0,0 +1,564 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.data.dimension.impl;
+
+import com.yahoo.bard.webservice.data.cache.HashDataCache.Pair;
+import com.yahoo.bard.webservice.data.dimension.Dimension;
+import com.yahoo.bard.webservice.data.dimension.DimensionField;
+import com.yahoo.bard.webservice.data.dimension.DimensionRow;
+import com.yahoo.bard.webservice.data.dimension.DimensionRowCodec;
+import com.yahoo.bard.webservice.data.dimension.DimensionRowCodecProvider;
+import com.yahoo.bard.webservice.data.dimension.FilterDimensionRows;
+import com.yahoo.bard.webservice.data.dimension.KeyValueStore;
+import com.yahoo.bard.webservice.data.dimension.SearchProvider;
+import com.yahoo.bard.webservice.util.DimensionStoreKeyUtils;
+import com.yahoo.bard.webservice.util.Pagination;
+import com.yahoo.bard.webservice.util.SinglePagePagination;
+import com.yahoo.bard.webservice.web.ApiFilter;
+import com.yahoo.bard.webservice.web.util.PaginationParameters;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Search provider which answers filters from in-memory bitmap indexes of the dimension rows.
+ * <p>
+ * Each row is numbered by an ordinal, in the order it was first indexed. For each dimension field, a sorted
+ * dictionary maps each distinct value of the field to the bitmap of the ordinals of the rows with that value. Filters
+ * are answered with bitmap operations: {@code in} is a union of the bitmaps of the values, {@code notin} removes that
+ * union, {@code startswith} unions the bitmaps of a range of the sorted dictionary, and {@code contains} unions the
+ * bitmaps of the matching distinct values, so no filter scans the rows themselves.
+ * <p>
+ * The ordinals are also kept sorted in the order of their rows, so a page of results is selected by walking that order
+ * and a page of all the rows is a direct slice of it.
+ * <p>
+ * Like {@link ScanSearchProvider}, the key value store holds the list of the row keys of the dimension, from which
+ * the indexes are rebuilt when they are first used, and {@link #refreshIndex} updates the indexes in place.
+ */
+public class BitmapSearchProvider implements SearchProvider, FilterDimensionRows {
+    private static final Logger LOG = LoggerFactory.getLogger(BitmapSearchProvider.class);
+
+    // Shared by the providers of all the dimensions. Sharing ObjectReaders/ObjectWriters is thread-safe.
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectReader ROW_IDS_READER = MAPPER.readerFor(String[].class);
+    private static final ObjectWriter ROW_IDS_WRITER = MAPPER.writer();
+
+    private final DimensionRowCodec rowCodec;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private KeyValueStore keyValueStore;
+    private Dimension dimension;
+
+    // The indexes, guarded by the lock, and built when they are first used
+    private volatile boolean indexed;
+    private final List<DimensionRow> rows = new ArrayList<>();
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final Map<DimensionField, NavigableMap<String, BitSet>> dictionaries = new HashMap<>();
+    private int[] sortedOrdinals = new int[0];
+
+    /**
+     * Constructor.
+     */
+    public BitmapSearchProvider() {
+        this.rowCodec = DimensionRowCodecProvider.getInstance();
+    }
+
+    @Override
+    public void setDimension(Dimension dimension) {
+        this.dimension = dimension;
+    }
+
+    @Override
+    public void setKeyValueStore(KeyValueStore keyValueStore) {
+        this.keyValueStore = keyValueStore;
+
+        // Check initialization for the cardinality in a keyValueStore
+        if (keyValueStore.get(DimensionStoreKeyUtils.getCardinalityKey()) == null) {
+            keyValueStore.put(DimensionStoreKeyUtils.getCardinalityKey(), "0");
+        }
+
+        //Check Dimension value keys availability
+        String allValuesKey = DimensionStoreKeyUtils.getAllValuesKey();
+        if (keyValueStore.get(allValuesKey) == null) {
+            keyValueStore.put(allValuesKey, "[]");
+        }
+
+        // The indexes are rebuilt from the new store when they are next used
+        indexed = false;
+    }
+
+    @Override
+    public int getDimensionCardinality() {
+        return Integer.parseInt(keyValueStore.get(DimensionStoreKeyUtils.getCardinalityKey()));
+    }
+
+    @Override
+    public TreeSet<DimensionRow> findAllOrderedDimensionRows() {
+        ensureIndexed();
+        lock.readLock().lock();
+        try {
+            return rows.stream().collect(Collectors.toCollection(TreeSet::new));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isHealthy() {
+        return true;
+    }
+
+    @Override
+    public void clearDimension() {
+        lock.writeLock().lock();
+        try {
+            ensureIndexed();
+            //Remove all dimension data from the store.
+            String keyName = dimension.getKey().getName();
+            rows.stream()
+                    .map(row -> DimensionStoreKeyUtils.getRowKey(keyName, row.getKeyValue()))
+                    .forEach(keyValueStore::remove);
+            //Since the indices are being dropped, the dimension field stored via the columnKey is becoming stale.
+            keyValueStore.remove(DimensionStoreKeyUtils.getColumnKey(keyName));
+            // The allValues key mapping needs to reflect the fact that we are dropping all dimension data.
+            keyValueStore.put(DimensionStoreKeyUtils.getAllValuesKey(), "[]");
+            //We're resetting the keyValueStore, so we don't want any stale last updated date floating around.
+            keyValueStore.remove(DimensionStoreKeyUtils.getLastUpdatedKey());
+
+            clearIndexes();
+            indexed = true;
+            refreshCardinality();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void refreshIndex(String rowId, DimensionRow dimensionRow, DimensionRow dimensionRowOld) {
+        refreshIndex(Collections.singletonMap(rowId, new Pair<>(dimensionRow, dimensionRowOld)));
+    }
+
+    @Override
+    public void refreshIndex(Map<String, Pair<DimensionRow, DimensionRow>> changedRows) {
+        lock.writeLock().lock();
+        try {
+            ensureIndexed();
+            int firstNewOrdinal = rows.size();
+            for (Pair<DimensionRow, DimensionRow> rowPair : changedRows.values()) {
+                indexRow(rowPair.getKey());
+            }
+            if (rows.size() > firstNewOrdinal) {
+                sortNewOrdinals(firstNewOrdinal);
+            }
+
+            refreshAllValues(changedRows.keySet());
+            refreshCardinality();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Pagination<DimensionRow> findAllDimensionRowsPaged(PaginationParameters paginationParameters) {
+        ensureIndexed();
+        lock.readLock().lock();
+        try {
+            BitSet everything = new BitSet(rows.size());
+            everything.set(0, rows.size());
+            return getPage(everything, paginationParameters);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Pagination<DimensionRow> findFilteredDimensionRowsPaged(
+            Set<ApiFilter> filters,
+            PaginationParameters paginationParameters
+    ) {
+        ensureIndexed();
+        lock.readLock().lock();
+        try {
+            return getPage(applyFilters(filters), paginationParameters);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public TreeSet<DimensionRow> inFilterOperation(TreeSet<DimensionRow> dimensionRows, ApiFilter filter) {
+        ensureIndexed();
+        lock.readLock().lock();
+        try {
+            return retain(dimensionRows, valuesBitmap(filter), true);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public TreeSet<DimensionRow> notinFilterOperation(TreeSet<DimensionRow> dimensionRows, ApiFilter filter) {
+        ensureIndexed();
+        lock.readLock().lock();
+        try {
+            return retain(dimensionRows, valuesBitmap(filter), false);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public TreeSet<DimensionRow> startswithFilterOperation(TreeSet<DimensionRow> dimensionRows, ApiFilter filter) {
+        ensureIndexed();
+        lock.readLock().lock();
+        try {
+            return retain(dimensionRows, prefixBitmap(filter), true);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public TreeSet<DimensionRow> containsFilterOperation(TreeSet<DimensionRow> dimensionRows, ApiFilter filter) {
+        ensureIndexed();
+        lock.readLock().lock();
+        try {
+            return retain(dimensionRows, containsBitmap(filter), true);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Keep the rows of a set which are, or are not, in a bitmap.
+     * <p>
+     * This method must be called holding the lock.
+     *
+     * @param dimensionRows  The set of dimension rows to be filtered
+     * @param bitmap  The ordinals of the rows matching a filter
+     * @param matching  Whether to keep the rows in the bitmap, or the rows not in it
+     *
+     * @return the filtered dimension rows
+     */
+    private TreeSet<DimensionRow> retain(TreeSet<DimensionRow> dimensionRows, BitSet bitmap, boolean matching) {
+        return dimensionRows.stream()
+                .filter(row -> {
+                    Integer ordinal = ordinals.get(row.getKeyValue());
+                    return (ordinal != null && bitmap.get(ordinal)) == matching;
+                })
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    /**
+     * Build the indexes from the rows in the key value store, if they are not built yet.
+     * <p>
+     * This method must not be called holding the read lock, which cannot be upgraded to the write lock.
+     */
+    private void ensureIndexed() {
+        if (indexed) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!indexed) {
+                loadIndexes();
+                indexed = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuild the indexes from the rows listed in the key value store.
+     */
+    private void loadIndexes() {
+        clearIndexes();
+        String allValues = keyValueStore.get(DimensionStoreKeyUtils.getAllValuesKey());
+        if (allValues != null) {
+            readRowIds(allValues).stream()
+                    .map(keyValueStore::get)
+                    .filter(Objects::nonNull)
+                    .map(encodedRow -> rowCodec.decode(dimension, encodedRow))
+                    .forEach(this::indexRow);
+        }
+        sortNewOrdinals(0);
+        LOG.debug("Indexed {} rows of dimension {}", rows.size(), dimension.getApiName());
+    }
+
+    /**
+     * Drop the indexes.
+     */
+    private void clearIndexes() {
+        rows.clear();
+        ordinals.clear();
+        dictionaries.clear();
+        sortedOrdinals = new int[0];
+    }
+
+    /**
+     * Add a row to the indexes, or replace the row with the same key value.
+     * <p>
+     * A new row is numbered with the next ordinal, but is not placed in the sorted ordinals.
+     *
+     * @param row  The row to index
+     */
+    private void indexRow(DimensionRow row) {
+        Integer ordinal = ordinals.get(row.getKeyValue());
+        if (ordinal == null) {
+            ordinal = rows.size();
+            ordinals.put(row.getKeyValue(), ordinal);
+            rows.add(row);
+        } else {
+            DimensionRow oldRow = rows.set(ordinal, row);
+            for (DimensionField field : dimension.getDimensionFields()) {
+                NavigableMap<String, BitSet> dictionary = getDictionary(field);
+                String oldValue = oldRow.getOrDefault(field, "");
+                BitSet bitmap = dictionary.get(oldValue);
+                bitmap.clear(ordinal);
+                if (bitmap.isEmpty()) {
+                    dictionary.remove(oldValue);
+                }
+            }
+        }
+        for (DimensionField field : dimension.getDimensionFields()) {
+            getDictionary(field).computeIfAbsent(row.getOrDefault(field, ""), ignored -> new BitSet()).set(ordinal);
+        }
+    }
+
+    /**
+     * Merge the ordinals numbered since the last sort into the sorted ordinals.
+     *
+     * @param firstNewOrdinal  The first ordinal not in the sorted ordinals
+     */
+    private void sortNewOrdinals(int firstNewOrdinal) {
+        int[] newOrdinals = Arrays.stream(sortOrder(firstNewOrdinal, rows.size()))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        int[] merged = new int[sortedOrdinals.length + newOrdinals.length];
+        int sorted = 0;
+        int added = 0;
+        for (int position = 0; position < merged.length; position++) {
+            boolean takeSorted = added == newOrdinals.length || (sorted < sortedOrdinals.length
+                    && rows.get(sortedOrdinals[sorted]).compareTo(rows.get(newOrdinals[added])) < 0);
+            merged[position] = takeSorted ? sortedOrdinals[sorted++] : newOrdinals[added++];
+        }
+        sortedOrdinals = merged;
+    }
+
+    /**
+     * Sort a range of ordinals in the order of their rows.
+     *
+     * @param from  The first ordinal of the range
+     * @param to  The ordinal after the last of the range
+     *
+     * @return the ordinals of the range, sorted
+     */
+    private Integer[] sortOrder(int from, int to) {
+        Integer[] range = new Integer[to - from];
+        for (int ordinal = from; ordinal < to; ordinal++) {
+            range[ordinal - from] = ordinal;
+        }
+        Arrays.sort(range, (left, right) -> rows.get(left).compareTo(rows.get(right)));
+        return range;
+    }
+
+    /**
+     * Get the sorted dictionary of the values of a field.
+     *
+     * @param field  The dimension field
+     *
+     * @return the bitmaps of the rows with each value of the field, by value
+     */
+    private NavigableMap<String, BitSet> getDictionary(DimensionField field) {
+        return dictionaries.computeIfAbsent(field, ignored -> new TreeMap<>());
+    }
+
+    /**
+     * Add row ids to the list of all the row keys of the dimension in the key value store.
+     *
+     * @param rowIds  The row ids to add
+     */
+    private void refreshAllValues(Set<String> rowIds) {
+        String allValuesKey = DimensionStoreKeyUtils.getAllValuesKey();
+        String allValues = keyValueStore.get(allValuesKey);
+        Set<String> allRowIds = new LinkedHashSet<>();
+        if (allValues != null) {
+            allRowIds.addAll(readRowIds(allValues));
+        }
+        if (allRowIds.addAll(rowIds)) {
+            try {
+                keyValueStore.put(allValuesKey, ROW_IDS_WRITER.writeValueAsString(allRowIds));
+            } catch (IOException e) {
+                LOG.error("Exception while adding dimension entry in KeyValueStore : {}", e);
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Read the list of row keys of the dimension.
+     *
+     * @param allValues  The list of row keys, as held in the key value store
+     *
+     * @return the row keys
+     */
+    private List<String> readRowIds(String allValues) {
+        try {
+            return Arrays.asList(ROW_IDS_READER.<String[]>readValue(allValues));
+        } catch (IOException e) {
+            LOG.error("Exception while reading dimension rows {}", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Update the cardinality count.
+     */
+    private void refreshCardinality() {
+        keyValueStore.put(DimensionStoreKeyUtils.getCardinalityKey(), Integer.toString(rows.size()));
+    }
+
+    /**
+     * Get the rows matching a set of filters.
+     * <p>
+     * This method must be called holding the lock.
+     *
+     * @param filters  The filters that are to be applied to the rows
+     *
+     * @return the ordinals of the rows matching every filter
+     */
+    private BitSet applyFilters(Set<ApiFilter> filters) {
+        BitSet matches = new BitSet(rows.size());
+        matches.set(0, rows.size());
+        for (ApiFilter filter : filters) {
+            switch (filter.getOperation()) {
+                case eq:
+                    // fall through on purpose since eq and in have the same functionality
+                case in:
+                    matches.and(valuesBitmap(filter));
+                    break;
+                case notin:
+                    matches.andNot(valuesBitmap(filter));
+                    break;
+                case startswith:
+                    matches.and(prefixBitmap(filter));
+                    break;
+                case contains:
+                    matches.and(containsBitmap(filter));
+                    break;
+                default:
+                    LOG.error("Illegal Filter operation : {}", filter.getOperation());
+                    throw new IllegalArgumentException("Invalid Filter Operation.");
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Get the rows with any of the values of a filter.
+     *
+     * @param filter  The api filter
+     *
+     * @return the union of the bitmaps of the values
+     */
+    private BitSet valuesBitmap(ApiFilter filter) {
+        NavigableMap<String, BitSet> dictionary = getDictionary(filter.getDimensionField());
+        BitSet union = new BitSet();
+        filter.getValues().stream()
+                .map(dictionary::get)
+                .filter(Objects::nonNull)
+                .forEach(union::or);
+        return union;
+    }
+
+    /**
+     * Get the rows with a value starting with any of the values of a filter.
+     *
+     * @param filter  The api filter
+     *
+     * @return the union of the bitmaps of the ranges of the sorted dictionary starting with the values
+     */
+    private BitSet prefixBitmap(ApiFilter filter) {
+        NavigableMap<String, BitSet> dictionary = getDictionary(filter.getDimensionField());
+        BitSet union = new BitSet();
+        for (String prefix : filter.getValues()) {
+            for (Map.Entry<String, BitSet> entry : dictionary.tailMap(prefix, true).entrySet()) {
+                if (!entry.getKey().startsWith(prefix)) {
+                    break;
+                }
+                union.or(entry.getValue());
+            }
+        }
+        return union;
+    }
+
+    /**
+     * Get the rows with a value containing any of the values of a filter.
+     *
+     * @param filter  The api filter
+     *
+     * @return the union of the bitmaps of the distinct values containing the values
+     */
+    private BitSet containsBitmap(ApiFilter filter) {
+        BitSet union = new BitSet();
+        getDictionary(filter.getDimensionField()).entrySet().stream()
+                .filter(entry -> filter.getValues().stream().anyMatch(entry.getKey()::contains))
+                .map(Map.Entry::getValue)
+                .forEach(union::or);
+        return union;
+    }
+
+    /**
+     * Select the requested page of the rows in a bitmap, in the order of the rows.
+     * <p>
+     * This method must be called holding the lock.
+     *
+     * @param matches  The ordinals of the rows to page through
+     * @param paginationParameters  The parameters defining the pagination
+     *
+     * @return the page of rows
+     */
+    private Pagination<DimensionRow> getPage(BitSet matches, PaginationParameters paginationParameters) {
+        int total = matches.cardinality();
+        int perPage = paginationParameters.getPerPage();
+        int skip = (paginationParameters.getPage(total) - 1) * perPage;
+
+        List<DimensionRow> page = new ArrayList<>(Math.min(perPage, Math.max(total - skip, 0)));
+        if (total == rows.size()) {
+            // Every row matches, so the page is a slice of the sorted ordinals
+            for (int position = skip; position < total && page.size() < perPage; position++) {
+                page.add(rows.get(sortedOrdinals[position]));
+            }
+        } else {
+            for (int position = 0; position < sortedOrdinals.length && page.size() < perPage; position++) {
+                if (matches.get(sortedOrdinals[position]) && skip-- <= 0) {
+                    page.add(rows.get(sortedOrdinals[position]));
+                }
+            }
+        }
+        return new SinglePagePagination<>(Collections.unmodifiableList(page), paginationParameters, total);
+    }
+}
@@ -0,0 +1,42 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.data.dimension.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bitmap search provider instances factory.
+ */
+
+public class BitmapSearchProviderManager {
+    private static Map<String, BitmapSearchProvider> bitmapProviders = new HashMap<>();
+
+    /**
+     * Get instance pointing to a search provider This method makes sure that there just one instance of search provider
+     * for a given dimension.
+     *
+     * @param providerName name unique identifier for search provider instances
+     *
+     * @return The search provider instance
+     */
+    public static synchronized BitmapSearchProvider getInstance(String providerName) {
+        BitmapSearchProvider bitmapProvider = bitmapProviders.get(providerName);
+
+        if (bitmapProvider == null) {
+            bitmapProvider = new BitmapSearchProvider();
+            bitmapProviders.put(providerName, bitmapProvider);
+        }
+
+        return bitmapProvider;
+    }
+
+    /**
+     * Cleanup the existing instance.
+     *
+     * @param providerName The name of the provider
+     */
+    public static synchronized void removeInstance(String providerName) {
+        bitmapProviders.remove(providerName);
+    }
+}
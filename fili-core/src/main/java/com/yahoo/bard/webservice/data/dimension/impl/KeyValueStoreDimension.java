@@ -2,34 +2,47 @@
 // Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
 package com.yahoo.bard.webservice.data.dimension.impl;
 
+import com.yahoo.bard.webservice.application.MetricRegistryFactory;
+import com.yahoo.bard.webservice.config.SystemConfig;
+import com.yahoo.bard.webservice.config.SystemConfigProvider;
 import com.yahoo.bard.webservice.data.cache.HashDataCache.Pair;
 import com.yahoo.bard.webservice.data.config.dimension.DimensionConfig;
 import com.yahoo.bard.webservice.data.dimension.Dimension;
 import com.yahoo.bard.webservice.data.dimension.DimensionField;
 import com.yahoo.bard.webservice.data.dimension.DimensionRow;
+import com.yahoo.bard.webservice.data.dimension.DimensionRowCodec;
+import com.yahoo.bard.webservice.data.dimension.DimensionRowCodecProvider;
 import com.yahoo.bard.webservice.data.dimension.KeyValueStore;
 import com.yahoo.bard.webservice.data.dimension.SearchProvider;
 import com.yahoo.bard.webservice.data.dimension.metadata.StorageStrategy;
 import com.yahoo.bard.webservice.util.DimensionStoreKeyUtils;
 
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import javax.validation.constraints.NotNull;
@@ -41,12 +54,27 @@ import javax.validation.constraints.NotNull;
  * <ul>
  *     <li>Id {@literal ->} DimensionRow
  * </ul>
+ * <p>
+ * Point lookups may be served from a bounded cache of decoded rows, kept by each dimension, which spares hot key
+ * values the store read and the JSON decode. The cache is off unless {@code bard__dimension_row_cache_max_rows} or
+ * {@code bard__dimension_row_cache_max_bytes} is positive. Rows are cached whether or not they exist, and are
+ * invalidated when they are added, when all rows are deleted and when the dimension is marked as updated. Cached rows
+ * are shared between callers and must not be modified.
  */
 public class KeyValueStoreDimension implements Dimension {
     private static final String MISSING_ROW_KEY_FORMAT = "Dimension row '%s' doesn't contain expected key '%s'";
     private static final String FIELD_UNDEFINED_FORMAT = "Unknown dimensionField: '%s' on dimension: '%s'.";
 
     private static final Logger LOG = LoggerFactory.getLogger(KeyValueStoreDimension.class);
+    private static final SystemConfig SYSTEM_CONFIG = SystemConfigProvider.getInstance();
+    private static final MetricRegistry REGISTRY = MetricRegistryFactory.getRegistry();
+
+    private static final String ROW_CACHE_MAX_ROWS_KEY = SYSTEM_CONFIG.getPackageVariableName(
+            "dimension_row_cache_max_rows"
+    );
+    private static final String ROW_CACHE_MAX_BYTES_KEY = SYSTEM_CONFIG.getPackageVariableName(
+            "dimension_row_cache_max_bytes"
+    );
 
     private final String apiName;
     private final String longName;
@@ -59,6 +87,7 @@ public class KeyValueStoreDimension implements Dimension {
 
     private final KeyValueStore keyValueStore;
     private final ObjectMapper objectMapper;
+    private final DimensionRowCodec rowCodec;
     private final SearchProvider searchProvider;
 
     private final String lastUpdatedKey;
@@ -68,6 +97,13 @@ public class KeyValueStoreDimension implements Dimension {
     private final boolean isAggregatable;
     private final StorageStrategy storageStrategy;
 
+    // Decoded rows by row key, with empty values for key values without a row, or null if rows are not cached
+    private final Cache<String, Optional<DimensionRow>> rowCache;
+    // Bumped on every invalidation, so a row read before an invalidation is not cached after it
+    private final AtomicLong rowCacheGeneration;
+    private final Meter rowCacheHits;
+    private final Meter rowCacheMisses;
+
     /**
      * Constructor.
      *
@@ -94,6 +130,52 @@ public class KeyValueStoreDimension implements Dimension {
             @NotNull LinkedHashSet<DimensionField> defaultDimensionFields,
             boolean isAggregatable,
             StorageStrategy storageStrategy
+    ) {
+        this(
+                dimensionName,
+                longName,
+                category,
+                description,
+                dimensionFields,
+                keyValueStore,
+                searchProvider,
+                defaultDimensionFields,
+                isAggregatable,
+                storageStrategy,
+                buildRowCache(),
+                new AtomicLong()
+        );
+    }
+
+    /**
+     * Constructor for a dimension which may share its row cache with another dimension over the same store.
+     *
+     * @param dimensionName  API Name of the dimension
+     * @param longName  Long API Name of the dimension
+     * @param category  Category of the dimension
+     * @param description  Description of the dimension
+     * @param dimensionFields  Metadata fields of the dimension
+     * @param keyValueStore  Metadata store for the dimension
+     * @param searchProvider  Search provider over the metadata for the dimension
+     * @param defaultDimensionFields  Default fields for the dimension
+     * @param isAggregatable  Whether the dimension is aggregatable
+     * @param storageStrategy  Strategy of how dimension is loaded
+     * @param rowCache  Cache of the decoded rows of the dimension, or null to not cache rows
+     * @param rowCacheGeneration  Invalidation count of the row cache
+     */
+    private KeyValueStoreDimension(
+            String dimensionName,
+            String longName,
+            String category,
+            String description,
+            @NotNull LinkedHashSet<DimensionField> dimensionFields,
+            @NotNull KeyValueStore keyValueStore,
+            SearchProvider searchProvider,
+            @NotNull LinkedHashSet<DimensionField> defaultDimensionFields,
+            boolean isAggregatable,
+            StorageStrategy storageStrategy,
+            Cache<String, Optional<DimensionRow>> rowCache,
+            AtomicLong rowCacheGeneration
     ) {
         this.apiName = dimensionName;
         this.longName = longName;
@@ -110,6 +192,7 @@ public class KeyValueStoreDimension implements Dimension {
         this.objectMapper = new ObjectMapper();
         this.objectMapper.configure(SerializationFeature.INDENT_OUTPUT, true);
         this.objectMapper.registerModule(new AfterburnerModule());
+        this.rowCodec = DimensionRowCodecProvider.getInstance();
         this.key = dimensionFields.isEmpty() ? null : dimensionFields.iterator().next();
         this.searchProvider = searchProvider;
 
@@ -118,6 +201,50 @@ public class KeyValueStoreDimension implements Dimension {
 
         this.isAggregatable = isAggregatable;
         this.storageStrategy = storageStrategy;
+
+        this.rowCache = rowCache;
+        this.rowCacheGeneration = rowCacheGeneration;
+        this.rowCacheHits = REGISTRY.meter(MetricRegistry.name("dimensions.meter.row_cache.hits", dimensionName));
+        this.rowCacheMisses = REGISTRY.meter(MetricRegistry.name("dimensions.meter.row_cache.misses", dimensionName));
+    }
+
+    /**
+     * Build a cache of decoded rows bounded as configured, by an estimate of its size in bytes or else by its number
+     * of rows.
+     *
+     * @return the row cache, or null if neither bound is positive
+     */
+    private static Cache<String, Optional<DimensionRow>> buildRowCache() {
+        long maxBytes = SYSTEM_CONFIG.getLongProperty(ROW_CACHE_MAX_BYTES_KEY, 0);
+        long maxRows = SYSTEM_CONFIG.getLongProperty(ROW_CACHE_MAX_ROWS_KEY, 0);
+        if (maxBytes > 0) {
+            return CacheBuilder.newBuilder()
+                    .maximumWeight(maxBytes)
+                    .weigher(KeyValueStoreDimension::estimateRowBytes)
+                    .build();
+        }
+        if (maxRows > 0) {
+            return CacheBuilder.newBuilder().maximumSize(maxRows).build();
+        }
+        return null;
+    }
+
+    /**
+     * Estimate the bytes held by a cached row, as two bytes for each character of its row key and field values.
+     *
+     * @param rowKey  The row key the row is cached under
+     * @param row  The row, empty if the key value has no row
+     *
+     * @return the estimated size of the cache entry
+     */
+    private static int estimateRowBytes(String rowKey, Optional<DimensionRow> row) {
+        int chars = rowKey.length();
+        if (row.isPresent()) {
+            for (String value : row.get().values()) {
+                chars += value == null ? 0 : value.length();
+            }
+        }
+        return 2 * chars;
     }
 
     /**
@@ -361,6 +488,8 @@ public class KeyValueStoreDimension implements Dimension {
         } else {
             keyValueStore.put(lastUpdatedKey, lastUpdated.toString());
         }
+        // The rows may have been reloaded behind this dimension's back, such as by replacing its store
+        invalidateRowCache(null);
     }
 
     @Override
@@ -438,45 +567,35 @@ public class KeyValueStoreDimension implements Dimension {
         Map<String, Pair<DimensionRow, DimensionRow>> indexRows = new LinkedHashMap<>(dimensionRows.size());
 
         for (DimensionRow dimensionRow : dimensionRows) {
-            try {
-                if (dimensionRow.isEmpty()) {
-                    LOG.warn("Ignoring attempt to add a dimension row with no data {}", dimensionRow);
-                    continue;
-                } else if (dimensionRow.get(getKey()) == null) {
-                    LOG.warn("Attempting to add a dimension row with a null key {}", dimensionRow);
-                    throw new IllegalArgumentException("Cannot add dimension with null key.");
-                }
+            if (dimensionRow.isEmpty()) {
+                LOG.warn("Ignoring attempt to add a dimension row with no data {}", dimensionRow);
+                continue;
+            } else if (dimensionRow.get(getKey()) == null) {
+                LOG.warn("Attempting to add a dimension row with a null key {}", dimensionRow);
+                throw new IllegalArgumentException("Cannot add dimension with null key.");
+            }
 
-                // rowId  - key to associate a dimension row to its id
-                String rowIdKey = DimensionStoreKeyUtils.getRowKey(getKey().getName(), dimensionRow.get(getKey()));
-
-                // check if the dimension row already exists in store
-                DimensionRow dimensionRowOld = null;
-                String row = keyValueStore.get(rowIdKey);
-                if (row != null) {
-                    LinkedHashMap<String, String> fieldNameValueMap = objectMapper.readValue(
-                            row,
-                            new TypeReference<LinkedHashMap<String, String>>() { }
-                    );
-                    dimensionRowOld = parseDimensionRow(fieldNameValueMap);
-                    if (dimensionRow.equals(dimensionRowOld)) {
-                        continue;
-                    }
-                }
+            // rowId  - key to associate a dimension row to its id
+            String rowIdKey = DimensionStoreKeyUtils.getRowKey(getKey().getName(), dimensionRow.get(getKey()));
 
-                String dimRowSerialized = objectMapper.writeValueAsString(dimensionRow);
-                storeRows.put(rowIdKey, dimRowSerialized);
+            // check if the dimension row already exists in store
+            DimensionRow dimensionRowOld = null;
+            String row = keyValueStore.get(rowIdKey);
+            if (row != null) {
+                dimensionRowOld = rowCodec.decode(this, row);
+                if (dimensionRow.equals(dimensionRowOld)) {
+                    continue;
+                }
+            }
 
-                //update indexes
-                indexRows.put(rowIdKey, new Pair<>(dimensionRow, dimensionRowOld));
+            storeRows.put(rowIdKey, rowCodec.encode(this, dimensionRow));
 
-            } catch (IOException e) {
-                LOG.error("Exception while adding dimension row {}", e);
-                throw new RuntimeException(e);
-            }
+            //update indexes
+            indexRows.put(rowIdKey, new Pair<>(dimensionRow, dimensionRowOld));
         }
 
         keyValueStore.putAll(storeRows);
+        invalidateRowCache(indexRows.keySet());
         searchProvider.refreshIndex(indexRows);
     }
 
@@ -507,24 +626,116 @@ public class KeyValueStoreDimension implements Dimension {
          * rowKey would be id_12345_row_key
          */
         String rowKey = DimensionStoreKeyUtils.getRowKey(getKey().getName(), value);
-        DimensionRow drByKey = null;
-        try {
-            String dimRowJson = keyValueStore.get(rowKey);
-            if (dimRowJson != null) {
-                Map<String, String> dimensionRowMap = objectMapper.readValue(
-                        dimRowJson,
-                        new TypeReference<LinkedHashMap<String, String>>() { }
-                );
-                drByKey = parseDimensionRow(dimensionRowMap);
+        if (rowCache != null) {
+            Optional<DimensionRow> cached = rowCache.getIfPresent(rowKey);
+            if (cached != null) {
+                rowCacheHits.mark();
+                return cached.orElse(null);
             }
-        } catch (IOException e) {
-            LOG.error("Cannot map string to DimensionRow object. {}", e);
-            throw new RuntimeException(e);
+            rowCacheMisses.mark();
         }
+
+        long generation = rowCacheGeneration.get();
+        String encodedRow = keyValueStore.get(rowKey);
+        DimensionRow drByKey = encodedRow == null ? null : decodeDimensionRow(encodedRow);
+        cacheRow(rowKey, drByKey, generation);
         return drByKey;
     }
 
 
+    @Override
+    public Map<String, DimensionRow> findDimensionRowsByKeyValues(Collection<String> values) {
+        // Key values differing only in case share a row key when keys are case insensitive
+        Map<String, List<String>> rowKeys = new HashMap<>(values.size());
+        for (String value : values) {
+            rowKeys.computeIfAbsent(
+                    DimensionStoreKeyUtils.getRowKey(getKey().getName(), value),
+                    ignored -> new ArrayList<>(1)
+            ).add(value);
+        }
+
+        Map<String, DimensionRow> rows = new HashMap<>(values.size());
+        List<String> uncachedRowKeys = new ArrayList<>(rowKeys.size());
+        for (Map.Entry<String, List<String>> entry : rowKeys.entrySet()) {
+            Optional<DimensionRow> cached = rowCache == null ? null : rowCache.getIfPresent(entry.getKey());
+            if (cached == null) {
+                uncachedRowKeys.add(entry.getKey());
+            } else {
+                cached.ifPresent(row -> entry.getValue().forEach(value -> rows.put(value, row)));
+            }
+        }
+        if (rowCache != null) {
+            rowCacheHits.mark(rowKeys.size() - uncachedRowKeys.size());
+            rowCacheMisses.mark(uncachedRowKeys.size());
+        }
+        if (uncachedRowKeys.isEmpty()) {
+            return rows;
+        }
+
+        long generation = rowCacheGeneration.get();
+        Map<String, String> encodedRows = keyValueStore.getAll(uncachedRowKeys);
+        for (String rowKey : uncachedRowKeys) {
+            String encodedRow = encodedRows.get(rowKey);
+            DimensionRow row = encodedRow == null ? null : decodeDimensionRow(encodedRow);
+            cacheRow(rowKey, row, generation);
+            if (row != null) {
+                for (String value : rowKeys.get(rowKey)) {
+                    rows.put(value, row);
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Decode a dimension row from its encoded form in the store.
+     *
+     * @param encodedRow  The stored row
+     *
+     * @return the dimension row
+     */
+    private DimensionRow decodeDimensionRow(String encodedRow) {
+        return rowCodec.decode(this, encodedRow);
+    }
+
+    /**
+     * Cache a row read from the store, unless the row cache was invalidated since the row was read.
+     * <p>
+     * An invalidation may land between checking the invalidation count and caching the row, so the count is checked
+     * again once the row is cached, and the row is invalidated if the count moved. Invalidations update the count
+     * before they invalidate, so a stale row is either invalidated by them or by this second check.
+     *
+     * @param rowKey  The row key the row was read from
+     * @param row  The row, or null if the key value has none
+     * @param generation  The invalidation count of the row cache from before the row was read
+     */
+    private void cacheRow(String rowKey, DimensionRow row, long generation) {
+        if (rowCache == null || rowCacheGeneration.get() != generation) {
+            return;
+        }
+        rowCache.put(rowKey, Optional.ofNullable(row));
+        if (rowCacheGeneration.get() != generation) {
+            rowCache.invalidate(rowKey);
+        }
+    }
+
+    /**
+     * Invalidate cached rows.
+     *
+     * @param rowKeys  The row keys of the rows to invalidate, or null to invalidate every row
+     */
+    private void invalidateRowCache(Collection<String> rowKeys) {
+        if (rowCache == null) {
+            return;
+        }
+        rowCacheGeneration.incrementAndGet();
+        if (rowKeys == null) {
+            rowCache.invalidateAll();
+        } else {
+            rowCache.invalidateAll(rowKeys);
+        }
+    }
+
     /**
      * Internal method for cleaning the dimension rows.
      */
@@ -551,6 +762,8 @@ public class KeyValueStoreDimension implements Dimension {
             String allValuesKey = DimensionStoreKeyUtils.getAllValuesKey();
             keyValueStore.put(allValuesKey, "[]");
 
+            invalidateRowCache(null);
+
         } catch (IOException e) {
             LOG.error("Exception while reading dimension rows {}", e);
             throw new RuntimeException(e);
@@ -598,6 +811,8 @@ public class KeyValueStoreDimension implements Dimension {
     /**
      * Constructs a new KeyValueStoreDimension with specified
      * {@link com.yahoo.bard.webservice.data.dimension.metadata.StorageStrategy}.
+     * <p>
+     * The new dimension reads the same store as this one, so it shares this dimension's row cache.
      *
      * @param storageStrategy  The specified StorageStrategy
      *
@@ -614,7 +829,9 @@ public class KeyValueStoreDimension implements Dimension {
                 searchProvider,
                 defaultDimensionFields,
                 isAggregatable,
-                storageStrategy
+                storageStrategy,
+                rowCache,
+                rowCacheGeneration
         );
     }
 
@@ -13,6 +13,7 @@ import com.yahoo.bard.webservice.data.dimension.SearchProvider;
 import com.yahoo.bard.webservice.data.dimension.TimeoutException;
 import com.yahoo.bard.webservice.logging.RequestLog;
 import com.yahoo.bard.webservice.logging.TimedPhase;
+import com.yahoo.bard.webservice.logging.blocks.LuceneSearch;
 import com.yahoo.bard.webservice.util.DimensionStoreKeyUtils;
 import com.yahoo.bard.webservice.util.Pagination;
 import com.yahoo.bard.webservice.util.SinglePagePagination;
@@ -23,6 +24,9 @@ import com.yahoo.bard.webservice.web.PageNotFoundException;
 import com.yahoo.bard.webservice.web.RowLimitReachedException;
 import com.yahoo.bard.webservice.web.util.PaginationParameters;
 
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 import org.apache.commons.io.FileUtils;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
@@ -30,6 +34,7 @@ import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.Term;
@@ -40,10 +45,13 @@ import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.PrefixQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TimeLimitingCollector;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.WildcardQuery;
+import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.MMapDirectory;
 import org.slf4j.Logger;
@@ -51,6 +59,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -58,12 +67,23 @@ import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collections;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -78,14 +98,61 @@ public class LuceneSearchProvider implements SearchProvider {
     private static final Analyzer LUCENE_ANALYZER = new StandardAnalyzer();
     private static final double BUFFER_SIZE = 48;
 
-    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
-    private final String luceneIndexPath;
-
     private static final SystemConfig SYSTEM_CONFIG = SystemConfigProvider.getInstance();
     public static final int LUCENE_SEARCH_TIMEOUT_MS = SYSTEM_CONFIG.getIntProperty(
             SYSTEM_CONFIG.getPackageVariableName("lucene_search_timeout_ms"), 600000
     );
 
+    /**
+     * The longest time index updates wait to be committed, or 0 or less to commit each update as it is made.
+     */
+    public static final long LUCENE_COMMIT_INTERVAL_MS = SYSTEM_CONFIG.getLongProperty(
+            SYSTEM_CONFIG.getPackageVariableName("lucene_commit_interval_ms"), 0
+    );
+
+    // Commits batched by the commit interval run on a shared daemon thread
+    private static final ScheduledExecutorService COMMIT_SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("lucene-commit-%d").setDaemon(true).build()
+    );
+
+    /**
+     * The number of threads searching the slices of the indexes in parallel, or 0 or less to search each index on the
+     * thread of the request.
+     */
+    public static final int LUCENE_SEARCH_THREADS = SYSTEM_CONFIG.getIntProperty(
+            SYSTEM_CONFIG.getPackageVariableName("lucene_search_threads"), 0
+    );
+
+    /**
+     * The number of slices waiting for a search thread, past which slices are searched on the thread of the request.
+     */
+    public static final int LUCENE_SEARCH_QUEUE_SIZE = SYSTEM_CONFIG.getIntProperty(
+            SYSTEM_CONFIG.getPackageVariableName("lucene_search_queue_size"), 1000
+    );
+
+    // Searches of every index share one bounded pool, so a large dimension cannot starve the others of threads
+    private static final ExecutorService SEARCH_EXECUTOR = LUCENE_SEARCH_THREADS <= 0 ? null : new ThreadPoolExecutor(
+            LUCENE_SEARCH_THREADS,
+            LUCENE_SEARCH_THREADS,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(LUCENE_SEARCH_QUEUE_SIZE),
+            new ThreadFactoryBuilder().setNameFormat("lucene-search-%d").setDaemon(true).build(),
+            new ThreadPoolExecutor.CallerRunsPolicy()
+    );
+
+    private static final SearcherFactory SEARCHER_FACTORY = new SearcherFactory() {
+        @Override
+        public IndexSearcher newSearcher(IndexReader reader, IndexReader previousReader) {
+            return new SliceTimingIndexSearcher(reader, SEARCH_EXECUTOR);
+        }
+    };
+
+    // Held by everything changing the index, searches don't take it
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicBoolean commitScheduled = new AtomicBoolean();
+    private final String luceneIndexPath;
+
     /**
      * The maximum number of results per page.
      */
@@ -94,9 +161,11 @@ public class LuceneSearchProvider implements SearchProvider {
     private Directory luceneDirectory;
     private KeyValueStore keyValueStore;
     private Dimension dimension;
-    private boolean luceneIndexIsHealthy;
-    private IndexSearcher luceneIndexSearcher;
+    private volatile boolean luceneIndexIsHealthy;
+    private IndexWriter luceneIndexWriter;
+    private volatile SearcherManager searcherManager;
     private int searchTimeout;
+    private long commitInterval = LUCENE_COMMIT_INTERVAL_MS;
 
     /**
      * Constructor.
@@ -133,59 +202,130 @@ public class LuceneSearchProvider implements SearchProvider {
     }
 
     /**
-     * Initializes the `luceneIndexSearcher` if it has not been initialized already.
+     * Get the searcher manager, opening the index writer and the searcher manager if they are not open yet.
      * <p>
-     * Note that the index searcher cannot be built at construction time, because it needs the dimension and
-     * associated key-value store. However, because of a circular dependency between the `SearchProvider` and the
-     * `Dimension` classes, we cannot provide the dimension and key-value store to the search provider at
-     * construction time.
+     * Note that the index cannot be opened at construction time, because it needs the dimension and associated
+     * key-value store. However, because of a circular dependency between the `SearchProvider` and the `Dimension`
+     * classes, we cannot provide the dimension and key-value store to the search provider at construction time.
+     *
+     * @return the searcher manager
      */
-    private void initializeIndexSearcher() {
-        if (luceneIndexSearcher == null) {
-            reopenIndexSearcher(true);
+    private SearcherManager getSearcherManager() {
+        SearcherManager manager = searcherManager;
+        if (manager != null) {
+            return manager;
+        }
+        lock.lock();
+        try {
+            if (searcherManager == null) {
+                openIndex();
+            }
+            return searcherManager;
+        } finally {
+            lock.unlock();
         }
     }
 
     /**
-     * Re-open the Index Searcher, opening it for the first time if it's never been opened.
+     * Open the long-lived index writer, creating an empty index if there is none, and a near-real-time searcher
+     * manager on it.
      * <p>
-     * This method will attempt to acquire and release a write lock.
-     *
-     * @param firstTimeThrough  If true, will write an empty index and will then re-open the searcher
+     * This method must be called holding the lock.
+     */
+    private void openIndex() {
+        IndexWriterConfig indexWriterConfig = new IndexWriterConfig(LUCENE_ANALYZER).setRAMBufferSizeMB(BUFFER_SIZE);
+        try {
+            luceneIndexWriter = new IndexWriter(luceneDirectory, indexWriterConfig);
+            // Make sure the index exists on disk, even before anything is written to it
+            luceneIndexWriter.commit();
+            searcherManager = new SearcherManager(luceneIndexWriter, SEARCHER_FACTORY);
+            luceneIndexIsHealthy = true;
+        } catch (IOException e) {
+            luceneIndexIsHealthy = false;
+            String message = String.format("Unable to open index writer and searcher for %s:", luceneIndexPath);
+            LOG.error(message, e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Commit and close the index writer and the searcher manager, if they are open.
+     * <p>
+     * Searches already running finish on the searchers they hold. The index is opened again when it is next used.
      */
-    private void reopenIndexSearcher(boolean firstTimeThrough) {
-        lock.writeLock().lock();
+    public void close() {
+        lock.lock();
         try {
-            // Close the current reader if open
-            if (luceneIndexSearcher != null) {
-                luceneIndexSearcher.getIndexReader().close();
+            if (searcherManager == null) {
+                return;
             }
+            searcherManager.close();
+            luceneIndexWriter.close();
+        } catch (IOException e) {
+            luceneIndexIsHealthy = false;
+            String message = String.format("Unable to close index writer and searcher for %s:", luceneIndexPath);
+            LOG.error(message, e);
+            throw new RuntimeException(e);
+        } finally {
+            searcherManager = null;
+            luceneIndexWriter = null;
+            lock.unlock();
+        }
+    }
 
-            // Open a new IndexSearcher on a new DirectoryReader
-            luceneIndexSearcher = new IndexSearcher(DirectoryReader.open(luceneDirectory));
-        } catch (IOException reopenException) {
-            // If there is no index file, this is expected. On the 1st time through, write an empty index and try again
-            if (firstTimeThrough) {
-                IndexWriterConfig indexWriterConfig = new IndexWriterConfig(LUCENE_ANALYZER);
-                try (IndexWriter ignored = new IndexWriter(luceneDirectory, indexWriterConfig)) {
-                    // Closed automatically by the try-resource block
-                } catch (IOException emptyIndexWriteException) {
-                    // We can't move past this, so puke
-                    luceneIndexIsHealthy = false;
-                    String message = String.format("Unable to write empty index to %s:", luceneIndexPath);
-                    LOG.error(message, emptyIndexWriteException);
-                    throw new RuntimeException(emptyIndexWriteException);
-                }
-                reopenIndexSearcher(false);
-            } else {
-                // We've been here before, so puke
-                luceneIndexIsHealthy = false;
-                String message = String.format("Unable to open index searcher for %s:", luceneIndexPath);
-                LOG.error(message, reopenException);
-                throw new RuntimeException(reopenException);
+    /**
+     * Acquire a searcher on the latest refreshed view of the index, without locking.
+     * <p>
+     * Each searcher acquired must be released by closing it, which hands it back to the searcher manager it came from.
+     *
+     * @return the searcher
+     */
+    private AcquiredSearcher acquireSearcher() {
+        while (true) {
+            SearcherManager manager = getSearcherManager();
+            try {
+                return new AcquiredSearcher(manager, manager.acquire());
+            } catch (AlreadyClosedException ignored) {
+                // The index was closed or replaced since the searcher manager was read, so read it again
+            } catch (IOException e) {
+                LOG.error(String.format("Unable to acquire index searcher for %s:", luceneIndexPath), e);
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Make the changes written to the index visible to searches, reopening the searchers from the index writer
+     * without committing, and commit the changes now or schedule a batched commit.
+     * <p>
+     * This method must be called holding the lock.
+     *
+     * @throws IOException if the searchers can't be reopened or the changes can't be committed
+     */
+    private void publishChanges() throws IOException {
+        searcherManager.maybeRefreshBlocking();
+        if (commitInterval <= 0) {
+            luceneIndexWriter.commit();
+        } else if (commitScheduled.compareAndSet(false, true)) {
+            COMMIT_SCHEDULER.schedule(this::commit, commitInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Commit the changes made to the index since the last commit, if the index is open.
+     */
+    private void commit() {
+        commitScheduled.set(false);
+        lock.lock();
+        try {
+            if (luceneIndexWriter != null) {
+                luceneIndexWriter.commit();
             }
+        } catch (IOException e) {
+            luceneIndexIsHealthy = false;
+            LOG.error(String.format("Unable to commit index changes to %s:", luceneIndexPath), e);
         } finally {
-            lock.writeLock().unlock();
+            lock.unlock();
         }
     }
 
@@ -255,10 +395,11 @@ public class LuceneSearchProvider implements SearchProvider {
 
         // Create the document fields for this dimension and add them to the document
         for (DimensionField dimensionField : dimension.getDimensionFields()) {
+            // Every field is stored, so that pages of results are hydrated from the index alone
             Field luceneField = new StringField(
                     DimensionStoreKeyUtils.getColumnKey(dimensionField.getName()),
                     "",
-                    dimensionField.equals(dimension.getKey()) ? Field.Store.YES : Field.Store.NO
+                    Field.Store.YES
             );
 
             // Store the lucene field in the doc and in our lookup map
@@ -267,31 +408,27 @@ public class LuceneSearchProvider implements SearchProvider {
         }
 
         // Write the rows to the document
-        IndexWriterConfig indexWriterConfig = new IndexWriterConfig(LUCENE_ANALYZER).setRAMBufferSizeMB(BUFFER_SIZE);
-        lock.writeLock().lock();
+        lock.lock();
         try {
-            try (IndexWriter luceneIndexWriter = new IndexWriter(luceneDirectory, indexWriterConfig)) {
-                // Update the document fields for each row and update the document
-                for (String rowId : changedRows.keySet()) {
-                    // Get the new row from the pair
-                    DimensionRow newDimensionRow = changedRows.get(rowId).getKey();
-
-                    // Update the index
-                    updateDimensionRow(doc, dimFieldToLuceneField, luceneIndexWriter, newDimensionRow);
-                }
+            if (searcherManager == null) {
+                openIndex();
+            }
+            // Update the document fields for each row and update the document
+            for (String rowId : changedRows.keySet()) {
+                // Get the new row from the pair
+                DimensionRow newDimensionRow = changedRows.get(rowId).getKey();
 
-            } catch (IOException e) {
-                luceneIndexIsHealthy = false;
-                LOG.error("Failed to refresh index for dimension rows", e);
-                throw new RuntimeException(e);
-                // Commit all the changes to the index (on .close, called by try-resources) and refresh the cardinality
+                // Update the index
+                updateDimensionRow(doc, dimFieldToLuceneField, luceneIndexWriter, newDimensionRow);
             }
-            //This must be outside the try-resources block because it may _also_ need to open an IndexWriter, and
-            //opening an IndexWriter involves taking a write lock on lucene, of which there can only be one at a time.
-            reopenIndexSearcher(true);
+            publishChanges();
             refreshCardinality();
+        } catch (IOException e) {
+            luceneIndexIsHealthy = false;
+            LOG.error("Failed to refresh index for dimension rows", e);
+            throw new RuntimeException(e);
         } finally {
-            lock.writeLock().unlock();
+            lock.unlock();
         }
     }
 
@@ -336,8 +473,11 @@ public class LuceneSearchProvider implements SearchProvider {
                 newLuceneIndexPathString
         );
 
-        lock.writeLock().lock();
+        lock.lock();
         try {
+            // Searches already running finish on the old index, new ones wait for the new index to be opened
+            close();
+
             Path oldLuceneIndexPath = Paths.get(luceneIndexPath);
             String tempDir = oldLuceneIndexPath.resolveSibling(oldLuceneIndexPath.getFileName() + "_old").toString();
 
@@ -356,9 +496,9 @@ public class LuceneSearchProvider implements SearchProvider {
             LOG.trace("Deleting old Lucene indexes in {} ...", tempDir);
             deleteDir(tempDir);
 
-            reopenIndexSearcher(false);
+            openIndex();
         } finally {
-            lock.writeLock().unlock();
+            lock.unlock();
         }
     }
 
@@ -429,61 +569,56 @@ public class LuceneSearchProvider implements SearchProvider {
     /**
      * Clears the dimension cache, and resets the indices, effectively resetting the SearchProvider to a clean state.
      * <p>
-     * Note that this method attempts to acquire a write lock before clearing the index.
+     * Note that this method holds the lock of the index writer while it clears the index.
      */
     @Override
     public void clearDimension() {
         Set<DimensionRow> dimensionRows = findAllDimensionRows();
-        IndexWriterConfig indexWriterConfig = new IndexWriterConfig(LUCENE_ANALYZER).setRAMBufferSizeMB(BUFFER_SIZE);
-        lock.writeLock().lock();
+        lock.lock();
         try {
-            try (IndexWriter writer = new IndexWriter(luceneDirectory, indexWriterConfig)) {
-                //Remove all dimension data from the store.
-                String rowId = dimension.getKey().getName();
-                dimensionRows.stream()
-                        .map(DimensionRow::getRowMap)
-                        .map(map -> map.get(rowId))
-                        .map(id -> DimensionStoreKeyUtils.getRowKey(rowId, id))
-                        .forEach(keyValueStore::remove);
-
-                //Since Lucene's indices are being dropped, the dimension field stored via the columnKey is becoming
-                //stale.
-                keyValueStore.remove(DimensionStoreKeyUtils.getColumnKey(dimension.getKey().getName()));
-                //The allValues key mapping needs to reflect the fact that we are dropping all dimension data.
-                keyValueStore.put(DimensionStoreKeyUtils.getAllValuesKey(), "[]");
-                //We're resetting the keyValueStore, so we don't want any stale last updated date floating around.
-                keyValueStore.remove(DimensionStoreKeyUtils.getLastUpdatedKey());
-
-                //In addition to clearing the keyValueStore, we also need to delete all of Lucene's segment files.
-                writer.deleteAll();
-                writer.commit();
-            } catch (IOException e) {
-                LOG.error(ErrorMessageFormat.FAIL_TO_WIPTE_LUCENE_INDEX_DIR.format(luceneDirectory));
-                throw new RuntimeException(e);
+            if (searcherManager == null) {
+                openIndex();
             }
 
-            //This must be outside the try-resources block because it may _also_ need to open an IndexWriter, and
-            //opening an IndexWriter involves taking a write lock on lucene, of which there can only be one at a time.
-            reopenIndexSearcher(true);
+            //Remove all dimension data from the store.
+            String rowId = dimension.getKey().getName();
+            dimensionRows.stream()
+                    .map(DimensionRow::getRowMap)
+                    .map(map -> map.get(rowId))
+                    .map(id -> DimensionStoreKeyUtils.getRowKey(rowId, id))
+                    .forEach(keyValueStore::remove);
+
+            //Since Lucene's indices are being dropped, the dimension field stored via the columnKey is becoming
+            //stale.
+            keyValueStore.remove(DimensionStoreKeyUtils.getColumnKey(dimension.getKey().getName()));
+            //The allValues key mapping needs to reflect the fact that we are dropping all dimension data.
+            keyValueStore.put(DimensionStoreKeyUtils.getAllValuesKey(), "[]");
+            //We're resetting the keyValueStore, so we don't want any stale last updated date floating around.
+            keyValueStore.remove(DimensionStoreKeyUtils.getLastUpdatedKey());
+
+            //In addition to clearing the keyValueStore, we also need to delete all of Lucene's segment files.
+            luceneIndexWriter.deleteAll();
+            luceneIndexWriter.commit();
+            searcherManager.maybeRefreshBlocking();
+
             refreshCardinality();
+        } catch (IOException e) {
+            LOG.error(ErrorMessageFormat.FAIL_TO_WIPTE_LUCENE_INDEX_DIR.format(luceneDirectory));
+            throw new RuntimeException(e);
         } finally {
-            lock.writeLock().unlock();
+            lock.unlock();
         }
     }
 
     /**
      * Update the cardinality count.
      * <p>
-     * Note that this method acquires a read lock to query the lucene index for the number of documents.
+     * Note that this method acquires and releases a searcher to query the lucene index for the number of documents.
      */
     private void refreshCardinality() {
         int numDocs;
-        initializeIndexSearcher();
-        lock.readLock().lock();
-        try {
-            numDocs = luceneIndexSearcher.getIndexReader().numDocs();
-        } finally {
-            lock.readLock().unlock();
+        try (AcquiredSearcher acquired = acquireSearcher()) {
+            numDocs = acquired.searcher.getIndexReader().numDocs();
         }
         keyValueStore.put(
                 DimensionStoreKeyUtils.getCardinalityKey(),
@@ -656,13 +791,17 @@ public class LuceneSearchProvider implements SearchProvider {
 
     /**
      * Returns the desired page of dimension rows found by the specified query with the relevant metadata.
+     * <p>
+     * A page requested with the cursor handed out in the link to it resumes the search after the last hit of the
+     * previous page. The cursor only holds while the index is unchanged, so without a cursor that holds, the search
+     * walks the pages from the first one.
      *
      * @param query  The Lucene query used to locate the desired DimensionRows
      * @param paginationParameters  The parameters defining the pagination (i.e. the number of rows per page, and the
      * desired page)
      * <p>
-     * Note that this method _may_ need to acquire and release a write lock if the index searcher needs to be
-     * initialized, and it later acquires and released a read lock when querying for dimension data from Lucene.
+     * Note that this method _may_ need to acquire and release the lock of the index writer if the index needs to be
+     * opened, and it otherwise queries Lucene without locking, on a searcher it acquires and releases.
      *
      * @return The desired page of dimension rows that satisfy the given query
      *
@@ -675,22 +814,34 @@ public class LuceneSearchProvider implements SearchProvider {
 
         TreeSet<DimensionRow> filteredDimRows;
         int documentCount;
-        initializeIndexSearcher();
+        String nextCursor;
         LOG.trace("Lucene Query {}", query);
 
-        lock.readLock().lock();
-        try {
+        try (AcquiredSearcher acquired = acquireSearcher()) {
+            IndexSearcher searcher = acquired.searcher;
+            long indexVersion = ((DirectoryReader) searcher.getIndexReader()).getVersion();
             ScoreDoc[] hits;
+            int requestedPageNumber;
+            List<long[]> sliceDurations = new ArrayList<>();
             try (TimedPhase timer = RequestLog.startTiming("QueryingLucene")) {
+                PageCursor cursor = paginationParameters.getCursor()
+                        .map(token -> PageCursor.decode(token, indexVersion, query, perPage))
+                        .orElse(null);
                 TopDocs hitDocs = getPageOfData(
-                        luceneIndexSearcher,
-                        null,
+                        searcher,
+                        cursor == null ? null : cursor.lastEntry,
                         query,
-                        perPage
+                        perPage,
+                        sliceDurations
                 );
-                hits = hitDocs.scoreDocs;
                 documentCount = hitDocs.totalHits;
-                int requestedPageNumber = paginationParameters.getPage(documentCount);
+                requestedPageNumber = paginationParameters.getPage(documentCount);
+                if (cursor != null && cursor.page != requestedPageNumber) {
+                    // The cursor is of another page than the one requested, so ignore it
+                    cursor = null;
+                    hitDocs = getPageOfData(searcher, null, query, perPage, sliceDurations);
+                }
+                hits = hitDocs.scoreDocs;
                 if (hits.length == 0) {
                     if (requestedPageNumber == 1) {
                         return new SinglePagePagination<>(Collections.emptyList(), paginationParameters, 0);
@@ -698,43 +849,85 @@ public class LuceneSearchProvider implements SearchProvider {
                         throw new PageNotFoundException(requestedPageNumber, perPage, 0);
                     }
                 }
-                for (int currentPage = 1; currentPage < requestedPageNumber; currentPage++) {
+                int firstPage = cursor == null ? 1 : cursor.page;
+                for (int currentPage = firstPage; currentPage < requestedPageNumber; currentPage++) {
                     ScoreDoc lastEntry = hits[hits.length - 1];
-                    hits = getPageOfData(luceneIndexSearcher, lastEntry, query, perPage).scoreDocs;
+                    hits = getPageOfData(searcher, lastEntry, query, perPage, sliceDurations).scoreDocs;
                     if (hits.length == 0) {
                         throw new PageNotFoundException(requestedPageNumber, perPage, 0);
                     }
                 }
+                nextCursor = new PageCursor(requestedPageNumber + 1, hits[hits.length - 1])
+                        .encode(indexVersion, query, perPage);
+            } finally {
+                recordSliceDurations(sliceDurations);
             }
 
             // convert hits to dimension rows
             try (TimedPhase timer = RequestLog.startTiming("LuceneHydratingDimensionRows")) {
-                String idKey = DimensionStoreKeyUtils.getColumnKey(dimension.getKey().getName());
                 filteredDimRows = Arrays.stream(hits)
                         .map(
                                 hit -> {
                                     try {
-                                        return luceneIndexSearcher.doc(hit.doc);
+                                        return searcher.doc(hit.doc);
                                     } catch (IOException e) {
                                         LOG.error("Unable to convert hit " + hit);
                                         throw new RuntimeException(e);
                                     }
                                 }
                         )
-                        .map(document -> document.get(idKey))
-                        .map(dimension::findDimensionRowByKeyValue)
+                        .map(this::toDimensionRow)
                         .collect(Collectors.toCollection(TreeSet::new));
             }
-        } finally {
-            lock.readLock().unlock();
         }
         return new SinglePagePagination<>(
                 Collections.unmodifiableList(filteredDimRows.stream().collect(Collectors.toList())),
                 paginationParameters,
-                documentCount
+                documentCount,
+                nextCursor
         );
     }
 
+    /**
+     * Record the searches made for a page in the request log, with the time spent searching each slice of the index.
+     *
+     * @param sliceDurations  The time spent searching each slice of the index by each search, in nanoseconds
+     */
+    private void recordSliceDurations(List<long[]> sliceDurations) {
+        long[] totals = new long[sliceDurations.stream().mapToInt(durations -> durations.length).max().orElse(0)];
+        for (long[] durations : sliceDurations) {
+            for (int slice = 0; slice < durations.length; slice++) {
+                totals[slice] += durations[slice];
+            }
+        }
+        List<Float> sliceMillis = Arrays.stream(totals)
+                .mapToObj(nanos -> (float) nanos / TimeUnit.MILLISECONDS.toNanos(1))
+                .collect(Collectors.toList());
+        RequestLog.record(new LuceneSearch(dimension.getApiName(), sliceDurations.size(), sliceMillis));
+    }
+
+    /**
+     * Build the dimension row of a document from its stored fields.
+     * <p>
+     * Documents indexed before the values of every field were stored are read from the key value store instead.
+     *
+     * @param document  The document of a hit
+     *
+     * @return the dimension row of the document
+     */
+    private DimensionRow toDimensionRow(Document document) {
+        Map<DimensionField, String> fieldValues = new LinkedHashMap<>();
+        for (DimensionField field : dimension.getDimensionFields()) {
+            String value = document.get(DimensionStoreKeyUtils.getColumnKey(field.getName()));
+            if (value == null) {
+                String keyValue = document.get(DimensionStoreKeyUtils.getColumnKey(dimension.getKey().getName()));
+                return dimension.findDimensionRowByKeyValue(keyValue);
+            }
+            fieldValues.put(field, value);
+        }
+        return new DimensionRow(dimension.getKey(), fieldValues);
+    }
+
     /**
      * Check if perPage exceeds limit of max number of rows to be returned.
      *
@@ -753,13 +946,15 @@ public class LuceneSearchProvider implements SearchProvider {
     /**
      * Returns the requested page of dimension metadata from Lucene.
      * <p>
-     * Note that this method acquires and releases a read lock when querying Lucene for data.
+     * Note that this method doesn't lock, the searcher given is a stable view of the index. With a search executor,
+     * the slices of the index are searched in parallel, and their top hits and hit counts merged.
      *
      * @param indexSearcher  The service to find the desired dimension metadata in the Lucene index
      * @param lastEntry  The last entry from the previous page of dimension metadata, the indexSearcher will begin its
      * search after this entry (if lastEntry is null, the indexSearcher will begin its search from the beginning)
      * @param query  The Lucene query used to locate the desired dimension metadata
      * @param perPage  The number of entries per page
+     * @param sliceDurations  The durations of the searches, to add the time spent searching each slice to
      *
      * @return The desired page of dimension metadata
      */
@@ -767,21 +962,135 @@ public class LuceneSearchProvider implements SearchProvider {
             IndexSearcher indexSearcher,
             ScoreDoc lastEntry,
             Query query,
-            int perPage
+            int perPage,
+            List<long[]> sliceDurations
     ) {
         TimeLimitingCollectorManager manager = new TimeLimitingCollectorManager(searchTimeout, lastEntry, perPage);
-        lock.readLock().lock();
         try {
-            return indexSearcher.search(query, manager);
+            TopDocs hitDocs = indexSearcher.search(query, manager);
+            sliceDurations.add(manager.getSliceDurations());
+            return hitDocs;
         } catch (IOException e) {
             String errorMessage = "Unable to find dimension rows for specified page.";
             LOG.error(errorMessage);
             throw new RuntimeException(errorMessage);
-        } catch (TimeLimitingCollector.TimeExceededException e) {
-            LOG.warn("Lucene query timeout: {}. {}", query, e.getMessage());
-            throw new TimeoutException(e.getMessage(), e);
-        } finally {
-            lock.readLock().unlock();
+        } catch (RuntimeException e) {
+            // Slices searched on the search executor fail wrapped in other exceptions
+            Throwable timeout = Throwables.getCausalChain(e).stream()
+                    .filter(TimeLimitingCollector.TimeExceededException.class::isInstance)
+                    .findFirst()
+                    .orElseThrow(() -> e);
+            LOG.warn("Lucene query timeout: {}. {}", query, timeout.getMessage());
+            throw new TimeoutException(timeout.getMessage(), timeout);
+        }
+    }
+
+    /**
+     * The position a page of results starts at: the number of the page, and the last hit of the page before it.
+     * <p>
+     * A cursor is handed out as an opaque token, which is bound to the version of the index, the query and the page
+     * size it was made for.
+     */
+    private static final class PageCursor {
+
+        private static final String SEPARATOR = ":";
+
+        private final int page;
+        private final ScoreDoc lastEntry;
+
+        /**
+         * Constructor.
+         *
+         * @param page  The number of the page
+         * @param lastEntry  The last hit of the page before it
+         */
+        private PageCursor(int page, ScoreDoc lastEntry) {
+            this.page = page;
+            this.lastEntry = lastEntry;
+        }
+
+        /**
+         * Encode this cursor as a token.
+         *
+         * @param indexVersion  The version of the index searched
+         * @param query  The query searched for
+         * @param perPage  The number of entries per page
+         *
+         * @return the token of the cursor
+         */
+        private String encode(long indexVersion, Query query, int perPage) {
+            String cursor = String.join(
+                    SEPARATOR,
+                    Long.toString(indexVersion),
+                    Integer.toString(query.hashCode()),
+                    Integer.toString(perPage),
+                    Integer.toString(page),
+                    Integer.toString(lastEntry.doc),
+                    Integer.toString(Float.floatToIntBits(lastEntry.score))
+            );
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Decode the token of a cursor.
+         *
+         * @param token  The token of the cursor
+         * @param indexVersion  The version of the index searched
+         * @param query  The query searched for
+         * @param perPage  The number of entries per page
+         *
+         * @return the cursor, or null if the token is malformed or was not made for this index version, query and
+         * page size
+         */
+        private static PageCursor decode(String token, long indexVersion, Query query, int perPage) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8)
+                        .split(SEPARATOR);
+                if (parts.length != 6
+                        || Long.parseLong(parts[0]) != indexVersion
+                        || Integer.parseInt(parts[1]) != query.hashCode()
+                        || Integer.parseInt(parts[2]) != perPage) {
+                    LOG.debug("Ignoring cursor {} of another index version, query or page size", token);
+                    return null;
+                }
+                ScoreDoc lastEntry = new ScoreDoc(
+                        Integer.parseInt(parts[4]),
+                        Float.intBitsToFloat(Integer.parseInt(parts[5]))
+                );
+                return new PageCursor(Integer.parseInt(parts[3]), lastEntry);
+            } catch (IllegalArgumentException e) {
+                LOG.debug("Ignoring malformed cursor {}", token);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * A searcher acquired from a searcher manager, which closing releases back to that searcher manager.
+     */
+    private static final class AcquiredSearcher implements AutoCloseable {
+        private final SearcherManager manager;
+        private final IndexSearcher searcher;
+
+        /**
+         * Constructor.
+         *
+         * @param manager  The searcher manager the searcher was acquired from
+         * @param searcher  The searcher
+         */
+        private AcquiredSearcher(SearcherManager manager, IndexSearcher searcher) {
+            this.manager = manager;
+            this.searcher = searcher;
+        }
+
+        @Override
+        public void close() {
+            try {
+                manager.release(searcher);
+            } catch (IOException e) {
+                LOG.error("Unable to release index searcher", e);
+                throw new RuntimeException(e);
+            }
         }
     }
 }
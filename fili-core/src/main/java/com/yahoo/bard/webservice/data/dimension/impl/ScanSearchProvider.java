@@ -6,6 +6,8 @@ import com.yahoo.bard.webservice.data.cache.HashDataCache.Pair;
 import com.yahoo.bard.webservice.data.dimension.Dimension;
 import com.yahoo.bard.webservice.data.dimension.DimensionField;
 import com.yahoo.bard.webservice.data.dimension.DimensionRow;
+import com.yahoo.bard.webservice.data.dimension.DimensionRowCodec;
+import com.yahoo.bard.webservice.data.dimension.DimensionRowCodecProvider;
 import com.yahoo.bard.webservice.data.dimension.FilterDimensionRows;
 import com.yahoo.bard.webservice.data.dimension.KeyValueStore;
 import com.yahoo.bard.webservice.data.dimension.SearchProvider;
@@ -40,6 +42,7 @@ public class ScanSearchProvider implements SearchProvider, FilterDimensionRows {
     private static final Logger LOG = LoggerFactory.getLogger(ScanSearchProvider.class);
 
     private final ObjectMapper objectMapper;
+    private final DimensionRowCodec rowCodec;
 
     private KeyValueStore keyValueStore;
     private Dimension dimension;
@@ -50,6 +53,7 @@ public class ScanSearchProvider implements SearchProvider, FilterDimensionRows {
     public ScanSearchProvider() {
         // TODO: Make this use the shared Object Mapper
         this.objectMapper = new ObjectMapper();
+        this.rowCodec = DimensionRowCodecProvider.getInstance();
     }
 
     @Override
@@ -370,8 +374,7 @@ public class ScanSearchProvider implements SearchProvider, FilterDimensionRows {
         return getDimRowIndexes().stream()
                 .map(keyValueStore::get)
                 .filter(Objects::nonNull)
-                .map(dimRowJson -> readValue(new TypeReference<Map<String, String>>() { }, dimRowJson))
-                .map(dimension::parseDimensionRow)
+                .map(encodedRow -> rowCodec.decode(dimension, encodedRow))
                 .collect(Collectors.toCollection(TreeSet::new));
     }
 
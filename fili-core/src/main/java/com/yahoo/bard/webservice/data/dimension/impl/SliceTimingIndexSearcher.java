@@ -0,0 +1,46 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.data.dimension.impl;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Weight;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * An index searcher which times the search of each slice of the index.
+ * <p>
+ * With an executor, each slice of the index is searched in parallel on the executor, by its own collector. The time
+ * spent searching a slice is handed to its collector when it is a
+ * {@link TimeLimitingCollectorManager.AccessibleTimeLimitingCollector}, so the collector manager can report it.
+ */
+public class SliceTimingIndexSearcher extends IndexSearcher {
+
+    /**
+     * Constructor.
+     *
+     * @param reader  The reader of the index to search
+     * @param executor  The executor to search the slices of the index on, or null to search them on the calling thread
+     */
+    SliceTimingIndexSearcher(IndexReader reader, ExecutorService executor) {
+        super(reader, executor);
+    }
+
+    @Override
+    protected void search(List<LeafReaderContext> leaves, Weight weight, Collector collector) throws IOException {
+        long start = System.nanoTime();
+        try {
+            super.search(leaves, weight, collector);
+        } finally {
+            if (collector instanceof TimeLimitingCollectorManager.AccessibleTimeLimitingCollector) {
+                ((TimeLimitingCollectorManager.AccessibleTimeLimitingCollector) collector)
+                        .addSearchTime(System.nanoTime() - start);
+            }
+        }
+    }
+}
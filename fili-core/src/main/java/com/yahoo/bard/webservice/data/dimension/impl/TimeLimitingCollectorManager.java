@@ -23,6 +23,7 @@ public class TimeLimitingCollectorManager implements
     final private int searchTimeoutMs;
     final private int perPage;
     final private ScoreDoc lastEntry;
+    private long[] sliceDurations = new long[0];
 
     /**
      * Constructor.
@@ -42,6 +43,7 @@ public class TimeLimitingCollectorManager implements
      */
     class AccessibleTimeLimitingCollector extends TimeLimitingCollector {
         final private TopScoreDocCollector wrappedCollector;
+        private long searchNanos;
 
         /**
          * Constructor.
@@ -61,6 +63,15 @@ public class TimeLimitingCollectorManager implements
         public TopScoreDocCollector getWrappedCollector() {
             return wrappedCollector;
         }
+
+        /**
+         * Add to the time spent searching the slice of the index this collector collects.
+         *
+         * @param nanos  The time spent, in nanoseconds
+         */
+        void addSearchTime(long nanos) {
+            searchNanos += nanos;
+        }
     }
 
     @Override
@@ -70,8 +81,21 @@ public class TimeLimitingCollectorManager implements
         );
     }
 
+    /**
+     * Get the time spent searching each slice of the index, once the search is done.
+     * <p>
+     * A search without an executor searches the whole index as a single slice.
+     *
+     * @return the time spent searching each slice, in nanoseconds, in the order of the slices
+     */
+    public long[] getSliceDurations() {
+        return sliceDurations.clone();
+    }
+
     @Override
     public TopDocs reduce(Collection<AccessibleTimeLimitingCollector> collectors) throws IOException {
+        sliceDurations = collectors.stream().mapToLong(collector -> collector.searchNanos).toArray();
+
         TopDocs[] docs = collectors.stream()
                 .map(AccessibleTimeLimitingCollector::getWrappedCollector)
                 .map(TopDocsCollector::topDocs)
@@ -2,6 +2,8 @@
 // Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
 package com.yahoo.bard.webservice.data.filterbuilders;
 
+import com.yahoo.bard.webservice.config.SystemConfig;
+import com.yahoo.bard.webservice.config.SystemConfigProvider;
 import com.yahoo.bard.webservice.data.dimension.Dimension;
 import com.yahoo.bard.webservice.data.dimension.DimensionRowNotFoundException;
 import com.yahoo.bard.webservice.druid.model.filter.AndFilter;
@@ -11,6 +13,10 @@ import com.yahoo.bard.webservice.druid.model.filter.OrFilter;
 import com.yahoo.bard.webservice.web.ApiFilter;
 import com.yahoo.bard.webservice.web.FilterOperation;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,6 +24,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -48,13 +55,70 @@ import java.util.stream.Collectors;
  *              NotFilter(OrFilter(select(sports, baseball), select(sports, track), select(sports, lacrosse)))
  *       )
  * }
+ * <p>
+ * The filters built for a dimension may be kept in a bounded cache, keyed by the filters and the time the dimension
+ * was last updated, so that repeated filters are not resolved against the search provider again until the dimension
+ * is reloaded. The cache is off unless {@code bard__druid_filter_cache_max_entries} is positive. Dimensions whose
+ * rows change without their last updated time changing should not be filtered through a cache.
  */
 public class ConsolidatingDruidFilterBuilder extends ConjunctionDruidFilterBuilder {
     private static final Logger LOG = LoggerFactory.getLogger(ConsolidatingDruidFilterBuilder.class);
+    private static final SystemConfig SYSTEM_CONFIG = SystemConfigProvider.getInstance();
+
+    private static final String FILTER_CACHE_MAX_ENTRIES_KEY = SYSTEM_CONFIG.getPackageVariableName(
+            "druid_filter_cache_max_entries"
+    );
+
+    // Filters built by dimension, filters and last update, or null if filters are not cached
+    private final Cache<FilterCacheKey, Filter> filterCache;
+
+    /**
+     * Constructor, caching as many filters as configured.
+     */
+    public ConsolidatingDruidFilterBuilder() {
+        this(SYSTEM_CONFIG.getLongProperty(FILTER_CACHE_MAX_ENTRIES_KEY, 0));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxCachedFilters  The number of dimension filters to keep cached, or 0 to not cache filters
+     */
+    public ConsolidatingDruidFilterBuilder(long maxCachedFilters) {
+        this.filterCache = maxCachedFilters > 0 ?
+                CacheBuilder.newBuilder().maximumSize(maxCachedFilters).build() :
+                null;
+    }
 
     @Override
     protected Filter buildDimensionFilter(Dimension dimension, Set<ApiFilter> filters)
             throws DimensionRowNotFoundException {
+        if (filterCache == null) {
+            return resolveDimensionFilter(dimension, filters);
+        }
+
+        FilterCacheKey key = new FilterCacheKey(dimension, dimension.getLastUpdated(), filters);
+        Filter filter = filterCache.getIfPresent(key);
+        if (filter == null) {
+            // Filters that match no rows throw, and are resolved again the next time they are asked for
+            filter = resolveDimensionFilter(dimension, filters);
+            filterCache.put(key, filter);
+        }
+        return filter;
+    }
+
+    /**
+     * Resolve the filters of a dimension against its search provider, and build the Druid filter matching them.
+     *
+     * @param dimension  Dimension for the filters
+     * @param filters  All filters belonging to that dimension
+     *
+     * @return A druid query filter object representing the filtering on a given dimension
+     *
+     * @throws DimensionRowNotFoundException if we attempt to filter a dimension without dimension rows
+     */
+    private Filter resolveDimensionFilter(Dimension dimension, Set<ApiFilter> filters)
+            throws DimensionRowNotFoundException {
         LOG.trace("Building dimension filter using dimension: {} and set of filters: {}", dimension, filters);
 
         // A positive filter will usually reduce the set of rows by a lot.
@@ -86,4 +150,53 @@ public class ConsolidatingDruidFilterBuilder extends ConjunctionDruidFilterBuild
             return druidFilters.size() == 1 ? druidFilters.get(0) : new AndFilter(druidFilters);
         }
     }
+
+    /**
+     * The key of a cached dimension filter.
+     * <p>
+     * The filters are held in a set, so their order does not matter, and equality filters are keyed as the membership
+     * filters they are equivalent to.
+     */
+    private static final class FilterCacheKey {
+        private final Dimension dimension;
+        private final DateTime lastUpdated;
+        private final Set<ApiFilter> filters;
+
+        /**
+         * Constructor.
+         *
+         * @param dimension  Dimension for the filters
+         * @param lastUpdated  The time the dimension was last updated, or null if it never was
+         * @param filters  All filters belonging to that dimension
+         */
+        FilterCacheKey(Dimension dimension, DateTime lastUpdated, Set<ApiFilter> filters) {
+            this.dimension = dimension;
+            this.lastUpdated = lastUpdated;
+            this.filters = filters.stream()
+                    .map(filter -> filter.getOperation() == FilterOperation.eq ?
+                            filter.withOperation(FilterOperation.in) :
+                            filter
+                    )
+                    .collect(Collectors.toSet());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof FilterCacheKey)) {
+                return false;
+            }
+            FilterCacheKey that = (FilterCacheKey) o;
+            return Objects.equals(dimension, that.dimension) &&
+                    Objects.equals(lastUpdated, that.lastUpdated) &&
+                    Objects.equals(filters, that.filters);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(dimension, lastUpdated, filters);
+        }
+    }
 }
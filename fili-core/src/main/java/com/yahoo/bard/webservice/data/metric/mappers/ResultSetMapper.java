@@ -2,6 +2,8 @@
 // Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
 package com.yahoo.bard.webservice.data.metric.mappers;
 
+import com.yahoo.bard.webservice.data.ColumnarResultSet;
+import com.yahoo.bard.webservice.data.ColumnarResultSetBuilder;
 import com.yahoo.bard.webservice.data.ResultSetSchema;
 import com.yahoo.bard.webservice.data.Result;
 import com.yahoo.bard.webservice.data.ResultSet;
@@ -27,6 +29,9 @@ abstract public class ResultSetMapper {
      * @return The mapped result set
      */
     public ResultSet map(ResultSet resultSet) {
+        if (resultSet instanceof ColumnarResultSet && ((ColumnarResultSet) resultSet).isColumnar()) {
+            return mapColumnar((ColumnarResultSet) resultSet);
+        }
 
         List<Result> newResults = new ArrayList<>();
         Result newResult;
@@ -45,6 +50,42 @@ abstract public class ResultSetMapper {
         return newResultSet;
     }
 
+    /**
+     * Map a columnar result set into a new columnar result set, so that its rows are not all held as results at once.
+     * <p>
+     * If a mapped row cannot be stored by column, the rows mapped so far are kept as results and the remaining rows
+     * are mapped into a plain result set, so that each row is mapped only once.
+     *
+     * @param resultSet  The unmapped result set
+     *
+     * @return The mapped result set, columnar unless a mapped row cannot be stored by column
+     */
+    protected ResultSet mapColumnar(ColumnarResultSet resultSet) {
+        ResultSetSchema newSchema = map(resultSet.getSchema());
+        ColumnarResultSetBuilder builder = new ColumnarResultSetBuilder(newSchema, resultSet.getDateTimeZone());
+        List<Result> newResults = null;
+
+        for (Result r: resultSet) {
+            Result newResult = map(r, resultSet.getSchema());
+            if (newResult == null) {
+                continue;
+            }
+            if (newResults == null && !builder.fits(newResult)) {
+                LOG.trace("Mapped result {} does not fit schema {}, mapping by row", newResult, newSchema);
+                newResults = new ArrayList<>(builder.build());
+            }
+            if (newResults == null) {
+                builder.add(newResult);
+            } else {
+                newResults.add(newResult);
+            }
+        }
+
+        ResultSet newResultSet = newResults == null ? builder.build() : new ResultSet(newSchema, newResults);
+        LOG.trace("Mapped resultSet: {} to new resultSet {}", resultSet, newResultSet);
+        return newResultSet;
+    }
+
     /**
      * Returns a transformed result row, or null if the row is removed.
      *
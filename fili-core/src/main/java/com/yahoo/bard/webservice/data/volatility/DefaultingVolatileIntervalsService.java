@@ -6,6 +6,7 @@ import com.yahoo.bard.webservice.data.time.AllGranularity;
 import com.yahoo.bard.webservice.data.time.Granularity;
 import com.yahoo.bard.webservice.table.PhysicalTable;
 import com.yahoo.bard.webservice.util.DefaultingDictionary;
+import com.yahoo.bard.webservice.util.IntervalSet;
 import com.yahoo.bard.webservice.util.IntervalUtils;
 import com.yahoo.bard.webservice.util.SimplifiedIntervalList;
 
@@ -89,11 +90,21 @@ public class DefaultingVolatileIntervalsService implements VolatileIntervalsServ
             PhysicalTable factSource
     ) {
         SimplifiedIntervalList simplifiedIntervals = new SimplifiedIntervalList(intervals);
-        SimplifiedIntervalList volatileIntervals = IntervalUtils.collectBucketedIntervalsIntersectingIntervalList(
-                intervalsFunctions.getOrDefault(factSource.getName(), defaultIntervals).getVolatileIntervals(),
-                simplifiedIntervals,
-                granularity
-        );
+        SimplifiedIntervalList supplyIntervals = intervalsFunctions.getOrDefault(factSource.getName(), defaultIntervals)
+                .getVolatileIntervals();
+
+        // Buckets lie within the interval they are sliced from, so only intervals overlapping volatile data are sliced
+        IntervalSet supply = supplyIntervals.toIntervalSet();
+        SimplifiedIntervalList overlappingIntervals = simplifiedIntervals.stream()
+                .filter(supply::overlaps)
+                .collect(SimplifiedIntervalList.getCollector());
+        SimplifiedIntervalList volatileIntervals = overlappingIntervals.isEmpty()
+                ? overlappingIntervals
+                : IntervalUtils.collectBucketedIntervalsIntersectingIntervalList(
+                        supplyIntervals,
+                        overlappingIntervals,
+                        granularity
+                );
         if (granularity instanceof AllGranularity && !volatileIntervals.isEmpty()) {
             volatileIntervals = simplifiedIntervals;
         }
@@ -7,6 +7,7 @@ import com.yahoo.bard.webservice.web.handlers.RequestContext;
 
 import org.asynchttpclient.Response;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
 
 /**
@@ -50,6 +51,22 @@ public interface DruidWebService {
             String resourcePath
     );
 
+    /**
+     * Asks the druid broker to cancel a query which may still be running.
+     * <p>
+     * Cancelling is best effort: a query which already completed, or which the broker does not know about, is left as
+     * it is. Failures to cancel are reported through the returned future rather than thrown.
+     * <p>
+     * By default queries are not cancelled, and the returned future is already complete with no response.
+     *
+     * @param queryId  The id the query was sent to druid with
+     *
+     * @return a future response to the cancel request.
+     */
+    default Future<Response> cancelDruidQuery(String queryId) {
+        return CompletableFuture.completedFuture(null);
+    }
+
     /**
      * Returns the service configuration object for this web service.
      *
@@ -0,0 +1,29 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.druid.client;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Callback from the async HTTP client on success which consumes the response as a stream of JSON tokens.
+ * <p>
+ * Web services that can stream the response body hand the callback a parser over it, so no tree is built. Web services
+ * that only have a tree fall back to {@link #invoke(JsonNode)}, which streams over the tree instead.
+ */
+public interface StreamingSuccessCallback extends SuccessCallback {
+
+    /**
+     * Invoke the success callback code.
+     * <p>
+     * The parser is owned by the caller and is closed once this method returns.
+     *
+     * @param parser  Parser positioned at the start of the response
+     */
+    void invoke(JsonParser parser);
+
+    @Override
+    default void invoke(JsonNode rootNode) {
+        invoke(rootNode.traverse());
+    }
+}
@@ -12,6 +12,7 @@ import com.yahoo.bard.webservice.druid.client.DruidServiceConfig;
 import com.yahoo.bard.webservice.druid.client.DruidWebService;
 import com.yahoo.bard.webservice.druid.client.FailureCallback;
 import com.yahoo.bard.webservice.druid.client.HttpErrorCallback;
+import com.yahoo.bard.webservice.druid.client.StreamingSuccessCallback;
 import com.yahoo.bard.webservice.druid.client.SuccessCallback;
 import com.yahoo.bard.webservice.druid.model.query.DruidQuery;
 import com.yahoo.bard.webservice.druid.model.query.WeightEvaluationQuery;
@@ -22,6 +23,8 @@ import com.yahoo.bard.webservice.web.handlers.RequestContext;
 
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.MappingJsonFactory;
@@ -83,6 +86,11 @@ public class AsyncDruidWebServiceImpl implements DruidWebService {
         }
     };
 
+    /**
+     * Factory for the parsers handed to streaming success callbacks.
+     */
+    private static final JsonFactory STREAMING_JSON_FACTORY = new JsonFactory();
+
     private final Supplier<Map<String, String>> headersToAppend;
     private final DruidServiceConfig serviceConfig;
 
@@ -287,7 +295,7 @@ public class AsyncDruidWebServiceImpl implements DruidWebService {
                             markError(status, response, druidQueryId, error);
                         } else {
                             try {
-                                success.invoke(jsonNodeBuilderStrategy.apply(response));
+                                invokeSuccess(success, response);
                             } catch (RuntimeException e) {
                                 failure.invoke(e);
                             }
@@ -322,6 +330,28 @@ public class AsyncDruidWebServiceImpl implements DruidWebService {
         }
     }
 
+    /**
+     * Hand a successful response to the success callback.
+     * <p>
+     * Streaming callbacks are given a parser straight over the response body, unless a custom JSON node builder
+     * strategy needs to see the whole response, in which case they stream over the tree that strategy builds.
+     *
+     * @param success  callback for handling successful requests
+     * @param response  The successful druid response
+     */
+    protected void invokeSuccess(SuccessCallback success, Response response) {
+        if (!(success instanceof StreamingSuccessCallback)
+                || jsonNodeBuilderStrategy != DEFAULT_JSON_NODE_BUILDER_STRATEGY) {
+            success.invoke(jsonNodeBuilderStrategy.apply(response));
+            return;
+        }
+        try (JsonParser parser = STREAMING_JSON_FACTORY.createParser(response.getResponseBodyAsStream())) {
+            ((StreamingSuccessCallback) success).invoke(parser);
+        } catch (IOException ioe) {
+            throw new IllegalStateException(ioe);
+        }
+    }
+
     @Override
     public Future<Response> getJsonObject(
             SuccessCallback success,
@@ -396,6 +426,44 @@ public class AsyncDruidWebServiceImpl implements DruidWebService {
         );
     }
 
+    @Override
+    public Future<Response> cancelDruidQuery(String queryId) {
+        String url = String.format("%s/%s", serviceConfig.getUrl(), queryId);
+
+        BoundRequestBuilder requestBuilder = webClient.prepareDelete(url);
+        headersToAppend.get().forEach(requestBuilder::addHeader);
+
+        LOG.debug("Cancelling druid {} query: {}", serviceConfig.getNameAndUrl(), queryId);
+        try {
+            return requestBuilder.execute(
+                    new AsyncCompletionHandler<Response>() {
+                        @Override
+                        public Response onCompleted(Response response) {
+                            // Druid accepts cancel requests with a 202, and answers 200 for queries it no longer runs
+                            if (response.getStatusCode() >= 300) {
+                                LOG.warn(
+                                        "druid {} did not cancel query {}: {} {}",
+                                        serviceConfig.getNameAndUrl(),
+                                        queryId,
+                                        response.getStatusCode(),
+                                        response.getStatusText()
+                                );
+                            }
+                            return response;
+                        }
+
+                        @Override
+                        public void onThrowable(Throwable t) {
+                            LOG.warn("druid {} cancel of query {} failed:", serviceConfig.getNameAndUrl(), queryId, t);
+                        }
+                    }
+            );
+        } catch (RuntimeException t) {
+            LOG.warn("druid {} cancel of query {} failed:", serviceConfig.getNameAndUrl(), queryId, t);
+            return CompletedFuture.throwing(t);
+        }
+    }
+
     @Override
     public Integer getTimeout() {
         return serviceConfig.getTimeout();
@@ -0,0 +1,224 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.logging;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Formats and writes request logs on a background thread, so request threads only hand over their log blocks.
+ * <p>
+ * Log blocks wait in a bounded queue, which a single daemon thread drains in batches. Each batch is formatted in one
+ * call to {@link LogFormatter#formatAll}, and its lines are written in order with the id of their request in the MDC.
+ * If formatting the batch fails its logs are formatted one at a time, and a log which cannot be formatted or written
+ * is dropped without affecting the others. When the queue is full, the {@link DropPolicy} decides what happens to the
+ * log being written. The number of queued logs is reported by the {@value #QUEUE_DEPTH_GAUGE} gauge, and the dropped
+ * logs by the {@value #DROPPED_METER} meter.
+ */
+class AsyncRequestLogWriter implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncRequestLogWriter.class);
+
+    public static final String QUEUE_DEPTH_GAUGE = "request.log.queue.depth";
+    public static final String DROPPED_METER = "request.log.dropped";
+
+    /**
+     * What to do with a request log when the queue is full.
+     */
+    enum DropPolicy {
+        /**
+         * Drop the log being written.
+         */
+        DROP_NEWEST,
+
+        /**
+         * Drop the oldest queued log to make room for the log being written.
+         */
+        DROP_OLDEST,
+
+        /**
+         * Format and write the log on the thread writing it, so no log is dropped.
+         */
+        CALLER_WRITES
+    }
+
+    private final BlockingQueue<LogBlock> queue;
+    private final int maxBatchSize;
+    private final DropPolicy dropPolicy;
+    private final Supplier<LogFormatter> formatter;
+    private final Consumer<String> sink;
+    private final Meter dropped;
+    private final ExecutorService worker;
+    private volatile boolean closed;
+
+    /**
+     * Constructor, starting the thread that writes the queued logs.
+     *
+     * @param capacity  The number of logs that may wait to be written
+     * @param maxBatchSize  The largest number of logs formatted and written together
+     * @param dropPolicy  What to do with a log when the queue is full
+     * @param formatter  Supplies the formatter of the logs
+     * @param sink  Writes a formatted log
+     * @param registry  The registry of the queue depth and dropped logs metrics
+     */
+    AsyncRequestLogWriter(
+            int capacity,
+            int maxBatchSize,
+            DropPolicy dropPolicy,
+            Supplier<LogFormatter> formatter,
+            Consumer<String> sink,
+            MetricRegistry registry
+    ) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.dropPolicy = dropPolicy;
+        this.formatter = formatter;
+        this.sink = sink;
+        this.dropped = registry.meter(DROPPED_METER);
+        if (!registry.getMetrics().containsKey(QUEUE_DEPTH_GAUGE)) {
+            registry.register(QUEUE_DEPTH_GAUGE, (Gauge<Integer>) queue::size);
+        }
+
+        worker = Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setNameFormat("request-log-writer-%d").setDaemon(true).build()
+        );
+        worker.execute(this::drain);
+    }
+
+    /**
+     * Queue a log to be written, applying the drop policy if the queue is full.
+     * <p>
+     * Once this writer is closed, logs are written on the calling thread.
+     * <p>
+     * The log is formatted later on another thread, so neither the log nor the {@link LogInfo} parts it holds may
+     * change anymore.
+     *
+     * @param logBlock  The log to write
+     */
+    void write(LogBlock logBlock) {
+        if (closed) {
+            writeBatch(Collections.singletonList(logBlock));
+            return;
+        }
+        if (queue.offer(logBlock)) {
+            return;
+        }
+
+        switch (dropPolicy) {
+            case DROP_NEWEST:
+                dropped.mark();
+                break;
+            case DROP_OLDEST:
+                while (!queue.offer(logBlock)) {
+                    if (queue.poll() != null) {
+                        dropped.mark();
+                    }
+                }
+                break;
+            case CALLER_WRITES:
+            default:
+                writeBatch(Collections.singletonList(logBlock));
+        }
+    }
+
+    /**
+     * Stop the writer thread once it has written the logs queued so far, waiting for it up to a timeout.
+     *
+     * @param timeout  The longest time to wait for the queued logs to be written
+     * @param unit  The unit of the timeout
+     *
+     * @return true if all the queued logs were written within the timeout
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean close(long timeout, TimeUnit unit) throws InterruptedException {
+        closed = true;
+        worker.shutdownNow();
+        return worker.awaitTermination(timeout, unit);
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (!close(5, TimeUnit.SECONDS)) {
+                LOG.warn("Request logs were still queued when the request log writer was closed");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Write the queued logs in batches until closed, and then write the logs still queued.
+     */
+    private void drain() {
+        List<LogBlock> batch = new ArrayList<>(maxBatchSize);
+        try {
+            // Closing sets the flag before interrupting, so the loop ends even if the sink swallows the interrupt
+            while (!closed) {
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatchSize - 1);
+                writeBatch(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException ignored) {
+            // Closed while waiting for logs
+        }
+        while (queue.drainTo(batch, maxBatchSize) > 0) {
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Format and write a batch of logs, with the id of each log's request in the MDC while its line is written.
+     * <p>
+     * Failures are caught for each log, so that the writer thread stays alive and one bad log does not lose the others
+     * of its batch.
+     *
+     * @param batch  The logs to write
+     */
+    private void writeBatch(List<LogBlock> batch) {
+        LogFormatter logFormatter = formatter.get();
+        List<String> lines = null;
+        try {
+            lines = logFormatter.formatAll(batch);
+        } catch (RuntimeException e) {
+            LOG.warn("Formatting a batch of {} request logs failed, formatting them one at a time", batch.size(), e);
+        }
+        if (lines != null && lines.size() != batch.size()) {
+            LOG.warn("Formatting a batch of {} request logs gave {} lines", batch.size(), lines.size());
+            lines = null;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            LogBlock logBlock = batch.get(i);
+            try {
+                String line = lines == null ? logFormatter.format(logBlock) : lines.get(i);
+                MDC.put(RequestLog.ID_KEY, logBlock.uuid);
+                sink.accept(line);
+            } catch (RuntimeException e) {
+                dropped.mark();
+                LOG.error("Writing the request log {} failed", logBlock.uuid, e);
+            } finally {
+                MDC.remove(RequestLog.ID_KEY);
+            }
+        }
+    }
+}
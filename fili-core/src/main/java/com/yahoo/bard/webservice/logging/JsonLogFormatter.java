@@ -2,6 +2,7 @@
 // Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
 package com.yahoo.bard.webservice.logging;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -14,6 +15,11 @@ import org.joda.time.Interval;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * A log formatter that prints log in JSON format.
  */
@@ -41,4 +47,35 @@ public class JsonLogFormatter implements LogFormatter {
             return logBlock.toString();
         }
     }
+
+    /**
+     * Formats the blocks of a batch through a single generator and buffer, rather than creating them for every block.
+     *
+     * @param logBlocks  the log blocks to format
+     *
+     * @return the JSON of each log block
+     */
+    @Override
+    public List<String> formatAll(List<LogBlock> logBlocks) {
+        List<String> lines = new ArrayList<>(logBlocks.size());
+        StringWriter writer = new StringWriter();
+        JsonGenerator generator = null;
+        for (LogBlock logBlock : logBlocks) {
+            try {
+                if (generator == null) {
+                    generator = objectMapper.getFactory().createGenerator(writer);
+                    generator.setRootValueSeparator(null);
+                }
+                objectMapper.writeValue(generator, logBlock);
+                generator.flush();
+                lines.add(writer.toString());
+            } catch (IOException e) {
+                // The generator may have been left inside the failed block, so the next block gets a new one
+                generator = null;
+                lines.add(format(logBlock));
+            }
+            writer.getBuffer().setLength(0);
+        }
+        return lines;
+    }
 }
@@ -2,6 +2,9 @@
 // Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
 package com.yahoo.bard.webservice.logging;
 
+import java.util.List;
+import java.util.stream.Collectors;
+
 /**
  * Interface for log formatter that are meant to facilitate log exploration and data extraction.
  */
@@ -16,4 +19,17 @@ public interface LogFormatter {
      * @return a formatted String to be logged
      */
     String format(LogBlock logBlock);
+
+    /**
+     * Takes in a batch of log blocks and returns their formatted Strings, in the same order.
+     * <p>
+     * Formatters may override this to reuse their buffers across the blocks of a batch.
+     *
+     * @param logBlocks  the log blocks to format
+     *
+     * @return a formatted String to be logged for each log block
+     */
+    default List<String> formatAll(List<LogBlock> logBlocks) {
+        return logBlocks.stream().map(this::format).collect(Collectors.toList());
+    }
 }
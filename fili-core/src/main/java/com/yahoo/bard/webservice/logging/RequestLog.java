@@ -24,7 +24,7 @@ import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 
 import java.util.Arrays;
-import java.util.LinkedHashMap;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -32,19 +32,23 @@ import java.util.Objects;
 import java.util.OptionalLong;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
  * Represents the logging framework that provides timing capabilities of arbitrary phases on the handling lifecycle of a
  * request and accumulation of information for such a request in a single mega log line.
+ * <p>
+ * The phases and threads of a request are held in {@link SlotTable}s, which snapshots share instead of copying, so
+ * handing a request log to another thread costs the same however many phases it has timed.
  */
 public class RequestLog {
 
     private static final Logger LOG = LoggerFactory.getLogger(RequestLog.class);
     private static final SystemConfig SYSTEM_CONFIG = SystemConfigProvider.getInstance();
 
-    private static final String ID_KEY = "logid";
+    static final String ID_KEY = "logid";
     private static final long MS_PER_NS = 1000000;
     private static final MetricRegistry REGISTRY = MetricRegistryFactory.getRegistry();
     private static final ThreadLocal<RequestLog> RLOG = ThreadLocal.withInitial(RequestLog::new);
@@ -53,12 +57,39 @@ public class RequestLog {
     );
     private static final List<String> LOGINFO_ORDER = generateLogInfoOrder(LOGINFO_ORDER_STRING);
 
+    /**
+     * The number of request logs that may wait to be written by a background thread, or 0 or less to write each
+     * request log on the thread of its request.
+     */
+    private static final int LOG_QUEUE_SIZE = SYSTEM_CONFIG.getIntProperty(
+            SYSTEM_CONFIG.getPackageVariableName("request_log_queue_size"), 0
+    );
+    private static final int LOG_BATCH_SIZE = SYSTEM_CONFIG.getIntProperty(
+            SYSTEM_CONFIG.getPackageVariableName("request_log_batch_size"), 256
+    );
+    private static final String LOG_DROP_POLICY = SYSTEM_CONFIG.getStringProperty(
+            SYSTEM_CONFIG.getPackageVariableName("request_log_drop_policy"),
+            AsyncRequestLogWriter.DropPolicy.CALLER_WRITES.name()
+    );
+    private static final AsyncRequestLogWriter LOG_WRITER = buildLogWriter();
+
+    /**
+     * The names of the phases timed by callers, interned by class so they are neither rebuilt nor compared by content
+     * on every call.
+     */
+    private static final ClassValue<String> PHASE_NAMES = new ClassValue<String>() {
+        @Override
+        protected String computeValue(Class<?> type) {
+            return type.getSimpleName().intern();
+        }
+    };
+
     private String logId;
     private LogBlock info;
     @Deprecated
     private TimedPhase mostRecentTimer;
-    private final Map<String, TimedPhase> times;
-    private final Set<String> threadIds;
+    private SlotTable<TimedPhase> times;
+    private SlotTable<String> threadIds;
 
     /**
      * This class has only static methods and is not supposed to be directly instantiated.
@@ -67,13 +98,15 @@ public class RequestLog {
         logId = null;
         info = null;
         mostRecentTimer = null;
-        times = new LinkedHashMap<>();
-        threadIds = new LinkedHashSet<>();
+        times = new SlotTable<>();
+        threadIds = new SlotTable<>();
         MDC.remove(ID_KEY);
     }
 
     /**
      * Copy constructor is also private.
+     * <p>
+     * The copy shares the phases and threads of the request log it copies, until either of them changes.
      *
      * @param  rl request log object to copy from
      */
@@ -81,8 +114,8 @@ public class RequestLog {
         logId = rl.logId;
         info = rl.info;
         mostRecentTimer = rl.mostRecentTimer;
-        times = new LinkedHashMap<>(rl.times);
-        threadIds = new LinkedHashSet<>(rl.threadIds);
+        times = rl.times.share();
+        threadIds = rl.threadIds.share();
         MDC.put(ID_KEY, logId);
     }
 
@@ -102,7 +135,7 @@ public class RequestLog {
      * Creates a new and empty request log at the calling thread.
      */
     private void init() {
-        logId = UUID.randomUUID().toString();
+        logId = generateId();
         info = new LogBlock(logId);
         // Trick to place Durations and Threads in front of the Json while keep using a LinkedHashMap.
         // The actual entries will be replaced later when export is called but the initial order will be respected
@@ -123,10 +156,36 @@ public class RequestLog {
         );
         times.clear();
         threadIds.clear();
-        threadIds.add(Thread.currentThread().getName());
+        addCurrentThread();
         MDC.put(ID_KEY, logId);
     }
 
+    /**
+     * Generate the id of a request, as a random UUID.
+     * <p>
+     * Request ids need to be unique rather than unpredictable, so they are drawn from the random number generator of
+     * the thread rather than from the shared secure one of {@link UUID#randomUUID()}.
+     *
+     * @return the id
+     */
+    private static String generateId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        // Set the version bits to 4, for a random UUID, and the variant bits to the one of RFC 4122
+        long mostSigBits = (random.nextLong() & ~0xF000L) | 0x4000L;
+        long leastSigBits = (random.nextLong() & ~(0xC0L << 56)) | (0x80L << 56);
+        return new UUID(mostSigBits, leastSigBits).toString();
+    }
+
+    /**
+     * Record the calling thread as one of the threads of this request log.
+     */
+    private void addCurrentThread() {
+        String threadName = Thread.currentThread().getName();
+        if (!threadIds.contains(threadName)) {
+            threadIds.put(threadName, threadName);
+        }
+    }
+
     /**
      * Get the aggregate durations for this request.
      *
@@ -143,7 +202,12 @@ public class RequestLog {
      * @return the map containing all the recorded times per phase in milliseconds
      */
     private Map<String, Long> durations() {
-        return times.values().stream().collect(Collectors.toMap(TimedPhase::getName, TimedPhase::getDuration));
+        Map<String, Long> durations = new HashMap<>();
+        for (int i = 0; i < times.size(); i++) {
+            TimedPhase phase = times.getValue(i);
+            durations.put(phase.getName(), phase.getDuration());
+        }
+        return durations;
     }
 
     /**
@@ -188,7 +252,7 @@ public class RequestLog {
      * @return whether this stopwatch is currently running
      */
     public static boolean isRunning(Object caller) {
-        return isRunning(caller.getClass().getSimpleName());
+        return isRunning(PHASE_NAMES.get(caller.getClass()));
     }
 
     /**
@@ -213,7 +277,7 @@ public class RequestLog {
      * @return The stopwatch
      */
     public static TimedPhase startTiming(Object caller) {
-        return startTiming(caller.getClass().getSimpleName());
+        return startTiming(PHASE_NAMES.get(caller.getClass()));
     }
 
     /**
@@ -262,7 +326,7 @@ public class RequestLog {
      * @param caller  the caller to name this stopwatch with its class's simple name
      */
     public static void stopTiming(Object caller) {
-        stopTiming(caller.getClass().getSimpleName());
+        stopTiming(PHASE_NAMES.get(caller.getClass()));
     }
 
     /**
@@ -375,7 +439,14 @@ public class RequestLog {
             LOG.warn("Attempted to log while request log object was uninitialized");
             return;
         }
-        LOG.info(export());
+        if (LOG_WRITER == null) {
+            LOG.info(export());
+        } else {
+            recordDurationsAndThreads(current);
+            // Threads still holding a copy of this request log may add parts to its block, so the writer gets a block
+            // of its own. The copy is shallow: the parts themselves are shared, and must not change once logged.
+            LOG_WRITER.write(current.info.withUuid(current.info.uuid));
+        }
         current.clear();
     }
 
@@ -441,9 +512,9 @@ public class RequestLog {
         current.logId = ctx.logId;
         current.info = ctx.info;
         current.mostRecentTimer = ctx.mostRecentTimer;
-        current.times.putAll(ctx.times);
-        current.threadIds.addAll(ctx.threadIds);
-        current.threadIds.add(Thread.currentThread().getName());
+        current.times = ctx.times.share();
+        current.threadIds = ctx.threadIds.share();
+        current.addCurrentThread();
         MDC.put(ID_KEY, current.logId);
     }
 
@@ -465,18 +536,22 @@ public class RequestLog {
             return;
         }
         // Accumulate all the timers that are not currently running
-        current.times.putAll(
-                ctx.times.entrySet()
-                        .stream()
-                        .filter(
-                                e -> e.getKey().contains(DRUID_QUERY_TIMER) ||
-                                        (e.getKey().equals(REQUEST_WORKFLOW_TIMER) && !e.getValue().isRunning()) ||
-                                        (e.getKey().equals(RESPONSE_WORKFLOW_TIMER) && e.getValue().isRunning())
-                        )
-                        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue))
-        );
-        current.threadIds.addAll(ctx.threadIds);
-        current.threadIds.add(Thread.currentThread().getName());
+        for (int i = 0; i < ctx.times.size(); i++) {
+            String name = ctx.times.getName(i);
+            TimedPhase phase = ctx.times.getValue(i);
+            if (name.contains(DRUID_QUERY_TIMER) ||
+                    (name.equals(REQUEST_WORKFLOW_TIMER) && !phase.isRunning()) ||
+                    (name.equals(RESPONSE_WORKFLOW_TIMER) && phase.isRunning())) {
+                current.times.put(name, phase);
+            }
+        }
+        for (int i = 0; i < ctx.threadIds.size(); i++) {
+            String threadName = ctx.threadIds.getName(i);
+            if (!current.threadIds.contains(threadName)) {
+                current.threadIds.put(threadName, threadName);
+            }
+        }
+        current.addCurrentThread();
     }
 
     /**
@@ -486,11 +561,45 @@ public class RequestLog {
      */
     public static String export() {
         RequestLog current = RLOG.get();
-        record(new Durations(current.aggregateDurations()));
-        record(new Threads(current.threadIds));
+        recordDurationsAndThreads(current);
         return LogFormatterProvider.getInstance().format(current.info);
     }
 
+    /**
+     * Record the durations of the phases and the threads of a request log in its block.
+     *
+     * @param current  The request log of the current thread
+     */
+    private static void recordDurationsAndThreads(RequestLog current) {
+        record(new Durations(current.aggregateDurations()));
+        Set<String> threadIds = new LinkedHashSet<>();
+        for (int i = 0; i < current.threadIds.size(); i++) {
+            threadIds.add(current.threadIds.getName(i));
+        }
+        record(new Threads(threadIds));
+    }
+
+    /**
+     * Build the writer of request logs, which writes them on a background thread until the JVM shuts down.
+     *
+     * @return the writer, or null if request logs are written on the threads of their requests
+     */
+    private static AsyncRequestLogWriter buildLogWriter() {
+        if (LOG_QUEUE_SIZE <= 0) {
+            return null;
+        }
+        AsyncRequestLogWriter writer = new AsyncRequestLogWriter(
+                LOG_QUEUE_SIZE,
+                LOG_BATCH_SIZE,
+                AsyncRequestLogWriter.DropPolicy.valueOf(LOG_DROP_POLICY),
+                LogFormatterProvider::getInstance,
+                LOG::info,
+                REGISTRY
+        );
+        Runtime.getRuntime().addShutdownHook(new Thread(writer::close, "request-log-writer-shutdown"));
+        return writer;
+    }
+
     private List<String> getLoginfoOrder() {
         return LOGINFO_ORDER;
     }
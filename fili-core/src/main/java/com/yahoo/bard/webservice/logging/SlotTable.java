@@ -0,0 +1,178 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.logging;
+
+import java.util.Arrays;
+
+/**
+ * A small table of values by name, kept in insertion order in parallel arrays, which is shared rather than copied when
+ * a request log hops threads.
+ * <p>
+ * Request logs hold a handful of timed phases and threads, so names are found by a linear scan of their hashes, and
+ * phase names are mostly interned constants which compare by identity. Sharing a table marks it and its share as
+ * shared, and whichever of them is changed first copies the arrays, so shared arrays are never written to again and
+ * tables may be handed to other threads without copying.
+ * <p>
+ * Note: A table is NOT thread-safe, but tables sharing arrays may be used by different threads.
+ *
+ * @param <V>  Type of the values
+ */
+final class SlotTable<V> {
+
+    private static final int INITIAL_CAPACITY = 8;
+    private static final String[] NO_NAMES = new String[0];
+    private static final int[] NO_HASHES = new int[0];
+    private static final Object[] NO_VALUES = new Object[0];
+
+    private String[] names;
+    private int[] hashes;
+    private Object[] values;
+    private int size;
+    private boolean shared;
+
+    /**
+     * Constructor.
+     */
+    SlotTable() {
+        clear();
+    }
+
+    /**
+     * Constructor, sharing the arrays of another table.
+     *
+     * @param table  The table whose arrays are shared
+     */
+    private SlotTable(SlotTable<V> table) {
+        names = table.names;
+        hashes = table.hashes;
+        values = table.values;
+        size = table.size;
+        shared = true;
+    }
+
+    /**
+     * Share this table, so that neither it nor its share sees the changes of the other.
+     *
+     * @return a table with the same contents as this one
+     */
+    SlotTable<V> share() {
+        // Only write the flag when it changes, since shared tables may be read by other threads
+        if (!shared) {
+            shared = true;
+        }
+        return new SlotTable<>(this);
+    }
+
+    /**
+     * Get the value of a name.
+     *
+     * @param name  The name
+     *
+     * @return the value, or null if the name is not in this table
+     */
+    @SuppressWarnings("unchecked")
+    V get(String name) {
+        int index = indexOf(name);
+        return index < 0 ? null : (V) values[index];
+    }
+
+    /**
+     * Whether a name is in this table.
+     *
+     * @param name  The name
+     *
+     * @return true if the name is in this table
+     */
+    boolean contains(String name) {
+        return indexOf(name) >= 0;
+    }
+
+    /**
+     * Set the value of a name, adding the name after the others if it is not in this table yet.
+     *
+     * @param name  The name
+     * @param value  The value
+     */
+    void put(String name, V value) {
+        int index = indexOf(name);
+        boolean full = index < 0 && size == names.length;
+        if (shared || full) {
+            int capacity = full ? Math.max(INITIAL_CAPACITY, names.length * 2) : names.length;
+            names = Arrays.copyOf(names, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+            values = Arrays.copyOf(values, capacity);
+            shared = false;
+        }
+        if (index < 0) {
+            index = size++;
+            names[index] = name;
+            hashes[index] = name.hashCode();
+        }
+        values[index] = value;
+    }
+
+    /**
+     * Empty this table, leaving the arrays it may share untouched.
+     */
+    void clear() {
+        names = NO_NAMES;
+        hashes = NO_HASHES;
+        values = NO_VALUES;
+        size = 0;
+        shared = false;
+    }
+
+    /**
+     * Get the number of names in this table.
+     *
+     * @return the number of names
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Get a name of this table.
+     *
+     * @param index  The position of the name, in insertion order
+     *
+     * @return the name
+     */
+    String getName(int index) {
+        return names[index];
+    }
+
+    /**
+     * Get a value of this table.
+     *
+     * @param index  The position of the name of the value, in insertion order
+     *
+     * @return the value
+     */
+    @SuppressWarnings("unchecked")
+    V getValue(int index) {
+        return (V) values[index];
+    }
+
+    /**
+     * Find the position of a name.
+     *
+     * @param name  The name
+     *
+     * @return the position of the name, or -1 if it is not in this table
+     */
+    private int indexOf(String name) {
+        for (int i = 0; i < size; i++) {
+            if (names[i] == name) {
+                return i;
+            }
+        }
+        int hash = name.hashCode();
+        for (int i = 0; i < size; i++) {
+            if (hashes[i] == hash && names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,33 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.logging.blocks;
+
+import com.yahoo.bard.webservice.logging.LogInfo;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+
+import java.util.List;
+
+/**
+ * Records the searches of a Lucene index made to serve a page of dimension values, and the time spent searching each
+ * slice of the index.
+ */
+@JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY)
+public class LuceneSearch implements LogInfo {
+    protected final String dimension;
+    protected final int searches;
+    protected final List<Float> sliceDurations;
+
+    /**
+     * Constructor.
+     *
+     * @param dimension  Name of the dimension searched
+     * @param searches  Number of searches made
+     * @param sliceDurations  Time spent searching each slice of the index over all the searches, in milliseconds
+     */
+    public LuceneSearch(String dimension, int searches, List<Float> sliceDurations) {
+        this.dimension = dimension;
+        this.searches = searches;
+        this.sliceDurations = sliceDurations;
+    }
+}
@@ -0,0 +1,41 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.metadata;
+
+import com.yahoo.bard.webservice.util.SimplifiedIntervalList;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Map;
+
+/**
+ * The intervals available by column for a data source, as of one update of its segment metadata.
+ * <p>
+ * Every snapshot has a version, which is greater than the version of every snapshot published before it by any
+ * {@link DataSourceMetadataService}. Anything computed from the intervals of a snapshot may be reused for as long as
+ * its version is current.
+ */
+public class AvailabilitySnapshot {
+
+    private final long version;
+    private final Map<String, SimplifiedIntervalList> intervalsByColumn;
+
+    /**
+     * Constructor.
+     *
+     * @param version  The version of the snapshot
+     * @param intervalsByColumn  The intervals available for each column of the data source
+     */
+    public AvailabilitySnapshot(long version, Map<String, SimplifiedIntervalList> intervalsByColumn) {
+        this.version = version;
+        this.intervalsByColumn = ImmutableMap.copyOf(intervalsByColumn);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Map<String, SimplifiedIntervalList> getIntervalsByColumn() {
+        return intervalsByColumn;
+    }
+}
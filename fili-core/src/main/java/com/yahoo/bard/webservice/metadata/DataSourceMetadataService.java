@@ -6,8 +6,6 @@ import com.yahoo.bard.webservice.data.config.names.DataSourceName;
 import com.yahoo.bard.webservice.table.PhysicalTable;
 import com.yahoo.bard.webservice.util.SimplifiedIntervalList;
 
-import com.google.common.collect.ImmutableMap;
-
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
 import org.slf4j.Logger;
@@ -19,10 +17,12 @@ import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.OptionalLong;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
@@ -41,8 +41,17 @@ public class DataSourceMetadataService {
      */
     private final Map<DataSourceName, AtomicReference<ConcurrentSkipListMap<DateTime, Map<String, SegmentInfo>>>>
             allSegmentsByTime;
-    private final Map<DataSourceName, AtomicReference<ImmutableMap<String, SimplifiedIntervalList>>>
-            allSegmentsByColumn;
+    private final Map<DataSourceName, AtomicReference<AvailabilitySnapshot>> allSegmentsByColumn;
+
+    /**
+     * The versions of the availability snapshots, shared by all services so that every snapshot outranks older ones.
+     */
+    private static final AtomicLong SNAPSHOT_VERSIONS = new AtomicLong();
+
+    /**
+     * The indexes computing the hash of the segments of a time range, for every table.
+     */
+    private final Map<DataSourceName, AtomicReference<SegmentSignatureIndex>> segmentSignatureIndexes;
 
     /**
      * The collector that accumulates partitions of a segment.
@@ -55,6 +64,7 @@ public class DataSourceMetadataService {
     public DataSourceMetadataService() {
         this.allSegmentsByTime = new ConcurrentHashMap<>();
         this.allSegmentsByColumn = new ConcurrentHashMap<>();
+        this.segmentSignatureIndexes = new ConcurrentHashMap<>();
     }
 
     /**
@@ -72,6 +82,52 @@ public class DataSourceMetadataService {
                 .collect(Collectors.toSet());
     }
 
+    /**
+     * Get the indexes of the segments associated with the given Set of data source names.
+     *
+     * @param dataSourceNames  A Set of physical data source names
+     *
+     * @return the segment signature indexes of the data sources which have segment metadata
+     */
+    public Set<SegmentSignatureIndex> getSegmentSignatureIndexes(Set<DataSourceName> dataSourceNames) {
+        return dataSourceNames.stream()
+                .map(this::getSegmentSignatureIndex)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Get the index of the current segments of a data source, indexing them if they have not been yet.
+     *
+     * @param dataSourceName  The physical data source name
+     *
+     * @return the segment signature index, or null if the data source has no segment metadata
+     */
+    private SegmentSignatureIndex getSegmentSignatureIndex(DataSourceName dataSourceName) {
+        AtomicReference<ConcurrentSkipListMap<DateTime, Map<String, SegmentInfo>>> segmentsReference =
+                allSegmentsByTime.get(dataSourceName);
+        SortedMap<DateTime, Map<String, SegmentInfo>> segments = segmentsReference == null
+                ? null
+                : segmentsReference.get();
+        if (segments == null) {
+            return null;
+        }
+
+        AtomicReference<SegmentSignatureIndex> indexReference = segmentSignatureIndexes.computeIfAbsent(
+                dataSourceName,
+                ignored -> new AtomicReference<>()
+        );
+        SegmentSignatureIndex index = indexReference.get();
+        if (index != null && index.isIndexOf(segments)) {
+            return index;
+        }
+
+        // Racing with an update, or the segments were not set through update, so index the segments we read
+        SegmentSignatureIndex current = new SegmentSignatureIndex(segments);
+        indexReference.compareAndSet(index, current);
+        return current;
+    }
+
     /**
      * Get a set of intervals available for each column in the data source.
      *
@@ -80,6 +136,17 @@ public class DataSourceMetadataService {
      * @return a map of column name to a set of available intervals
      */
     public Map<String, SimplifiedIntervalList> getAvailableIntervalsByDataSource(DataSourceName dataSourceName) {
+        return getAvailabilitySnapshot(dataSourceName).getIntervalsByColumn();
+    }
+
+    /**
+     * Get the current snapshot of the intervals available for each column in the data source.
+     *
+     * @param dataSourceName  The data source for which to get the availability snapshot
+     *
+     * @return the snapshot published by the latest update of the data source
+     */
+    public AvailabilitySnapshot getAvailabilitySnapshot(DataSourceName dataSourceName) {
         if (!allSegmentsByColumn.containsKey(dataSourceName)) {
             String message = String.format(
                     "Datasource '%s' is not available in the metadata service",
@@ -91,6 +158,21 @@ public class DataSourceMetadataService {
         return allSegmentsByColumn.get(dataSourceName).get();
     }
 
+    /**
+     * Get the version of the intervals {@link #getAvailableIntervalsByDataSource} returns for a data source.
+     * <p>
+     * Services which do not get their intervals from the snapshots published by {@link #update} should return no
+     * version, so that availabilities do not reuse intervals computed from them.
+     *
+     * @param dataSourceName  The data source for which to get the availability version
+     *
+     * @return the version of the current availability snapshot, or empty if the data source has none
+     */
+    public OptionalLong getAvailabilityVersion(DataSourceName dataSourceName) {
+        AtomicReference<AvailabilitySnapshot> snapshot = allSegmentsByColumn.get(dataSourceName);
+        return snapshot == null ? OptionalLong.empty() : OptionalLong.of(snapshot.get().getVersion());
+    }
+
     /**
      * Update the information with respect to the segment metadata of a particular data source.
      * This operation should be atomic per dataSourceName.
@@ -120,10 +202,21 @@ public class DataSourceMetadataService {
         // Group segment interval by every column present in the segment
         Map<String, SimplifiedIntervalList> currentByColumn = groupIntervalByColumn(metadata);
 
+        // Index the segments before publishing them, so readers find the index ready
+        SegmentSignatureIndex currentIndex = new SegmentSignatureIndex(currentByTime);
+
+        // Version the intervals by column, so that results computed from older intervals are known to be stale
+        AvailabilitySnapshot currentSnapshot = new AvailabilitySnapshot(
+                SNAPSHOT_VERSIONS.incrementAndGet(),
+                currentByColumn
+        );
+
         allSegmentsByTime.computeIfAbsent(dataSourceName, ignored -> new AtomicReference<>())
                 .set(currentByTime);
+        segmentSignatureIndexes.computeIfAbsent(dataSourceName, ignored -> new AtomicReference<>())
+                .set(currentIndex);
         allSegmentsByColumn.computeIfAbsent(dataSourceName, ignored -> new AtomicReference<>())
-                .set(ImmutableMap.copyOf(currentByColumn));
+                .set(currentSnapshot);
     }
 
     /**
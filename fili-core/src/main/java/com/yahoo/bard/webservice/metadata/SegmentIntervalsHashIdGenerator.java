@@ -11,9 +11,13 @@ import com.yahoo.bard.webservice.util.DefaultingDictionary;
 import com.yahoo.bard.webservice.util.SimplifiedIntervalList;
 
 import org.joda.time.DateTime;
+import org.joda.time.Interval;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -23,7 +27,8 @@ import java.util.stream.Stream;
 
 /**
  * An implementation of the QuerySigningService that generates segment id for requested interval.
- * It uses the sum of segment hashes to create a segment id.
+ * It uses the sum of segment hashes to create a segment id, read from the {@link SegmentSignatureIndex} of each table
+ * in logarithmic time.
  */
 public class SegmentIntervalsHashIdGenerator implements QuerySigningService<Long> {
 
@@ -115,24 +120,55 @@ public class SegmentIntervalsHashIdGenerator implements QuerySigningService<Long
                 .stream()
                 .collect(Collectors.toSet());
 
-        // Get all the segments for the data sources of the query's physical tables
-        Set<SortedMap<DateTime, Map<String, SegmentInfo>>> tableSegments = dataSourceMetadataService.getSegments(
+        // Get the segment indexes for the data sources of the query's physical tables
+        Set<SegmentSignatureIndex> tableIndexes = dataSourceMetadataService.getSegmentSignatureIndexes(
                 dataSourceNames
         );
 
         // Check if we have no tables with segments
-        if (tableSegments.isEmpty()) {
+        if (tableIndexes.isEmpty()) {
             LOG.warn(DRUID_METADATA_SEGMENTS_MISSING.logFormat(dataSourceNames));
             return Optional.empty();
         }
 
-        // Get requested intervals, then their segments, and sum their hash codes into a long
-        return getSegmentHash(
-                requestedIntervalsQueryExtractionFunctions.get(query.getClass()).apply(query).stream()
-                        .flatMap(interval -> tableSegments.stream()
-                                .map(segments -> segments.subMap(interval.getStart(), interval.getEnd()))
-                        )
+        // Get requested intervals, then the hash of their distinct segment sub maps, and sum them into a long
+        Map<Integer, List<SortedMap<DateTime, Map<String, SegmentInfo>>>> segmentsByHash = new HashMap<>();
+        return requestedIntervalsQueryExtractionFunctions.get(query.getClass()).apply(query).stream()
+                .flatMap(interval -> tableIndexes.stream()
+                        .filter(index -> isDistinct(index, interval, segmentsByHash))
+                        .map(index -> index.getIntervalHash(interval))
+                )
+                .map(Integer::longValue)
+                .reduce(Long::sum);
+    }
+
+    /**
+     * Whether the segments of an index within an interval differ from all the segment sub maps seen so far, recording
+     * them as seen if they do.
+     * <p>
+     * Equal sub maps have equal hashes, so sub maps are only compared with those seen with the same hash.
+     *
+     * @param index  The index of the segments
+     * @param interval  The interval of the segments
+     * @param segmentsByHash  The segment sub maps seen so far, by their hash
+     *
+     * @return true if the segments have not been seen yet
+     */
+    private static boolean isDistinct(
+            SegmentSignatureIndex index,
+            Interval interval,
+            Map<Integer, List<SortedMap<DateTime, Map<String, SegmentInfo>>>> segmentsByHash
+    ) {
+        List<SortedMap<DateTime, Map<String, SegmentInfo>>> sameHash = segmentsByHash.computeIfAbsent(
+                index.getIntervalHash(interval),
+                ignored -> new ArrayList<>(1)
         );
+        SortedMap<DateTime, Map<String, SegmentInfo>> segments = index.getIntervalSegments(interval);
+        if (sameHash.contains(segments)) {
+            return false;
+        }
+        sameHash.add(segments);
+        return true;
     }
 
     /**
@@ -0,0 +1,95 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.metadata;
+
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * An index over the segments of a data source, grouped by start time, which computes the hash of the segments of any
+ * time range in logarithmic time.
+ * <p>
+ * The hash of a range is the hash code of the map of segments starting within it, which is the sum of the hash codes
+ * of its entries. The index keeps the running sums of the entry hash codes in start time order, so the hash of a
+ * range is the difference of two running sums, found by binary search on the start times.
+ */
+public class SegmentSignatureIndex {
+
+    private final SortedMap<DateTime, Map<String, SegmentInfo>> segments;
+    private final long[] startMillis;
+    // prefixHashes[i] is the sum of the hash codes of the first i entries, wrapping like Map::hashCode
+    private final int[] prefixHashes;
+
+    /**
+     * Constructor.
+     *
+     * @param segments  The segments of a data source, grouped by start time, which must not change afterwards
+     */
+    public SegmentSignatureIndex(SortedMap<DateTime, Map<String, SegmentInfo>> segments) {
+        this.segments = segments;
+
+        List<Map.Entry<DateTime, Map<String, SegmentInfo>>> entries = new ArrayList<>(segments.entrySet());
+        this.startMillis = new long[entries.size()];
+        this.prefixHashes = new int[entries.size() + 1];
+        for (int i = 0; i < entries.size(); i++) {
+            Map.Entry<DateTime, Map<String, SegmentInfo>> entry = entries.get(i);
+            startMillis[i] = entry.getKey().getMillis();
+            prefixHashes[i + 1] = prefixHashes[i] + entry.hashCode();
+        }
+    }
+
+    /**
+     * Get the hash of the segments starting within an interval.
+     * <p>
+     * This is equal to {@code segments.subMap(interval.getStart(), interval.getEnd()).hashCode()}.
+     *
+     * @param interval  The interval
+     *
+     * @return the hash of the segments starting within the interval
+     */
+    public int getIntervalHash(Interval interval) {
+        return prefixHashes[firstAtOrAfter(interval.getEndMillis())]
+                - prefixHashes[firstAtOrAfter(interval.getStartMillis())];
+    }
+
+    /**
+     * Get the segments starting within an interval, whose hash is {@link #getIntervalHash(Interval)}.
+     *
+     * @param interval  The interval
+     *
+     * @return a view of the segments starting within the interval
+     */
+    public SortedMap<DateTime, Map<String, SegmentInfo>> getIntervalSegments(Interval interval) {
+        return segments.subMap(interval.getStart(), interval.getEnd());
+    }
+
+    /**
+     * Whether this index was built from a given map of segments.
+     *
+     * @param segments  The map of segments
+     *
+     * @return true if this index indexes that very map
+     */
+    public boolean isIndexOf(SortedMap<DateTime, Map<String, SegmentInfo>> segments) {
+        return this.segments == segments;
+    }
+
+    /**
+     * Find the position of the first segment start at or after an instant.
+     *
+     * @param millis  The instant, in epoch millis
+     *
+     * @return the number of segment starts before the instant
+     */
+    private int firstAtOrAfter(long millis) {
+        int position = Arrays.binarySearch(startMillis, millis);
+        // Start times are distinct, so an exact match is the first one at the instant
+        return position >= 0 ? position : -position - 1;
+    }
+}
@@ -8,6 +8,7 @@ import com.yahoo.bard.webservice.table.resolver.PhysicalDataSourceConstraint;
 import com.yahoo.bard.webservice.util.SimplifiedIntervalList;
 
 import java.util.Map;
+import java.util.OptionalLong;
 import java.util.Set;
 
 /**
@@ -51,15 +52,27 @@ public interface Availability {
      */
     Map<String, SimplifiedIntervalList> getAllAvailableIntervals();
 
+    /**
+     * The version of the intervals available, which is greater after every change of the intervals available.
+     * <p>
+     * Versions are drawn from the versions of the
+     * {@link com.yahoo.bard.webservice.metadata.AvailabilitySnapshot}s backing the availability, so that they increase
+     * across all availabilities, and an availability composed of others is versioned by the latest of their versions.
+     * Availabilities whose intervals change without their version changing should have no version.
+     *
+     * @return The version of the intervals available, or empty if this availability is not versioned
+     */
+    default OptionalLong getVersion() {
+        return OptionalLong.empty();
+    }
+
     /**
      * Fetch a {@link SimplifiedIntervalList} representing the coalesced available intervals on this availability.
      *
      * @return A <tt>SimplifiedIntervalList</tt> of intervals available
      */
     default SimplifiedIntervalList getAvailableIntervals() {
-        return getAllAvailableIntervals().values().stream()
-                .reduce(SimplifiedIntervalList::union)
-                .orElse(new SimplifiedIntervalList());
+        return SimplifiedIntervalList.unionAll(getAllAvailableIntervals().values());
     }
 
     /**
@@ -3,11 +3,15 @@
 package com.yahoo.bard.webservice.table.availability;
 
 import com.yahoo.bard.webservice.data.config.names.DataSourceName;
+import com.yahoo.bard.webservice.table.resolver.PhysicalDataSourceConstraint;
 import com.yahoo.bard.webservice.util.SimplifiedIntervalList;
 import com.yahoo.bard.webservice.util.StreamUtils;
 
+import java.util.Arrays;
 import java.util.Map;
+import java.util.OptionalLong;
 import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -18,6 +22,7 @@ public abstract class BaseCompositeAvailability implements Availability {
 
     private final Set<Availability> sourceAvailabilities;
     private final Set<DataSourceName> dataSourcesNames;
+    private final VersionedIntervalsCache intervalsCache = new VersionedIntervalsCache();
 
     /**
      * Constructor.
@@ -45,6 +50,47 @@ public abstract class BaseCompositeAvailability implements Availability {
         return dataSourcesNames;
     }
 
+    /**
+     * The latest version of the source availabilities, which changes whenever the version of any of them does.
+     *
+     * @return the latest version of the sources, or empty if some source is not versioned
+     */
+    @Override
+    public OptionalLong getVersion() {
+        OptionalLong latest = OptionalLong.empty();
+        for (Availability availability : sourceAvailabilities) {
+            OptionalLong version = availability.getVersion();
+            if (!version.isPresent()) {
+                return OptionalLong.empty();
+            }
+            if (!latest.isPresent() || version.getAsLong() > latest.getAsLong()) {
+                latest = version;
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Get the intervals computed for a constraint at the current version of this availability, computing them only if
+     * they have not been computed at this version yet.
+     *
+     * @param constraint  The constraint the intervals are computed for
+     * @param loader  Computes the intervals from the source availabilities
+     *
+     * @return the intervals
+     */
+    protected SimplifiedIntervalList getMemoizedIntervals(
+            PhysicalDataSourceConstraint constraint,
+            Supplier<SimplifiedIntervalList> loader
+    ) {
+        // Constraints are equal regardless of their physical column names, which the intervals depend on as well
+        return intervalsCache.get(
+                getVersion(),
+                Arrays.asList(constraint, constraint.getAllColumnPhysicalNames()),
+                loader
+        );
+    }
+
     /**
      * Retrieve all available intervals for all data source fields across all the underlying datasources.
      * <p>
@@ -62,7 +108,7 @@ public abstract class BaseCompositeAvailability implements Availability {
                         Collectors.toMap(
                                 Map.Entry::getKey,
                                 Map.Entry::getValue,
-                                (value1, value2) -> SimplifiedIntervalList.simplifyIntervals(value1, value2)
+                                SimplifiedIntervalList::union
                         )
                 );
     }
@@ -10,7 +10,9 @@ import com.yahoo.bard.webservice.util.SimplifiedIntervalList;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Objects;
+import java.util.OptionalLong;
 import java.util.Set;
+import java.util.function.Supplier;
 
 import javax.validation.constraints.NotNull;
 
@@ -22,6 +24,7 @@ public abstract class BaseMetadataAvailability implements Availability {
     private final DataSourceName dataSourceName;
     private final Set<DataSourceName> dataSourceNames;
     private final DataSourceMetadataService metadataService;
+    private final VersionedIntervalsCache intervalsCache = new VersionedIntervalsCache();
 
     /**
      * Constructor.
@@ -56,9 +59,27 @@ public abstract class BaseMetadataAvailability implements Availability {
         return getDataSourceMetadataService().getAvailableIntervalsByDataSource(getDataSourceName());
     }
 
+    @Override
+    public OptionalLong getVersion() {
+        return getDataSourceMetadataService().getAvailabilityVersion(getDataSourceName());
+    }
+
     @Override
     public abstract SimplifiedIntervalList getAvailableIntervals(PhysicalDataSourceConstraint constraint);
 
+    /**
+     * Get the intervals computed for a key at the current version of this availability, computing them only if they
+     * have not been computed at this version yet.
+     *
+     * @param key  Everything other than the version of this availability which the intervals depend on
+     * @param loader  Computes the intervals from the current intervals by column
+     *
+     * @return the intervals
+     */
+    protected SimplifiedIntervalList getMemoizedIntervals(Object key, Supplier<SimplifiedIntervalList> loader) {
+        return intervalsCache.get(getVersion(), key, loader);
+    }
+
     @Override
     public String toString() {
         return String.format("BaseMetadataAvailability for data source = %s", getDataSourceName().asName());
@@ -117,9 +117,11 @@ public class MetricUnionAvailability extends BaseCompositeAvailability implement
             return new SimplifiedIntervalList();
         }
 
-        return constructSubConstraint(constraint).entrySet().stream()
-                .map(entry -> entry.getKey().getAvailableIntervals(entry.getValue()))
-                .reduce(SimplifiedIntervalList::intersect).orElse(new SimplifiedIntervalList());
+        return getMemoizedIntervals(constraint, () -> SimplifiedIntervalList.intersectAll(
+                constructSubConstraint(constraint).entrySet().stream()
+                        .map(entry -> entry.getKey().getAvailableIntervals(entry.getValue()))
+                        .collect(Collectors.toList())
+        ));
     }
 
     /**
@@ -87,14 +87,16 @@ public class PartitionAvailability extends BaseCompositeAvailability implements
      * @return The intervals which are available for the given constraint
      */
     private SimplifiedIntervalList mergeAvailabilities(PhysicalDataSourceConstraint constraint) {
-        return filteredAvailabilities(constraint)
-                .map(availability -> availability.getAvailableIntervals(constraint))
-                .reduce(SimplifiedIntervalList::intersect).orElse(new SimplifiedIntervalList());
+        return SimplifiedIntervalList.intersectAll(
+                filteredAvailabilities(constraint)
+                        .map(availability -> availability.getAvailableIntervals(constraint))
+                        .collect(Collectors.toList())
+        );
     }
 
     @Override
     public SimplifiedIntervalList getAvailableIntervals(PhysicalDataSourceConstraint constraint) {
-        return mergeAvailabilities(constraint);
+        return getMemoizedIntervals(constraint, () -> mergeAvailabilities(constraint));
     }
 
     @Override
@@ -46,9 +46,10 @@ public class PermissiveAvailability extends BaseMetadataAvailability {
      */
     @Override
     public SimplifiedIntervalList getAvailableIntervals(PhysicalDataSourceConstraint ignoredConstraint) {
-        return getAllAvailableIntervals().values().stream()
-                .map(SimplifiedIntervalList::new)
-                .reduce(new SimplifiedIntervalList(), SimplifiedIntervalList::simplifyIntervals);
+        return getMemoizedIntervals(
+                PermissiveAvailability.class,
+                () -> SimplifiedIntervalList.unionAll(getAllAvailableIntervals().values())
+        );
     }
 
     @Override
@@ -39,13 +39,13 @@ public class StrictAvailability extends BaseMetadataAvailability {
         }
 
         // Need to ensure requestColumns is not empty in order to prevent returning null by reduce operation
-        return requestColumns.stream()
+        return getMemoizedIntervals(requestColumns, () -> requestColumns.stream()
                 .map(physicalName -> getAllAvailableIntervals().getOrDefault(
                         physicalName,
                         new SimplifiedIntervalList()
                 ))
                 .reduce(SimplifiedIntervalList::intersect)
-                .orElse(new SimplifiedIntervalList());
+                .orElse(new SimplifiedIntervalList()));
     }
 
     @Override
@@ -0,0 +1,128 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.table.availability;
+
+import com.yahoo.bard.webservice.config.SystemConfig;
+import com.yahoo.bard.webservice.config.SystemConfigProvider;
+import com.yahoo.bard.webservice.util.SimplifiedIntervalList;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Memoizes the intervals an availability computes for its constraints, for as long as its version stays the same.
+ * <p>
+ * Intervals are only memoized for versioned availabilities, and all of them are dropped once a newer version is seen.
+ * Availabilities must read their version before the intervals they compute, so that intervals are never memoized
+ * under a version newer than the one they were computed from. The number of intervals memoized for a version is
+ * bounded by {@code bard__availability_cache_max_entries}, and 0, the default, turns memoizing off.
+ * <p>
+ * The version of a metadata backed availability only changes when its {@link
+ * com.yahoo.bard.webservice.metadata.DataSourceMetadataService} is updated, so memoizing should stay off for metadata
+ * services whose intervals change in other ways.
+ */
+class VersionedIntervalsCache {
+    private static final SystemConfig SYSTEM_CONFIG = SystemConfigProvider.getInstance();
+
+    private static final String MAX_ENTRIES_KEY = SYSTEM_CONFIG.getPackageVariableName(
+            "availability_cache_max_entries"
+    );
+
+    private final long maxEntries;
+    private final AtomicReference<Generation> current = new AtomicReference<>();
+
+    /**
+     * Constructor, memoizing as many intervals as configured.
+     */
+    VersionedIntervalsCache() {
+        this(SYSTEM_CONFIG.getLongProperty(MAX_ENTRIES_KEY, 0));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxEntries  The number of intervals to memoize for a version, or 0 to not memoize intervals
+     */
+    VersionedIntervalsCache(long maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Get the intervals memoized for a key at a version, computing and memoizing them if they are not memoized yet.
+     *
+     * @param version  The version the intervals are computed at, or empty if they may not be memoized
+     * @param key  The key of the intervals, which holds everything other than the version they depend on
+     * @param loader  Computes the intervals
+     *
+     * @return a copy of the intervals, which callers are free to change
+     */
+    SimplifiedIntervalList get(OptionalLong version, Object key, Supplier<SimplifiedIntervalList> loader) {
+        Cache<Object, SimplifiedIntervalList> cache = maxEntries > 0 && version.isPresent()
+                ? getCache(version.getAsLong())
+                : null;
+        if (cache == null) {
+            return loader.get();
+        }
+
+        SimplifiedIntervalList intervals = cache.getIfPresent(key);
+        if (intervals == null) {
+            intervals = loader.get();
+            cache.put(key, intervals);
+        }
+        // Copy the simplified intervals as they are, rather than through the constructor which simplifies them again
+        return copyOf(intervals);
+    }
+
+    /**
+     * Copy simplified intervals without sorting and merging them again.
+     *
+     * @param intervals  The intervals, which are already simplified
+     *
+     * @return a copy of the intervals
+     */
+    private static SimplifiedIntervalList copyOf(SimplifiedIntervalList intervals) {
+        return new SimplifiedIntervalList(intervals);
+    }
+
+    /**
+     * Get the cache of the intervals of a version, replacing the cache of an older version.
+     *
+     * @param version  The version
+     *
+     * @return the cache, or null if the version is older than the one memoized, and so is stale
+     */
+    private Cache<Object, SimplifiedIntervalList> getCache(long version) {
+        Generation generation = current.get();
+        while (generation == null || generation.version < version) {
+            Generation newer = new Generation(version, CacheBuilder.newBuilder().maximumSize(maxEntries).build());
+            if (current.compareAndSet(generation, newer)) {
+                return newer.cache;
+            }
+            generation = current.get();
+        }
+        return generation.version == version ? generation.cache : null;
+    }
+
+    /**
+     * The intervals memoized for a version.
+     */
+    private static class Generation {
+        private final long version;
+        private final Cache<Object, SimplifiedIntervalList> cache;
+
+        /**
+         * Constructor.
+         *
+         * @param version  The version of the intervals
+         * @param cache  The intervals by key
+         */
+        Generation(long version, Cache<Object, SimplifiedIntervalList> cache) {
+            this.version = version;
+            this.cache = cache;
+        }
+    }
+}
@@ -3,10 +3,19 @@
 package com.yahoo.bard.webservice.table.resolver;
 
 import com.yahoo.bard.webservice.application.MetricRegistryFactory;
+import com.yahoo.bard.webservice.config.BardFeatureFlag;
+import com.yahoo.bard.webservice.config.SystemConfig;
+import com.yahoo.bard.webservice.config.SystemConfigProvider;
+import com.yahoo.bard.webservice.table.ConfigPhysicalTable;
 import com.yahoo.bard.webservice.table.PhysicalTable;
 import com.yahoo.bard.webservice.web.ErrorMessageFormat;
 
+import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,16 +23,70 @@ import org.slf4j.LoggerFactory;
 import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.OptionalLong;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BinaryOperator;
 
 /**
  *  Abstract parent to with business rule agnostic implementations of core methods.
+ * <p>
+ * Resolutions may be cached by the constraint of the request, the candidate tables and the latest version of their
+ * availabilities, so that requests of the same shape skip matching and comparing tables until availability changes.
+ * Cached resolutions also expire after a while, because volatile intervals move with the clock. The cache is off unless
+ * {@code bard__physical_table_resolution_cache_max_entries} is positive, and resolutions are never cached for candidate
+ * tables without a versioned availability. Resolvers whose matchers or comparators depend on anything else should not
+ * cache resolutions.
  */
 public abstract class BasePhysicalTableResolver implements PhysicalTableResolver {
 
     private static final Logger LOG = LoggerFactory.getLogger(BasePhysicalTableResolver.class);
     private static final MetricRegistry REGISTRY = MetricRegistryFactory.getRegistry();
+    private static final SystemConfig SYSTEM_CONFIG = SystemConfigProvider.getInstance();
+
+    private static final String RESOLUTION_CACHE_MAX_ENTRIES_KEY = SYSTEM_CONFIG.getPackageVariableName(
+            "physical_table_resolution_cache_max_entries"
+    );
+    private static final String RESOLUTION_CACHE_TTL_KEY = SYSTEM_CONFIG.getPackageVariableName(
+            "physical_table_resolution_cache_ttl_ms"
+    );
+
+    // Best tables by request shape, candidate tables and availability version, or null if resolutions are not cached
+    private final Cache<ResolutionKey, PhysicalTable> resolutionCache;
+
+    // Meters of the tables resolved, held by table identity so their names are not built on every request
+    private final LoadingCache<PhysicalTable, Meter> tableMeters = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build(CacheLoader.from(
+                    table -> REGISTRY.meter(
+                            "request.physical.table." + table.getName() + "." + table.getSchema().getTimeGrain()
+                    )
+            ));
+
+    /**
+     * Constructor, caching as many resolutions as configured.
+     */
+    protected BasePhysicalTableResolver() {
+        this(
+                SYSTEM_CONFIG.getLongProperty(RESOLUTION_CACHE_MAX_ENTRIES_KEY, 0),
+                SYSTEM_CONFIG.getLongProperty(RESOLUTION_CACHE_TTL_KEY, 60000)
+        );
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxCachedResolutions  The number of resolutions to keep cached, or 0 to not cache resolutions
+     * @param resolutionTtlMillis  How long a resolution stays cached, in milliseconds
+     */
+    protected BasePhysicalTableResolver(long maxCachedResolutions, long resolutionTtlMillis) {
+        this.resolutionCache = maxCachedResolutions > 0 ?
+                CacheBuilder.newBuilder()
+                        .maximumSize(maxCachedResolutions)
+                        .expireAfterWrite(resolutionTtlMillis, TimeUnit.MILLISECONDS)
+                        .build() :
+                null;
+    }
 
     /**
      * Create a list of matchers based on a request and query.
@@ -96,13 +159,18 @@ public abstract class BasePhysicalTableResolver implements PhysicalTableResolver
         );
 
         try {
-            PhysicalTable bestTable = filter(candidateTables, requestConstraint).stream()
-                    .reduce(getBetterTableOperator(requestConstraint))
-                    .get();
+            ResolutionKey key = resolutionCache == null ? null : ResolutionKey.of(candidateTables, requestConstraint);
+            PhysicalTable bestTable = key == null ? null : resolutionCache.getIfPresent(key);
+            if (bestTable == null) {
+                bestTable = filter(candidateTables, requestConstraint).stream()
+                        .reduce(getBetterTableOperator(requestConstraint))
+                        .get();
+                if (key != null) {
+                    resolutionCache.put(key, bestTable);
+                }
+            }
 
-            REGISTRY.meter(
-                    "request.physical.table." + bestTable.getName() + "." + bestTable.getSchema().getTimeGrain()
-            ).mark();
+            tableMeters.getUnchecked(bestTable).mark();
             LOG.trace("Found best Table: {}", bestTable);
             return bestTable;
         } catch (NoMatchFoundException me) {
@@ -115,4 +183,91 @@ public abstract class BasePhysicalTableResolver implements PhysicalTableResolver
             throw me;
         }
     }
+
+    /**
+     * The shape of a resolution: the constraint of the request, the candidate tables by identity, the latest version
+     * of their availabilities, and whether partial data is taken into account.
+     */
+    private static final class ResolutionKey {
+        private final QueryPlanningConstraint constraint;
+        private final PhysicalTable[] candidateTables;
+        private final long version;
+        private final boolean partialData;
+        private final int hashCode;
+
+        /**
+         * Constructor.
+         *
+         * @param constraint  The constraint of the request
+         * @param candidateTables  The tables the resolution chooses from
+         * @param version  The latest version of the availabilities of the candidate tables
+         */
+        private ResolutionKey(QueryPlanningConstraint constraint, PhysicalTable[] candidateTables, long version) {
+            this.constraint = constraint;
+            this.candidateTables = candidateTables;
+            this.version = version;
+            this.partialData = BardFeatureFlag.PARTIAL_DATA.isOn();
+
+            int hash = 31 * constraint.hashCode() + Long.hashCode(version);
+            for (PhysicalTable table : candidateTables) {
+                hash = 31 * hash + System.identityHashCode(table);
+            }
+            this.hashCode = 31 * hash + Boolean.hashCode(partialData);
+        }
+
+        /**
+         * Build the key of a resolution, if the availabilities of all candidate tables are versioned.
+         *
+         * @param candidateTables  The tables the resolution chooses from
+         * @param constraint  The constraint of the request
+         *
+         * @return the key, or null if the resolution may not be cached
+         */
+        static ResolutionKey of(Collection<PhysicalTable> candidateTables, QueryPlanningConstraint constraint) {
+            long latest = Long.MIN_VALUE;
+            for (PhysicalTable table : candidateTables) {
+                if (!(table instanceof ConfigPhysicalTable)) {
+                    return null;
+                }
+                OptionalLong version = ((ConfigPhysicalTable) table).getAvailability().getVersion();
+                if (!version.isPresent()) {
+                    return null;
+                }
+                latest = Math.max(latest, version.getAsLong());
+            }
+            return new ResolutionKey(
+                    constraint,
+                    candidateTables.toArray(new PhysicalTable[candidateTables.size()]),
+                    latest
+            );
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ResolutionKey)) {
+                return false;
+            }
+            ResolutionKey that = (ResolutionKey) o;
+            if (hashCode != that.hashCode
+                    || version != that.version
+                    || partialData != that.partialData
+                    || candidateTables.length != that.candidateTables.length) {
+                return false;
+            }
+            for (int i = 0; i < candidateTables.length; i++) {
+                if (candidateTables[i] != that.candidateTables[i]) {
+                    return false;
+                }
+            }
+            return constraint.equals(that.constraint);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
 }
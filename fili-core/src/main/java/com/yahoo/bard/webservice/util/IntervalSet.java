@@ -0,0 +1,368 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.util;
+
+import org.joda.time.Interval;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * An immutable set of instants, held as the sorted start and end milliseconds of the fewest intervals which cover them.
+ * <p>
+ * This is the compact counterpart of {@link SimplifiedIntervalList}: the intervals are half open, ordered by time,
+ * and never overlap or abut. Membership tests search the bounds in logarithmic time, and unions, intersections and
+ * subtractions merge the bounds of both sets in a single pass without building intermediate intervals.
+ */
+public final class IntervalSet {
+
+    public static final IntervalSet EMPTY = new IntervalSet(new long[0], new long[0]);
+
+    private final long[] starts;
+    private final long[] ends;
+    private final int size;
+
+    /**
+     * Constructor.
+     *
+     * @param starts  The start millis of the intervals, sorted
+     * @param ends  The end millis of the intervals, sorted, as many as the starts
+     */
+    IntervalSet(long[] starts, long[] ends) {
+        this.starts = Objects.requireNonNull(starts);
+        this.ends = Objects.requireNonNull(ends);
+        this.size = starts.length;
+    }
+
+    /**
+     * Build the set of the instants of some intervals.
+     *
+     * @param intervals  The intervals, in any order, which may overlap
+     *
+     * @return the set of intervals
+     */
+    public static IntervalSet of(Collection<Interval> intervals) {
+        if (intervals instanceof SimplifiedIntervalList) {
+            return of((SimplifiedIntervalList) intervals);
+        }
+        Interval[] sorted = intervals.toArray(new Interval[intervals.size()]);
+        Arrays.sort(sorted, IntervalStartComparator.INSTANCE);
+        Builder builder = new Builder(sorted.length);
+        for (Interval interval : sorted) {
+            builder.append(interval.getStartMillis(), interval.getEndMillis());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Build the set of the instants of a simplified list of intervals, which is already sorted and simplified.
+     *
+     * @param intervals  The simplified intervals
+     *
+     * @return the set of intervals
+     */
+    public static IntervalSet of(SimplifiedIntervalList intervals) {
+        int size = intervals.size();
+        long[] starts = new long[size];
+        long[] ends = new long[size];
+        int i = 0;
+        for (Interval interval : intervals) {
+            starts[i] = interval.getStartMillis();
+            ends[i] = interval.getEndMillis();
+            i++;
+        }
+        return new IntervalSet(starts, ends);
+    }
+
+    /**
+     * Get the number of intervals of this set.
+     *
+     * @return the number of intervals
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Whether this set contains no instant.
+     *
+     * @return true if there are no intervals in this set
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Get the start of an interval of this set.
+     *
+     * @param index  The position of the interval in time order
+     *
+     * @return the start millis of the interval
+     */
+    public long getStartMillis(int index) {
+        checkIndex(index);
+        return starts[index];
+    }
+
+    /**
+     * Get the end of an interval of this set.
+     *
+     * @param index  The position of the interval in time order
+     *
+     * @return the end millis of the interval, exclusive
+     */
+    public long getEndMillis(int index) {
+        checkIndex(index);
+        return ends[index];
+    }
+
+    /**
+     * Get the total length of the intervals of this set.
+     *
+     * @return the sum of the durations of the intervals, in milliseconds
+     */
+    public long getTotalDurationMillis() {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += ends[i] - starts[i];
+        }
+        return total;
+    }
+
+    /**
+     * Whether an instant is in this set.
+     *
+     * @param instant  The instant, in millis
+     *
+     * @return true if an interval of this set contains the instant
+     */
+    public boolean contains(long instant) {
+        int index = floorIndex(instant);
+        return index >= 0 && instant < ends[index];
+    }
+
+    /**
+     * Whether all the instants of an interval are in this set.
+     *
+     * @param interval  The interval
+     *
+     * @return true if a single interval of this set contains the interval
+     */
+    public boolean contains(Interval interval) {
+        long start = interval.getStartMillis();
+        long end = interval.getEndMillis();
+        int index = floorIndex(start);
+        return index >= 0 && start < ends[index] && end <= ends[index];
+    }
+
+    /**
+     * Whether some instant of an interval is in this set.
+     *
+     * @param interval  The interval
+     *
+     * @return true if an interval of this set overlaps the interval
+     */
+    public boolean overlaps(Interval interval) {
+        long start = interval.getStartMillis();
+        long end = interval.getEndMillis();
+        // The first interval which ends after the start is the only one which may overlap without starting after it
+        int index = Arrays.binarySearch(ends, 0, size, start);
+        index = index >= 0 ? index + 1 : -index - 1;
+        return index < size && starts[index] < end && start < end;
+    }
+
+    /**
+     * Get the instants which are in this set or in another.
+     *
+     * @param that  The other set
+     *
+     * @return the union of the sets
+     */
+    public IntervalSet union(IntervalSet that) {
+        if (that.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            return that;
+        }
+        Builder builder = new Builder(size + that.size);
+        int i = 0;
+        int j = 0;
+        while (i < size || j < that.size) {
+            if (j == that.size || (i < size && starts[i] <= that.starts[j])) {
+                builder.append(starts[i], ends[i]);
+                i++;
+            } else {
+                builder.append(that.starts[j], that.ends[j]);
+                j++;
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Get the instants which are both in this set and in another.
+     *
+     * @param that  The other set
+     *
+     * @return the intersection of the sets
+     */
+    public IntervalSet intersect(IntervalSet that) {
+        Builder builder = new Builder(size + that.size);
+        int i = 0;
+        int j = 0;
+        while (i < size && j < that.size) {
+            long start = Math.max(starts[i], that.starts[j]);
+            long end = Math.min(ends[i], that.ends[j]);
+            if (start < end) {
+                builder.append(start, end);
+            }
+            // Whichever interval ends first overlaps nothing further in the other set
+            if (ends[i] < that.ends[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Get the instants which are in this set but not in another.
+     *
+     * @param that  The other set
+     *
+     * @return this set less the other
+     */
+    public IntervalSet subtract(IntervalSet that) {
+        if (isEmpty() || that.isEmpty()) {
+            return this;
+        }
+        Builder builder = new Builder(size + that.size);
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            long current = starts[i];
+            long end = ends[i];
+            while (j < that.size && that.ends[j] <= current) {
+                j++;
+            }
+            // Only the last of the subtracted intervals may reach past the end, so it is not skipped for the next one
+            for (int k = j; current < end && k < that.size && that.starts[k] < end; k++) {
+                if (that.starts[k] > current) {
+                    builder.append(current, that.starts[k]);
+                }
+                current = Math.max(current, that.ends[k]);
+            }
+            if (current < end) {
+                builder.append(current, end);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Find the last interval starting at or before an instant.
+     *
+     * @param instant  The instant, in millis
+     *
+     * @return the index of the interval, or -1 if every interval starts after the instant
+     */
+    private int floorIndex(long instant) {
+        int index = Arrays.binarySearch(starts, 0, size, instant);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * Check that an index is the position of an interval of this set.
+     *
+     * @param index  The index
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IntervalSet)) {
+            return false;
+        }
+        IntervalSet that = (IntervalSet) o;
+        return Arrays.equals(starts, that.starts) && Arrays.equals(ends, that.ends);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(starts) + Arrays.hashCode(ends);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(new Interval(starts[i], ends[i]));
+        }
+        return builder.append("]").toString();
+    }
+
+    /**
+     * Accumulates the bounds of intervals appended in order of their starts, merging those which overlap or abut.
+     */
+    private static final class Builder {
+        private final long[] starts;
+        private final long[] ends;
+        private int size;
+
+        /**
+         * Constructor.
+         *
+         * @param capacity  The largest number of intervals which may be appended
+         */
+        Builder(int capacity) {
+            this.starts = new long[capacity];
+            this.ends = new long[capacity];
+        }
+
+        /**
+         * Append an interval starting no earlier than those appended before it.
+         *
+         * @param start  The start millis of the interval
+         * @param end  The end millis of the interval
+         */
+        void append(long start, long end) {
+            // Empty intervals hold no instants
+            if (end <= start) {
+                return;
+            }
+            if (size > 0 && start <= ends[size - 1]) {
+                ends[size - 1] = Math.max(ends[size - 1], end);
+                return;
+            }
+            starts[size] = start;
+            ends[size] = end;
+            size++;
+        }
+
+        /**
+         * Build the set of the appended intervals, trimming the bounds to the number of intervals.
+         *
+         * @return the set
+         */
+        IntervalSet build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+            return size == starts.length
+                    ? new IntervalSet(starts, ends)
+                    : new IntervalSet(Arrays.copyOf(starts, size), Arrays.copyOf(ends, size));
+        }
+    }
+}
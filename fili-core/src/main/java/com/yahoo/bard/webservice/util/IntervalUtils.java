@@ -10,9 +10,7 @@ import com.yahoo.bard.webservice.data.time.Granularity;
 import com.yahoo.bard.webservice.table.resolver.GranularityComparator;
 
 import org.joda.time.DateTime;
-import org.joda.time.Duration;
 import org.joda.time.Interval;
-import org.joda.time.base.AbstractInterval;
 
 import java.util.Collection;
 import java.util.LinkedHashMap;
@@ -150,12 +148,7 @@ public class IntervalUtils {
         Iterable<Interval> bucketedIterable = granularity.intervalsIterable(bucketedIntervals);
 
         // Predicate to find buckets which overlap
-        Predicate<Interval> isIntersecting =
-                new SimplifiedIntervalList.SkippingIntervalPredicate(
-                        supplyIntervals,
-                        AbstractInterval::overlaps,
-                        false
-                );
+        Predicate<Interval> isIntersecting = supplyIntervals.toIntervalSet()::overlaps;
 
         return StreamSupport.stream(bucketedIterable.spliterator(), false)
                 .filter(isIntersecting)
@@ -169,10 +162,7 @@ public class IntervalUtils {
      * @return The total duration of all the intervals
      */
     public static long getTotalDuration(Collection<Interval> intervals) {
-        return new SimplifiedIntervalList(intervals).stream()
-                .map(Interval::toDuration)
-                .mapToLong(Duration::getMillis)
-                .sum();
+        return IntervalSet.of(intervals).getTotalDurationMillis();
     }
 
     /**
@@ -4,6 +4,7 @@ package com.yahoo.bard.webservice.util;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.Optional;
 import java.util.OptionalInt;
 
 /**
@@ -58,6 +59,15 @@ public interface Pagination<T> extends Serializable {
      */
     OptionalInt getPreviousPage();
 
+    /**
+     * Gets the cursor of the next page, if the next page exists and the source of the data handed one out.
+     *
+     * @return The opaque cursor to request the next page with
+     */
+    default Optional<String> getNextCursor() {
+        return Optional.empty();
+    }
+
     /**
      * Get a list of results corresponding to the current page of data.
      *
@@ -5,18 +5,19 @@ package com.yahoo.bard.webservice.util;
 import com.fasterxml.jackson.annotation.JsonValue;
 
 import org.apache.commons.collections4.IteratorUtils;
+import org.joda.time.Chronology;
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
 import org.joda.time.ReadablePeriod;
+import org.joda.time.chrono.ISOChronology;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.function.BiPredicate;
-import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
@@ -30,11 +31,6 @@ import javax.validation.constraints.NotNull;
  */
 public class SimplifiedIntervalList extends LinkedList<Interval> {
 
-    /**
-     * Function to iterate an iterator if it has a next element, otherwise return null.
-     */
-    protected Function<Iterator<Interval>, Interval> getNextIfAvailable = (it) -> it.hasNext() ? it.next() : null;
-
     /**
      * Constructor.
      */
@@ -275,7 +271,7 @@ public class SimplifiedIntervalList extends LinkedList<Interval> {
      * @return A new simplified list containing all subintervals of both this and that.
      */
     public SimplifiedIntervalList union(SimplifiedIntervalList that) {
-        return simplifyIntervals(this, that);
+        return fromIntervalSet(toIntervalSet().union(that.toIntervalSet()), getChronology(this, that));
     }
 
     /**
@@ -286,23 +282,7 @@ public class SimplifiedIntervalList extends LinkedList<Interval> {
      * @return A new simplified interval list whose intervals are all subintervals of this and that.
      */
     public SimplifiedIntervalList intersect(SimplifiedIntervalList that) {
-        Iterator<Interval> theseIntervals = this.iterator();
-        Iterator<Interval> thoseIntervals = that.iterator();
-        Interval thisCurrent = getNextIfAvailable.apply(theseIntervals);
-        Interval thatCurrent = getNextIfAvailable.apply(thoseIntervals);
-        List<Interval> collected = new ArrayList<>();
-
-        while (thisCurrent != null && thatCurrent != null) {
-            if (thisCurrent.overlaps(thatCurrent)) {
-                collected.add(thisCurrent.overlap(thatCurrent));
-            }
-            if (thisCurrent.isBefore(thatCurrent.getEnd())) {
-                thisCurrent = getNextIfAvailable.apply(theseIntervals);
-            } else {
-                thatCurrent = getNextIfAvailable.apply(thoseIntervals);
-            }
-        }
-        return new SimplifiedIntervalList(collected);
+        return fromIntervalSet(toIntervalSet().intersect(that.toIntervalSet()), getChronology(this, that));
     }
 
     /**
@@ -313,46 +293,97 @@ public class SimplifiedIntervalList extends LinkedList<Interval> {
      * @return A new simplified interval list whose intervals are all subintervals of this and not that
      */
     public SimplifiedIntervalList subtract(SimplifiedIntervalList that) {
-        Iterator<Interval> theseIntervals = this.iterator();
-        Interval thisCurrent = getNextIfAvailable.apply(theseIntervals);
+        return fromIntervalSet(toIntervalSet().subtract(that.toIntervalSet()), getChronology(this, that));
+    }
 
-        if (thisCurrent == null) {
-            return new SimplifiedIntervalList();
+    /**
+     * Return the union of many simplified interval lists, merged as interval sets so that the partial unions are not
+     * built as intervals.
+     *
+     * @param lists  Simplified lists of intervals
+     *
+     * @return A new simplified list containing all subintervals of all the lists
+     */
+    public static SimplifiedIntervalList unionAll(Collection<SimplifiedIntervalList> lists) {
+        IntervalSet union = IntervalSet.EMPTY;
+        for (SimplifiedIntervalList list : lists) {
+            union = union.union(list.toIntervalSet());
         }
+        return fromIntervalSet(union, getChronology(lists));
+    }
 
-        Iterator<Interval> thoseIntervals = that.iterator();
-
-        Interval thatCurrent = getNextIfAvailable.apply(thoseIntervals);
-        List<Interval> collected = new ArrayList<>();
-
-        while (thisCurrent != null && thatCurrent != null) {
-            if (thisCurrent.isBefore(thatCurrent)) {
-                // Non overlapping intervals are simply collected
-                collected.add(thisCurrent);
-            } else if (thisCurrent.overlaps(thatCurrent)) {
-                // Take any part of the source interval that lies before an overlap
-                if (thisCurrent.getStart().isBefore(thatCurrent.getStart())) {
-                    collected.add(new Interval(thisCurrent.getStart(), thatCurrent.getStart()));
-                }
-                // Truncate out any overlap from the source interval and continue
-                if (!thisCurrent.getEnd().isBefore(thatCurrent.getEnd())) {
-                    thisCurrent = new Interval(thatCurrent.getEnd(), thisCurrent.getEnd());
-                }
-            }
-            // Advance to the next interval to consider
-            if (thisCurrent.isBefore(thatCurrent.getEnd())) {
-                thisCurrent = getNextIfAvailable.apply(theseIntervals);
-            } else {
-                thatCurrent = getNextIfAvailable.apply(thoseIntervals);
-            }
+    /**
+     * Return the intersection of many simplified interval lists, merged as interval sets so that the partial
+     * intersections are not built as intervals.
+     *
+     * @param lists  Simplified lists of intervals
+     *
+     * @return A new simplified interval list whose intervals are subintervals of every list, empty if there are no
+     * lists
+     */
+    public static SimplifiedIntervalList intersectAll(Collection<SimplifiedIntervalList> lists) {
+        IntervalSet intersection = null;
+        for (SimplifiedIntervalList list : lists) {
+            intersection = intersection == null
+                    ? list.toIntervalSet()
+                    : intersection.intersect(list.toIntervalSet());
+        }
+        return intersection == null
+                ? new SimplifiedIntervalList()
+                : fromIntervalSet(intersection, getChronology(lists));
+    }
+
+    /**
+     * Get the compact, array backed set of the instants of this list, to run many set operations or membership tests
+     * against without building intervals.
+     *
+     * @return the interval set of this list
+     */
+    public IntervalSet toIntervalSet() {
+        return IntervalSet.of(this);
+    }
+
+    /**
+     * Build the simplified list of the intervals of an interval set.
+     *
+     * @param intervals  The interval set
+     * @param chronology  The chronology of the intervals of the list
+     *
+     * @return A new simplified interval list of the same instants as the set
+     */
+    public static SimplifiedIntervalList fromIntervalSet(IntervalSet intervals, Chronology chronology) {
+        SimplifiedIntervalList list = new SimplifiedIntervalList();
+        for (int i = 0; i < intervals.size(); i++) {
+            list.addLast(new Interval(intervals.getStartMillis(i), intervals.getEndMillis(i), chronology));
         }
-        if (thatCurrent == null) {
-            collected.add(thisCurrent);
-            while (theseIntervals.hasNext()) {
-                collected.add(theseIntervals.next());
+        return list;
+    }
+
+    /**
+     * Get the chronology of the first interval of some lists, which the intervals of their combinations are built in.
+     *
+     * @param lists  The lists of intervals
+     *
+     * @return the chronology of the first interval, or the default chronology if the lists are all empty
+     */
+    private static Chronology getChronology(SimplifiedIntervalList... lists) {
+        return getChronology(Arrays.asList(lists));
+    }
+
+    /**
+     * Get the chronology of the first interval of some lists, which the intervals of their combinations are built in.
+     *
+     * @param lists  The lists of intervals
+     *
+     * @return the chronology of the first interval, or the default chronology if the lists are all empty
+     */
+    private static Chronology getChronology(Collection<SimplifiedIntervalList> lists) {
+        for (SimplifiedIntervalList list : lists) {
+            if (!list.isEmpty()) {
+                return list.getFirst().getChronology();
             }
         }
-        return new SimplifiedIntervalList(collected);
+        return ISOChronology.getInstance();
     }
 
     /**
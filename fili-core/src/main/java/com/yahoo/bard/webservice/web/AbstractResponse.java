@@ -112,7 +112,9 @@ public abstract class AbstractResponse<T> implements ResponseStream {
             UriBuilder uriBuilder,
             Map<String, URI> bodyLinks
     ) {
-        link.getPage(pages).ifPresent(page -> addLink(link, page, pages.getPerPage(), uriBuilder, bodyLinks));
+        link.getPage(pages).ifPresent(
+                page -> addLink(link, page, pages.getPerPage(), link.withCursor(uriBuilder, pages), bodyLinks)
+        );
     }
 
     /**
@@ -3,10 +3,11 @@
 package com.yahoo.bard.webservice.web;
 
 import com.yahoo.bard.webservice.application.ObjectMappersSuite;
+import com.yahoo.bard.webservice.data.Result;
 import com.yahoo.bard.webservice.data.metric.MetricColumn;
 import com.yahoo.bard.webservice.web.apirequest.ApiRequest;
 
-import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import com.fasterxml.jackson.dataformat.csv.CsvMapper;
 import com.fasterxml.jackson.dataformat.csv.CsvSchema;
 
@@ -15,6 +16,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.stream.Stream;
 
@@ -46,24 +48,22 @@ public class CsvResponseWriter implements ResponseWriter {
         csvMapper.writer().with(schema.withSkipFirstDataRow(true))
                 .writeValue(outputStream, Collections.emptyMap());
 
-        ObjectWriter writer = csvMapper.writer().with(schema.withoutHeader());
-
-        try {
-            responseData.getResultSet().stream()
-                    .map(responseData::buildResultRow)
-                    .forEachOrdered(
-                            row -> {
-                                try {
-                                    writer.writeValue(outputStream, row);
-                                } catch (IOException ioe) {
-                                    String msg = String.format("Unable to write CSV data row: %s", row);
-                                    LOG.error(msg, ioe);
-                                    throw new RuntimeException(msg, ioe);
-                                }
-                            }
-                    );
-        } catch (RuntimeException re) {
-            throw new IOException(re);
+        // Then write all of the rows through a single generator, reusing one array for the values of every row
+        Object[] row = new Object[schema.size()];
+        int rowsPerFlush = responseData.getRowsPerFlush();
+        int rowsWritten = 0;
+        try (SequenceWriter writer = csvMapper.writer().with(schema.withoutHeader()).writeValues(outputStream)) {
+            for (Result result : responseData.getResultSet()) {
+                responseData.fillResultRow(result, row);
+                writer.write(row);
+                if (++rowsWritten == rowsPerFlush) {
+                    writer.flush();
+                    rowsWritten = 0;
+                }
+            }
+        } catch (IOException ioe) {
+            LOG.error("Unable to write CSV data row: {}", Arrays.toString(row), ioe);
+            throw ioe;
         }
     }
 
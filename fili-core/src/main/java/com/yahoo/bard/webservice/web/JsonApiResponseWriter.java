@@ -123,8 +123,14 @@ public class JsonApiResponseWriter extends JsonAndJsonApiResponseWriter {
 
             // Write the data rows and extract the dimension rows for the sidecars
             generator.writeArrayFieldStart("rows");
+            int rowsPerFlush = responseData.getRowsPerFlush();
+            int rowsWritten = 0;
             for (Result result : responseData.getResultSet()) {
-                generator.writeObject(responseData.buildResultRowWithSidecars(result, sidecars));
+                responseData.writeResultRowWithSidecars(generator, result, sidecars);
+                if (++rowsWritten == rowsPerFlush) {
+                    generator.flush();
+                    rowsWritten = 0;
+                }
             }
             generator.writeEndArray();
 
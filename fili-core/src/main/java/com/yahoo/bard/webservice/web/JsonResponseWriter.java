@@ -76,8 +76,14 @@ public class JsonResponseWriter extends JsonAndJsonApiResponseWriter {
             g.writeStartObject();
 
             g.writeArrayFieldStart("rows");
+            int rowsPerFlush = responseData.getRowsPerFlush();
+            int rowsWritten = 0;
             for (Result result : responseData.getResultSet()) {
-                g.writeObject(responseData.buildResultRow(result));
+                responseData.writeResultRow(g, result);
+                if (++rowsWritten == rowsPerFlush) {
+                    g.flush();
+                    rowsWritten = 0;
+                }
             }
             g.writeEndArray();
 
@@ -2,6 +2,8 @@
 // Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
 package com.yahoo.bard.webservice.web;
 
+import com.yahoo.bard.webservice.config.SystemConfig;
+import com.yahoo.bard.webservice.config.SystemConfigProvider;
 import com.yahoo.bard.webservice.data.Result;
 import com.yahoo.bard.webservice.data.ResultSet;
 import com.yahoo.bard.webservice.data.dimension.Dimension;
@@ -17,13 +19,23 @@ import com.yahoo.bard.webservice.util.SimplifiedIntervalList;
 import com.yahoo.bard.webservice.util.StreamUtils;
 import com.yahoo.bard.webservice.web.apirequest.DataApiRequest;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import org.joda.time.DateTime;
 import org.joda.time.Interval;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.math.BigDecimal;
 import java.net.URI;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -45,6 +57,21 @@ public class ResponseData {
     protected static final Logger LOG = LoggerFactory.getLogger(ResponseData.class);
     protected static final Map<Dimension, Map<DimensionField, String>> DIMENSION_FIELD_COLUMN_NAMES = new HashMap<>();
 
+    private static final SystemConfig SYSTEM_CONFIG = SystemConfigProvider.getInstance();
+
+    /**
+     * Number of rows the response writers write between flushes of the output stream, 0 to never flush early.
+     * Flushing hands the rows written so far to the container, so large responses reach the client in chunks while
+     * the rest of the rows are still being written.
+     */
+    protected static final int ROWS_PER_FLUSH = SYSTEM_CONFIG.getIntProperty(
+            SYSTEM_CONFIG.getPackageVariableName("response_rows_per_flush"),
+            1000
+    );
+
+    private static final SerializedString DATE_TIME_FIELD_NAME = new SerializedString("dateTime");
+    private static final int UNREQUESTED = -1;
+
     protected final ResultSet resultSet;
     protected final LinkedHashSet<MetricColumn> apiMetricColumns;
     protected final LinkedHashMap<Dimension, LinkedHashSet<DimensionField>> requestedApiDimensionFields;
@@ -53,6 +80,21 @@ public class ResponseData {
     protected final Pagination pagination;
     protected final Map<String, URI> paginationLinks;
 
+    // Column layouts used when writing rows directly, built the first time a row is written. Dimensions are looked
+    // up by identity, since a dimension's hash code is computed from all of its fields.
+    private final Map<Dimension, DimensionFieldsLayout> dimensionFieldsLayouts = new IdentityHashMap<>();
+    private final Map<Dimension, SidecarLayout> sidecarLayouts = new IdentityHashMap<>();
+    // The sidecar map being written, and the dimension rows already added to it by dimension
+    private Map<Dimension, Set<Map<DimensionField, String>>> seenRowsSidecars;
+    private final Map<Dimension, Set<DimensionRow>> seenRows = new IdentityHashMap<>();
+    private final Map<Dimension, Integer> csvDimensionOffsets = new IdentityHashMap<>();
+    private MetricColumn[] apiMetricColumnArray;
+    private SerializableString[] apiMetricColumnNames;
+
+    // Consecutive rows usually share a timestamp, so the last formatted timestamp is reused
+    private DateTime lastTimeStamp;
+    private String lastFormattedTimeStamp;
+
     /**
      * Constructor.
      *
@@ -267,6 +309,138 @@ public class ResponseData {
         return row;
     }
 
+    /**
+     * Writes a result row straight to a JSON generator.
+     * <p>
+     * The row written is the same JSON object {@link #buildResultRow(Result)} builds, but no intermediate map is
+     * allocated for it and the column names are serialized only once per response.
+     *
+     * @param generator  The generator to write the row to
+     * @param result  The result to write
+     *
+     * @throws IOException if the row cannot be written
+     */
+    public void writeResultRow(JsonGenerator generator, Result result) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName(DATE_TIME_FIELD_NAME);
+        generator.writeString(formatTimeStamp(result.getTimeStamp()));
+
+        for (Entry<DimensionColumn, DimensionRow> entry : result.getDimensionRows().entrySet()) {
+            DimensionFieldsLayout layout = getDimensionFieldsLayout(entry.getKey().getDimension());
+            DimensionRow dimensionRow = entry.getValue();
+            for (int i = 0; i < layout.fields.length; i++) {
+                generator.writeFieldName(layout.columnNames[i]);
+                writeValue(generator, dimensionRow.get(layout.fields[i]));
+            }
+        }
+
+        writeMetricValues(generator, result);
+        generator.writeEndObject();
+    }
+
+    /**
+     * Writes a result row straight to a JSON generator and loads the dimension rows into the sidecar map.
+     * <p>
+     * The row written and the sidecar rows added are the same as those of
+     * {@link #buildResultRowWithSidecars(Result, Map)}, without building an intermediate map for the row. Each
+     * dimension row is projected into the sidecar map once; the rows already projected are tracked for the sidecar
+     * map being written, so writing the response again into another sidecar map loads that map in full.
+     *
+     * @param generator  The generator to write the row to
+     * @param result  The result to write
+     * @param sidecars  Map of sidecar data (dimension rows in the result)
+     *
+     * @throws IOException if the row cannot be written
+     */
+    public void writeResultRowWithSidecars(
+            JsonGenerator generator,
+            Result result,
+            Map<Dimension, Set<Map<DimensionField, String>>> sidecars
+    ) throws IOException {
+        if (sidecars != seenRowsSidecars) {
+            // A new write of the response, whose sidecar map holds none of the rows seen so far
+            seenRowsSidecars = sidecars;
+            seenRows.clear();
+        }
+
+        generator.writeStartObject();
+        generator.writeFieldName(DATE_TIME_FIELD_NAME);
+        generator.writeString(formatTimeStamp(result.getTimeStamp()));
+
+        for (Entry<DimensionColumn, DimensionRow> entry : result.getDimensionRows().entrySet()) {
+            Dimension dimension = entry.getKey().getDimension();
+            SidecarLayout layout = getSidecarLayout(dimension);
+            if (layout == null) {
+                // add sidecar only if at-least one field needs to be shown
+                continue;
+            }
+
+            // Project each dimension row instance once, the sidecar set takes care of equal rows from other instances
+            DimensionRow dimensionRow = entry.getValue();
+            Set<DimensionRow> seenDimensionRows = seenRows.computeIfAbsent(
+                    dimension,
+                    ignored -> Collections.newSetFromMap(new IdentityHashMap<>())
+            );
+            if (seenDimensionRows.add(dimensionRow)) {
+                Map<DimensionField, String> dimensionFieldToValueMap = new LinkedHashMap<>();
+                for (DimensionField dimensionField : layout.fields) {
+                    dimensionFieldToValueMap.put(dimensionField, dimensionRow.get(dimensionField));
+                }
+                sidecars.get(dimension).add(dimensionFieldToValueMap);
+            }
+
+            generator.writeFieldName(layout.dimensionName);
+            writeValue(generator, dimensionRow.get(dimension.getKey()));
+        }
+
+        writeMetricValues(generator, result);
+        generator.writeEndObject();
+    }
+
+    /**
+     * Fills an array with the values of a result row, in the order of the columns of a CSV response.
+     * <p>
+     * The columns are the timestamp, the requested fields of each requested dimension and then the requested metrics.
+     * Columns the result has no value for are set to null. The array can be reused from one row to the next.
+     *
+     * @param result  The result to read the values from
+     * @param row  The array to fill, with one entry per column
+     */
+    public void fillResultRow(Result result, Object[] row) {
+        Arrays.fill(row, null);
+        row[0] = formatTimeStamp(result.getTimeStamp());
+
+        for (Entry<DimensionColumn, DimensionRow> entry : result.getDimensionRows().entrySet()) {
+            Dimension dimension = entry.getKey().getDimension();
+            int offset = getCsvDimensionOffset(dimension);
+            if (offset == UNREQUESTED) {
+                continue;
+            }
+            DimensionFieldsLayout layout = getDimensionFieldsLayout(dimension);
+            DimensionRow dimensionRow = entry.getValue();
+            for (int i = 0; i < layout.fields.length; i++) {
+                row[offset + i] = dimensionRow.get(layout.fields[i]);
+            }
+        }
+
+        if (apiMetricColumnArray == null) {
+            initializeMetricColumns();
+        }
+        int metricOffset = row.length - apiMetricColumnArray.length;
+        for (int i = 0; i < apiMetricColumnArray.length; i++) {
+            row[metricOffset + i] = result.getMetricValue(apiMetricColumnArray[i]);
+        }
+    }
+
+    /**
+     * The number of rows the response writers write between flushes of the output, 0 if they only flush at the end.
+     *
+     * @return the number of rows per flush
+     */
+    public int getRowsPerFlush() {
+        return ROWS_PER_FLUSH;
+    }
+
     /**
      * Build a list of interval strings. Format of interval string: yyyy-MM-dd' 'HH:mm:ss/yyyy-MM-dd' 'HH:mm:ss
      *
@@ -280,6 +454,138 @@ public class ResponseData {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Format a timestamp for the response, reusing the previous string if the timestamp has not changed.
+     *
+     * @param timeStamp  The timestamp to format
+     *
+     * @return the formatted timestamp
+     */
+    private String formatTimeStamp(DateTime timeStamp) {
+        if (!timeStamp.equals(lastTimeStamp)) {
+            lastFormattedTimeStamp = timeStamp.toString(DateTimeFormatterFactory.getOutputFormatter());
+            lastTimeStamp = timeStamp;
+        }
+        return lastFormattedTimeStamp;
+    }
+
+    /**
+     * Write the requested metric values of a result as fields of the current object.
+     *
+     * @param generator  The generator to write to
+     * @param result  The result holding the metric values
+     *
+     * @throws IOException if the values cannot be written
+     */
+    private void writeMetricValues(JsonGenerator generator, Result result) throws IOException {
+        if (apiMetricColumnArray == null) {
+            initializeMetricColumns();
+        }
+        for (int i = 0; i < apiMetricColumnArray.length; i++) {
+            generator.writeFieldName(apiMetricColumnNames[i]);
+            writeValue(generator, result.getMetricValue(apiMetricColumnArray[i]));
+        }
+    }
+
+    /**
+     * Write a value, going straight to the generator for the common value types and to its codec for the others.
+     *
+     * @param generator  The generator to write to
+     * @param value  The value to write
+     *
+     * @throws IOException if the value cannot be written
+     */
+    private static void writeValue(JsonGenerator generator, Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof String) {
+            generator.writeString((String) value);
+        } else if (value instanceof BigDecimal) {
+            generator.writeNumber((BigDecimal) value);
+        } else if (value instanceof Boolean) {
+            generator.writeBoolean((Boolean) value);
+        } else {
+            generator.writeObject(value);
+        }
+    }
+
+    /**
+     * Capture the requested metric columns and their serialized names.
+     */
+    private void initializeMetricColumns() {
+        apiMetricColumnArray = apiMetricColumns.toArray(new MetricColumn[apiMetricColumns.size()]);
+        apiMetricColumnNames = new SerializableString[apiMetricColumnArray.length];
+        for (int i = 0; i < apiMetricColumnArray.length; i++) {
+            apiMetricColumnNames[i] = new SerializedString(apiMetricColumnArray[i].getName());
+        }
+    }
+
+    /**
+     * Get the requested fields of a dimension and their column names.
+     *
+     * @param dimension  The dimension
+     *
+     * @return the layout of the dimension, with no fields if none of them were requested
+     */
+    private DimensionFieldsLayout getDimensionFieldsLayout(Dimension dimension) {
+        DimensionFieldsLayout layout = dimensionFieldsLayouts.get(dimension);
+        if (layout == null) {
+            Set<DimensionField> requestedFields = requestedApiDimensionFields.get(dimension);
+            layout = new DimensionFieldsLayout(
+                    dimension,
+                    requestedFields == null ? Collections.emptySet() : requestedFields
+            );
+            dimensionFieldsLayouts.put(dimension, layout);
+        }
+        return layout;
+    }
+
+    /**
+     * Get the CSV column of the first requested field of a dimension.
+     *
+     * @param dimension  The dimension
+     *
+     * @return the column index, or -1 if the dimension was not requested
+     */
+    private int getCsvDimensionOffset(Dimension dimension) {
+        Integer offset = csvDimensionOffsets.get(dimension);
+        if (offset == null) {
+            // The timestamp is the first column
+            int column = 1;
+            offset = UNREQUESTED;
+            for (Map.Entry<Dimension, LinkedHashSet<DimensionField>> entry : requestedApiDimensionFields.entrySet()) {
+                if (entry.getKey().equals(dimension)) {
+                    offset = column;
+                    break;
+                }
+                column += entry.getValue().size();
+            }
+            csvDimensionOffsets.put(dimension, offset);
+        }
+        return offset;
+    }
+
+    /**
+     * Get the sidecar fields of a dimension.
+     *
+     * @param dimension  The dimension
+     *
+     * @return the sidecar layout of the dimension, or null if none of its fields were requested
+     */
+    private SidecarLayout getSidecarLayout(Dimension dimension) {
+        if (!sidecarLayouts.containsKey(dimension)) {
+            Set<DimensionField> requestedFields = requestedApiDimensionFields.get(dimension);
+            if (requestedFields == null || requestedFields.isEmpty()) {
+                sidecarLayouts.put(dimension, null);
+            } else {
+                // The key field is required
+                requestedFields.add(dimension.getKey());
+                sidecarLayouts.put(dimension, new SidecarLayout(dimension, requestedFields));
+            }
+        }
+        return sidecarLayouts.get(dimension);
+    }
+
     /**
      * Retrieve dimension column name from cache, or build it and cache it.
      *
@@ -298,4 +604,45 @@ public class ResponseData {
                 dimensionField, (field) -> dimension.getApiName() + "|" + field.getName()
         );
     }
+
+    /**
+     * The requested fields of a dimension along with their serialized column names.
+     */
+    private static final class DimensionFieldsLayout {
+        private final DimensionField[] fields;
+        private final SerializableString[] columnNames;
+
+        /**
+         * Constructor.
+         *
+         * @param dimension  The dimension
+         * @param requestedFields  The requested fields of the dimension
+         */
+        private DimensionFieldsLayout(Dimension dimension, Set<DimensionField> requestedFields) {
+            this.fields = requestedFields.toArray(new DimensionField[requestedFields.size()]);
+            this.columnNames = new SerializableString[fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                columnNames[i] = new SerializedString(getDimensionColumnName(dimension, fields[i]));
+            }
+        }
+    }
+
+    /**
+     * The serialized name of a dimension and the fields of its sidecar rows, which always include the key field.
+     */
+    private static final class SidecarLayout {
+        private final SerializableString dimensionName;
+        private final DimensionField[] fields;
+
+        /**
+         * Constructor.
+         *
+         * @param dimension  The dimension
+         * @param requestedFields  The requested fields of the dimension, including its key field
+         */
+        private SidecarLayout(Dimension dimension, Set<DimensionField> requestedFields) {
+            this.dimensionName = new SerializedString(dimension.getApiName());
+            this.fields = requestedFields.toArray(new DimensionField[requestedFields.size()]);
+        }
+    }
 }
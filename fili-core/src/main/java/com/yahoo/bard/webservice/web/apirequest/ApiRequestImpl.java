@@ -378,7 +378,7 @@ public abstract class ApiRequestImpl implements ApiRequest {
      * @return Set of jodatime interval objects.
      * @throws BadApiRequestException if the requested interval is not found.
      */
-    protected static List<Interval> generateIntervals(
+    public static List<Interval> generateIntervals(
             DateTime now,
             String apiIntervalQuery,
             Granularity granularity,
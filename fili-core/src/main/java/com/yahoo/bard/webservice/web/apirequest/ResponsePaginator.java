@@ -34,7 +34,9 @@ public class ResponsePaginator {
             UriInfo uriInfo,
             Pagination<?> pages
     ) {
-        link.getPage(pages).ifPresent(page -> addPageLink(responseBuilder, link, uriInfo, page));
+        link.getPage(pages).ifPresent(
+                page -> addPageLink(responseBuilder, link, link.withCursor(uriInfo.getRequestUriBuilder(), pages), page)
+        );
     }
 
     /**
@@ -51,7 +53,24 @@ public class ResponsePaginator {
             UriInfo uriInfo,
             int pageNumber
     ) {
-        UriBuilder uriBuilder = uriInfo.getRequestUriBuilder().replaceQueryParam("page", pageNumber);
+        addPageLink(responseBuilder, link, uriInfo.getRequestUriBuilder(), pageNumber);
+    }
+
+    /**
+     * Add page links to the header of the response builder.
+     *
+     * @param responseBuilder The builder for the http response
+     * @param link  The type of the link to add.
+     * @param uriBuilder  The builder of the link, holding the query parameters of the request
+     * @param pageNumber  Number of the page to add the link for.
+     */
+    protected static void addPageLink(
+            Response.ResponseBuilder responseBuilder,
+            PaginationLink link,
+            UriBuilder uriBuilder,
+            int pageNumber
+    ) {
+        uriBuilder.replaceQueryParam("page", pageNumber);
         responseBuilder.header(HttpHeaders.LINK, Link.fromUriBuilder(uriBuilder).rel(link.getHeaderName()).build());
     }
 
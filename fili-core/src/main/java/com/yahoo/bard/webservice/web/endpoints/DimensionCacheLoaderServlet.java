@@ -300,7 +300,9 @@ public class DimensionCacheLoaderServlet {
                     // It didn't exist before, so add it directly
                     dimensionRows.add(newRow);
                 } else {
-                    // The row existed before, so do an update on the existing row's data
+                    // The row existed before, so do an update on a copy of the existing row's data, since the
+                    // dimension may share the row it found with other readers
+                    oldRow = new DimensionRow(key, oldRow);
                     for (DimensionField field : dimension.getDimensionFields()) {
                         // only overwrite if the field was in the original JSON
                         if (fieldnameValueMap.containsKey(field.getName())) {
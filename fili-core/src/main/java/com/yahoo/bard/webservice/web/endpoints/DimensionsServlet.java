@@ -21,6 +21,7 @@ import com.yahoo.bard.webservice.web.ResponseFormatResolver;
 import com.yahoo.bard.webservice.web.apirequest.DimensionsApiRequest;
 import com.yahoo.bard.webservice.web.apirequest.DimensionsApiRequestImpl;
 import com.yahoo.bard.webservice.web.apirequest.ResponsePaginator;
+import com.yahoo.bard.webservice.web.util.PaginationLink;
 import com.yahoo.bard.webservice.web.util.PaginationParameters;
 
 import com.codahale.metrics.annotation.Timed;
@@ -228,6 +229,7 @@ public class DimensionsServlet extends EndpointServlet {
      * @param filterQuery  The filters
      * @param page  The page number
      * @param perPage  The number of rows per page
+     * @param cursor  The opaque cursor of the page, from the link to the next page
      * @param format  The format of the response
      * @param uriInfo The injected UriInfo
      * @param containerRequestContext The injected request context
@@ -259,6 +261,7 @@ public class DimensionsServlet extends EndpointServlet {
             @QueryParam("filters") String filterQuery,
             @DefaultValue("") @NotNull @QueryParam("perPage") String perPage,
             @DefaultValue("") @NotNull @QueryParam("page") String page,
+            @QueryParam(PaginationLink.CURSOR) String cursor,
             @QueryParam("format") String format,
             @Context final UriInfo uriInfo,
             @Context final ContainerRequestContext containerRequestContext
@@ -286,7 +289,8 @@ public class DimensionsServlet extends EndpointServlet {
             SearchProvider searchProvider = apiRequest.getDimension().getSearchProvider();
             PaginationParameters paginationParameters = apiRequest
                     .getPaginationParameters()
-                    .orElse(apiRequest.getDefaultPagination());
+                    .orElse(apiRequest.getDefaultPagination())
+                    .withCursor(cursor);
 
             Pagination<DimensionRow> pagedRows = apiRequest.getFilters().isEmpty() ?
                     searchProvider.findAllDimensionRowsPaged(paginationParameters) :
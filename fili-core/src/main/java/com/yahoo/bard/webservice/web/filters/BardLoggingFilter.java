@@ -115,28 +115,6 @@ public class BardLoggingFilter implements ContainerRequestFilter, ContainerRespo
         throws IOException {
         appendRequestId(request.getHeaders().getFirst(X_REQUEST_ID_HEADER));
         RequestLog.startTiming(this);
-        StringBuilder debugMsgBuilder = new StringBuilder();
-
-        debugMsgBuilder.append("\tRequest: ").append(request.getMethod());
-        debugMsgBuilder.append("\tlength=").append(request.getProperty(PROPERTY_REQ_LEN)).append("\t");
-        debugMsgBuilder.append(renderUri(request.getUriInfo().getRequestUri())).append("\t");
-
-        debugMsgBuilder.append("Response: ").append(response.getStatus()).append("\t");
-        debugMsgBuilder.append(response.getStatusInfo()).append("\t");
-
-        Long requestStartTime = (Long) request.getProperty(PROPERTY_NANOS);
-        if (requestStartTime != null) {
-            debugMsgBuilder.append((System.nanoTime() - requestStartTime) / MILLISECONDS_PER_NANOSECOND);
-        }
-        debugMsgBuilder.append(" ms\t");
-
-        if (request.getSecurityContext().getUserPrincipal() != null) {
-            String user = request.getSecurityContext().getUserPrincipal().getName();
-            debugMsgBuilder.append("User=").append(user).append("\t");
-        }
-
-        appendStringHeaders(debugMsgBuilder, "> ", request.getHeaders().entrySet());
-        appendObjectHeaders(debugMsgBuilder, "< ", response.getHeaders().entrySet());
 
         Response.StatusType status = response.getStatusInfo();
         String msg = "Successful request";
@@ -156,9 +134,11 @@ public class BardLoggingFilter implements ContainerRequestFilter, ContainerRespo
             response.setEntityStream(stream);
             request.setProperty(PROPERTY_OUTPUT_STREAM, stream);
         } else {
-            debugMsgBuilder.append("length=").append(response.getLength()).append("\t");
+            // The debug message renders every header, so it is only built when it will be logged
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(buildDebugMessage(request, response));
+            }
             Observable.just((long) response.getLength()).subscribe(responseLengthObserver);
-            LOG.debug(debugMsgBuilder.toString());
             RequestLog.stopTiming(this);
             RequestLog.stopTiming(TOTAL_TIMER);
             RequestLog.log();
@@ -184,6 +164,57 @@ public class BardLoggingFilter implements ContainerRequestFilter, ContainerRespo
      */
     @Override
     public void filter(ClientRequestContext request, ClientResponseContext response) throws IOException {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(buildDebugMessage(request, response));
+        }
+        RequestLog.stopTiming(CLIENT_TOTAL_TIMER);
+    }
+
+    /**
+     * Render the method, status, timing and headers of a container request and its response.
+     *
+     * @param request  Request to render
+     * @param response  Response to render
+     *
+     * @return the debug message of the request
+     */
+    private String buildDebugMessage(ContainerRequestContext request, ContainerResponseContext response) {
+        StringBuilder debugMsgBuilder = new StringBuilder();
+
+        debugMsgBuilder.append("\tRequest: ").append(request.getMethod());
+        debugMsgBuilder.append("\tlength=").append(request.getProperty(PROPERTY_REQ_LEN)).append("\t");
+        debugMsgBuilder.append(renderUri(request.getUriInfo().getRequestUri())).append("\t");
+
+        debugMsgBuilder.append("Response: ").append(response.getStatus()).append("\t");
+        debugMsgBuilder.append(response.getStatusInfo()).append("\t");
+
+        Long requestStartTime = (Long) request.getProperty(PROPERTY_NANOS);
+        if (requestStartTime != null) {
+            debugMsgBuilder.append((System.nanoTime() - requestStartTime) / MILLISECONDS_PER_NANOSECOND);
+        }
+        debugMsgBuilder.append(" ms\t");
+
+        if (request.getSecurityContext().getUserPrincipal() != null) {
+            String user = request.getSecurityContext().getUserPrincipal().getName();
+            debugMsgBuilder.append("User=").append(user).append("\t");
+        }
+
+        appendStringHeaders(debugMsgBuilder, "> ", request.getHeaders().entrySet());
+        appendObjectHeaders(debugMsgBuilder, "< ", response.getHeaders().entrySet());
+
+        debugMsgBuilder.append("length=").append(response.getLength()).append("\t");
+        return debugMsgBuilder.toString();
+    }
+
+    /**
+     * Render the method, uri, headers, status and timing of a client request and its response.
+     *
+     * @param request  Request to render
+     * @param response  Response to render
+     *
+     * @return the debug message of the client request
+     */
+    private String buildDebugMessage(ClientRequestContext request, ClientResponseContext response) {
         StringBuilder debugMsgBuilder = new StringBuilder();
 
         debugMsgBuilder.append("ClientRequest: ").append(request.getMethod()).append("\t");
@@ -200,9 +231,7 @@ public class BardLoggingFilter implements ContainerRequestFilter, ContainerRespo
                     .append((System.nanoTime() - requestStartTime) / MILLISECONDS_PER_NANOSECOND)
                     .append(" ms\t");
         }
-
-        LOG.debug(debugMsgBuilder.toString());
-        RequestLog.stopTiming(CLIENT_TOTAL_TIMER);
+        return debugMsgBuilder.toString();
     }
 
     /**
@@ -2,9 +2,11 @@
 // Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
 package com.yahoo.bard.webservice.web.handlers;
 
+import com.yahoo.bard.webservice.config.BardFeatureFlag;
 import com.yahoo.bard.webservice.druid.client.DruidWebService;
 import com.yahoo.bard.webservice.druid.client.FailureCallback;
 import com.yahoo.bard.webservice.druid.client.HttpErrorCallback;
+import com.yahoo.bard.webservice.druid.client.StreamingSuccessCallback;
 import com.yahoo.bard.webservice.druid.client.SuccessCallback;
 import com.yahoo.bard.webservice.druid.model.query.DruidAggregationQuery;
 import com.yahoo.bard.webservice.logging.RequestLog;
@@ -12,7 +14,9 @@ import com.yahoo.bard.webservice.logging.blocks.BardQueryInfo;
 import com.yahoo.bard.webservice.web.apirequest.DataApiRequest;
 import com.yahoo.bard.webservice.web.responseprocessors.LoggingContext;
 import com.yahoo.bard.webservice.web.responseprocessors.ResponseProcessor;
+import com.yahoo.bard.webservice.web.responseprocessors.StreamingResponseProcessor;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -43,17 +47,46 @@ public class AsyncWebServiceRequestHandler extends BaseDataRequestHandler {
             final DruidAggregationQuery<?> druidQuery,
             final ResponseProcessor response
     ) {
-        SuccessCallback success = new SuccessCallback() {
-            @Override
-            public void invoke(JsonNode rootNode) {
-                response.processResponse(rootNode, druidQuery, new LoggingContext(RequestLog.copy()));
-            }
-        };
+        SuccessCallback success = BardFeatureFlag.STREAMING_DRUID_RESPONSE.isOn()
+                && response instanceof StreamingResponseProcessor
+                ? buildStreamingSuccessCallback((StreamingResponseProcessor) response, druidQuery)
+                : new SuccessCallback() {
+                    @Override
+                    public void invoke(JsonNode rootNode) {
+                        response.processResponse(rootNode, druidQuery, new LoggingContext(RequestLog.copy()));
+                    }
+                };
         HttpErrorCallback error = response.getErrorCallback(druidQuery);
         FailureCallback failure = response.getFailureCallback(druidQuery);
 
+        // A request refused by a speculative weight check stops sending the queries it has left, and cancels the others
+        context.addDruidQuery(druidQuery);
+        if (context.isDruidQueriesAbandoned()) {
+            return true;
+        }
+
         BardQueryInfo.getBardQueryInfo().incrementCountFactHits();
         druidWebService.postDruidQuery(context, success, error, failure, druidQuery);
         return true;
     }
+
+    /**
+     * Build a success callback which hands the response to the processor as a stream of JSON tokens.
+     *
+     * @param response  The processor which builds the response from the token stream
+     * @param druidQuery  The query whose response is being processed
+     *
+     * @return the streaming success callback
+     */
+    protected SuccessCallback buildStreamingSuccessCallback(
+            StreamingResponseProcessor response,
+            DruidAggregationQuery<?> druidQuery
+    ) {
+        return new StreamingSuccessCallback() {
+            @Override
+            public void invoke(JsonParser parser) {
+                response.processResponse(parser, druidQuery, new LoggingContext(RequestLog.copy()));
+            }
+        };
+    }
 }
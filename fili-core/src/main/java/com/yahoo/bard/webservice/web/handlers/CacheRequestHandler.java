@@ -7,10 +7,10 @@ import static com.yahoo.bard.webservice.web.handlers.workflow.DruidWorkflow.RESP
 
 import com.yahoo.bard.webservice.application.MetricRegistryFactory;
 import com.yahoo.bard.webservice.data.cache.DataCache;
+import com.yahoo.bard.webservice.data.cache.QueryFingerprinter;
 import com.yahoo.bard.webservice.druid.model.query.DruidAggregationQuery;
 import com.yahoo.bard.webservice.logging.RequestLog;
 import com.yahoo.bard.webservice.logging.blocks.BardQueryInfo;
-import com.yahoo.bard.webservice.util.Utils;
 import com.yahoo.bard.webservice.web.apirequest.DataApiRequest;
 import com.yahoo.bard.webservice.web.responseprocessors.CachingResponseProcessor;
 import com.yahoo.bard.webservice.web.responseprocessors.LoggingContext;
@@ -19,7 +19,6 @@ import com.yahoo.bard.webservice.web.responseprocessors.ResponseProcessor;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.slf4j.Logger;
@@ -45,6 +44,7 @@ public class CacheRequestHandler extends BaseDataRequestHandler {
 
     protected final @NotNull DataRequestHandler next;
     protected final @NotNull DataCache<String> dataCache;
+    protected final @NotNull QueryFingerprinter fingerprinter;
 
     /**
      * Build a Cache request handler.
@@ -62,6 +62,7 @@ public class CacheRequestHandler extends BaseDataRequestHandler {
         super(mapper);
         this.next = next;
         this.dataCache = (DataCache<String>) dataCache;
+        this.fingerprinter = new QueryFingerprinter(mapper);
     }
 
     @Override
@@ -123,7 +124,7 @@ public class CacheRequestHandler extends BaseDataRequestHandler {
 
     /**
      * Construct the cache key.
-     * Current implementation includes all the fields of the druidQuery besides the context.
+     * Current implementation is a fingerprint of all the fields of the druidQuery besides the context.
      *
      * @param druidQuery  The druid query.
      *
@@ -131,8 +132,6 @@ public class CacheRequestHandler extends BaseDataRequestHandler {
      * @throws JsonProcessingException if the druid query cannot be mapped to Json
      */
     protected String getKey(DruidAggregationQuery<?> druidQuery) throws JsonProcessingException {
-        JsonNode root = mapper.valueToTree(druidQuery);
-        Utils.omitField(root, "context", mapper);
-        return writer.writeValueAsString(root);
+        return fingerprinter.fingerprint(druidQuery);
     }
 }
@@ -8,12 +8,12 @@ import static com.yahoo.bard.webservice.web.handlers.workflow.DruidWorkflow.RESP
 
 import com.yahoo.bard.webservice.application.MetricRegistryFactory;
 import com.yahoo.bard.webservice.data.cache.DataCache;
+import com.yahoo.bard.webservice.data.cache.QueryFingerprinter;
 import com.yahoo.bard.webservice.data.cache.TupleDataCache;
 import com.yahoo.bard.webservice.druid.model.query.DruidAggregationQuery;
 import com.yahoo.bard.webservice.logging.RequestLog;
 import com.yahoo.bard.webservice.logging.blocks.BardQueryInfo;
 import com.yahoo.bard.webservice.metadata.QuerySigningService;
-import com.yahoo.bard.webservice.util.Utils;
 import com.yahoo.bard.webservice.web.apirequest.DataApiRequest;
 import com.yahoo.bard.webservice.web.responseprocessors.CacheV2ResponseProcessor;
 import com.yahoo.bard.webservice.web.responseprocessors.LoggingContext;
@@ -22,7 +22,6 @@ import com.yahoo.bard.webservice.web.responseprocessors.ResponseProcessor;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.slf4j.Logger;
@@ -30,6 +29,8 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Predicate;
 
 import javax.validation.constraints.NotNull;
 
@@ -51,6 +52,7 @@ public class CacheV2RequestHandler extends BaseDataRequestHandler {
     protected final @NotNull DataRequestHandler next;
     protected final @NotNull TupleDataCache<String, Long, String> dataCache;
     protected final @NotNull QuerySigningService<Long> querySigningService;
+    protected final @NotNull QueryFingerprinter fingerprinter;
 
     /**
      * Build a Cache request handler.
@@ -71,6 +73,7 @@ public class CacheV2RequestHandler extends BaseDataRequestHandler {
         this.next = next;
         this.dataCache = (TupleDataCache<String, Long, String>) dataCache;
         this.querySigningService = (QuerySigningService<Long>) querySigningService;
+        this.fingerprinter = new QueryFingerprinter(mapper);
     }
 
     @Override
@@ -87,17 +90,16 @@ public class CacheV2RequestHandler extends BaseDataRequestHandler {
             cacheKey = getKey(druidQuery);
 
             if (context.isReadCache()) {
-                final TupleDataCache.DataEntry<String, Long, String> cacheEntry = dataCache.get(cacheKey);
+                // Make sure that if the optional return value is empty, the check always evaluates to false
+                // Metadata type needs to be int.
+                Optional<Long> segmentSetId = querySigningService.getSegmentSetId(druidQuery);
+                Predicate<Long> isValid = meta -> segmentSetId.map(id -> Objects.equals(meta, id)).orElse(false);
+
+                final TupleDataCache.DataEntry<String, Long, String> cacheEntry = dataCache.get(cacheKey, isValid);
                 CACHE_REQUESTS.mark(1);
 
                 if (cacheEntry != null) {
-                    // Make sure that if the optional return value is empty, the statement always evaluates to false
-                    // Metadata type needs to be int.
-                    if (
-                            querySigningService.getSegmentSetId(druidQuery)
-                                    .map(id -> Objects.equals(cacheEntry.getMeta(), id))
-                                    .orElse(false)
-                    ) {
+                    if (isValid.test(cacheEntry.getMeta())) {
                         try {
                             if (context.getNumberOfOutgoing().decrementAndGet() == 0) {
                                 RequestLog.stopTiming(REQUEST_WORKFLOW_TIMER);
@@ -147,7 +149,7 @@ public class CacheV2RequestHandler extends BaseDataRequestHandler {
 
     /**
      * Construct the cache key.
-     * Current implementation includes all the fields of the druidQuery besides the context.
+     * Current implementation is a fingerprint of all the fields of the druidQuery besides the context.
      *
      * @param druidQuery  The druid query.
      *
@@ -155,8 +157,6 @@ public class CacheV2RequestHandler extends BaseDataRequestHandler {
      * @throws JsonProcessingException if the druid query cannot be serialized to JSON
      */
     protected String getKey(DruidAggregationQuery<?> druidQuery) throws JsonProcessingException {
-        JsonNode root = mapper.valueToTree(druidQuery);
-        Utils.omitField(root, "context", mapper);
-        return writer.writeValueAsString(root);
+        return fingerprinter.fingerprint(druidQuery);
     }
 }
@@ -6,11 +6,11 @@ import static com.yahoo.bard.webservice.web.handlers.workflow.DruidWorkflow.REQU
 import static com.yahoo.bard.webservice.web.handlers.workflow.DruidWorkflow.RESPONSE_WORKFLOW_TIMER;
 
 import com.yahoo.bard.webservice.application.MetricRegistryFactory;
+import com.yahoo.bard.webservice.data.cache.QueryFingerprinter;
 import com.yahoo.bard.webservice.data.cache.TupleDataCache;
 import com.yahoo.bard.webservice.druid.model.query.DruidAggregationQuery;
 import com.yahoo.bard.webservice.logging.RequestLog;
 import com.yahoo.bard.webservice.logging.blocks.BardQueryInfo;
-import com.yahoo.bard.webservice.util.Utils;
 import com.yahoo.bard.webservice.web.apirequest.DataApiRequest;
 import com.yahoo.bard.webservice.web.responseprocessors.DruidJsonRequestContentKeys;
 import com.yahoo.bard.webservice.web.responseprocessors.DruidJsonResponseContentKeys;
@@ -20,7 +20,6 @@ import com.yahoo.bard.webservice.web.responseprocessors.ResponseProcessor;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.slf4j.Logger;
@@ -45,6 +44,7 @@ public class EtagCacheRequestHandler extends BaseDataRequestHandler {
 
     protected final DataRequestHandler next;
     protected final TupleDataCache<String, String, String> dataCache;
+    protected final @NotNull QueryFingerprinter fingerprinter;
 
     /**
      * Build a Cache request handler.
@@ -61,6 +61,7 @@ public class EtagCacheRequestHandler extends BaseDataRequestHandler {
         super(mapper);
         this.next = next;
         this.dataCache = dataCache;
+        this.fingerprinter = new QueryFingerprinter(mapper);
     }
 
     @Override
@@ -125,7 +126,7 @@ public class EtagCacheRequestHandler extends BaseDataRequestHandler {
 
     /**
      * Construct the cache key.
-     * Current implementation includes all the fields of the druidQuery besides the context.
+     * Current implementation is a fingerprint of all the fields of the druidQuery besides the context.
      *
      * @param druidQuery  The druid query.
      *
@@ -133,8 +134,6 @@ public class EtagCacheRequestHandler extends BaseDataRequestHandler {
      * @throws JsonProcessingException if the druid query cannot be serialized to JSON
      */
     private String getKey(DruidAggregationQuery<?> druidQuery) throws JsonProcessingException {
-        JsonNode root = mapper.valueToTree(druidQuery);
-        Utils.omitField(root, "context", mapper);
-        return writer.writeValueAsString(root);
+        return fingerprinter.fingerprint(druidQuery);
     }
 }
@@ -0,0 +1,290 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.web.handlers;
+
+import static com.yahoo.bard.webservice.config.BardFeatureFlag.CACHE_PARTIAL_DATA;
+import static com.yahoo.bard.webservice.web.handlers.PartialDataRequestHandler.getPartialIntervalsWithDefault;
+import static com.yahoo.bard.webservice.web.handlers.VolatileDataRequestHandler.getVolatileIntervalsWithDefault;
+import static com.yahoo.bard.webservice.web.handlers.workflow.DruidWorkflow.REQUEST_WORKFLOW_TIMER;
+import static com.yahoo.bard.webservice.web.handlers.workflow.DruidWorkflow.RESPONSE_WORKFLOW_TIMER;
+
+import com.yahoo.bard.webservice.application.MetricRegistryFactory;
+import com.yahoo.bard.webservice.data.cache.DataCache;
+import com.yahoo.bard.webservice.data.cache.QueryFingerprinter;
+import com.yahoo.bard.webservice.data.cache.TupleDataCache;
+import com.yahoo.bard.webservice.data.time.AllGranularity;
+import com.yahoo.bard.webservice.druid.model.query.DruidAggregationQuery;
+import com.yahoo.bard.webservice.druid.model.query.GroupByQuery;
+import com.yahoo.bard.webservice.druid.model.query.LookbackQuery;
+import com.yahoo.bard.webservice.logging.RequestLog;
+import com.yahoo.bard.webservice.logging.blocks.BardQueryInfo;
+import com.yahoo.bard.webservice.metadata.QuerySigningService;
+import com.yahoo.bard.webservice.util.IntervalUtils;
+import com.yahoo.bard.webservice.util.SimplifiedIntervalList;
+import com.yahoo.bard.webservice.web.apirequest.DataApiRequest;
+import com.yahoo.bard.webservice.web.responseprocessors.IntervalSlicedCacheResponseProcessor;
+import com.yahoo.bard.webservice.web.responseprocessors.IntervalSlicedCacheResponseProcessor.Bucket;
+import com.yahoo.bard.webservice.web.responseprocessors.LoggingContext;
+import com.yahoo.bard.webservice.web.responseprocessors.ResponseProcessor;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+
+import org.joda.time.Interval;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * Request handler which caches the response of a query bucket by bucket, so a query can be partly answered from the
+ * cache.
+ * <p>
+ * The query is sliced into its time buckets, and each bucket is looked up under the key and segment set id of the
+ * query narrowed to that bucket, and the buckets are all read from the cache in one bulk read. As by the
+ * {@link CacheV2RequestHandler}, volatile buckets and buckets missing data are only cached when
+ * {@code bard__cache_partial_data} is on, and volatile buckets are otherwise always fetched. If every bucket is cached
+ * the response is built from the cache alone, otherwise the query sent on is narrowed to the buckets which were not
+ * cached and the response processor merges the cached buckets back in.
+ * <p>
+ * Queries whose buckets cannot be answered on their own, such as grouping queries with a limit, lookback queries and
+ * queries at the all grain, are cached as a whole, as by the {@link CacheV2RequestHandler}.
+ */
+public class IntervalSlicedCacheRequestHandler extends BaseDataRequestHandler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IntervalSlicedCacheRequestHandler.class);
+    private static final MetricRegistry REGISTRY = MetricRegistryFactory.getRegistry();
+    public static final Meter CACHE_BUCKET_HITS = REGISTRY.meter("queries.meter.cache.bucket_hits");
+    public static final Meter CACHE_BUCKET_MISSES = REGISTRY.meter("queries.meter.cache.bucket_misses");
+    public static final Meter CACHE_PARTIAL_HITS = REGISTRY.meter("queries.meter.cache.partial_hits");
+
+    protected final @NotNull DataRequestHandler next;
+    protected final @NotNull TupleDataCache<String, Long, String> dataCache;
+    protected final @NotNull QuerySigningService<Long> querySigningService;
+    protected final @NotNull QueryFingerprinter fingerprinter;
+    protected final @NotNull DataRequestHandler wholeQueryCache;
+
+    /**
+     * Build an interval sliced cache request handler.
+     *
+     * @param next  The next handler in the chain
+     * @param dataCache  The cache instance
+     * @param querySigningService The service to generate query signatures
+     * @param mapper  The mapper for all JSON processing
+     */
+    @SuppressWarnings("unchecked")
+    public IntervalSlicedCacheRequestHandler(
+            DataRequestHandler next,
+            @NotNull DataCache<?> dataCache,
+            QuerySigningService<?> querySigningService,
+            ObjectMapper mapper
+    ) {
+        super(mapper);
+        this.next = next;
+        this.dataCache = (TupleDataCache<String, Long, String>) dataCache;
+        this.querySigningService = (QuerySigningService<Long>) querySigningService;
+        this.fingerprinter = new QueryFingerprinter(mapper);
+        this.wholeQueryCache = new CacheV2RequestHandler(next, dataCache, querySigningService, mapper);
+    }
+
+    @Override
+    public boolean handleRequest(
+            final RequestContext context,
+            final DataApiRequest request,
+            final DruidAggregationQuery<?> druidQuery,
+            final ResponseProcessor response
+    ) {
+        if (!isSliceable(druidQuery)) {
+            return wholeQueryCache.handleRequest(context, request, druidQuery, response);
+        }
+
+        List<Bucket> buckets;
+        try {
+            buckets = buildBuckets(context, druidQuery, response);
+        } catch (Exception e) {
+            LOG.warn("Cache key cannot be built: ", e);
+            return next.handleRequest(context, request, druidQuery, response);
+        }
+        if (buckets.isEmpty()) {
+            return wholeQueryCache.handleRequest(context, request, druidQuery, response);
+        }
+
+        List<Interval> fetchedIntervals = buckets.stream()
+                .filter(bucket -> !bucket.isCached())
+                .map(Bucket::getInterval)
+                .collect(Collectors.toList());
+        int cachedBuckets = buckets.size() - fetchedIntervals.size();
+        if (context.isReadCache()) {
+            CacheV2RequestHandler.CACHE_REQUESTS.mark(1);
+            CACHE_BUCKET_HITS.mark(cachedBuckets);
+            CACHE_BUCKET_MISSES.mark(fetchedIntervals.size());
+        }
+
+        ResponseProcessor nextResponse = new IntervalSlicedCacheResponseProcessor(
+                response,
+                druidQuery,
+                buckets,
+                dataCache,
+                mapper
+        );
+
+        if (fetchedIntervals.isEmpty()) {
+            if (context.getNumberOfOutgoing().decrementAndGet() == 0) {
+                RequestLog.stopTiming(REQUEST_WORKFLOW_TIMER);
+            }
+
+            if (context.getNumberOfIncoming().decrementAndGet() == 0) {
+                RequestLog.startTiming(RESPONSE_WORKFLOW_TIMER);
+            }
+            CacheV2RequestHandler.CACHE_HITS.mark(1);
+            BardQueryInfo.getBardQueryInfo().incrementCountCacheHits();
+            RequestLog logCtx = RequestLog.dump();
+            nextResponse.processResponse(mapper.createArrayNode(), druidQuery, new LoggingContext(logCtx));
+            return true;
+        }
+
+        if (context.isReadCache()) {
+            CacheV2RequestHandler.CACHE_MISSES.mark(1);
+            if (cachedBuckets > 0) {
+                CACHE_PARTIAL_HITS.mark(1);
+            }
+        }
+
+        DruidAggregationQuery<?> fetchedQuery = cachedBuckets == 0
+                ? druidQuery
+                : druidQuery.withAllIntervals(new SimplifiedIntervalList(fetchedIntervals));
+        return next.handleRequest(context, request, fetchedQuery, nextResponse);
+    }
+
+    /**
+     * Whether each bucket of a query can be answered on its own.
+     *
+     * @param druidQuery  The query
+     *
+     * @return true if the response of the query is the concatenation of the responses of its buckets
+     */
+    protected boolean isSliceable(DruidAggregationQuery<?> druidQuery) {
+        if (druidQuery.getGranularity() instanceof AllGranularity || druidQuery instanceof LookbackQuery) {
+            return false;
+        }
+        if (druidQuery instanceof GroupByQuery) {
+            GroupByQuery groupByQuery = (GroupByQuery) druidQuery;
+            return groupByQuery.getLimitSpec() == null || !groupByQuery.getLimitSpec().getLimit().isPresent();
+        }
+        return true;
+    }
+
+    /**
+     * Slice a query into its buckets and read the cached ones, all in one read of the cache.
+     *
+     * @param context  The context for the request
+     * @param druidQuery  The query
+     * @param response  The response processor, whose context holds the volatile and missing intervals
+     *
+     * @return the buckets of the query, in order
+     * @throws JsonProcessingException if the cache key of a bucket cannot be built
+     */
+    private List<Bucket> buildBuckets(
+            RequestContext context,
+            DruidAggregationQuery<?> druidQuery,
+            ResponseProcessor response
+    ) throws JsonProcessingException {
+        SimplifiedIntervalList volatileIntervals = getVolatileIntervalsWithDefault(response.getResponseContext());
+        SimplifiedIntervalList missingIntervals = getPartialIntervalsWithDefault(response.getResponseContext());
+
+        List<Interval> intervals = new ArrayList<>(IntervalUtils.getSlicedIntervals(
+                druidQuery.getIntervals(),
+                druidQuery.getGranularity()
+        ).keySet());
+        List<String> cacheKeys = new ArrayList<>(intervals.size());
+        List<Long> segmentSetIds = new ArrayList<>(intervals.size());
+        List<Boolean> cacheables = new ArrayList<>(intervals.size());
+        // The segment set id each readable bucket must have been cached under
+        Map<String, Long> readSegmentSetIds = new LinkedHashMap<>();
+        for (Interval interval : intervals) {
+            DruidAggregationQuery<?> bucketQuery = druidQuery.withAllIntervals(Collections.singletonList(interval));
+            String cacheKey = fingerprinter.fingerprint(bucketQuery);
+            Long segmentSetId = querySigningService.getSegmentSetId(bucketQuery).orElse(null);
+
+            // Volatile buckets may still change without their segments changing, so unless partial data is cached they
+            // are neither read nor written
+            boolean isVolatile = overlaps(volatileIntervals, interval);
+            boolean readable = CACHE_PARTIAL_DATA.isOn() || !isVolatile;
+            if (context.isReadCache() && readable && segmentSetId != null) {
+                readSegmentSetIds.put(cacheKey, segmentSetId);
+            }
+
+            cacheKeys.add(cacheKey);
+            segmentSetIds.add(segmentSetId);
+            cacheables.add(CACHE_PARTIAL_DATA.isOn() || (!isVolatile && !overlaps(missingIntervals, interval)));
+        }
+
+        Map<String, TupleDataCache.DataEntry<String, Long, String>> cacheEntries = readSegmentSetIds.isEmpty()
+                ? Collections.emptyMap()
+                : dataCache.getAll(
+                        readSegmentSetIds.keySet(),
+                        (cacheKey, meta) -> Objects.equals(meta, readSegmentSetIds.get(cacheKey))
+                );
+
+        List<Bucket> buckets = new ArrayList<>(intervals.size());
+        for (int i = 0; i < intervals.size(); i++) {
+            String cacheKey = cacheKeys.get(i);
+            ArrayNode cachedRows = readSegmentSetIds.containsKey(cacheKey)
+                    ? readBucket(cacheEntries.get(cacheKey), segmentSetIds.get(i))
+                    : null;
+            buckets.add(new Bucket(intervals.get(i), cacheKey, segmentSetIds.get(i), cachedRows, cacheables.get(i)));
+        }
+        return buckets;
+    }
+
+    /**
+     * Read the rows of a bucket from its cache entry.
+     *
+     * @param cacheEntry  The cache entry of the bucket, or null if it has none
+     * @param segmentSetId  The segment set id the cached bucket must have been built from
+     *
+     * @return the cached rows, or null if the bucket is not validly cached
+     */
+    private ArrayNode readBucket(TupleDataCache.DataEntry<String, Long, String> cacheEntry, Long segmentSetId) {
+        if (cacheEntry == null) {
+            return null;
+        }
+        if (!Objects.equals(cacheEntry.getMeta(), segmentSetId)) {
+            LOG.debug("Cache entry present but invalid for bucket of query with id: {}", RequestLog.getId());
+            CacheV2RequestHandler.CACHE_POTENTIAL_HITS.mark(1);
+            return null;
+        }
+        try {
+            JsonNode rows = mapper.readTree(cacheEntry.getValue());
+            return rows.isArray() ? (ArrayNode) rows : null;
+        } catch (IOException e) {
+            LOG.warn("Error processing cached value: ", e);
+            return null;
+        }
+    }
+
+    /**
+     * Whether any of a list of intervals overlaps an interval.
+     *
+     * @param intervals  The intervals to check
+     * @param interval  The interval to check against
+     *
+     * @return true if any of the intervals overlaps the interval
+     */
+    private static boolean overlaps(SimplifiedIntervalList intervals, Interval interval) {
+        return intervals.stream().anyMatch(interval::overlaps);
+    }
+}
@@ -2,8 +2,12 @@
 // Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
 package com.yahoo.bard.webservice.web.handlers;
 
+import com.yahoo.bard.webservice.druid.model.query.DruidQuery;
 import com.yahoo.bard.webservice.util.Utils;
 
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 import javax.ws.rs.container.ContainerRequestContext;
@@ -23,6 +27,10 @@ public class RequestContext {
     protected final AtomicLong numberOfIncoming = new AtomicLong(1);
     protected final AtomicLong numberOfOutgoing = new AtomicLong(1);
 
+    // The ids the druid queries of the request are sent with, which are only known once they are sent
+    protected final Set<String> druidQueryIds = ConcurrentHashMap.newKeySet();
+    protected volatile boolean druidQueriesAbandoned = false;
+
     /**
      * Build a context for a request.
      *
@@ -78,4 +86,34 @@ public class RequestContext {
     public UriBuilder getUriBuilder() {
         return containerRequestContext.getUriInfo().getRequestUriBuilder();
     }
+
+    /**
+     * Record a druid query about to be sent for this request, so that it can be cancelled if the request is abandoned.
+     * <p>
+     * Senders must check {@link #isDruidQueriesAbandoned()} after recording a query, and not send it if it is.
+     *
+     * @param druidQuery  The query about to be sent
+     */
+    public void addDruidQuery(DruidQuery<?> druidQuery) {
+        druidQueryIds.add(druidQuery.getContext().getQueryId());
+    }
+
+    /**
+     * Whether the druid queries of this request were abandoned, in which case no more of them are to be sent.
+     *
+     * @return true if the druid queries of this request were abandoned
+     */
+    public boolean isDruidQueriesAbandoned() {
+        return druidQueriesAbandoned;
+    }
+
+    /**
+     * Abandon the druid queries of this request, so no more of them are sent.
+     *
+     * @return the ids of the druid queries recorded so far, which may still be running
+     */
+    public Set<String> abandonDruidQueries() {
+        druidQueriesAbandoned = true;
+        return new HashSet<>(druidQueryIds);
+    }
 }
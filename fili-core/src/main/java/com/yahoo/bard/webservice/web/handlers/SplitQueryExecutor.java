@@ -0,0 +1,180 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.web.handlers;
+
+import com.yahoo.bard.webservice.druid.model.query.DruidAggregationQuery;
+import com.yahoo.bard.webservice.logging.RequestLog;
+import com.yahoo.bard.webservice.web.apirequest.DataApiRequest;
+import com.yahoo.bard.webservice.web.responseprocessors.ResponseProcessor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends the sub-queries of a split query down the request handler chain, keeping at most a fixed number of them in
+ * flight at once.
+ * <p>
+ * The first sub-queries are sent from the request thread when the executor is started. Each time a sub-query
+ * completes another one is sent, until all of them have been sent. Sub-queries complete on the threads of the Druid
+ * client callbacks, so the later sub-queries are sent from a dispatcher instead, which keeps the rest of the handler
+ * chain off those threads and leaves their request logs alone. Sub-queries are sent in bucket order. Once the
+ * executor is stopped, for example because a sub-query failed, no more sub-queries are sent.
+ */
+public class SplitQueryExecutor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SplitQueryExecutor.class);
+
+    private final DataRequestHandler next;
+    private final RequestContext context;
+    private final DataApiRequest request;
+    private final List<DruidAggregationQuery<?>> queries;
+    // A request log of its own for each sub-query, since they are sent from different threads
+    private final RequestLog[] logCtxs;
+    private final int maxConcurrentQueries;
+    private final Executor dispatcher;
+
+    // Start time of each sub-query, in nanos, used to time the sub-queries
+    private final long[] dispatchTimes;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // Number of pending requests to send sub-queries, only the thread which raises it from 0 sends them
+    private final AtomicInteger dispatchRequests = new AtomicInteger();
+    // Index of the next sub-query to send, only changed by the thread sending sub-queries
+    private volatile int nextQuery;
+    private volatile boolean stopped;
+    private volatile ResponseProcessor response;
+
+    /**
+     * Constructor.
+     *
+     * @param next  The next handler in the chain, which each sub-query is sent to
+     * @param context  The context for the request
+     * @param request  The request being processed
+     * @param queries  The sub-queries, in bucket order
+     * @param logCtx  The request log copied for each sub-query, and restored before sending it
+     * @param maxConcurrentQueries  The maximum number of sub-queries in flight at once, 0 or less for no limit
+     * @param dispatcher  Runs the sending of the sub-queries which follow completed ones
+     */
+    public SplitQueryExecutor(
+            DataRequestHandler next,
+            RequestContext context,
+            DataApiRequest request,
+            List<DruidAggregationQuery<?>> queries,
+            RequestLog logCtx,
+            int maxConcurrentQueries,
+            Executor dispatcher
+    ) {
+        this.next = next;
+        this.context = context;
+        this.request = request;
+        this.queries = queries;
+        this.logCtxs = copyPerQuery(logCtx, queries.size());
+        this.maxConcurrentQueries = maxConcurrentQueries > 0 ? maxConcurrentQueries : queries.size();
+        this.dispatchTimes = new long[queries.size()];
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * Copy a request log once for each sub-query, leaving the request log of this thread as it was.
+     *
+     * @param logCtx  The request log to copy
+     * @param count  The number of sub-queries
+     *
+     * @return the copies of the request log, by sub-query index
+     */
+    private static RequestLog[] copyPerQuery(RequestLog logCtx, int count) {
+        RequestLog threadCtx = RequestLog.dump();
+        RequestLog[] copies = new RequestLog[count];
+        try {
+            RequestLog.restore(logCtx);
+            for (int i = 0; i < count; i++) {
+                copies[i] = RequestLog.copy();
+            }
+        } finally {
+            RequestLog.restore(threadCtx);
+        }
+        return copies;
+    }
+
+    /**
+     * Send the first sub-queries.
+     *
+     * @param response  The response processor which receives the response of every sub-query
+     */
+    public void start(ResponseProcessor response) {
+        this.response = response;
+        dispatch();
+    }
+
+    /**
+     * Record that a sub-query has completed, and have the dispatcher send the next sub-query if there is one.
+     *
+     * @param index  The index of the completed sub-query
+     */
+    public void splitCompleted(int index) {
+        long duration = System.nanoTime() - dispatchTimes[index];
+        SplitQueryRequestHandler.SPLIT_QUERY_TIMER.update(duration, TimeUnit.NANOSECONDS);
+        inFlight.decrementAndGet();
+        if (!stopped && nextQuery < queries.size()) {
+            dispatcher.execute(() -> {
+                RequestLog threadCtx = RequestLog.dump();
+                try {
+                    dispatch();
+                } finally {
+                    // Sending sub-queries rewrites the request log of this thread, so put its own back
+                    RequestLog.restore(threadCtx);
+                }
+            });
+        }
+    }
+
+    /**
+     * Stop sending sub-queries. Sub-queries already in flight are not affected.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Get the number of sub-queries sent so far.
+     *
+     * @return the number of sub-queries sent
+     */
+    public int getDispatchedCount() {
+        return nextQuery;
+    }
+
+    /**
+     * Send sub-queries until the concurrency limit is reached or all of them have been sent.
+     * <p>
+     * A sub-query may complete while it is being sent, for example when its response is cached, which asks for
+     * another sub-query to be sent. Such requests are counted and served by the loop of the thread already sending
+     * sub-queries rather than by recursing.
+     */
+    private void dispatch() {
+        if (dispatchRequests.getAndIncrement() != 0) {
+            return;
+        }
+        do {
+            while (!stopped && nextQuery < queries.size() && inFlight.get() < maxConcurrentQueries) {
+                inFlight.incrementAndGet();
+                int index = nextQuery++;
+                DruidAggregationQuery<?> query = queries.get(index);
+                dispatchTimes[index] = System.nanoTime();
+                try {
+                    RequestLog.restore(logCtxs[index]);
+                    logCtxs[index] = null;
+                    next.handleRequest(context, request, query, response);
+                } catch (RuntimeException e) {
+                    LOG.error("Unable to send split query {}", index, e);
+                    stop();
+                    response.getFailureCallback(query).invoke(e);
+                }
+            }
+        } while (dispatchRequests.decrementAndGet() != 0);
+    }
+}
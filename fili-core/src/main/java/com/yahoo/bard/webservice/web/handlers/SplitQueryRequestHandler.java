@@ -5,6 +5,8 @@ package com.yahoo.bard.webservice.web.handlers;
 import static com.yahoo.bard.webservice.web.ErrorMessageFormat.EMPTY_INTERVAL_FORMAT;
 
 import com.yahoo.bard.webservice.application.MetricRegistryFactory;
+import com.yahoo.bard.webservice.config.SystemConfig;
+import com.yahoo.bard.webservice.config.SystemConfigProvider;
 import com.yahoo.bard.webservice.data.time.AllGranularity;
 import com.yahoo.bard.webservice.druid.model.query.DruidAggregationQuery;
 import com.yahoo.bard.webservice.data.time.Granularity;
@@ -14,8 +16,11 @@ import com.yahoo.bard.webservice.web.apirequest.DataApiRequest;
 import com.yahoo.bard.webservice.web.responseprocessors.ResponseProcessor;
 import com.yahoo.bard.webservice.web.responseprocessors.SplitQueryResponseProcessor;
 
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import org.joda.time.Interval;
 import org.slf4j.Logger;
@@ -25,6 +30,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.validation.constraints.NotNull;
@@ -34,16 +41,30 @@ import javax.ws.rs.core.Response;
  * Request handler breaks a query up into smaller time grain queries for parallel processing.
  * <p>
  * It creates a common response processor which serves as an accumulator to receive all replies before delegating to the
- * result set processing.
+ * result set processing. The sub-queries are sent by a {@link SplitQueryExecutor}, which keeps at most
+ * {@code bard__split_query_max_concurrency} of them in flight at once, sending the later ones from a shared pool of
+ * dispatcher threads.
  */
 public class SplitQueryRequestHandler implements DataRequestHandler {
 
     private static final Logger LOG = LoggerFactory.getLogger(SplitQueryRequestHandler.class);
+    private static final SystemConfig SYSTEM_CONFIG = SystemConfigProvider.getInstance();
     private static final MetricRegistry REGISTRY = MetricRegistryFactory.getRegistry();
     public static final Meter SPLIT_QUERIES = REGISTRY.meter("queries.meter.split_queries.sub_queries");
     public static final Meter SPLITS = REGISTRY.meter("queries.meter.split_queries.splits");
+    public static final Histogram SPLIT_FAN_OUT = REGISTRY.histogram("queries.histogram.split_queries.fan_out");
+    public static final Timer SPLIT_QUERY_TIMER = REGISTRY.timer("queries.timer.split_queries.sub_query");
+
+    private static final int DEFAULT_MAX_CONCURRENT_SPLIT_QUERIES = 10;
+
+    // Sends the sub-queries which follow completed ones, off the threads of the Druid client callbacks
+    private static final Executor DISPATCHER = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("split-query-dispatcher-%d").setDaemon(true).build()
+    );
 
     protected final @NotNull DataRequestHandler next;
+    protected final int maxConcurrentSplitQueries;
+    protected final @NotNull Executor dispatcher;
 
     /**
      * Build a Split Query Request Handler.
@@ -51,7 +72,38 @@ public class SplitQueryRequestHandler implements DataRequestHandler {
      * @param next  The next handler in the chain
      */
     public SplitQueryRequestHandler(DataRequestHandler next) {
+        this(
+                next,
+                SYSTEM_CONFIG.getIntProperty(
+                        SYSTEM_CONFIG.getPackageVariableName("split_query_max_concurrency"),
+                        DEFAULT_MAX_CONCURRENT_SPLIT_QUERIES
+                )
+        );
+    }
+
+    /**
+     * Build a Split Query Request Handler.
+     *
+     * @param next  The next handler in the chain
+     * @param maxConcurrentSplitQueries  The maximum number of sub-queries of a query in flight at once, 0 or less for
+     * no limit
+     */
+    public SplitQueryRequestHandler(DataRequestHandler next, int maxConcurrentSplitQueries) {
+        this(next, maxConcurrentSplitQueries, DISPATCHER);
+    }
+
+    /**
+     * Build a Split Query Request Handler.
+     *
+     * @param next  The next handler in the chain
+     * @param maxConcurrentSplitQueries  The maximum number of sub-queries of a query in flight at once, 0 or less for
+     * no limit
+     * @param dispatcher  Runs the sending of the sub-queries which follow completed ones
+     */
+    public SplitQueryRequestHandler(DataRequestHandler next, int maxConcurrentSplitQueries, Executor dispatcher) {
         this.next = next;
+        this.maxConcurrentSplitQueries = maxConcurrentSplitQueries;
+        this.dispatcher = dispatcher;
     }
 
     @Override
@@ -107,20 +159,26 @@ public class SplitQueryRequestHandler implements DataRequestHandler {
         // Save RequestLog up to here
         final RequestLog logCtx = RequestLog.dump();
 
+        final SplitQueryExecutor executor = new SplitQueryExecutor(
+                next,
+                context,
+                request,
+                queries,
+                logCtx,
+                maxConcurrentSplitQueries,
+                dispatcher
+        );
+
         final SplitQueryResponseProcessor mergingResponse =
-                new SplitQueryResponseProcessor(response, request, druidQuery, expectedIntervals, logCtx);
+                new SplitQueryResponseProcessor(response, request, druidQuery, expectedIntervals, logCtx, executor);
 
         if (numberOfIntervals > 1) {
             SPLITS.mark(1);
             SPLIT_QUERIES.mark(numberOfIntervals);
+            SPLIT_FAN_OUT.update(numberOfIntervals);
         }
 
-        queries.stream().forEach(
-                q -> {
-                    RequestLog.restore(logCtx);
-                    next.handleRequest(context, request, q, mergingResponse);
-                }
-        );
+        executor.start(mergingResponse);
 
         return true;
     }
@@ -2,16 +2,19 @@
 // Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
 package com.yahoo.bard.webservice.web.handlers;
 
+import com.yahoo.bard.webservice.config.BardFeatureFlag;
 import com.yahoo.bard.webservice.druid.client.DruidWebService;
 import com.yahoo.bard.webservice.druid.client.FailureCallback;
 import com.yahoo.bard.webservice.druid.client.HttpErrorCallback;
 import com.yahoo.bard.webservice.druid.client.SuccessCallback;
 import com.yahoo.bard.webservice.druid.model.query.DruidAggregationQuery;
 import com.yahoo.bard.webservice.data.time.Granularity;
+import com.yahoo.bard.webservice.logging.RequestLog;
 import com.yahoo.bard.webservice.logging.blocks.BardQueryInfo;
 import com.yahoo.bard.webservice.web.apirequest.DataApiRequest;
 import com.yahoo.bard.webservice.web.ErrorMessageFormat;
 import com.yahoo.bard.webservice.web.responseprocessors.ResponseProcessor;
+import com.yahoo.bard.webservice.web.responseprocessors.SpeculativeWeightCheckResponseProcessor;
 import com.yahoo.bard.webservice.web.responseprocessors.WeightCheckResponseProcessor;
 import com.yahoo.bard.webservice.web.util.QueryWeightUtil;
 
@@ -32,6 +35,13 @@ import javax.validation.constraints.NotNull;
  * results.
  *     <li>If the cost is too high, return an error, otherwise subsequently submit the data request.
  * </ul>
+ * <p>
+ * With {@code bard__speculative_weight_check_enabled}, the data request is submitted at the same time as the weight
+ * check rather than after it. If the weight check refuses the request before the data request is answered, the druid
+ * queries sent for the data request are cancelled, those not sent yet are not sent, and the answer is dropped. The
+ * queries are found through {@link RequestContext#abandonDruidQueries()}, since splitting and slicing send them with
+ * ids of their own. Once the data request is answered, the outcome of its
+ * weight check is ignored. See {@link SpeculativeWeightCheckResponseProcessor}.
  */
 public class WeightCheckRequestHandler extends BaseDataRequestHandler {
     private static final Logger LOG = LoggerFactory.getLogger(WeightCheckRequestHandler.class);
@@ -84,6 +94,17 @@ public class WeightCheckRequestHandler extends BaseDataRequestHandler {
             LOG.warn("Weight Query json exception:", e);
         }
 
+        if (BardFeatureFlag.SPECULATIVE_WEIGHT_CHECK.isOn()) {
+            return handleSpeculatively(
+                    context,
+                    request,
+                    druidQuery,
+                    weightCheckResponse,
+                    weightEvaluationQuery,
+                    queryRowLimit
+            );
+        }
+
         final SuccessCallback weightQuerySuccess = buildSuccessCallback(
                 context,
                 request,
@@ -120,31 +141,13 @@ public class WeightCheckRequestHandler extends BaseDataRequestHandler {
             @Override
             public void invoke(JsonNode jsonResult) {
                 try {
-                    // The result will contain either one result reflecting the row count or
-                    // none if the request matches no rows.
                     LOG.debug("{}", writer.writeValueAsString(jsonResult));
 
-                    JsonNode row = jsonResult.get(0);
                     // If the weight limit query is empty or reports acceptable rows, run the full query
-                    if (row != null) {
-                        int rowCount = row.get("event").get("count").asInt();
-
-                        if (rowCount > queryRowLimit) {
-                            String reason = String.format(
-                                    ErrorMessageFormat.WEIGHT_CHECK_FAILED.logFormat(rowCount, queryRowLimit),
-                                    rowCount,
-                                    queryRowLimit
-                            );
-                            String description = ErrorMessageFormat.WEIGHT_CHECK_FAILED.format();
-
-                            LOG.debug(reason);
-                            response.getErrorCallback(druidQuery).dispatch(
-                                507, //  Insufficient Storage
-                                reason,
-                                description
-                            );
-                            return;
-                        }
+                    int rowCount = getRowCount(jsonResult);
+                    if (rowCount > queryRowLimit) {
+                        refuseOverweight(druidQuery, response, rowCount, queryRowLimit);
+                        return;
                     }
                     next.handleRequest(context, request, druidQuery, response);
                 } catch (Throwable e) {
@@ -154,4 +157,149 @@ public class WeightCheckRequestHandler extends BaseDataRequestHandler {
             }
         };
     }
+
+    /**
+     * Send the weight check and the data request together.
+     * <p>
+     * The data request is not sent if the weight check already refused it by the time the weight check is sent.
+     *
+     * @param context  The context data from the request processing chain
+     * @param request  The API request itself
+     * @param druidQuery  The query being processed
+     * @param response  the response handler
+     * @param weightEvaluationQuery  The query measuring the weight of the query being processed
+     * @param queryRowLimit  The number of aggregating lines allowed
+     *
+     * @return true if the request was handled
+     */
+    protected boolean handleSpeculatively(
+            final RequestContext context,
+            final DataApiRequest request,
+            final DruidAggregationQuery<?> druidQuery,
+            final ResponseProcessor response,
+            final DruidAggregationQuery<?> weightEvaluationQuery,
+            final long queryRowLimit
+    ) {
+        final SpeculativeWeightCheckResponseProcessor speculativeResponse =
+                new SpeculativeWeightCheckResponseProcessor(response);
+
+        // Sending the weight check hands the request log of this thread over to its callbacks
+        RequestLog logCtx = RequestLog.copy();
+        webService.postDruidQuery(
+                context,
+                buildSpeculativeSuccessCallback(context, druidQuery, response, speculativeResponse, queryRowLimit),
+                (statusCode, reason, responseBody) -> {
+                    if (speculativeResponse.refuse()) {
+                        cancel(context);
+                        response.getErrorCallback(druidQuery).invoke(statusCode, reason, responseBody);
+                    }
+                },
+                error -> {
+                    if (speculativeResponse.refuse()) {
+                        cancel(context);
+                        response.getFailureCallback(druidQuery).invoke(error);
+                    }
+                },
+                weightEvaluationQuery
+        );
+        if (speculativeResponse.isSettled()) {
+            return true;
+        }
+        RequestLog.restore(logCtx);
+        return next.handleRequest(context, request, druidQuery, speculativeResponse);
+    }
+
+    /**
+     * Build a callback which lets a query sent together with its weight check through, or refuses it with an HTTP
+     * INSUFFICIENT_STORAGE (507) status and cancels it, based on the cardinality measured by the weight check query.
+     *
+     * @param context  The context data from the request processing chain
+     * @param druidQuery  The query being processed
+     * @param response  the response handler
+     * @param speculativeResponse  The response handler of the query sent together with its weight check
+     * @param queryRowLimit  The number of aggregating lines allowed
+     *
+     * @return The callback handler for the weight request
+     */
+    protected SuccessCallback buildSpeculativeSuccessCallback(
+            final RequestContext context,
+            final DruidAggregationQuery<?> druidQuery,
+            final ResponseProcessor response,
+            final SpeculativeWeightCheckResponseProcessor speculativeResponse,
+            final long queryRowLimit
+    ) {
+        return new SuccessCallback() {
+            @Override
+            public void invoke(JsonNode jsonResult) {
+                try {
+                    int rowCount = getRowCount(jsonResult);
+                    if (rowCount <= queryRowLimit) {
+                        speculativeResponse.accept();
+                    } else if (speculativeResponse.refuse()) {
+                        cancel(context);
+                        refuseOverweight(druidQuery, response, rowCount, queryRowLimit);
+                    }
+                } catch (Throwable e) {
+                    LOG.info("Exception processing druid call in success", e);
+                    if (speculativeResponse.refuse()) {
+                        cancel(context);
+                        response.getFailureCallback(druidQuery).dispatch(e);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Get the number of rows measured by a weight check query.
+     *
+     * @param jsonResult  The result of the weight check query
+     *
+     * @return the row count, or 0 if the query matched no rows
+     */
+    protected int getRowCount(JsonNode jsonResult) {
+        // The result will contain either one result reflecting the row count or none if the request matches no rows.
+        JsonNode row = jsonResult.get(0);
+        return row == null ? 0 : row.get("event").get("count").asInt();
+    }
+
+    /**
+     * Refuse a request whose weight check measured too many rows, with an HTTP INSUFFICIENT_STORAGE (507) status.
+     *
+     * @param druidQuery  The query being processed
+     * @param response  the response handler
+     * @param rowCount  The number of rows measured by the weight check
+     * @param queryRowLimit  The number of aggregating lines allowed
+     */
+    private void refuseOverweight(
+            DruidAggregationQuery<?> druidQuery,
+            ResponseProcessor response,
+            int rowCount,
+            long queryRowLimit
+    ) {
+        String reason = String.format(
+                ErrorMessageFormat.WEIGHT_CHECK_FAILED.logFormat(rowCount, queryRowLimit),
+                rowCount,
+                queryRowLimit
+        );
+        String description = ErrorMessageFormat.WEIGHT_CHECK_FAILED.format();
+
+        LOG.debug(reason);
+        response.getErrorCallback(druidQuery).dispatch(
+                507, //  Insufficient Storage
+                reason,
+                description
+        );
+    }
+
+    /**
+     * Stop sending the druid queries of a request refused by its weight check, and cancel those already sent.
+     *
+     * @param context  The context data from the request processing chain
+     */
+    private void cancel(RequestContext context) {
+        for (String queryId : context.abandonDruidQueries()) {
+            webService.cancelDruidQuery(queryId);
+        }
+    }
 }
@@ -20,6 +20,7 @@ import com.yahoo.bard.webservice.web.handlers.DataRequestHandler;
 import com.yahoo.bard.webservice.web.handlers.DebugRequestHandler;
 import com.yahoo.bard.webservice.web.handlers.DruidPartialDataRequestHandler;
 import com.yahoo.bard.webservice.web.handlers.EtagCacheRequestHandler;
+import com.yahoo.bard.webservice.web.handlers.IntervalSlicedCacheRequestHandler;
 import com.yahoo.bard.webservice.web.handlers.PaginationRequestHandler;
 import com.yahoo.bard.webservice.web.handlers.PartialDataRequestHandler;
 import com.yahoo.bard.webservice.web.handlers.SplitQueryRequestHandler;
@@ -114,7 +115,9 @@ public class DruidWorkflow implements RequestWorkflowProvider {
         if (CacheFeatureFlag.TTL.isOn()) {
             handler = new CacheRequestHandler(handler, dataCache, mapper);
         } else if (CacheFeatureFlag.LOCAL_SIGNATURE.isOn()) {
-            handler = new CacheV2RequestHandler(handler, dataCache, querySigningService, mapper);
+            handler = BardFeatureFlag.INTERVAL_SLICED_CACHE.isOn()
+                    ? new IntervalSlicedCacheRequestHandler(handler, dataCache, querySigningService, mapper)
+                    : new CacheV2RequestHandler(handler, dataCache, querySigningService, mapper);
         } else if (CacheFeatureFlag.ETAG.isOn()) {
             handler = new EtagCacheRequestHandler(
                     handler,
@@ -0,0 +1,21 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.web.ratelimit;
+
+import javax.ws.rs.container.ContainerRequestContext;
+
+/**
+ * Estimates how many rate limit tokens a request should be charged before it is served.
+ */
+@FunctionalInterface
+public interface RequestCostEstimator {
+
+    /**
+     * Estimate the cost of a request.
+     *
+     * @param request  The request, which has not been parsed yet
+     *
+     * @return the number of tokens to charge the request, at least 1
+     */
+    long estimateCost(ContainerRequestContext request);
+}
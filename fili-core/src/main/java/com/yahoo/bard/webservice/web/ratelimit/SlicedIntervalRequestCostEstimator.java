@@ -0,0 +1,134 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.web.ratelimit;
+
+import static com.yahoo.bard.webservice.util.DateTimeFormatterFactory.FULLY_OPTIONAL_DATETIME_FORMATTER;
+
+import com.yahoo.bard.webservice.config.SystemConfig;
+import com.yahoo.bard.webservice.config.SystemConfigProvider;
+import com.yahoo.bard.webservice.data.time.Granularity;
+import com.yahoo.bard.webservice.data.time.GranularityParser;
+import com.yahoo.bard.webservice.data.time.StandardGranularityParser;
+import com.yahoo.bard.webservice.data.time.TimeGrain;
+import com.yahoo.bard.webservice.util.GranularityParseException;
+import com.yahoo.bard.webservice.util.IntervalUtils;
+import com.yahoo.bard.webservice.web.apirequest.ApiRequestImpl;
+import com.yahoo.bard.webservice.web.util.QueryWeightUtil;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Interval;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+import javax.validation.constraints.NotNull;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.core.PathSegment;
+import javax.ws.rs.core.UriInfo;
+
+/**
+ * Estimates the cost of a data request from the number of time buckets it asks for.
+ * <p>
+ * The request is charged a token for every {@code request_cost_buckets_per_token} buckets it slices into, as estimated
+ * from the length of its intervals and the duration of its grain. Each bucket is weighed by the
+ * {@link QueryWeightUtil#getGrainWeightFactor grain weight factor} of its grain, since a coarser bucket aggregates more
+ * rows. The intervals are generated as the request parsing generates them, time macros and periods included.
+ * Requests which are not data requests, or whose grain or intervals cannot be parsed, cost a single token and are left
+ * for the request parsing to reject.
+ */
+public class SlicedIntervalRequestCostEstimator implements RequestCostEstimator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SlicedIntervalRequestCostEstimator.class);
+    private static final SystemConfig SYSTEM_CONFIG = SystemConfigProvider.getInstance();
+
+    protected static final @NotNull String BUCKETS_PER_TOKEN_KEY =
+            SYSTEM_CONFIG.getPackageVariableName("request_cost_buckets_per_token");
+    protected static final int DEFAULT_BUCKETS_PER_TOKEN = 31;
+
+    private static final String DATA_SEGMENT = "data";
+    private static final String DATE_TIME_PARAMETER = "dateTime";
+
+    private final QueryWeightUtil queryWeightUtil;
+    private final GranularityParser granularityParser;
+    private final double bucketsPerToken;
+
+    /**
+     * Constructor.
+     *
+     * @param queryWeightUtil  The weight util giving the weight of a bucket at each grain
+     */
+    public SlicedIntervalRequestCostEstimator(QueryWeightUtil queryWeightUtil) {
+        this(queryWeightUtil, new StandardGranularityParser());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param queryWeightUtil  The weight util giving the weight of a bucket at each grain
+     * @param granularityParser  The parser for the grain of a request
+     */
+    public SlicedIntervalRequestCostEstimator(QueryWeightUtil queryWeightUtil, GranularityParser granularityParser) {
+        this.queryWeightUtil = queryWeightUtil;
+        this.granularityParser = granularityParser;
+        this.bucketsPerToken = Math.max(
+                SYSTEM_CONFIG.getIntProperty(BUCKETS_PER_TOKEN_KEY, DEFAULT_BUCKETS_PER_TOKEN),
+                1
+        );
+    }
+
+    @Override
+    public long estimateCost(ContainerRequestContext request) {
+        UriInfo uriInfo = request.getUriInfo();
+        if (uriInfo == null) {
+            return 1;
+        }
+
+        // Data requests are of the form data/{table}/{grain}/..., possibly under a version segment
+        List<PathSegment> segments = uriInfo.getPathSegments();
+        int dataIndex = 0;
+        while (dataIndex < segments.size() && !DATA_SEGMENT.equals(segments.get(dataIndex).getPath())) {
+            dataIndex++;
+        }
+        String dateTime = uriInfo.getQueryParameters().getFirst(DATE_TIME_PARAMETER);
+        if (dataIndex + 2 >= segments.size() || dateTime == null) {
+            return 1;
+        }
+
+        try {
+            Granularity granularity = granularityParser.parseGranularity(
+                    segments.get(dataIndex + 2).getPath(),
+                    DateTimeZone.UTC
+            );
+            List<Interval> intervals = ApiRequestImpl.generateIntervals(
+                    new DateTime(DateTimeZone.UTC),
+                    dateTime,
+                    granularity,
+                    FULLY_OPTIONAL_DATETIME_FORMATTER.withZone(DateTimeZone.UTC)
+            );
+            double weight = estimateSlicedIntervals(intervals, granularity)
+                    * queryWeightUtil.getGrainWeightFactor(granularity);
+            return Math.max((long) Math.ceil(weight / bucketsPerToken), 1);
+        } catch (GranularityParseException | RuntimeException e) {
+            LOG.debug("Unable to estimate the cost of {}, charging a single token", uriInfo.getRequestUri(), e);
+            return 1;
+        }
+    }
+
+    /**
+     * Estimate how many buckets the intervals slice into at a granularity, without slicing them.
+     *
+     * @param intervals  The requested intervals
+     * @param granularity  The requested granularity
+     *
+     * @return the estimated number of buckets
+     */
+    protected double estimateSlicedIntervals(List<Interval> intervals, Granularity granularity) {
+        if (!(granularity instanceof TimeGrain)) {
+            return 1;
+        }
+        long bucketMillis = Math.max(((TimeGrain) granularity).getEstimatedDuration().getMillis(), 1);
+        return Math.ceil((double) IntervalUtils.getTotalDuration(intervals) / bucketMillis);
+    }
+}
@@ -0,0 +1,94 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.web.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock free token bucket, which refills at a steady rate up to its capacity.
+ * <p>
+ * Rather than a token count and a refill time, the bucket keeps the single instant at which it would be full again if
+ * nothing else were taken from it, and taking tokens pushes that instant back. Tokens can be taken as long as it is no
+ * further ahead of now than the time to refill the whole capacity, so the bucket is updated with one compare and set.
+ */
+public class TokenBucket {
+
+    private final long nanosPerToken;
+    private final long capacityNanos;
+    private final AtomicLong fullAt;
+
+    /**
+     * Constructor, for a bucket which starts full.
+     *
+     * @param capacity  The most tokens the bucket holds
+     * @param tokensPerMinute  The rate at which the bucket refills
+     * @param nowNanos  The current instant, on the clock later instants are given on
+     */
+    public TokenBucket(long capacity, long tokensPerMinute, long nowNanos) {
+        this.nanosPerToken = nanosPerToken(tokensPerMinute);
+        this.capacityNanos = refillNanos(capacity, tokensPerMinute);
+        this.fullAt = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Get how long a bucket takes to refill from empty.
+     * <p>
+     * A bucket not taken from for that long is full, and can be replaced with a new one.
+     *
+     * @param capacity  The most tokens the bucket holds
+     * @param tokensPerMinute  The rate at which the bucket refills
+     *
+     * @return the refill time in nanoseconds, or Long.MAX_VALUE if it overflows
+     */
+    public static long refillNanos(long capacity, long tokensPerMinute) {
+        return saturatedMultiply(Math.max(capacity, 1), nanosPerToken(tokensPerMinute));
+    }
+
+    /**
+     * Get how long a bucket takes to refill a single token.
+     *
+     * @param tokensPerMinute  The rate at which the bucket refills
+     *
+     * @return the time per token in nanoseconds
+     */
+    private static long nanosPerToken(long tokensPerMinute) {
+        return Math.max(TimeUnit.MINUTES.toNanos(1) / Math.max(tokensPerMinute, 1), 1);
+    }
+
+    /**
+     * Take tokens from the bucket if it holds enough of them.
+     *
+     * @param tokens  The number of tokens to take
+     * @param nowNanos  The current instant
+     *
+     * @return 0 if the tokens were taken, otherwise how many nanoseconds to wait until the bucket holds enough of them
+     */
+    public long tryAcquire(long tokens, long nowNanos) {
+        long costNanos = saturatedMultiply(tokens, nanosPerToken);
+        while (true) {
+            long current = fullAt.get();
+            // Compare by difference, since nano time instants may wrap
+            long next = (current - nowNanos > 0 ? current : nowNanos) + costNanos;
+            long waitNanos = next - nowNanos - capacityNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Multiply two non negative longs, saturating at the largest long.
+     *
+     * @param left  The left factor
+     * @param right  The right factor
+     *
+     * @return the product, or Long.MAX_VALUE if it overflows
+     */
+    private static long saturatedMultiply(long left, long right) {
+        return right != 0 && left > Long.MAX_VALUE / right ? Long.MAX_VALUE : left * right;
+    }
+}
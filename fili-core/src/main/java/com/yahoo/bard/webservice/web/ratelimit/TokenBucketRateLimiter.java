@@ -0,0 +1,308 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.web.ratelimit;
+
+import com.yahoo.bard.webservice.application.MetricRegistryFactory;
+import com.yahoo.bard.webservice.config.SystemConfig;
+import com.yahoo.bard.webservice.config.SystemConfigProvider;
+import com.yahoo.bard.webservice.util.Utils;
+import com.yahoo.bard.webservice.web.DataApiRequestTypeIdentifier;
+import com.yahoo.bard.webservice.web.RateLimiter;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.Principal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import javax.validation.constraints.NotNull;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.SecurityContext;
+
+/**
+ * A rate limiter which charges each request by its estimated cost against a token bucket of its user.
+ * <p>
+ * Each user has a bucket of {@code request_token_capacity_per_user} tokens, refilled at
+ * {@code request_tokens_per_minute_per_user}, and UI requests use separate buckets sized by
+ * {@code request_token_capacity_ui} and {@code request_tokens_per_minute_ui}. A request is charged the cost given by
+ * its {@link RequestCostEstimator}, capped at the capacity of its bucket so any request can run on a full bucket, and
+ * is rejected if its bucket does not hold enough tokens. A user sending a few expensive requests therefore runs out of
+ * tokens as quickly as one sending many cheap ones. A bucket left alone long enough to refill is dropped, since it
+ * is no different from the full bucket a new user gets, so only the buckets of recently active users are kept.
+ * <p>
+ * The number of requests in flight is also bounded by {@code request_limit_global}. It is counted with a
+ * {@link LongAdder} rather than a single atomic so concurrent requests do not contend on it, at the price of the bound
+ * being approximate while requests are racing for the last slots. As with the {@link DefaultRateLimiter}, the requests
+ * in flight of each user are bounded by {@code request_limit_per_user}, or {@code request_limit_ui} for UI requests.
+ * <p>
+ * Rejections and the time a rejected request would have had to wait for its tokens are measured across all users, so
+ * the number of metrics does not grow with the number of users.
+ */
+public class TokenBucketRateLimiter implements RateLimiter {
+    private static final Logger LOG = LoggerFactory.getLogger(TokenBucketRateLimiter.class);
+    protected static final SystemConfig SYSTEM_CONFIG = SystemConfigProvider.getInstance();
+    protected static final RateLimitRequestToken REJECT_REQUEST_TOKEN =
+            new CallbackRateLimitRequestToken(false, () -> { });
+    protected static final RateLimitRequestToken BYPASS_TOKEN =
+            new BypassRateLimitRequestToken();
+
+    // Property names
+    protected static final @NotNull String REQUEST_LIMIT_GLOBAL_KEY =
+            SYSTEM_CONFIG.getPackageVariableName("request_limit_global");
+    protected static final @NotNull String REQUEST_LIMIT_PER_USER_KEY =
+            SYSTEM_CONFIG.getPackageVariableName("request_limit_per_user");
+    protected static final @NotNull String REQUEST_LIMIT_UI_KEY =
+            SYSTEM_CONFIG.getPackageVariableName("request_limit_ui");
+    protected static final @NotNull String TOKEN_CAPACITY_PER_USER_KEY =
+            SYSTEM_CONFIG.getPackageVariableName("request_token_capacity_per_user");
+    protected static final @NotNull String TOKENS_PER_MINUTE_PER_USER_KEY =
+            SYSTEM_CONFIG.getPackageVariableName("request_tokens_per_minute_per_user");
+    protected static final @NotNull String TOKEN_CAPACITY_UI_KEY =
+            SYSTEM_CONFIG.getPackageVariableName("request_token_capacity_ui");
+    protected static final @NotNull String TOKENS_PER_MINUTE_UI_KEY =
+            SYSTEM_CONFIG.getPackageVariableName("request_tokens_per_minute_ui");
+
+    // Default values
+    protected static final int DEFAULT_REQUEST_LIMIT_GLOBAL = 70;
+    protected static final int DEFAULT_REQUEST_LIMIT_PER_USER = 2;
+    protected static final int DEFAULT_REQUEST_LIMIT_UI = 52;
+    protected static final int DEFAULT_TOKEN_CAPACITY_PER_USER = 60;
+    protected static final int DEFAULT_TOKENS_PER_MINUTE_PER_USER = 60;
+    protected static final int DEFAULT_TOKEN_CAPACITY_UI = 600;
+    protected static final int DEFAULT_TOKENS_PER_MINUTE_UI = 1200;
+
+    protected static final MetricRegistry REGISTRY = MetricRegistryFactory.getRegistry();
+
+    protected static final int DISABLED_RATE = -1;
+
+    // Limits
+    protected final int requestLimitGlobal;
+    protected final int requestLimitPerUser;
+    protected final int requestLimitUi;
+    protected final int tokenCapacityPerUser;
+    protected final int tokensPerMinutePerUser;
+    protected final int tokenCapacityUi;
+    protected final int tokensPerMinuteUi;
+
+    protected final RequestCostEstimator costEstimator;
+    protected final LongSupplier nanoClock;
+
+    // Live state
+    protected final LongAdder globalCount = new LongAdder();
+    // Requests in flight by user, only holding the users with requests in flight
+    protected final Map<String, Integer> userCounts = new ConcurrentHashMap<>();
+    protected final LoadingCache<String, TokenBucket> userBuckets;
+    protected final LoadingCache<String, TokenBucket> uiBuckets;
+
+    protected final Counter requestGlobalCounter;
+    protected final Counter usersCounter;
+
+    protected final Meter requestBypassMeter;
+    protected final Meter requestUiMeter;
+    protected final Meter requestUserMeter;
+    protected final Meter rejectGlobalMeter;
+    protected final Meter rejectUiMeter;
+    protected final Meter rejectUserMeter;
+    protected final Meter tokensMeter;
+    protected final Histogram rejectWaitHistogram;
+
+    /**
+     * Loads limits from configuration and creates a TokenBucketRateLimiter.
+     *
+     * @param costEstimator  The estimator of the number of tokens to charge a request
+     */
+    public TokenBucketRateLimiter(RequestCostEstimator costEstimator) {
+        this(costEstimator, System::nanoTime);
+    }
+
+    /**
+     * Loads limits from configuration and creates a TokenBucketRateLimiter on a clock.
+     *
+     * @param costEstimator  The estimator of the number of tokens to charge a request
+     * @param nanoClock  The clock the buckets refill on, in nanoseconds
+     */
+    protected TokenBucketRateLimiter(RequestCostEstimator costEstimator, LongSupplier nanoClock) {
+        this.costEstimator = costEstimator;
+        this.nanoClock = nanoClock;
+
+        // Load limits
+        requestLimitGlobal = SYSTEM_CONFIG.getIntProperty(REQUEST_LIMIT_GLOBAL_KEY, DEFAULT_REQUEST_LIMIT_GLOBAL);
+        requestLimitPerUser = SYSTEM_CONFIG.getIntProperty(REQUEST_LIMIT_PER_USER_KEY, DEFAULT_REQUEST_LIMIT_PER_USER);
+        requestLimitUi = SYSTEM_CONFIG.getIntProperty(REQUEST_LIMIT_UI_KEY, DEFAULT_REQUEST_LIMIT_UI);
+        tokenCapacityPerUser = SYSTEM_CONFIG.getIntProperty(
+                TOKEN_CAPACITY_PER_USER_KEY,
+                DEFAULT_TOKEN_CAPACITY_PER_USER
+        );
+        tokensPerMinutePerUser = SYSTEM_CONFIG.getIntProperty(
+                TOKENS_PER_MINUTE_PER_USER_KEY,
+                DEFAULT_TOKENS_PER_MINUTE_PER_USER
+        );
+        tokenCapacityUi = SYSTEM_CONFIG.getIntProperty(TOKEN_CAPACITY_UI_KEY, DEFAULT_TOKEN_CAPACITY_UI);
+        tokensPerMinuteUi = SYSTEM_CONFIG.getIntProperty(TOKENS_PER_MINUTE_UI_KEY, DEFAULT_TOKENS_PER_MINUTE_UI);
+
+        // Register counters for currently active requests
+        usersCounter = REGISTRY.counter("ratelimit.count.users");
+        requestGlobalCounter = REGISTRY.counter("ratelimit.count.global");
+
+        // Register meters for number of requests and tokens
+        requestUserMeter = REGISTRY.meter("ratelimit.meter.request.user");
+        requestUiMeter = REGISTRY.meter("ratelimit.meter.request.ui");
+        requestBypassMeter = REGISTRY.meter("ratelimit.meter.request.bypass");
+        rejectGlobalMeter = REGISTRY.meter("ratelimit.meter.reject.global");
+        rejectUserMeter = REGISTRY.meter("ratelimit.meter.reject.user");
+        rejectUiMeter = REGISTRY.meter("ratelimit.meter.reject.ui");
+        tokensMeter = REGISTRY.meter("ratelimit.meter.tokens");
+        rejectWaitHistogram = REGISTRY.histogram("ratelimit.histogram.reject.wait");
+
+        userBuckets = buildBuckets(tokenCapacityPerUser, tokensPerMinutePerUser);
+        uiBuckets = buildBuckets(tokenCapacityUi, tokensPerMinuteUi);
+    }
+
+    @Override
+    public RateLimitRequestToken getToken(ContainerRequestContext request) {
+        MultivaluedMap<String, String> headers = Utils.headersToLowerCase(request.getHeaders());
+
+        if (
+            DataApiRequestTypeIdentifier.isBypass(headers) ||
+            DataApiRequestTypeIdentifier.isCorsPreflight(request.getMethod(), request.getSecurityContext())
+        ) {
+            // Bypass and CORS Preflight requests are unlimited
+            requestBypassMeter.mark();
+            return BYPASS_TOKEN;
+        }
+
+        SecurityContext securityContext = request.getSecurityContext();
+        Principal user = securityContext == null ? null : securityContext.getUserPrincipal();
+        String userName = String.valueOf(user == null ? null : user.getName());
+        boolean isUIQuery = DataApiRequestTypeIdentifier.isUi(headers);
+
+        // Bound the requests in flight
+        globalCount.increment();
+        if (requestLimitGlobal != DISABLED_RATE && globalCount.sum() > requestLimitGlobal) {
+            globalCount.decrement();
+            rejectGlobalMeter.mark();
+            (isUIQuery ? rejectUiMeter : rejectUserMeter).mark();
+            LOG.info("GLOBAL limit {}", userName);
+            return REJECT_REQUEST_TOKEN;
+        }
+
+        // Bound the requests in flight of the user
+        int requestLimit = isUIQuery ? requestLimitUi : requestLimitPerUser;
+        boolean isCounted = requestLimit != DISABLED_RATE;
+        if (isCounted && userCounts.merge(userName, 1, Integer::sum) > requestLimit) {
+            releaseUserCount(userName);
+            globalCount.decrement();
+            (isUIQuery ? rejectUiMeter : rejectUserMeter).mark();
+            LOG.info("{} limit {}: {} requests in flight", isUIQuery ? "UI" : "USER", userName, requestLimit);
+            return REJECT_REQUEST_TOKEN;
+        }
+
+        // Charge the request against the bucket of its user
+        int capacity = isUIQuery ? tokenCapacityUi : tokenCapacityPerUser;
+        if (capacity != DISABLED_RATE) {
+            long cost = Math.min(Math.max(costEstimator.estimateCost(request), 1), capacity);
+            long waitNanos = getBucket(userName, isUIQuery).tryAcquire(cost, nanoClock.getAsLong());
+            if (waitNanos > 0) {
+                if (isCounted) {
+                    releaseUserCount(userName);
+                }
+                globalCount.decrement();
+                rejectRequest(userName, isUIQuery, cost, waitNanos);
+                return REJECT_REQUEST_TOKEN;
+            }
+            tokensMeter.mark(cost);
+        }
+
+        // Measure the accepted request and current open connections
+        (isUIQuery ? requestUiMeter : requestUserMeter).mark();
+        requestGlobalCounter.inc();
+
+        return new CallbackRateLimitRequestToken(true, () -> {
+            if (isCounted) {
+                releaseUserCount(userName);
+            }
+            globalCount.decrement();
+            requestGlobalCounter.dec();
+        });
+    }
+
+    /**
+     * Build the token buckets of the users for one kind of request, dropping each bucket once it would be full again.
+     *
+     * @param capacity  The most tokens a bucket holds
+     * @param tokensPerMinute  The rate at which a bucket refills
+     *
+     * @return the token buckets by username, creating a full bucket for a user who does not have one
+     */
+    protected LoadingCache<String, TokenBucket> buildBuckets(int capacity, int tokensPerMinute) {
+        CacheBuilder<String, TokenBucket> builder = CacheBuilder.newBuilder()
+                .ticker(new Ticker() {
+                    @Override
+                    public long read() {
+                        return nanoClock.getAsLong();
+                    }
+                })
+                .removalListener(ignored -> usersCounter.dec());
+        long refillNanos = TokenBucket.refillNanos(capacity, tokensPerMinute);
+        if (refillNanos != Long.MAX_VALUE) {
+            builder.expireAfterAccess(refillNanos, TimeUnit.NANOSECONDS);
+        }
+        return builder.build(new CacheLoader<String, TokenBucket>() {
+            @Override
+            public TokenBucket load(String userName) {
+                usersCounter.inc();
+                return new TokenBucket(capacity, tokensPerMinute, nanoClock.getAsLong());
+            }
+        });
+    }
+
+    /**
+     * Get the token bucket of a user, creating a full one if the user does not have one yet.
+     *
+     * @param userName  Username to get the bucket for
+     * @param isUIQuery  Whether to get the bucket for the UI requests of the user
+     *
+     * @return the token bucket of the user
+     */
+    protected TokenBucket getBucket(String userName, boolean isUIQuery) {
+        return (isUIQuery ? uiBuckets : userBuckets).getUnchecked(userName);
+    }
+
+    /**
+     * Release a request in flight of a user, forgetting the user once none are left.
+     *
+     * @param userName  Username of the user who made the request
+     */
+    protected void releaseUserCount(String userName) {
+        userCounts.computeIfPresent(userName, (ignored, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /**
+     * Do the house keeping needed to reject a request whose user does not have enough tokens.
+     *
+     * @param userName  Username of the user who made the request
+     * @param isUIQuery  Whether or not the request is a UI Query
+     * @param cost  The number of tokens the request was charged
+     * @param waitNanos  How long the user would have had to wait for enough tokens
+     */
+    protected void rejectRequest(String userName, boolean isUIQuery, long cost, long waitNanos) {
+        long waitMillis = TimeUnit.NANOSECONDS.toMillis(waitNanos);
+        (isUIQuery ? rejectUiMeter : rejectUserMeter).mark();
+        rejectWaitHistogram.update(waitMillis);
+        LOG.info("{} limit {}: {} tokens available in {} ms", isUIQuery ? "UI" : "USER", userName, cost, waitMillis);
+    }
+}
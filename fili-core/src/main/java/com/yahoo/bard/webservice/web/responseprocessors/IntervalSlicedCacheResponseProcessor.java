@@ -0,0 +1,261 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.web.responseprocessors;
+
+import com.yahoo.bard.webservice.config.SystemConfig;
+import com.yahoo.bard.webservice.config.SystemConfigProvider;
+import com.yahoo.bard.webservice.data.cache.TupleDataCache;
+import com.yahoo.bard.webservice.druid.client.FailureCallback;
+import com.yahoo.bard.webservice.druid.client.HttpErrorCallback;
+import com.yahoo.bard.webservice.druid.model.query.DruidAggregationQuery;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * Response processor which merges the buckets of a query answered from the cache with the buckets fetched from Druid,
+ * and caches each fetched bucket on its own.
+ * <p>
+ * The query sent to Druid only covers the buckets which were not cached. Its response rows are sliced into buckets by
+ * their timestamp, each cacheable bucket is written to the cache under the key of its single bucket query, and the
+ * cached and fetched buckets are stitched together in bucket order. The next processor sees the original query, with
+ * a response covering all of its buckets.
+ */
+public class IntervalSlicedCacheResponseProcessor implements ResponseProcessor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IntervalSlicedCacheResponseProcessor.class);
+    private static final SystemConfig SYSTEM_CONFIG = SystemConfigProvider.getInstance();
+
+    private static final String TIMESTAMP = "timestamp";
+
+    private final long maxDruidResponseLengthToCache = SYSTEM_CONFIG.getLongProperty(
+            SYSTEM_CONFIG.getPackageVariableName(
+                    "druid_max_response_length_to_cache"
+            ),
+            Long.MAX_VALUE
+    );
+
+    private final ResponseProcessor next;
+    private final DruidAggregationQuery<?> druidQuery;
+    private final List<Bucket> buckets;
+    private final @NotNull TupleDataCache<String, Long, String> dataCache;
+    private final ObjectMapper mapper;
+    private final ObjectWriter writer;
+
+    /**
+     * Constructor.
+     *
+     * @param next  Next ResponseProcessor in the chain
+     * @param druidQuery  The query as it was before being narrowed to the buckets which were not cached
+     * @param buckets  The buckets of the query, in order
+     * @param dataCache  The cache into which to write the fetched buckets
+     * @param mapper  An object mapper to use for processing Json
+     */
+    public IntervalSlicedCacheResponseProcessor(
+            ResponseProcessor next,
+            DruidAggregationQuery<?> druidQuery,
+            List<Bucket> buckets,
+            TupleDataCache<String, Long, String> dataCache,
+            ObjectMapper mapper
+    ) {
+        this.next = next;
+        this.druidQuery = druidQuery;
+        this.buckets = buckets;
+        this.dataCache = dataCache;
+        this.mapper = mapper;
+        this.writer = mapper.writer();
+    }
+
+    @Override
+    public ResponseContext getResponseContext() {
+        return next.getResponseContext();
+    }
+
+    @Override
+    public FailureCallback getFailureCallback(DruidAggregationQuery<?> druidQuery) {
+        return next.getFailureCallback(this.druidQuery);
+    }
+
+    @Override
+    public HttpErrorCallback getErrorCallback(DruidAggregationQuery<?> druidQuery) {
+        return next.getErrorCallback(this.druidQuery);
+    }
+
+    @Override
+    public void processResponse(JsonNode json, DruidAggregationQuery<?> druidQuery, LoggingContext metadata) {
+        boolean anyCached = buckets.stream().anyMatch(Bucket::isCached);
+
+        Map<Bucket, ArrayNode> fetchedRows = null;
+        if (json.isArray()) {
+            try {
+                fetchedRows = sliceRows((ArrayNode) json);
+            } catch (RuntimeException e) {
+                LOG.warn("Unable to slice Druid response into buckets", e);
+            }
+        }
+
+        if (fetchedRows == null) {
+            if (anyCached) {
+                getFailureCallback(druidQuery).invoke(
+                        new IllegalStateException("Unable to merge cached buckets with the Druid response")
+                );
+            } else {
+                next.processResponse(json, this.druidQuery, metadata);
+            }
+            return;
+        }
+
+        cacheBuckets(fetchedRows);
+        next.processResponse(anyCached ? stitch(fetchedRows) : json, this.druidQuery, metadata);
+    }
+
+    /**
+     * Sort the rows of a Druid response into the buckets which were fetched, by their timestamp.
+     *
+     * @param rows  The rows of the Druid response
+     *
+     * @return the rows of each fetched bucket which has any
+     */
+    private Map<Bucket, ArrayNode> sliceRows(ArrayNode rows) {
+        TreeMap<Long, Bucket> fetchedByStart = new TreeMap<>();
+        buckets.stream()
+                .filter(bucket -> !bucket.isCached())
+                .forEach(bucket -> fetchedByStart.put(bucket.getInterval().getStartMillis(), bucket));
+
+        Map<Bucket, ArrayNode> fetchedRows = new IdentityHashMap<>();
+        for (JsonNode row : rows) {
+            long timestamp = new DateTime(row.get(TIMESTAMP).asText()).getMillis();
+            Map.Entry<Long, Bucket> entry = fetchedByStart.floorEntry(timestamp);
+            if (entry == null || !entry.getValue().getInterval().contains(timestamp)) {
+                throw new IllegalStateException("Row at " + timestamp + " is outside of the buckets sent to Druid");
+            }
+            fetchedRows.computeIfAbsent(entry.getValue(), ignored -> mapper.createArrayNode()).add(row);
+        }
+        return fetchedRows;
+    }
+
+    /**
+     * Write each cacheable fetched bucket to the cache.
+     *
+     * @param fetchedRows  The rows of each fetched bucket
+     */
+    private void cacheBuckets(Map<Bucket, ArrayNode> fetchedRows) {
+        for (Bucket bucket : buckets) {
+            if (bucket.isCached() || !bucket.isCacheable()) {
+                continue;
+            }
+            ArrayNode rows = fetchedRows.getOrDefault(bucket, mapper.createArrayNode());
+            String valueString = null;
+            try {
+                valueString = writer.writeValueAsString(rows);
+                if (valueString.length() <= maxDruidResponseLengthToCache) {
+                    dataCache.set(bucket.getCacheKey(), bucket.getSegmentSetId(), valueString);
+                } else {
+                    LOG.debug(
+                            "Bucket {} not cached. Length of {} exceeds max value length of {}",
+                            bucket.getInterval(),
+                            valueString.length(),
+                            maxDruidResponseLengthToCache
+                    );
+                }
+            } catch (Exception e) {
+                LOG.warn(
+                        "Unable to cache {}value of size: {}",
+                        valueString == null ? "null " : "",
+                        valueString == null ? "N/A" : valueString.length(),
+                        e
+                );
+            }
+        }
+    }
+
+    /**
+     * Merge the cached and fetched buckets into one response, in bucket order.
+     *
+     * @param fetchedRows  The rows of each fetched bucket
+     *
+     * @return the rows of all of the buckets
+     */
+    private ArrayNode stitch(Map<Bucket, ArrayNode> fetchedRows) {
+        ArrayNode stitched = mapper.createArrayNode();
+        for (Bucket bucket : buckets) {
+            ArrayNode rows = bucket.isCached() ? bucket.getCachedRows() : fetchedRows.get(bucket);
+            if (rows != null) {
+                stitched.addAll(rows);
+            }
+        }
+        return stitched;
+    }
+
+    /**
+     * One time bucket of a query, either answered from the cache or to be fetched from Druid.
+     */
+    public static class Bucket {
+
+        private final Interval interval;
+        private final String cacheKey;
+        private final Long segmentSetId;
+        private final ArrayNode cachedRows;
+        private final boolean cacheable;
+
+        /**
+         * Constructor.
+         *
+         * @param interval  The interval of the bucket
+         * @param cacheKey  The cache key of the query narrowed to this bucket
+         * @param segmentSetId  The id of the set of segments the bucket reads, or null if it is unknown
+         * @param cachedRows  The rows of the bucket read from the cache, or null if the bucket must be fetched
+         * @param cacheable  Whether the bucket may be written to the cache once fetched
+         */
+        public Bucket(Interval interval, String cacheKey, Long segmentSetId, ArrayNode cachedRows, boolean cacheable) {
+            this.interval = interval;
+            this.cacheKey = cacheKey;
+            this.segmentSetId = segmentSetId;
+            this.cachedRows = cachedRows;
+            this.cacheable = cacheable;
+        }
+
+        public Interval getInterval() {
+            return interval;
+        }
+
+        public String getCacheKey() {
+            return cacheKey;
+        }
+
+        public Long getSegmentSetId() {
+            return segmentSetId;
+        }
+
+        public ArrayNode getCachedRows() {
+            return cachedRows;
+        }
+
+        /**
+         * Whether the bucket was answered from the cache.
+         *
+         * @return true if the bucket has cached rows
+         */
+        public boolean isCached() {
+            return cachedRows != null;
+        }
+
+        public boolean isCacheable() {
+            return cacheable;
+        }
+    }
+}
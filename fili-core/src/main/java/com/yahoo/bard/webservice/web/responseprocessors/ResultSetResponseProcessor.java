@@ -25,6 +25,7 @@ import com.yahoo.bard.webservice.web.apirequest.DataApiRequest;
 import com.yahoo.bard.webservice.web.PageNotFoundException;
 import com.yahoo.bard.webservice.web.PreResponse;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 
 import org.joda.time.DateTimeZone;
@@ -33,10 +34,12 @@ import org.slf4j.LoggerFactory;
 
 import rx.subjects.Subject;
 
+import java.io.IOException;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 
 import javax.ws.rs.core.Response.Status;
@@ -44,7 +47,7 @@ import javax.ws.rs.core.Response.Status;
 /**
  * Callback handler for JSON to be processed into result sets.
  */
-public class ResultSetResponseProcessor extends MappingResponseProcessor implements ResponseProcessor {
+public class ResultSetResponseProcessor extends MappingResponseProcessor implements StreamingResponseProcessor {
 
     private static final Logger LOG = LoggerFactory.getLogger(ResultSetResponseProcessor.class);
 
@@ -88,9 +91,29 @@ public class ResultSetResponseProcessor extends MappingResponseProcessor impleme
 
     @Override
     public void processResponse(JsonNode json, DruidAggregationQuery<?> druidQuery, LoggingContext metadata) {
+        processResultSet(() -> buildResultSet(json, druidQuery, apiRequest.getTimeZone()), druidQuery, metadata);
+    }
+
+    @Override
+    public void processResponse(JsonParser parser, DruidAggregationQuery<?> druidQuery, LoggingContext metadata) {
+        processResultSet(() -> buildResultSet(parser, druidQuery, apiRequest.getTimeZone()), druidQuery, metadata);
+    }
+
+    /**
+     * Build, map and emit the result set, or emit an error if any of that fails.
+     *
+     * @param resultSetBuilder  Builds the initial result set from the druid response
+     * @param druidQuery  The druid query being processed
+     * @param metadata  The LoggingContext to use
+     */
+    protected void processResultSet(
+            Callable<ResultSet> resultSetBuilder,
+            DruidAggregationQuery<?> druidQuery,
+            LoggingContext metadata
+    ) {
         try {
             RequestLog.restore(metadata.getRequestLog());
-            ResultSet resultSet = buildResultSet(json, druidQuery, apiRequest.getTimeZone());
+            ResultSet resultSet = resultSetBuilder.call();
             resultSet = mapResultSet(resultSet);
 
             LinkedHashSet<String> apiMetricColumnNames = apiRequest.getLogicalMetrics().stream()
@@ -149,12 +172,36 @@ public class ResultSetResponseProcessor extends MappingResponseProcessor impleme
      * @return The initial result set from the json node.
      */
     public ResultSet buildResultSet(JsonNode json, DruidAggregationQuery<?> druidQuery, DateTimeZone dateTimeZone) {
+        return druidResponseParser.parse(json, buildSchema(druidQuery), druidQuery.getQueryType(), dateTimeZone);
+    }
+
+    /**
+     * Build a result set using the api request time grain, streaming the rows from a JSON token parser.
+     *
+     * @param parser  Parser over the json representing the druid response.
+     * @param druidQuery  The druid query being processed
+     * @param dateTimeZone  The date time zone for parsing result rows
+     *
+     * @return The initial result set from the token stream.
+     *
+     * @throws IOException if the druid response cannot be read from the parser
+     */
+    public ResultSet buildResultSet(JsonParser parser, DruidAggregationQuery<?> druidQuery, DateTimeZone dateTimeZone)
+            throws IOException {
+        return druidResponseParser.parse(parser, buildSchema(druidQuery), druidQuery.getQueryType(), dateTimeZone);
+    }
 
+    /**
+     * Build the schema of the result set for a druid query using the api request time grain.
+     *
+     * @param druidQuery  The druid query being processed
+     *
+     * @return The result set schema
+     */
+    protected ResultSetSchema buildSchema(DruidAggregationQuery<?> druidQuery) {
         LinkedHashSet<Column> columns = druidResponseParser.buildSchemaColumns(druidQuery)
                 .collect(Collectors.toCollection(LinkedHashSet::new));
 
-        ResultSetSchema resultSetSchema = new ResultSetSchema(granularity, columns);
-
-        return druidResponseParser.parse(json, resultSetSchema, druidQuery.getQueryType(), dateTimeZone);
+        return new ResultSetSchema(granularity, columns);
     }
 }
@@ -0,0 +1,134 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.web.responseprocessors;
+
+import com.yahoo.bard.webservice.application.MetricRegistryFactory;
+import com.yahoo.bard.webservice.druid.client.FailureCallback;
+import com.yahoo.bard.webservice.druid.client.HttpErrorCallback;
+import com.yahoo.bard.webservice.druid.model.query.DruidAggregationQuery;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A response processor for a query sent at the same time as its weight check, which hands the response of the query on
+ * only if the weight check did not refuse the query first.
+ * <p>
+ * The outcome of the request is settled by whichever comes first of the response of the query and the refusal of the
+ * weight check. A response which comes after a refusal is dropped, and so is a refusal which comes after a response.
+ * <p>
+ * Speculating saves the requester the time the query would have waited for its weight check, which is timed as
+ * {@link #SAVED_TIMER}. It wastes the time druid spent on refused queries before they were refused, which is timed as
+ * {@link #WASTED_TIMER}.
+ */
+public class SpeculativeWeightCheckResponseProcessor implements ResponseProcessor {
+
+    private static final MetricRegistry REGISTRY = MetricRegistryFactory.getRegistry();
+
+    public static final Timer SAVED_TIMER = REGISTRY.timer("queries.timer.weight_check.speculative.saved");
+    public static final Timer WASTED_TIMER = REGISTRY.timer("queries.timer.weight_check.speculative.wasted");
+
+    private final ResponseProcessor next;
+    private final long startNanos;
+
+    // Whether the query stopped waiting on its weight check, because the check passed or the response came first
+    private final AtomicBoolean waitOver = new AtomicBoolean();
+    // Whether the outcome of the request is settled, by the response of the query or by a refusal
+    private final AtomicBoolean settled = new AtomicBoolean();
+
+    /**
+     * Constructor.
+     *
+     * @param next  The next ResponseProcessor in the chain to call
+     */
+    public SpeculativeWeightCheckResponseProcessor(ResponseProcessor next) {
+        this.next = next;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Let the query through, because its weight check passed.
+     */
+    public void accept() {
+        stopWaiting();
+    }
+
+    /**
+     * Refuse the query, unless its response already came.
+     *
+     * @return true if the query is refused, and so must be cancelled and answered with an error, or false if the
+     * response of the query already came
+     */
+    public boolean refuse() {
+        if (!settled.compareAndSet(false, true)) {
+            return false;
+        }
+        WASTED_TIMER.update(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        return true;
+    }
+
+    /**
+     * Whether the outcome of the request is settled.
+     *
+     * @return true once the query is refused or its response came
+     */
+    public boolean isSettled() {
+        return settled.get();
+    }
+
+    /**
+     * Settle the outcome of the request with the response of the query, unless the query was refused.
+     *
+     * @return true if the response is to be handed on
+     */
+    private boolean settleWithResponse() {
+        if (!settled.compareAndSet(false, true)) {
+            return false;
+        }
+        stopWaiting();
+        return true;
+    }
+
+    /**
+     * Time the wait on the weight check saved by speculating, the first time the query stops waiting.
+     */
+    private void stopWaiting() {
+        if (waitOver.compareAndSet(false, true)) {
+            SAVED_TIMER.update(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public ResponseContext getResponseContext() {
+        return next.getResponseContext();
+    }
+
+    @Override
+    public FailureCallback getFailureCallback(DruidAggregationQuery<?> druidQuery) {
+        return error -> {
+            if (settleWithResponse()) {
+                next.getFailureCallback(druidQuery).invoke(error);
+            }
+        };
+    }
+
+    @Override
+    public HttpErrorCallback getErrorCallback(DruidAggregationQuery<?> druidQuery) {
+        return (statusCode, reason, responseBody) -> {
+            if (settleWithResponse()) {
+                next.getErrorCallback(druidQuery).invoke(statusCode, reason, responseBody);
+            }
+        };
+    }
+
+    @Override
+    public void processResponse(JsonNode json, DruidAggregationQuery<?> druidQuery, LoggingContext metadata) {
+        if (settleWithResponse()) {
+            next.processResponse(json, druidQuery, metadata);
+        }
+    }
+}
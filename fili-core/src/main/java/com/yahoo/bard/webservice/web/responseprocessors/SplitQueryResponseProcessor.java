@@ -8,6 +8,7 @@ import com.yahoo.bard.webservice.druid.client.HttpErrorCallback;
 import com.yahoo.bard.webservice.druid.model.query.DruidAggregationQuery;
 import com.yahoo.bard.webservice.logging.RequestLog;
 import com.yahoo.bard.webservice.web.apirequest.DataApiRequest;
+import com.yahoo.bard.webservice.web.handlers.SplitQueryExecutor;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
@@ -24,9 +25,13 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * This response processor receives a list of expected intervals.  As responses arrives, it stores the responses until
- * all expected intervals have arrived, at which point it passes the concatenated Json content from each of the calls
+ * This response processor receives a list of expected intervals.  As responses arrive, it appends them to the merged
+ * response in interval order, holding on to a response only until the responses of all earlier intervals have
+ * arrived.  Once all expected intervals have arrived, it passes the concatenated Json content from each of the calls
  * to its next processor.
+ * <p>
+ * When the sub-queries are sent by a {@link SplitQueryExecutor}, the executor is told about each completed interval
+ * so it can send the next sub-query, and is stopped when the request fails.
  */
 public class SplitQueryResponseProcessor implements ResponseProcessor {
 
@@ -42,6 +47,12 @@ public class SplitQueryResponseProcessor implements ResponseProcessor {
     private final AtomicInteger completed;
     private final AtomicBoolean failed = new AtomicBoolean(false);
     private final RequestLog logCtx;
+    private final SplitQueryExecutor executor;
+
+    // Responses merged so far, in interval order, guarded by itself
+    private final ArrayNode mergedResponse = new JsonNodeFactory(true).arrayNode();
+    // Index of the next interval to append to the merged response, guarded by mergedResponse
+    private int nextToMerge;
 
     /**
      * Constructor.
@@ -52,13 +63,34 @@ public class SplitQueryResponseProcessor implements ResponseProcessor {
      * @param expectedIntervals A map of expected interval status flags
      * @param logCtx  The request log logging context
      */
-    @SuppressWarnings("unchecked")
     public SplitQueryResponseProcessor(
             ResponseProcessor next,
             DataApiRequest request,
             DruidAggregationQuery<?> druidQuery,
             Map<Interval, AtomicInteger> expectedIntervals,
             RequestLog logCtx
+    ) {
+        this(next, request, druidQuery, expectedIntervals, logCtx, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param next  The next delegate response processor
+     * @param request  The request for this response
+     * @param druidQuery  The unmodified druid query for this response
+     * @param expectedIntervals A map of expected interval status flags
+     * @param logCtx  The request log logging context
+     * @param executor  The executor sending the sub-queries, or null if they are not sent by an executor
+     */
+    @SuppressWarnings("unchecked")
+    public SplitQueryResponseProcessor(
+            ResponseProcessor next,
+            DataApiRequest request,
+            DruidAggregationQuery<?> druidQuery,
+            Map<Interval, AtomicInteger> expectedIntervals,
+            RequestLog logCtx,
+            SplitQueryExecutor executor
     ) {
         this.next = next;
         this.queryBeforeSplit = druidQuery;
@@ -66,6 +98,7 @@ public class SplitQueryResponseProcessor implements ResponseProcessor {
         this.completedIntervals = Arrays.asList(new Pair[expectedIntervals.size()]);
         this.completed = new AtomicInteger(expectedIntervals.size());
         this.logCtx = logCtx;
+        this.executor = executor;
     }
 
     @Override
@@ -81,6 +114,7 @@ public class SplitQueryResponseProcessor implements ResponseProcessor {
             @Override
             public void invoke(Throwable error) {
                 if (failed.compareAndSet(false, true)) {
+                    stopExecutor();
                     nextFail.invoke(error);
                 }
             }
@@ -95,6 +129,7 @@ public class SplitQueryResponseProcessor implements ResponseProcessor {
             @Override
             public void invoke(int statusCode, String reasonPhrase, String responseBody) {
                 if (failed.compareAndSet(false, true)) {
+                    stopExecutor();
                     nextError.invoke(statusCode, reasonPhrase, responseBody);
                 }
             }
@@ -121,11 +156,25 @@ public class SplitQueryResponseProcessor implements ResponseProcessor {
         }
 
         completedIntervals.set(index, new Pair<>(json, metadata));
+        mergeCompletedResponses();
+
+        if (executor != null) {
+            executor.splitCompleted(index);
+        }
 
         if (completed.decrementAndGet() == 0) {
-            Pair<JsonNode, LoggingContext> mergedResponse = mergeResponses(completedIntervals);
-            RequestLog.restore(mergedResponse.getValue().getRequestLog());
-            next.processResponse(mergedResponse.getKey(), queryBeforeSplit, mergedResponse.getValue());
+            Pair<JsonNode, LoggingContext> merged = mergeResponses(completedIntervals);
+            RequestLog.restore(merged.getValue().getRequestLog());
+            next.processResponse(merged.getKey(), queryBeforeSplit, merged.getValue());
+        }
+    }
+
+    /**
+     * Stop the executor sending the sub-queries, if there is one.
+     */
+    private void stopExecutor() {
+        if (executor != null) {
+            executor.stop();
         }
     }
 
@@ -144,23 +193,45 @@ public class SplitQueryResponseProcessor implements ResponseProcessor {
     }
 
     /**
-     * Take a list of Jackson ArrayNodes and merge their contents, preserving order.
+     * Append the responses which are next in interval order to the merged response, preserving order.
+     * <p>
+     * The Json content of a response is released once it has been appended, so only the responses which arrived ahead
+     * of an earlier interval are held.
+     */
+    private void mergeCompletedResponses() {
+        synchronized (mergedResponse) {
+            Pair<JsonNode, LoggingContext> entry;
+            while (nextToMerge < completedIntervals.size()
+                    && (entry = completedIntervals.get(nextToMerge)) != null) {
+                for (JsonNode jsonNode : entry.getKey()) {
+                    mergedResponse.add(jsonNode);
+                }
+                completedIntervals.set(nextToMerge, new Pair<>(null, entry.getValue()));
+                nextToMerge++;
+            }
+        }
+    }
+
+    /**
+     * Take a list of Jackson ArrayNodes and merge the contents not merged yet, preserving order.
      *
      * @param responses  A list of pairs that encompass JSON nodes and response metadata
      *
      * @return A new pair holding the merged json and the aggregate request log context
      */
     private Pair<JsonNode, LoggingContext> mergeResponses(List<Pair<JsonNode, LoggingContext>> responses) {
-        JsonNodeFactory factory = new JsonNodeFactory(true);
-        ArrayNode result = factory.arrayNode();
         RequestLog.restore(logCtx);
-        for (Pair<JsonNode, LoggingContext> entry : responses) {
-            for (JsonNode jsonNode : entry.getKey()) {
-                result.add(jsonNode);
+        synchronized (mergedResponse) {
+            for (Pair<JsonNode, LoggingContext> entry : responses) {
+                if (entry.getKey() != null) {
+                    for (JsonNode jsonNode : entry.getKey()) {
+                        mergedResponse.add(jsonNode);
+                    }
+                }
+                RequestLog.accumulate(entry.getValue().getRequestLog());
             }
-            RequestLog.accumulate(entry.getValue().getRequestLog());
         }
         RequestLog updatedCtx = RequestLog.dump();
-        return new Pair<>(result, new LoggingContext(updatedCtx));
+        return new Pair<>(mergedResponse, new LoggingContext(updatedCtx));
     }
 }
@@ -0,0 +1,25 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.web.responseprocessors;
+
+import com.yahoo.bard.webservice.druid.model.query.DruidAggregationQuery;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+/**
+ * A response processor which can build its response from a stream of JSON tokens without a JSON tree.
+ * <p>
+ * Only the processor which receives the raw Druid response is offered the stream, so wrapping processors which need
+ * to inspect the tree (caching, partial data, etc.) keep working on trees.
+ */
+public interface StreamingResponseProcessor extends ResponseProcessor {
+
+    /**
+     * Process the response tokens and respond to the original web request.
+     *
+     * @param parser  Parser over the json representing a druid data response
+     * @param query  The query with the schema for processing this response
+     * @param metadata  The LoggingContext to use
+     */
+    void processResponse(JsonParser parser, DruidAggregationQuery<?> query, LoggingContext metadata);
+}
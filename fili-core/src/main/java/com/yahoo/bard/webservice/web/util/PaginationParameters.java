@@ -11,6 +11,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Objects;
+import java.util.Optional;
 
 /**
  * A wrapper around the pagination parameters ('perPage' and 'page') to simplify working with pagination requests.
@@ -46,6 +47,7 @@ public class PaginationParameters {
 
     private final int perPage;
     private final int page;
+    private final String cursor;
 
     /**
      * Given a pair of strings, attempts to parse them into ints representing the pagination parameters.
@@ -66,8 +68,20 @@ public class PaginationParameters {
      * @param page  The page to be displayed
      */
     public PaginationParameters(int perPage, int page) {
+        this(perPage, page, null);
+    }
+
+    /**
+     * Constructor for already-parsed pagination parameters, with the cursor of the page.
+     *
+     * @param perPage  The number of rows to be displayed on each page.
+     * @param page  The page to be displayed
+     * @param cursor  The opaque cursor a search provider gave for the page, or null if there is none
+     */
+    public PaginationParameters(int perPage, int page, String cursor) {
         this.perPage = perPage;
         this.page = page;
+        this.cursor = cursor;
     }
 
     /**
@@ -137,8 +151,22 @@ public class PaginationParameters {
         return page;
     }
 
+    /**
+     * Returns the cursor of the requested page, if there is one.
+     * <p>
+     * A cursor is an opaque token, handed out by a search provider in the link to the next page, that lets the
+     * provider resume its search where the previous page ended rather than from the first page.
+     *
+     * @return The cursor of the requested page
+     */
+    public Optional<String> getCursor() {
+        return Optional.ofNullable(cursor);
+    }
+
     /**
      * Returns a new PaginationParameters object with the specified page value.
+     * <p>
+     * The cursor, which belongs to a specific page, is dropped.
      *
      * @param page  The new page to retrieve.
      *
@@ -150,6 +178,17 @@ public class PaginationParameters {
         return new PaginationParameters(perPage, parseParameter(page, "page"));
     }
 
+    /**
+     * Returns a new PaginationParameters object with the specified cursor.
+     *
+     * @param cursor  The cursor of the requested page, or null for none
+     *
+     * @return A new PaginationParameters object with the same state as this object, except with the specified cursor.
+     */
+    public PaginationParameters withCursor(String cursor) {
+        return new PaginationParameters(perPage, page, cursor);
+    }
+
     /**
      * Returns a new PaginationParameters object with the specified perPage value.
      *
@@ -165,7 +204,7 @@ public class PaginationParameters {
 
     @Override
     public String toString() {
-        return "perPage=" + perPage + "&page=" + page;
+        return "perPage=" + perPage + "&page=" + page + (cursor == null ? "" : "&cursor=" + cursor);
     }
 
     @Override
@@ -175,11 +214,12 @@ public class PaginationParameters {
         PaginationParameters that = (PaginationParameters) o;
         return
                 perPage == that.perPage &&
-                        page == that.page;
+                        page == that.page &&
+                        Objects.equals(cursor, that.cursor);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(perPage, page);
+        return Objects.hash(perPage, page, cursor);
     }
 }
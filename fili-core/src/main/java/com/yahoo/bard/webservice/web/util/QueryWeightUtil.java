@@ -83,6 +83,7 @@ public class QueryWeightUtil {
 
     private final Map<ReadablePeriod, Long> weightLimitTimeMap;
 
+    private final long queryWeightLimit;
     private final Long defaultRowLimit;
     private final Long allTimeRowLimit;
 
@@ -112,7 +113,7 @@ public class QueryWeightUtil {
         float allFactor = SYSTEM_CONFIG.getFloatProperty(ALL_SEGMENTATION_FACTOR_KEY, ALL_SEGMENTATION_FACTOR_DEFAULT);
 
         // The number of rows that the broker can safely be expected to handle, based on day grain testing
-        long queryWeightLimit = SYSTEM_CONFIG.getLongProperty(
+        queryWeightLimit = SYSTEM_CONFIG.getLongProperty(
                 QUERY_WEIGHT_LIMIT_KEY,
                 QUERY_WEIGHT_LIMIT_DEFAULT
         );
@@ -146,6 +147,17 @@ public class QueryWeightUtil {
         return weightLimitTimeMap.getOrDefault(period, defaultRowLimit);
     }
 
+    /**
+     * Get how much heavier a time bucket of the granularity is than an hourly bucket, as implied by its threshold.
+     *
+     * @param granularity  Granularity to get the factor for.
+     *
+     * @return the ratio of the query weight limit to the threshold of the granularity
+     */
+    public double getGrainWeightFactor(Granularity granularity) {
+        return (double) queryWeightLimit / Math.max(getQueryWeightThreshold(granularity), 1);
+    }
+
     /**
      * Indicate if the weight check query can be skipped based on heuristics.
      *
@@ -40,7 +40,9 @@ class FeatureFlagRegistrySpec extends Specification {
                    "data_filter_substring_operations_enabled", "intersection_reporting_enabled",
                    "updated_metadata_collection_names_enabled", "druid_coordinator_metadata_enabled",
                    "druid_lookup_metadata_enabled", "druid_dimensions_loader_enabled",
-                   "case_sensitive_keys_enabled"] as Set
+                   "case_sensitive_keys_enabled", "streaming_druid_response_enabled",
+                   "columnar_result_set_enabled", "interval_sliced_cache_enabled",
+                   "token_bucket_rate_limit_enabled", "speculative_weight_check_enabled"] as Set
     }
 
     @Unroll
@@ -0,0 +1,314 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.data
+
+import static com.yahoo.bard.webservice.data.time.DefaultTimeGrain.DAY
+
+import com.yahoo.bard.webservice.config.BardFeatureFlag
+import com.yahoo.bard.webservice.data.dimension.BardDimensionField
+import com.yahoo.bard.webservice.data.dimension.DimensionColumn
+import com.yahoo.bard.webservice.data.dimension.DimensionField
+import com.yahoo.bard.webservice.data.dimension.DimensionRow
+import com.yahoo.bard.webservice.data.dimension.MapStoreManager
+import com.yahoo.bard.webservice.data.dimension.impl.KeyValueStoreDimension
+import com.yahoo.bard.webservice.data.dimension.impl.ScanSearchProviderManager
+import com.yahoo.bard.webservice.data.metric.MetricColumn
+import com.yahoo.bard.webservice.data.metric.mappers.ResultSetMapper
+import com.yahoo.bard.webservice.druid.model.DefaultQueryType
+
+import com.fasterxml.jackson.core.JsonFactory
+import com.fasterxml.jackson.databind.ObjectMapper
+
+import org.joda.time.DateTime
+import org.joda.time.DateTimeZone
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class ColumnarResultSetSpec extends Specification {
+
+    static final DateTimeZone ZONE = DateTimeZone.forID("America/Chicago")
+
+    KeyValueStoreDimension gender
+    DimensionColumn genderColumn
+    MetricColumn pageViews
+    MetricColumn mixed
+    ResultSetSchema schema
+
+    def setup() {
+        LinkedHashSet<DimensionField> dimensionFields = [BardDimensionField.ID, BardDimensionField.DESC]
+        gender = new KeyValueStoreDimension(
+                "gender",
+                "gender",
+                dimensionFields,
+                MapStoreManager.getInstance("gender"),
+                ScanSearchProviderManager.getInstance("gender")
+        )
+        gender.addDimensionRow(BardDimensionField.makeDimensionRow(gender, "f", "female"))
+        gender.addDimensionRow(BardDimensionField.makeDimensionRow(gender, "m", "male"))
+
+        genderColumn = new DimensionColumn(gender)
+        pageViews = new MetricColumn("pageViews")
+        mixed = new MetricColumn("mixed")
+        schema = new ResultSetSchema(DAY, [genderColumn, pageViews, mixed] as LinkedHashSet)
+    }
+
+    def cleanup() {
+        BardFeatureFlag.COLUMNAR_RESULT_SET.reset()
+    }
+
+    def supplyDependencies() {
+        // Dictionaries without any dimension rows, since the class scanner cannot build a dimension row
+        [(DimensionRow[][].class): new DimensionRow[0][]]
+    }
+
+    Result result(String genderKey, Map<MetricColumn, Object> metrics, int day = 1) {
+        DimensionRow row = gender.findDimensionRowByKeyValue(genderKey)
+        new Result([(genderColumn): row], metrics, new DateTime(2017, 1, day, 0, 0, ZONE))
+    }
+
+    def "A columnar result set exposes the same results it was built from"() {
+        given:
+        List<Result> results = [
+                result("f", [(pageViews): 1 as BigDecimal, (mixed): "text"]),
+                result("m", [(pageViews): 2 as BigDecimal, (mixed): null], 2),
+                result("f", [(pageViews): -3 as BigDecimal], 3)
+        ]
+        ColumnarResultSetBuilder builder = new ColumnarResultSetBuilder(schema, ZONE)
+        results.each { builder.add(it) }
+
+        when:
+        ColumnarResultSet columnar = builder.build()
+        ResultSet plain = new ResultSet(schema, results)
+
+        then:
+        columnar.size() == 3
+        columnar.getSchema() == schema
+        columnar == plain
+        plain == columnar
+        columnar.hashCode() == plain.hashCode()
+        columnar.collect { it } == results
+        columnar.stream().map { it.getTimeStamp() }.collect() == results*.timeStamp
+        columnar.get(1) == results[1]
+        columnar.subList(1, 3) == results.subList(1, 3)
+        columnar.getTimeStampMillis(2) == results[2].timeStamp.millis
+
+        and: "Absent metrics stay absent and null metrics stay null"
+        !columnar.get(2).getMetricValues().containsKey(mixed)
+        columnar.get(1).getMetricValues().containsKey(mixed)
+        columnar.get(1).getMetricValue(mixed) == null
+
+        and: "Repeated dimension rows are stored once"
+        columnar.getDistinctDimensionRowCount(genderColumn) == 2
+        columnar.get(0).getDimensionRow(genderColumn).is(columnar.get(2).getDimensionRow(genderColumn))
+    }
+
+    @Unroll
+    def "Metric values #values read back unchanged"() {
+        given:
+        ColumnarResultSetBuilder builder = new ColumnarResultSetBuilder(schema, ZONE)
+        values.eachWithIndex { value, day -> builder.add(result("f", [(mixed): value], day + 1)) }
+
+        when:
+        ColumnarResultSet columnar = builder.build()
+
+        then:
+        columnar*.getMetricValue(mixed) == values
+        // BigDecimal equality includes the scale, which must survive the primitive storage
+        columnar*.getMetricValue(mixed)*.toString() == values*.toString()
+
+        where:
+        values << [
+                [1, 2, 3].collect { it as BigDecimal },
+                [new BigDecimal("1"), BigDecimal.valueOf(2.5d), new BigDecimal("3")],
+                [BigDecimal.valueOf(Long.MAX_VALUE), BigDecimal.valueOf(0.5d)],
+                [new BigDecimal("12345678901234567890123"), new BigDecimal("1")],
+                [new BigDecimal("0.1000"), new BigDecimal("7")],
+                [new BigDecimal("1"), true, new BigDecimal("2.5")],
+                [new BigDecimal("1"), new ObjectMapper().readTree('{"a": 1}')]
+        ]
+    }
+
+    def "Reading the same row twice in a row builds its result once"() {
+        given:
+        ColumnarResultSet columnar = new ColumnarResultSetBuilder(schema, ZONE)
+                .add(result("f", [(pageViews): 1 as BigDecimal]))
+                .add(result("m", [(pageViews): 2 as BigDecimal], 2))
+                .build()
+
+        expect:
+        columnar.get(0).is(columnar.get(0))
+        columnar.get(1).is(columnar.get(1))
+    }
+
+    @Unroll
+    def "Modifying a columnar result set holds its rows as results from then on (#description)"() {
+        given:
+        List<Result> results = [
+                result("f", [(pageViews): 1 as BigDecimal]),
+                result("m", [(pageViews): 2 as BigDecimal], 2)
+        ]
+        ColumnarResultSetBuilder builder = new ColumnarResultSetBuilder(schema, ZONE)
+        results.each { builder.add(it) }
+        ColumnarResultSet columnar = builder.build()
+        List<Result> expected = new ArrayList<>(results)
+
+        when:
+        mutation(columnar)
+        mutation(expected)
+
+        then:
+        !columnar.isColumnar()
+        columnar == expected
+        columnar.size() == expected.size()
+        columnar.getSchema() == schema
+
+        where:
+        description       | mutation
+        "add"             | { it.add(it.get(0)) }
+        "remove"          | { it.remove(0) }
+        "clear"           | { it.clear() }
+        "set"             | { it.set(0, it.get(1)) }
+        "iterator remove" | { it.iterator().with { next(); remove() } }
+        "sort"            | { it.sort { a, b -> b.timeStamp <=> a.timeStamp } }
+        "removeIf"        | { it.removeIf { it.timeStamp.dayOfMonth == 2 } }
+    }
+
+    def "A result set mapper keeps a columnar result set columnar"() {
+        given:
+        ColumnarResultSet columnar = new ColumnarResultSetBuilder(schema, ZONE)
+                .add(result("f", [(pageViews): 1 as BigDecimal]))
+                .add(result("m", [(pageViews): 2 as BigDecimal], 2))
+                .build()
+        ResultSetMapper doubling = new ResultSetMapper() {
+            @Override
+            protected Result map(Result result, ResultSetSchema resultSetSchema) {
+                BigDecimal views = result.getMetricValueAsNumber(pageViews) as BigDecimal
+                return result.withMetricValue(pageViews, views * 2)
+            }
+
+            @Override
+            protected ResultSetSchema map(ResultSetSchema resultSetSchema) {
+                return resultSetSchema
+            }
+        }
+
+        when:
+        ResultSet mapped = doubling.map(columnar)
+
+        then:
+        mapped instanceof ColumnarResultSet
+        ((ColumnarResultSet) mapped).isColumnar()
+        mapped*.getMetricValue(pageViews) == [2, 4].collect { it as BigDecimal }
+    }
+
+    def "A result set mapper whose rows do not fit its schema maps into a plain result set"() {
+        given:
+        ColumnarResultSet columnar = new ColumnarResultSetBuilder(schema, ZONE)
+                .add(result("f", [(pageViews): 1 as BigDecimal]))
+                .build()
+        MetricColumn added = new MetricColumn("added")
+        ResultSetMapper adding = new ResultSetMapper() {
+            @Override
+            protected Result map(Result result, ResultSetSchema resultSetSchema) {
+                return result.withMetricValue(added, 1 as BigDecimal)
+            }
+
+            @Override
+            protected ResultSetSchema map(ResultSetSchema resultSetSchema) {
+                return resultSetSchema
+            }
+        }
+
+        when:
+        ResultSet mapped = adding.map(columnar)
+
+        then:
+        !(mapped instanceof ColumnarResultSet)
+        mapped.size() == 1
+        mapped[0].getMetricValue(added) == 1 as BigDecimal
+    }
+
+    def "A result set mapper maps each row once when a later row does not fit its schema"() {
+        given:
+        ColumnarResultSet columnar = new ColumnarResultSetBuilder(schema, ZONE)
+                .add(result("f", [(pageViews): 1 as BigDecimal]))
+                .add(result("m", [(pageViews): 2 as BigDecimal], 2))
+                .add(result("f", [(pageViews): 3 as BigDecimal], 3))
+                .build()
+        MetricColumn added = new MetricColumn("added")
+        List<Integer> mappedDays = []
+        ResultSetMapper addingFromSecondRow = new ResultSetMapper() {
+            @Override
+            protected Result map(Result result, ResultSetSchema resultSetSchema) {
+                mappedDays << result.timeStamp.dayOfMonth
+                return result.timeStamp.dayOfMonth == 1 ? result : result.withMetricValue(added, 1 as BigDecimal)
+            }
+
+            @Override
+            protected ResultSetSchema map(ResultSetSchema resultSetSchema) {
+                return resultSetSchema
+            }
+        }
+
+        when:
+        ResultSet mapped = addingFromSecondRow.map(columnar)
+
+        then:
+        mappedDays == [1, 2, 3]
+        !(mapped instanceof ColumnarResultSet)
+        mapped*.getMetricValue(pageViews) == [1, 2, 3].collect { it as BigDecimal }
+        mapped*.getMetricValue(added) == [null, 1 as BigDecimal, 1 as BigDecimal]
+    }
+
+    def "Timestamps must be in the time zone of the builder"() {
+        given:
+        ColumnarResultSetBuilder builder = new ColumnarResultSetBuilder(schema, DateTimeZone.UTC)
+
+        when:
+        builder.add(result("f", [(pageViews): 1 as BigDecimal]))
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def "A builder builds only one result set"() {
+        given:
+        ColumnarResultSetBuilder builder = new ColumnarResultSetBuilder(schema, ZONE)
+        builder.build()
+
+        when:
+        builder.addRow()
+
+        then:
+        thrown(IllegalStateException)
+    }
+
+    def "With columnar result sets enabled, streamed Druid responses are stored by column"() {
+        given:
+        BardFeatureFlag.COLUMNAR_RESULT_SET.setOn(true)
+        String druidResponse = """
+        [ {
+            "timestamp" : "2017-01-01T00:00:00.000-06:00",
+            "event" : { "gender" : "f", "pageViews" : 1, "mixed" : 1.5 }
+        }, {
+            "timestamp" : "2017-01-02T00:00:00.000-06:00",
+            "event" : { "gender" : "m", "pageViews" : 2, "mixed" : "text" }
+        } ]
+        """
+        DruidResponseParser parser = new DruidResponseParser()
+
+        when:
+        ResultSet streamed = parser.parse(
+                new JsonFactory().createParser(druidResponse),
+                schema,
+                DefaultQueryType.GROUP_BY,
+                ZONE
+        )
+        ResultSet tree = parser.parse(new ObjectMapper().readTree(druidResponse), schema, DefaultQueryType.GROUP_BY, ZONE)
+
+        then:
+        streamed instanceof ColumnarResultSet
+        streamed == tree
+    }
+}
@@ -0,0 +1,74 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.data
+
+import com.yahoo.bard.webservice.data.dimension.BardDimensionField
+import com.yahoo.bard.webservice.data.dimension.DimensionColumn
+import com.yahoo.bard.webservice.data.dimension.DimensionRow
+import com.yahoo.bard.webservice.data.dimension.impl.KeyValueStoreDimension
+
+import spock.lang.Specification
+
+class DimensionRowHydratorSpec extends Specification {
+
+    KeyValueStoreDimension dimension = Mock(KeyValueStoreDimension)
+    DimensionColumn column = new DimensionColumn(dimension)
+    DimensionRowHydrator hydrator = new DimensionRowHydrator()
+
+    DimensionRow row(String keyValue) {
+        new DimensionRow(BardDimensionField.ID, [(BardDimensionField.ID): keyValue])
+    }
+
+    def setup() {
+        dimension.getApiName() >> "dimension"
+    }
+
+    def "Requested key values are fetched together, once each"() {
+        given:
+        DimensionRow rowA = row("a")
+        DimensionRow rowB = row("b")
+
+        when:
+        ["a", "b", "a", "b", "a"].each { hydrator.request(column, it) }
+        hydrator.hydrate()
+
+        then:
+        1 * dimension.findDimensionRowsByKeyValues({ it == ["a", "b"] as Set }) >> [a: rowA, b: rowB]
+
+        when:
+        hydrator.request(column, "a")
+        hydrator.hydrate()
+
+        then: "Hydrated key values are not fetched again, and resolve to the same row"
+        0 * dimension.findDimensionRowsByKeyValues(_)
+        hydrator.getDimensionRow(column, "a").is(rowA)
+        hydrator.getDimensionRow(column, "b").is(rowB)
+    }
+
+    def "Key values without a row resolve to a single empty row"() {
+        given:
+        DimensionRow empty = row("missing")
+        hydrator.request(column, "missing")
+
+        when:
+        hydrator.hydrate()
+
+        then:
+        1 * dimension.findDimensionRowsByKeyValues({ it == ["missing"] as Set }) >> [:]
+        1 * dimension.createEmptyDimensionRow("missing") >> empty
+        hydrator.getDimensionRow(column, "missing").is(empty)
+        hydrator.getDimensionRow(column, "missing").is(empty)
+    }
+
+    def "Key values which were not requested are fetched on their own"() {
+        given:
+        DimensionRow rowC = row("c")
+
+        when:
+        DimensionRow found = hydrator.getDimensionRow(column, "c")
+
+        then:
+        1 * dimension.findDimensionRowsByKeyValues({ it == ["c"] as Set }) >> [c: rowC]
+        found.is(rowC)
+    }
+}
@@ -9,6 +9,8 @@ import com.yahoo.bard.webservice.data.dimension.BardDimensionField
 import com.yahoo.bard.webservice.data.dimension.DimensionColumn
 import com.yahoo.bard.webservice.data.dimension.DimensionDictionary
 import com.yahoo.bard.webservice.data.dimension.DimensionField
+import com.yahoo.bard.webservice.data.dimension.KeyValueStore
+import com.yahoo.bard.webservice.data.dimension.MapStore
 import com.yahoo.bard.webservice.data.dimension.MapStoreManager
 import com.yahoo.bard.webservice.data.dimension.impl.KeyValueStoreDimension
 import com.yahoo.bard.webservice.data.dimension.impl.ScanSearchProviderManager
@@ -397,6 +399,141 @@ class DruidResponseParserSpec extends Specification {
         queryType << [DefaultQueryType.GROUP_BY, DefaultQueryType.TOP_N, DefaultQueryType.TIMESERIES]
     }
 
+    @Unroll
+    def "Streaming a Druid #queryType response builds the same result set as parsing its tree"() {
+        given: "A response with numeric, String, boolean, null and JsonNode metrics"
+        String druidResponse = buildResponse(
+                queryType,
+                [
+                        '"pageViews"': 12,
+                        '"time_spent"': 2.5,
+                        '"luckyNumbers"': '"1, 3, 7"',
+                        '"true"': true,
+                        '"null"': null,
+                        '"sketch"': '{"values": "2", "length": 1}'
+                ]
+        )
+        ResultSetSchema schema = buildSchema(["pageViews", "time_spent", "luckyNumbers", "true", "null", "sketch"])
+
+        when: "We build result sets from the tree and from the token stream"
+        ResultSet treeResultSet = buildResultSet(druidResponse, schema, queryType)
+        ResultSet streamedResultSet = responseParser.parse(
+                new JsonFactory().createParser(druidResponse),
+                schema,
+                queryType,
+                DateTimeZone.UTC
+        )
+
+        then: "The result sets match"
+        streamedResultSet.getSchema() == schema
+        streamedResultSet == treeResultSet
+        streamedResultSet.get(0).getDimensionRows().keySet() as List ==
+                treeResultSet.get(0).getDimensionRows().keySet() as List
+        streamedResultSet.get(0).getMetricValues().keySet() as List ==
+                treeResultSet.get(0).getMetricValues().keySet() as List
+
+        where:
+        queryType << [DefaultQueryType.GROUP_BY, DefaultQueryType.TOP_N, DefaultQueryType.TIMESERIES]
+    }
+
+    def "Streaming a top N response emits one row per entry of every time bucket"() {
+        given:
+        String jsonText = """
+        [ {
+            "result" : [ { "ageBracket" : "4", "pageViews" : 1 }, { "ageBracket" : "1", "pageViews" : 2 } ],
+            "timestamp" : "2012-01-01T00:00:00.000Z"
+        }, {
+            "timestamp" : "2012-01-04T00:00:00.000Z",
+            "result" : [ { "ageBracket" : null, "pageViews" : 3, "ignored" : { "nested" : [ 1, 2 ] } } ]
+        } ]
+        """
+        DimensionColumn column = new DimensionColumn(dimensionDictionary.findByApiName("ageBracket"))
+        MetricColumn pageViews = new MetricColumn("pageViews")
+        ResultSetSchema schema = new ResultSetSchema(DAY, [column, pageViews].toSet())
+
+        when:
+        ResultSet resultSet = responseParser.parse(
+                new JsonFactory().createParser(jsonText),
+                schema,
+                DefaultQueryType.TOP_N,
+                DateTimeZone.UTC
+        )
+
+        then: "Rows take the timestamp of their bucket, even when it follows the rows"
+        resultSet*.timeStamp == [
+                new DateTime("2012-01-01T00:00:00.000Z", DateTimeZone.UTC),
+                new DateTime("2012-01-01T00:00:00.000Z", DateTimeZone.UTC),
+                new DateTime("2012-01-04T00:00:00.000Z", DateTimeZone.UTC)
+        ]
+        resultSet*.getMetricValueAsNumber(pageViews) == [1, 2, 3].collect { it as BigDecimal }
+
+        and: "Null dimension values resolve to the empty key row"
+        resultSet.get(2).getDimensionRow(column)?.get(BardDimensionField.DESC) == "unknown"
+    }
+
+    @Unroll
+    def "The rows of each dimension of a #mode response are fetched at once, and shared by repeated key values"() {
+        given: "A dimension whose store counts its lookups"
+        KeyValueStore store = Spy(MapStore)
+        KeyValueStoreDimension platform = new KeyValueStoreDimension(
+                "platform",
+                "platform",
+                [BardDimensionField.ID, BardDimensionField.DESC] as LinkedHashSet,
+                store,
+                ScanSearchProviderManager.getInstance("platform")
+        )
+        platform.addDimensionRow(BardDimensionField.makeDimensionRow(platform, "web", "Web"))
+        DimensionColumn platformColumn = new DimensionColumn(platform)
+        ResultSetSchema schema = new ResultSetSchema(DAY, [platformColumn, new MetricColumn("pageViews")] as Set)
+
+        and: "A response repeating a few key values over many rows"
+        String druidResponse = MAPPER.writeValueAsString((1..50).collect {
+            [
+                    version: "v1",
+                    timestamp: "2012-01-01T00:00:00.000Z",
+                    event: [platform: it % 2 == 0 ? "web" : "mobile", pageViews: it]
+            ]
+        })
+
+        when:
+        ResultSet resultSet = mode == "streamed"
+                ? responseParser.parse(
+                        new JsonFactory().createParser(druidResponse),
+                        schema,
+                        DefaultQueryType.GROUP_BY,
+                        DateTimeZone.UTC
+                )
+                : buildResultSet(druidResponse, schema, DefaultQueryType.GROUP_BY)
+
+        then: "The store is read once for both key values, and once more to check the key value without a row"
+        1 * store.getAll({ it.size() == 2 })
+        // The default getAll reads each key on its own
+        1 * store.get("id_web_row_key")
+        2 * store.get("id_mobile_row_key")
+
+        and: "Rows with the same key value share one dimension row"
+        resultSet.size() == 50
+        resultSet.get(0).getDimensionRow(platformColumn).is(resultSet.get(2).getDimensionRow(platformColumn))
+        resultSet.get(1).getDimensionRow(platformColumn).get(BardDimensionField.DESC) == "Web"
+        resultSet.get(0).getDimensionRow(platformColumn).get(BardDimensionField.DESC) == ""
+
+        where:
+        mode << ["parsed", "streamed"]
+    }
+
+    def "Streaming a response that is not an array of records fails"() {
+        when:
+        responseParser.parse(
+                new JsonFactory().createParser('{"error": "not a result"}'),
+                buildSchema(["pageViews"]),
+                DefaultQueryType.GROUP_BY,
+                DateTimeZone.UTC
+        )
+
+        then:
+        thrown(IOException)
+    }
+
     def "Attempting to parse an unknown query type throws an UnsupportedOperationException"() {
         given:
         QueryType mysteryType = Mock(QueryType)
@@ -0,0 +1,153 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.data.cache
+
+import static com.yahoo.bard.webservice.data.time.DefaultTimeGrain.DAY
+import static com.yahoo.bard.webservice.data.time.DefaultTimeGrain.WEEK
+
+import com.yahoo.bard.webservice.application.ObjectMappersSuite
+import com.yahoo.bard.webservice.data.dimension.Dimension
+import com.yahoo.bard.webservice.druid.model.aggregation.Aggregation
+import com.yahoo.bard.webservice.druid.model.aggregation.CardinalityAggregation
+import com.yahoo.bard.webservice.druid.model.aggregation.FilteredAggregation
+import com.yahoo.bard.webservice.druid.model.aggregation.LongSumAggregation
+import com.yahoo.bard.webservice.druid.model.datasource.QueryDataSource
+import com.yahoo.bard.webservice.druid.model.datasource.TableDataSource
+import com.yahoo.bard.webservice.druid.model.filter.SelectorFilter
+import com.yahoo.bard.webservice.druid.model.postaggregation.FieldAccessorPostAggregation
+import com.yahoo.bard.webservice.druid.model.query.GroupByQuery
+import com.yahoo.bard.webservice.druid.model.query.QueryContext
+import com.yahoo.bard.webservice.druid.model.query.TimeSeriesQuery
+import com.yahoo.bard.webservice.metadata.DataSourceMetadataService
+import com.yahoo.bard.webservice.table.TableTestUtils
+
+import org.joda.time.DateTimeZone
+import org.joda.time.Interval
+
+import spock.lang.Shared
+import spock.lang.Specification
+
+class QueryFingerprinterSpec extends Specification {
+
+    QueryFingerprinter fingerprinter = new QueryFingerprinter(new ObjectMappersSuite().getMapper())
+
+    @Shared Aggregation pageViews = new LongSumAggregation("pageViews", "page_views")
+    @Shared Aggregation users = new LongSumAggregation("users", "users")
+
+    TimeSeriesQuery query = new TimeSeriesQuery(
+            new TableDataSource(TableTestUtils.buildTable(
+                    "table_name",
+                    DAY.buildZonedTimeGrain(DateTimeZone.UTC),
+                    [] as Set,
+                    [:],
+                    Mock(DataSourceMetadataService)
+            )),
+            DAY,
+            null,
+            [pageViews, users],
+            [new FieldAccessorPostAggregation(pageViews)],
+            [new Interval("2017-01-01/2017-02-01")],
+            new QueryContext([(QueryContext.Param.QUERY_ID): "query1"], null),
+            false
+    )
+
+    def "Fingerprints are SHA-256 hex strings which are stable across fingerprinters"() {
+        when:
+        String fingerprint = fingerprinter.fingerprint(query)
+
+        then:
+        fingerprint ==~ /[0-9a-f]{64}/
+        fingerprint == new QueryFingerprinter(new ObjectMappersSuite().getMapper()).fingerprint(query)
+        fingerprint == fingerprinter.fingerprint(query)
+    }
+
+    def "The context of a query does not change its fingerprint"() {
+        expect:
+        fingerprinter.fingerprint(query) == fingerprinter.fingerprint(
+                query.withContext(new QueryContext([(QueryContext.Param.QUERY_ID): "query2"], null))
+        )
+    }
+
+    def "The contexts of inner queries do not change the fingerprint of their outer query"() {
+        given:
+        GroupByQuery nested1 = nest(query)
+        GroupByQuery nested2 = nest(query.withContext(new QueryContext([(QueryContext.Param.QUERY_ID): "query2"], null)))
+
+        expect:
+        fingerprinter.fingerprint(nested1) == fingerprinter.fingerprint(nested2)
+
+        and: "the inner query is still part of the fingerprint"
+        fingerprinter.fingerprint(nested1) != fingerprinter.fingerprint(nest(query.withGranularity(WEEK)))
+    }
+
+    def "Any change to the query outside its context changes its fingerprint"() {
+        expect:
+        fingerprinter.fingerprint(query) != fingerprinter.fingerprint(changed(query))
+
+        where:
+        changed << [
+                { it.withGranularity(WEEK) },
+                { it.withIntervals([new Interval("2017-01-01/2017-03-01")]) },
+                { it.withAggregations([pageViews]) },
+                { it.withAggregations([users, pageViews]) },
+                { it.withAggregations([pageViews, new LongSumAggregation("users", "other_users")]) },
+                { it.withPostAggregations([]) },
+                { it.withPostAggregations([new FieldAccessorPostAggregation(users)]) }
+        ]
+    }
+
+    def "Equal aggregations built separately give the same fingerprint"() {
+        expect:
+        fingerprinter.fingerprint(query) == fingerprinter.fingerprint(
+                query.withAggregations([
+                        new LongSumAggregation("pageViews", "page_views"),
+                        new LongSumAggregation("users", "users")
+                ])
+        )
+    }
+
+    def "Aggregations naming dimensions are fingerprinted with the physical names of their enclosing query"() {
+        given: "A cardinality aggregation and a filtered aggregation on a dimension"
+        Dimension dimension = Mock(Dimension) { getApiName() >> "platform" }
+        List<Aggregation> aggregations = [
+                new CardinalityAggregation("platforms", [dimension] as Set, false),
+                new FilteredAggregation("webPageViews", pageViews, new SelectorFilter(dimension, "web"))
+        ]
+
+        and: "The same aggregations in queries on tables naming the dimension differently"
+        TimeSeriesQuery query1 = onTable(["platform": "platform_column"]).withAggregations(aggregations)
+        TimeSeriesQuery query2 = onTable(["platform": "other_platform_column"]).withAggregations(aggregations)
+
+        when:
+        String fingerprint1 = fingerprinter.fingerprint(query1)
+        String fingerprint2 = fingerprinter.fingerprint(query2)
+
+        then:
+        fingerprint1 != fingerprint2
+        fingerprint1 == fingerprinter.fingerprint(onTable(["platform": "platform_column"]).withAggregations(aggregations))
+    }
+
+    TimeSeriesQuery onTable(Map<String, String> physicalNames) {
+        query.withDataSource(new TableDataSource(TableTestUtils.buildTable(
+                "table_name",
+                DAY.buildZonedTimeGrain(DateTimeZone.UTC),
+                [] as Set,
+                physicalNames,
+                Mock(DataSourceMetadataService)
+        )))
+    }
+
+    GroupByQuery nest(TimeSeriesQuery inner) {
+        new GroupByQuery(
+                new QueryDataSource(inner),
+                DAY,
+                [],
+                null,
+                null,
+                [pageViews],
+                [],
+                [new Interval("2017-01-01/2017-02-01")],
+                null
+        )
+    }
+}
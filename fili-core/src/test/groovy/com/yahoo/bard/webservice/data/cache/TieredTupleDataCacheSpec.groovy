@@ -0,0 +1,154 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.data.cache
+
+import spock.lang.Specification
+
+import java.util.function.Predicate
+
+class TieredTupleDataCacheSpec extends Specification {
+
+    TestTupleDataCache remote = new TestTupleDataCache()
+    TieredTupleDataCache<Long> cache = new TieredTupleDataCache<>(remote, 1024 * 1024, 3600)
+
+    def "Values written to the cache are read back unchanged from the near tier"() {
+        given:
+        String value = '[{"timestamp": "2017-01-01", "event": {"pageViews": 10}}]' * 50
+        long nearHits = TieredTupleDataCache.NEAR_HITS.count
+
+        when:
+        cache.set("key", 1L, value)
+        remote.clear()
+
+        then:
+        cache.getDataValue("key") == value
+        cache.get("key").meta == 1L
+        TieredTupleDataCache.NEAR_HITS.count == nearHits + 2
+    }
+
+    def "Remote entries are promoted to the near tier"() {
+        given:
+        remote.set("key", 1L, "value")
+
+        expect:
+        cache.nearSize == 0
+
+        when:
+        TupleDataCache.DataEntry<String, Long, String> entry = cache.get("key")
+
+        then:
+        entry.value == "value"
+        cache.nearSize == 1
+
+        when:
+        remote.clear()
+
+        then:
+        cache.get("key").value == "value"
+    }
+
+    def "A near entry failing the validity check is dropped in favor of the remote entry"() {
+        given:
+        cache.set("key", 1L, "stale")
+        remote.set("key", 2L, "fresh")
+        Predicate<Long> isFresh = { it == 2L }
+
+        when:
+        TupleDataCache.DataEntry<String, Long, String> entry = cache.get("key", isFresh)
+
+        then:
+        entry.meta == 2L
+        entry.value == "fresh"
+
+        when: "The fresh entry has been promoted"
+        remote.clear()
+
+        then:
+        cache.get("key", isFresh).value == "fresh"
+    }
+
+    def "A near entry failing the validity check is not returned when the remote tier misses"() {
+        given:
+        cache.set("key", 1L, "stale")
+        remote.clear()
+
+        when:
+        TupleDataCache.DataEntry<String, Long, String> entry = cache.get("key", { it == 2L } as Predicate<Long>)
+
+        then:
+        entry == null
+        cache.nearSize == 0
+        cache.get("key") == null
+    }
+
+    def "Reading many keys reads the keys the near tier cannot serve from the remote tier at once"() {
+        given: "A fresh near entry, a stale near entry, a remote entry and a missing key"
+        TestTupleDataCache bulkRemote = Spy(TestTupleDataCache)
+        TieredTupleDataCache<Long> tiered = new TieredTupleDataCache<>(bulkRemote, 1024 * 1024, 3600)
+        tiered.set("near", 2L, "near value")
+        tiered.set("stale", 1L, "stale value")
+        bulkRemote.clear()
+        bulkRemote.set("stale", 2L, "fresh value")
+        bulkRemote.set("remote", 2L, "remote value")
+
+        when:
+        Map<String, TupleDataCache.DataEntry<String, Long, String>> entries = tiered.getAll(
+                ["near", "stale", "remote", "missing"],
+                { key, meta -> meta == 2L }
+        )
+
+        then:
+        1 * bulkRemote.getAll(["stale", "remote", "missing"], _)
+        0 * bulkRemote.get(*_)
+        entries.collectEntries { [(it.key): it.value.value] } == [
+                near: "near value",
+                stale: "fresh value",
+                remote: "remote value"
+        ]
+
+        and: "The remote entries are promoted"
+        tiered.nearSize == 3
+    }
+
+    def "Invalid remote entries are returned but not promoted"() {
+        given:
+        remote.set("key", 1L, "stale")
+
+        when:
+        TupleDataCache.DataEntry<String, Long, String> entry = cache.get("key", { it == 2L } as Predicate<Long>)
+
+        then:
+        entry.value == "stale"
+        cache.nearSize == 0
+    }
+
+    def "The near tier is bounded by the size of its entries"() {
+        given:
+        TieredTupleDataCache<Long> small = new TieredTupleDataCache<>(remote, 4096, 3600)
+        Random random = new Random(1)
+        // Random values barely compress, so each entry weighs about 1KB
+        List<String> values = (0..<20).collect { (0..<1024).collect { (char) (33 + random.nextInt(90)) }.join() }
+
+        when:
+        values.eachWithIndex { value, i -> small.set("key" + i, 1L, value) }
+
+        then:
+        small.nearSize < 20
+        small.nearSize > 0
+
+        and: "Evicted entries are still read from the remote tier"
+        values.withIndex().every { value, i -> small.getDataValue("key" + i) == value }
+    }
+
+    def "Clearing the cache clears both tiers"() {
+        given:
+        cache.set("key", 1L, "value")
+
+        when:
+        cache.clear()
+
+        then:
+        cache.nearSize == 0
+        cache.get("key") == null
+    }
+}
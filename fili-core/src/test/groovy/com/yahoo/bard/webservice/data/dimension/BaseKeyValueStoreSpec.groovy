@@ -94,6 +94,17 @@ abstract class BaseKeyValueStoreSpec extends Specification {
         "value2" == store1.get("key2")
     }
 
+    def "getAll gets the values of the keys which have one"() {
+        given:
+        store1.put("key1", "value1")
+        store1.put("key2", "value2")
+        store1.remove("key3")
+
+        expect:
+        store1.getAll(["key1", "key2", "key3"]) == [key1: "value1", key2: "value2"]
+        store1.getAll([]) == [:]
+    }
+
     def "remove returns previous value"() {
         given: 'the key exists'
         store1.put("key1", "value1")
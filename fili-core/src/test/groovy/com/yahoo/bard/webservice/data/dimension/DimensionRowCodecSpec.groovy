@@ -0,0 +1,121 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.data.dimension
+
+import com.yahoo.bard.webservice.data.dimension.impl.KeyValueStoreDimension
+import com.yahoo.bard.webservice.data.dimension.impl.ScanSearchProviderManager
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class DimensionRowCodecSpec extends Specification {
+
+    JsonDimensionRowCodec json = new JsonDimensionRowCodec()
+    BinaryDimensionRowCodec binary = new BinaryDimensionRowCodec()
+
+    DimensionRowCodec originalCodec
+    KeyValueStore store = new MapStore()
+    KeyValueStoreDimension dimension = buildDimension([BardDimensionField.ID, BardDimensionField.DESC])
+
+    def setup() {
+        originalCodec = DimensionRowCodecProvider.dimensionRowCodec
+    }
+
+    def cleanup() {
+        DimensionRowCodecProvider.dimensionRowCodec = originalCodec
+    }
+
+    KeyValueStoreDimension buildDimension(List<DimensionField> fields) {
+        new KeyValueStoreDimension(
+                "country",
+                "country",
+                fields as LinkedHashSet,
+                store,
+                ScanSearchProviderManager.getInstance("country")
+        )
+    }
+
+    DimensionRow row(String id, String desc) {
+        BardDimensionField.makeDimensionRow(dimension, id, desc)
+    }
+
+    @Unroll
+    def "Rows encoded by the #codec.class.simpleName decode to the same rows with either codec"() {
+        given:
+        DimensionRow original = row(id, desc)
+
+        expect:
+        json.decode(dimension, codec.encode(dimension, original)) == original
+        binary.decode(dimension, codec.encode(dimension, original)) == original
+
+        where:
+        codec                         | id       | desc
+        new JsonDimensionRowCodec()   | "us"     | "United States"
+        new JsonDimensionRowCodec()   | "ü ✓ 国" | ""
+        new BinaryDimensionRowCodec() | "us"     | "United States"
+        new BinaryDimensionRowCodec() | "ü ✓ 国" | ""
+        new BinaryDimensionRowCodec() | "x" * 70 | "y" * 100000
+    }
+
+    def "Binary rows leave out the field names, and are much smaller than JSON rows"() {
+        given:
+        DimensionRow original = row("us", "United States")
+        String encoded = binary.encode(dimension, original)
+
+        expect: "A header, then each value after its length"
+        encoded.startsWith([0, 1, 2].collect { it as char }.join(""))
+        encoded.endsWith((2 as char).toString() + "us" + (13 as char).toString() + "United States")
+        encoded.length() * 2 < json.encode(dimension, original).length()
+    }
+
+    def "Binary rows of a dimension which gained a field decode with an empty value for it"() {
+        given:
+        String encoded = binary.encode(dimension, row("us", "United States"))
+        KeyValueStoreDimension grown = buildDimension([BardDimensionField.ID, BardDimensionField.DESC, TestField.NEW])
+
+        when:
+        DimensionRow decoded = binary.decode(grown, encoded)
+
+        then:
+        decoded.get(BardDimensionField.DESC) == "United States"
+        decoded.get(TestField.NEW) == ""
+    }
+
+    def "Binary rows of a dimension whose fields were reordered can't be decoded"() {
+        given:
+        String encoded = binary.encode(dimension, row("us", "United States"))
+        KeyValueStoreDimension reordered = buildDimension([BardDimensionField.DESC, BardDimensionField.ID])
+
+        when:
+        binary.decode(reordered, encoded)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def "A dimension switched to the binary codec reads its JSON rows, and writes binary rows"() {
+        given: "A row stored as JSON"
+        dimension.addDimensionRow(row("us", "United States"))
+        DimensionRowCodecProvider.dimensionRowCodec = binary
+        KeyValueStoreDimension switched = buildDimension([BardDimensionField.ID, BardDimensionField.DESC])
+
+        expect:
+        switched.findDimensionRowByKeyValue("us").get(BardDimensionField.DESC) == "United States"
+        switched.searchProvider.findAllDimensionRows().size() == 1
+
+        when:
+        switched.addDimensionRow(row("us", "USA"))
+
+        then:
+        BinaryDimensionRowCodec.isBinaryEncoded(store.get("id_us_row_key"))
+        switched.findDimensionRowByKeyValue("us").get(BardDimensionField.DESC) == "USA"
+    }
+
+    enum TestField implements DimensionField {
+        NEW
+
+        String getName() { "new" }
+
+        String getDescription() { "new" }
+    }
+}
@@ -0,0 +1,184 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.data.dimension
+
+import com.yahoo.bard.webservice.data.dimension.impl.KeyValueStoreDimension
+import com.yahoo.bard.webservice.data.dimension.impl.ScanSearchProviderManager
+import com.yahoo.bard.webservice.util.Utils
+
+import org.joda.time.DateTime
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+
+class MappedFileStoreSpec extends BaseKeyValueStoreSpec {
+
+    Path directory = Paths.get("target/tmp/mappedFileStoreSpec")
+
+    def KeyValueStore getInstance(String storeName) {
+        return MappedFileStoreManager.getInstance(storeName);
+    }
+
+    def void removeInstance(String storeName) {
+        MappedFileStoreManager.removeInstance(storeName);
+    }
+
+    def cleanup() {
+        if (Files.exists(directory)) {
+            Utils.deleteFiles(directory.toString())
+        }
+    }
+
+    def "A store opened again holds the keys it held when it was closed"() {
+        given:
+        MappedFileStore store = new MappedFileStore(directory.resolve("store"))
+        store.putAll([key1: "value1", key2: "value2", key3: "value3"])
+        store.remove("key2")
+        store.close()
+
+        when:
+        MappedFileStore reopened = new MappedFileStore(directory.resolve("store"))
+
+        then:
+        reopened.size() == 2
+        reopened.getAll(["key1", "key2", "key3"]) == [key1: "value1", key3: "value3"]
+
+        cleanup:
+        reopened.close()
+    }
+
+    def "A dimension reopened on its store doesn't need to be loaded again"() {
+        given:
+        DateTime lastUpdated = new DateTime()
+        MappedFileStore store = new MappedFileStore(directory.resolve("store"))
+        KeyValueStoreDimension dimension = buildDimension(store)
+        dimension.addDimensionRow(BardDimensionField.makeDimensionRow(dimension, "us", "United States"))
+        dimension.setLastUpdated(lastUpdated)
+        store.close()
+
+        when:
+        MappedFileStore reopenedStore = new MappedFileStore(directory.resolve("store"))
+        KeyValueStoreDimension reopened = buildDimension(reopenedStore)
+
+        then:
+        reopened.lastUpdated == lastUpdated
+        reopened.findDimensionRowByKeyValue("us").get(BardDimensionField.DESC) == "United States"
+
+        cleanup:
+        reopenedStore.close()
+    }
+
+    KeyValueStoreDimension buildDimension(KeyValueStore store) {
+        new KeyValueStoreDimension(
+                "country",
+                "country",
+                [BardDimensionField.ID, BardDimensionField.DESC] as LinkedHashSet,
+                store,
+                ScanSearchProviderManager.getInstance("country")
+        )
+    }
+
+    def "The index grows and the log spans segments as keys are added"() {
+        given: "Segments of 64 bytes, which fit two records each"
+        MappedFileStore store = new MappedFileStore(directory.resolve("store"), 64)
+        Map<String, String> entries = (1..5000).collectEntries { ["key$it".toString(), "value$it".toString()] }
+
+        when:
+        store.putAll(entries)
+        store.close()
+        store.open()
+
+        then:
+        store.size() == 5000
+        store.getAll(entries.keySet()) == entries
+
+        cleanup:
+        store.close()
+    }
+
+    def "Keys removed and added again take up deleted slots"() {
+        given:
+        MappedFileStore store = new MappedFileStore(directory.resolve("store"))
+
+        when:
+        10.times { round ->
+            (1..400).each { store.put("key$it".toString(), "value$round".toString()) }
+            (1..400).each { store.remove("key$it".toString()) }
+        }
+        store.put("key1", "value")
+
+        then:
+        store.size() == 1
+        store.get("key1") == "value"
+        store.get("key2") == null
+
+        cleanup:
+        store.close()
+    }
+
+    def "Values are stored as UTF-8"() {
+        given:
+        MappedFileStore store = new MappedFileStore(directory.resolve("store"))
+
+        when:
+        store.put("clé", "välue ✓")
+
+        then:
+        store.get("clé") == "välue ✓"
+
+        cleanup:
+        store.close()
+    }
+
+    def "Records larger than a segment are rejected"() {
+        given:
+        MappedFileStore store = new MappedFileStore(directory.resolve("store"), 64)
+
+        when:
+        store.put("key", "v" * 64)
+
+        then:
+        thrown(IllegalArgumentException)
+        store.get("key") == null
+
+        cleanup:
+        store.close()
+    }
+
+    def "A closed store can't be read"() {
+        given:
+        MappedFileStore store = new MappedFileStore(directory.resolve("store"))
+        store.close()
+
+        when:
+        store.get("key1")
+
+        then:
+        thrown(IllegalStateException)
+        !store.isHealthy()
+    }
+
+    def "replaceStore swaps in the contents of another store"() {
+        given:
+        MappedFileStore store = new MappedFileStore(directory.resolve("store"))
+        store.putAll([key1: "old1", key2: "old2"])
+
+        and: "A rebuilt store"
+        MappedFileStore rebuilt = new MappedFileStore(directory.resolve("rebuilt"))
+        rebuilt.putAll([key1: "new1", key3: "new3"])
+        rebuilt.close()
+
+        when:
+        store.replaceStore(directory.resolve("rebuilt").toString())
+
+        then:
+        store.isOpen()
+        store.getAll(["key1", "key2", "key3"]) == [key1: "new1", key3: "new3"]
+        !Files.exists(directory.resolve("rebuilt"))
+        !Files.exists(directory.resolve("store_old"))
+
+        cleanup:
+        store.close()
+    }
+}
@@ -0,0 +1,100 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.data.dimension.impl
+
+import static com.yahoo.bard.webservice.data.dimension.BardDimensionField.makeDimensionRow
+
+import com.yahoo.bard.webservice.data.dimension.DimensionRow
+import com.yahoo.bard.webservice.data.dimension.MapStoreManager
+import com.yahoo.bard.webservice.util.DimensionStoreKeyUtils
+import com.yahoo.bard.webservice.web.util.PaginationParameters
+
+import spock.lang.Unroll
+
+/**
+ * Specification for behavior specific to the BitmapSearchProvider.
+ */
+class BitmapSearchProviderSpec extends SearchProviderSpec<BitmapSearchProvider> {
+
+    @Override
+    BitmapSearchProvider getSearchProvider(String dimensionName) {
+        BitmapSearchProviderManager.getInstance(dimensionName)
+    }
+
+    @Override
+    void cleanSearchProvider(String dimensionName) {
+        BitmapSearchProviderManager.removeInstance(dimensionName)
+    }
+
+    @Override
+    boolean indicesHaveBeenCleared() {
+        return searchProvider.keyValueStore.store.size() == 2 &&
+                searchProvider.keyValueStore[DimensionStoreKeyUtils.getCardinalityKey()] == "0" &&
+                searchProvider.keyValueStore[DimensionStoreKeyUtils.getAllValuesKey()] == "[]" &&
+                searchProvider.findAllOrderedDimensionRows().isEmpty()
+    }
+
+    def "The indexes are rebuilt from the rows in the key value store"() {
+        given: "A new provider over the store of the dimension"
+        BitmapSearchProvider rebuilt = new BitmapSearchProvider()
+        rebuilt.setDimension(keyValueStoreDimension)
+        rebuilt.setKeyValueStore(MapStoreManager.getInstance("animal"))
+
+        expect:
+        rebuilt.findAllOrderedDimensionRows() == dimensionRows as TreeSet
+        rebuilt.findFilteredDimensionRows([buildFilter("animal|desc-in[this is a raptor]")] as Set) ==
+                [dimensionRow2, dimensionRow2a] as TreeSet
+    }
+
+    @Unroll
+    def "Page #page of #perPage rows is the same slice of the ordered rows whether or not it is filtered"() {
+        given: "A filter matching every row but one"
+        List<DimensionRow> ordered = searchProvider.findAllOrderedDimensionRows() as List
+        List<DimensionRow> orderedWithoutOwl = ordered - dimensionRow1
+
+        expect:
+        searchProvider.findAllDimensionRowsPaged(new PaginationParameters(perPage, page)).pageOfData ==
+                ordered.drop((page - 1) * perPage).take(perPage)
+        searchProvider.findFilteredDimensionRowsPaged(
+                [buildFilter("animal|id-notin[owl]")] as Set,
+                new PaginationParameters(perPage, page)
+        ).pageOfData == orderedWithoutOwl.drop((page - 1) * perPage).take(perPage)
+
+        where:
+        perPage | page
+        5       | 1
+        5       | 2
+        5       | 3
+        14      | 1
+    }
+
+    def "Rows added later are placed in order among the existing rows"() {
+        when:
+        keyValueStoreDimension.addAllDimensionRows(
+                [
+                        makeDimensionRow(keyValueStoreDimension, "aardvark", "Eats ants"),
+                        makeDimensionRow(keyValueStoreDimension, "zebra", "Stripes"),
+                        makeDimensionRow(keyValueStoreDimension, "cat", "Meows")
+                ] as Set
+        )
+
+        then:
+        searchProvider.findAllDimensionRowsPaged(new PaginationParameters(20, 1)).pageOfData ==
+                searchProvider.findAllOrderedDimensionRows() as List
+        searchProvider.dimensionCardinality == dimensionRows.size() + 3
+    }
+
+    def "The filter operations keep the rows of a set which match the filter"() {
+        given:
+        TreeSet<DimensionRow> rows = [dimensionRow1, dimensionRow2, dimensionRow3] as TreeSet
+
+        expect:
+        searchProvider.inFilterOperation(rows, buildFilter("animal|id-in[owl,eagle]")) == [dimensionRow1] as TreeSet
+        searchProvider.notinFilterOperation(rows, buildFilter("animal|id-notin[owl]")) ==
+                [dimensionRow2, dimensionRow3] as TreeSet
+        searchProvider.startswithFilterOperation(rows, buildFilter("animal|desc-startswith[this is a]")) ==
+                [dimensionRow1, dimensionRow2] as TreeSet
+        searchProvider.containsFilterOperation(rows, buildFilter("animal|desc-contains[not]")) ==
+                [dimensionRow3] as TreeSet
+    }
+}
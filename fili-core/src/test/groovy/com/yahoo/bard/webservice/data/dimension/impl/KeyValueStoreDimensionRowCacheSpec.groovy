@@ -0,0 +1,188 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.data.dimension.impl
+
+import com.yahoo.bard.webservice.application.MetricRegistryFactory
+import com.yahoo.bard.webservice.config.SystemConfig
+import com.yahoo.bard.webservice.config.SystemConfigProvider
+import com.yahoo.bard.webservice.data.dimension.BardDimensionField
+import com.yahoo.bard.webservice.data.dimension.DimensionRow
+import com.yahoo.bard.webservice.data.dimension.KeyValueStore
+import com.yahoo.bard.webservice.data.dimension.MapStore
+
+import org.joda.time.DateTime
+
+import spock.lang.Specification
+
+class KeyValueStoreDimensionRowCacheSpec extends Specification {
+
+    static final SystemConfig SYSTEM_CONFIG = SystemConfigProvider.getInstance()
+    static final String MAX_ROWS_KEY = SYSTEM_CONFIG.getPackageVariableName("dimension_row_cache_max_rows")
+    static final String MAX_BYTES_KEY = SYSTEM_CONFIG.getPackageVariableName("dimension_row_cache_max_bytes")
+
+    KeyValueStore store = Spy(MapStore)
+    KeyValueStoreDimension dimension
+
+    def setup() {
+        SYSTEM_CONFIG.setProperty(MAX_ROWS_KEY, "100")
+        dimension = buildDimension()
+        dimension.addDimensionRow(BardDimensionField.makeDimensionRow(dimension, "us", "United States"))
+        dimension.addDimensionRow(BardDimensionField.makeDimensionRow(dimension, "fr", "France"))
+    }
+
+    def cleanup() {
+        SYSTEM_CONFIG.clearProperty(MAX_ROWS_KEY)
+        SYSTEM_CONFIG.clearProperty(MAX_BYTES_KEY)
+    }
+
+    KeyValueStoreDimension buildDimension() {
+        new KeyValueStoreDimension(
+                "country",
+                "country",
+                [BardDimensionField.ID, BardDimensionField.DESC] as LinkedHashSet,
+                store,
+                ScanSearchProviderManager.getInstance("country")
+        )
+    }
+
+    String description(DimensionRow row) {
+        row?.get(BardDimensionField.DESC)
+    }
+
+    def "Rows are read from the store once, and then served from the cache"() {
+        when:
+        DimensionRow first = dimension.findDimensionRowByKeyValue("us")
+        DimensionRow second = dimension.findDimensionRowByKeyValue("us")
+
+        then:
+        1 * store.get("id_us_row_key")
+        second.is(first)
+        description(second) == "United States"
+    }
+
+    def "Key values without a row are cached too"() {
+        when:
+        DimensionRow first = dimension.findDimensionRowByKeyValue("de")
+        DimensionRow second = dimension.findDimensionRowByKeyValue("de")
+
+        then:
+        1 * store.get("id_de_row_key")
+        first == null
+        second == null
+    }
+
+    def "Bulk lookups are served from the cache, and only read the rows which are not cached"() {
+        given:
+        dimension.findDimensionRowByKeyValue("us")
+
+        when:
+        Map<String, DimensionRow> rows = dimension.findDimensionRowsByKeyValues(["us", "fr", "de"])
+
+        then:
+        1 * store.getAll({ it as Set == ["id_fr_row_key", "id_de_row_key"] as Set })
+        rows.keySet() == ["us", "fr"] as Set
+
+        when:
+        dimension.findDimensionRowsByKeyValues(["us", "fr", "de"])
+
+        then:
+        0 * store.getAll(_)
+    }
+
+    def "Adding a row invalidates only that row"() {
+        given:
+        dimension.findDimensionRowByKeyValue("us")
+        dimension.findDimensionRowByKeyValue("fr")
+        dimension.findDimensionRowByKeyValue("de")
+
+        when:
+        dimension.addDimensionRow(BardDimensionField.makeDimensionRow(dimension, "us", "USA"))
+        dimension.addDimensionRow(BardDimensionField.makeDimensionRow(dimension, "de", "Germany"))
+
+        then:
+        description(dimension.findDimensionRowByKeyValue("us")) == "USA"
+        description(dimension.findDimensionRowByKeyValue("de")) == "Germany"
+
+        when:
+        dimension.findDimensionRowByKeyValue("fr")
+
+        then:
+        0 * store.get("id_fr_row_key")
+    }
+
+    def "Deleting all rows invalidates the cache"() {
+        given:
+        dimension.findDimensionRowByKeyValue("us")
+
+        when:
+        dimension.deleteAllDimensionRows()
+
+        then:
+        dimension.findDimensionRowByKeyValue("us") == null
+    }
+
+    def "Marking the dimension as updated invalidates the cache"() {
+        given:
+        dimension.findDimensionRowByKeyValue("us")
+        // A reload that bypasses the dimension, such as replacing its store
+        store.put("id_us_row_key", '{"id": "us", "desc": "United States of America"}')
+
+        expect:
+        description(dimension.findDimensionRowByKeyValue("us")) == "United States"
+
+        when:
+        dimension.setLastUpdated(new DateTime())
+
+        then:
+        description(dimension.findDimensionRowByKeyValue("us")) == "United States of America"
+    }
+
+    def "Hits and misses are metered per dimension"() {
+        given:
+        long hits = MetricRegistryFactory.registry.meter("dimensions.meter.row_cache.hits.country").count
+        long misses = MetricRegistryFactory.registry.meter("dimensions.meter.row_cache.misses.country").count
+
+        when:
+        3.times { dimension.findDimensionRowByKeyValue("us") }
+
+        then:
+        MetricRegistryFactory.registry.meter("dimensions.meter.row_cache.hits.country").count == hits + 2
+        MetricRegistryFactory.registry.meter("dimensions.meter.row_cache.misses.country").count == misses + 1
+    }
+
+    def "The cache is bounded by its configured number of rows"() {
+        given:
+        SYSTEM_CONFIG.setProperty(MAX_ROWS_KEY, "2")
+        dimension = buildDimension()
+
+        when:
+        (1..10).each { dimension.findDimensionRowByKeyValue("value" + it) }
+
+        then:
+        dimension.rowCache.size() <= 2
+    }
+
+    def "The cache is bounded by its configured size in bytes"() {
+        given: "A bound of 150 bytes, where each key value without a row weighs 34 bytes"
+        SYSTEM_CONFIG.setProperty(MAX_BYTES_KEY, "150")
+        dimension = buildDimension()
+
+        when:
+        (1..10).each { dimension.findDimensionRowByKeyValue("value" + it) }
+
+        then:
+        dimension.rowCache.size() <= 4
+    }
+
+    def "Rows are not cached unless a bound is configured"() {
+        given:
+        SYSTEM_CONFIG.clearProperty(MAX_ROWS_KEY)
+        dimension = buildDimension()
+
+        when:
+        2.times { dimension.findDimensionRowByKeyValue("us") }
+
+        then:
+        2 * store.get("id_us_row_key")
+    }
+}
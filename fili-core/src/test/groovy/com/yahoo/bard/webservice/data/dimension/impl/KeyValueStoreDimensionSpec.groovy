@@ -97,6 +97,14 @@ class KeyValueStoreDimensionSpec extends Specification {
         kvsDimension.parseDimensionRow(m) == dimensionRow1
     }
 
+    def "findDimensionRowsByKeyValues returns the rows of the key values which have one"() {
+        expect:
+        kvsDimension.findDimensionRowsByKeyValues(["row1", "row3", "missing"]) == [
+                row1: dimensionRow1,
+                row3: dimensionRow3
+        ]
+    }
+
     def "findAllDimensionRows returns all rows"() {
         expect:
         searchProvider.findAllDimensionRows() == [dimensionRow1, dimensionRow2, dimensionRow3] as Set
@@ -5,18 +5,27 @@ package com.yahoo.bard.webservice.data.dimension.impl
 import com.yahoo.bard.webservice.data.dimension.BardDimensionField
 import com.yahoo.bard.webservice.data.dimension.DimensionRow
 import com.yahoo.bard.webservice.data.dimension.KeyValueStore
+import com.yahoo.bard.webservice.data.dimension.MapStoreManager
 import com.yahoo.bard.webservice.data.dimension.TimeoutException
+import com.yahoo.bard.webservice.logging.RequestLog
+import com.yahoo.bard.webservice.logging.blocks.LuceneSearch
 import com.yahoo.bard.webservice.util.DimensionStoreKeyUtils
+import com.yahoo.bard.webservice.util.Pagination
+import com.yahoo.bard.webservice.web.ApiFilter
 import com.yahoo.bard.webservice.web.RowLimitReachedException
 import com.yahoo.bard.webservice.web.util.PaginationParameters
 
 import org.apache.commons.io.FileUtils
+import org.apache.lucene.index.DirectoryReader
 import org.apache.lucene.store.FSDirectory
 
 import spock.lang.Ignore
+import spock.lang.Unroll
+import spock.util.concurrent.PollingConditions
 
 import java.nio.file.Files
 import java.nio.file.Path
+import java.util.concurrent.TimeUnit
 /**
  * Specification for behavior specific to the LuceneSearchProvider
  */
@@ -67,6 +76,7 @@ class LuceneSearchProviderSpec extends SearchProviderSpec<LuceneSearchProvider>
     void childCleanup() {
         searchProvider.maxResults = rowLimit
         searchProvider.searchTimeout = searchTimeout
+        searchProvider.commitInterval = LuceneSearchProvider.LUCENE_COMMIT_INTERVAL_MS
 
         FileUtils.deleteDirectory(new File(sourceDir))
     }
@@ -258,6 +268,123 @@ class LuceneSearchProviderSpec extends SearchProviderSpec<LuceneSearchProvider>
         }
     }
 
+    def "Each page but the last hands out the cursor of the next page, which resumes the search after it"() {
+        when:
+        Pagination<DimensionRow> firstPage = searchProvider.findAllDimensionRowsPaged(new PaginationParameters(5, 1))
+        Pagination<DimensionRow> secondPage = searchProvider.findAllDimensionRowsPaged(
+                new PaginationParameters(5, 2, firstPage.nextCursor.get())
+        )
+        Pagination<DimensionRow> lastPage = searchProvider.findAllDimensionRowsPaged(
+                new PaginationParameters(5, 3, secondPage.nextCursor.get())
+        )
+
+        then:
+        secondPage.pageOfData == searchProvider.findAllDimensionRowsPaged(new PaginationParameters(5, 2)).pageOfData
+        lastPage.pageOfData == searchProvider.findAllDimensionRowsPaged(new PaginationParameters(5, 3)).pageOfData
+        !lastPage.nextCursor.present
+        (firstPage.pageOfData + secondPage.pageOfData + lastPage.pageOfData) as Set == dimensionRows as Set
+    }
+
+    def "A cursor which does not hold is ignored, and the search walks the pages from the first one"() {
+        given: "The cursor of the second page"
+        String cursor = searchProvider.findAllDimensionRowsPaged(new PaginationParameters(5, 1)).nextCursor.get()
+
+        and: "A change to the index"
+        keyValueStoreDimension.addDimensionRow(
+                BardDimensionField.makeDimensionRow(keyValueStoreDimension, "zebra", "Stripes")
+        )
+
+        expect:
+        searchProvider.findAllDimensionRowsPaged(
+                new PaginationParameters(5, page, malformed ? "not a cursor" : cursor)
+        ).pageOfData == searchProvider.findAllDimensionRowsPaged(new PaginationParameters(5, page)).pageOfData
+
+        where:
+        page | malformed
+        2    | false
+        3    | false
+        2    | true
+    }
+
+    def "Pages are hydrated from the index, without reading the rows from the key value store"() {
+        given: "A row missing from the key value store"
+        MapStoreManager.getInstance("animal").remove(DimensionStoreKeyUtils.getRowKey("id", "owl"))
+
+        expect:
+        searchProvider.findFilteredDimensionRowsPaged(
+                [new ApiFilter("animal|id-in[owl]", spaceIdDictionary)] as Set,
+                new PaginationParameters(5, 1)
+        ).pageOfData == [dimensionRow1]
+    }
+
+    def "The searches made for a page, and the time spent searching each slice, are recorded in the request log"() {
+        when:
+        searchProvider.findAllDimensionRowsPaged(new PaginationParameters(5, 3))
+        LuceneSearch luceneSearch = RequestLog.retrieve(LuceneSearch) as LuceneSearch
+
+        then:
+        luceneSearch.dimension == "animal"
+        luceneSearch.searches == 3
+        luceneSearch.sliceDurations.size() == 1
+
+        cleanup:
+        RequestLog.dump()
+    }
+
+    /**
+     * Count the documents of the last commit of the index.
+     *
+     * @return the number of committed documents
+     */
+    int committedDocs() {
+        DirectoryReader reader = DirectoryReader.open(searchProvider.luceneDirectory)
+        try {
+            return reader.numDocs()
+        } finally {
+            reader.close()
+        }
+    }
+
+    def "Rows added are visible to the next search as soon as the index is refreshed, before they are committed"() {
+        given: "Commits batched over a longer time than the test takes"
+        searchProvider.commitInterval = TimeUnit.HOURS.toMillis(1)
+        int committed = committedDocs()
+        DimensionRow zebra = BardDimensionField.makeDimensionRow(keyValueStoreDimension, "zebra", "Stripes")
+
+        when:
+        keyValueStoreDimension.addDimensionRow(zebra)
+
+        then:
+        searchProvider.findFilteredDimensionRowsPaged(
+                [new ApiFilter("animal|id-in[zebra]", spaceIdDictionary)] as Set,
+                new PaginationParameters(5, 1)
+        ).pageOfData == [zebra]
+        committedDocs() == committed
+    }
+
+    @Unroll
+    def "Rows added are committed #timing with a commit interval of #commitInterval ms"() {
+        given:
+        searchProvider.commitInterval = commitInterval
+        int committed = committedDocs()
+        PollingConditions conditions = new PollingConditions(timeout: 5)
+
+        when:
+        keyValueStoreDimension.addDimensionRow(
+                BardDimensionField.makeDimensionRow(keyValueStoreDimension, "zebra", "Stripes")
+        )
+
+        then:
+        conditions.eventually {
+            assert committedDocs() == committed + 1
+        }
+
+        where:
+        commitInterval | timing
+        0              | "immediately"
+        50             | "shortly after"
+    }
+
     def "MultiThread refreshIndex"() {
 
         when:
@@ -0,0 +1,119 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.data.dimension.impl
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer
+import org.apache.lucene.document.Document
+import org.apache.lucene.document.Field
+import org.apache.lucene.document.StringField
+import org.apache.lucene.index.DirectoryReader
+import org.apache.lucene.index.IndexWriter
+import org.apache.lucene.index.IndexWriterConfig
+import org.apache.lucene.index.NoMergePolicy
+import org.apache.lucene.index.Term
+import org.apache.lucene.search.MatchAllDocsQuery
+import org.apache.lucene.search.PrefixQuery
+import org.apache.lucene.search.Query
+import org.apache.lucene.search.TimeLimitingCollector
+import org.apache.lucene.search.TopDocs
+import org.apache.lucene.store.RAMDirectory
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+class SliceTimingIndexSearcherSpec extends Specification {
+
+    static final int SEGMENTS = 4
+    static final int ROWS_PER_SEGMENT = 25
+
+    RAMDirectory directory = new RAMDirectory()
+    ExecutorService executor = Executors.newFixedThreadPool(2)
+    DirectoryReader reader
+
+    def setup() {
+        IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer()).setMergePolicy(NoMergePolicy.INSTANCE)
+        IndexWriter writer = new IndexWriter(directory, config)
+        (0..<SEGMENTS).each { segment ->
+            (0..<ROWS_PER_SEGMENT).each { row ->
+                Document document = new Document()
+                document.add(new StringField("id", "value${segment * ROWS_PER_SEGMENT + row}", Field.Store.YES))
+                writer.addDocument(document)
+            }
+            // Each commit flushes a segment of its own
+            writer.commit()
+        }
+        writer.close()
+        reader = DirectoryReader.open(directory)
+    }
+
+    def cleanup() {
+        reader.close()
+        directory.close()
+        executor.shutdownNow()
+    }
+
+    TopDocs search(SliceTimingIndexSearcher searcher, TimeLimitingCollectorManager manager, Query query) {
+        searcher.search(query, manager)
+    }
+
+    @Unroll
+    def "Searching the slices in parallel finds the same hits as searching them on the calling thread for #query"() {
+        given:
+        SliceTimingIndexSearcher serial = new SliceTimingIndexSearcher(reader, null)
+        SliceTimingIndexSearcher parallel = new SliceTimingIndexSearcher(reader, executor)
+
+        when:
+        TopDocs expected = search(serial, new TimeLimitingCollectorManager(10000, null, 10), query)
+        TopDocs actual = search(parallel, new TimeLimitingCollectorManager(10000, null, 10), query)
+
+        then:
+        actual.totalHits == hits
+        actual.totalHits == expected.totalHits
+        actual.scoreDocs*.doc == expected.scoreDocs*.doc
+
+        where:
+        query                                      | hits
+        new MatchAllDocsQuery()                    | SEGMENTS * ROWS_PER_SEGMENT
+        new PrefixQuery(new Term("id", "value1"))  | 11
+    }
+
+    def "Each slice searched in parallel reports the time spent searching it"() {
+        given:
+        TimeLimitingCollectorManager manager = new TimeLimitingCollectorManager(10000, null, 10)
+
+        when:
+        search(new SliceTimingIndexSearcher(reader, executor), manager, new MatchAllDocsQuery())
+
+        then:
+        reader.leaves().size() == SEGMENTS
+        manager.sliceDurations.length == SEGMENTS
+        manager.sliceDurations.every { it > 0 }
+    }
+
+    def "A search on the calling thread reports the whole index as one slice"() {
+        given:
+        TimeLimitingCollectorManager manager = new TimeLimitingCollectorManager(10000, null, 10)
+
+        when:
+        search(new SliceTimingIndexSearcher(reader, null), manager, new MatchAllDocsQuery())
+
+        then:
+        manager.sliceDurations.length == 1
+    }
+
+    def "A slice that times out on the executor fails the search"() {
+        when:
+        search(
+                new SliceTimingIndexSearcher(reader, executor),
+                new TimeLimitingCollectorManager(-1, null, 10),
+                new MatchAllDocsQuery()
+        )
+
+        then:
+        RuntimeException exception = thrown()
+        exception.cause.cause instanceof TimeLimitingCollector.TimeExceededException
+    }
+}
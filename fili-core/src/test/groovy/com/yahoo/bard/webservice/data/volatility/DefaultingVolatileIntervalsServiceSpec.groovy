@@ -110,4 +110,18 @@ class DefaultingVolatileIntervalsServiceSpec extends Specification {
         service.getVolatileIntervals(allGrainQuery.granularity, allGrainQuery.intervals, table2) == fullRange
         service.getVolatileIntervals(allGrainQuery.granularity, allGrainQuery.intervals, table3) == fullRange
     }
+
+    def "Only the buckets of requested intervals overlapping volatile data are volatile"() {
+        given: "volatile intervals from day 10 to day 30, and requests before, across and after them"
+        DefaultingVolatileIntervalsService service = new DefaultingVolatileIntervalsService(defaultFunction)
+        Interval before = new Interval(origin, origin.plusDays(5))
+        Interval across = new Interval(origin.plusDays(25), origin.plusDays(35))
+        Interval after = new Interval(origin.plusDays(40), end)
+
+        expect:
+        service.getVolatileIntervals(DAY, [before, after], table).isEmpty()
+        service.getVolatileIntervals(DAY, [before, across, after], table) as List ==
+                [new Interval(origin.plusDays(25), origin.plusDays(30))]
+        service.getVolatileIntervals(AllGranularity.INSTANCE, [before, after], table).isEmpty()
+    }
 }
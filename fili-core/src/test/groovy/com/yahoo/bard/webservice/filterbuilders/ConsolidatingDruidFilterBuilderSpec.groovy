@@ -8,6 +8,11 @@ import static com.yahoo.bard.webservice.druid.model.filter.Filter.DefaultFilterT
 import static com.yahoo.bard.webservice.druid.model.filter.Filter.DefaultFilterType.SELECTOR
 
 import com.yahoo.bard.webservice.data.QueryBuildingTestingResources
+import com.yahoo.bard.webservice.data.dimension.BardDimensionField
+import com.yahoo.bard.webservice.data.dimension.Dimension
+import com.yahoo.bard.webservice.data.dimension.DimensionRow
+import com.yahoo.bard.webservice.data.dimension.DimensionRowNotFoundException
+import com.yahoo.bard.webservice.data.dimension.SearchProvider
 import com.yahoo.bard.webservice.data.filterbuilders.DruidFilterBuilder
 import com.yahoo.bard.webservice.data.filterbuilders.ConsolidatingDruidFilterBuilder
 import com.yahoo.bard.webservice.druid.model.filter.AndFilter
@@ -16,6 +21,9 @@ import com.yahoo.bard.webservice.druid.model.filter.NotFilter
 import com.yahoo.bard.webservice.druid.model.filter.OrFilter
 import com.yahoo.bard.webservice.druid.model.filter.SelectorFilter
 import com.yahoo.bard.webservice.web.ApiFilter
+import com.yahoo.bard.webservice.web.FilterOperation
+
+import org.joda.time.DateTime
 
 import spock.lang.Shared
 import spock.lang.Specification
@@ -132,6 +140,103 @@ class ConsolidatingDruidFilterBuilderSpec extends Specification {
     }
 
 
+    def "Cached filters are built once for each set of filters, whatever their order and equality operation"() {
+        given: "A dimension which is never updated"
+        SearchProvider searchProvider = Mock(SearchProvider)
+        Dimension dimension = mockDimension(searchProvider, { null })
+        filterBuilder = new ConsolidatingDruidFilterBuilder(10)
+
+        and:
+        ApiFilter idIn = new ApiFilter(dimension, BardDimensionField.ID, FilterOperation.in, ["1", "2"] as Set)
+        ApiFilter idEq = idIn.withOperation(FilterOperation.eq)
+        ApiFilter descNotin = new ApiFilter(dimension, BardDimensionField.DESC, FilterOperation.notin, ["x"] as Set)
+
+        when:
+        Filter first = filterBuilder.buildFilters([(dimension): [idIn, descNotin] as LinkedHashSet])
+        Filter second = filterBuilder.buildFilters([(dimension): [descNotin, idEq] as LinkedHashSet])
+
+        then:
+        1 * searchProvider.findFilteredDimensionRows(_) >> ([row("1"), row("2")] as TreeSet)
+        second.is(first)
+        first == new OrFilter([new SelectorFilter(dimension, "1"), new SelectorFilter(dimension, "2")])
+
+        when:
+        filterBuilder.buildFilters([(dimension): [descNotin] as Set])
+
+        then:
+        1 * searchProvider.findFilteredDimensionRows(_) >> ([row("1")] as TreeSet)
+    }
+
+    def "Cached filters are built again once the dimension is updated"() {
+        given:
+        DateTime lastUpdated = new DateTime(2018, 1, 1, 0, 0)
+        SearchProvider searchProvider = Mock(SearchProvider)
+        Dimension dimension = mockDimension(searchProvider, { lastUpdated })
+        ApiFilter filter = new ApiFilter(dimension, BardDimensionField.ID, FilterOperation.in, ["1", "2"] as Set)
+        filterBuilder = new ConsolidatingDruidFilterBuilder(10)
+
+        when:
+        filterBuilder.buildFilters([(dimension): [filter] as Set])
+        filterBuilder.buildFilters([(dimension): [filter] as Set])
+
+        then:
+        1 * searchProvider.findFilteredDimensionRows(_) >> ([row("1"), row("2")] as TreeSet)
+
+        when:
+        lastUpdated = lastUpdated.plusHours(1)
+        Filter rebuilt = filterBuilder.buildFilters([(dimension): [filter] as Set])
+
+        then:
+        1 * searchProvider.findFilteredDimensionRows(_) >> ([row("1")] as TreeSet)
+        rebuilt == new SelectorFilter(dimension, "1")
+    }
+
+    def "Filters which match no rows are not cached"() {
+        given:
+        SearchProvider searchProvider = Mock(SearchProvider)
+        Dimension dimension = mockDimension(searchProvider, { null })
+        ApiFilter filter = new ApiFilter(dimension, BardDimensionField.ID, FilterOperation.in, ["7"] as Set)
+        filterBuilder = new ConsolidatingDruidFilterBuilder(10)
+
+        when:
+        filterBuilder.buildFilters([(dimension): [filter] as Set])
+
+        then:
+        1 * searchProvider.findFilteredDimensionRows(_) >> ([] as TreeSet)
+        thrown(DimensionRowNotFoundException)
+
+        when:
+        filterBuilder.buildFilters([(dimension): [filter] as Set])
+
+        then:
+        1 * searchProvider.findFilteredDimensionRows(_) >> ([row("7")] as TreeSet)
+    }
+
+    def "Filters are not cached by default"() {
+        given:
+        SearchProvider searchProvider = Mock(SearchProvider)
+        Dimension dimension = mockDimension(searchProvider, { null })
+        ApiFilter filter = new ApiFilter(dimension, BardDimensionField.ID, FilterOperation.in, ["1"] as Set)
+
+        when:
+        2.times { filterBuilder.buildFilters([(dimension): [filter] as Set]) }
+
+        then:
+        2 * searchProvider.findFilteredDimensionRows(_) >> ([row("1")] as TreeSet)
+    }
+
+    Dimension mockDimension(SearchProvider searchProvider, Closure<DateTime> lastUpdated) {
+        Dimension dimension = Mock(Dimension)
+        dimension.getSearchProvider() >> searchProvider
+        dimension.getKey() >> BardDimensionField.ID
+        dimension.getLastUpdated() >> { lastUpdated() }
+        return dimension
+    }
+
+    DimensionRow row(String id) {
+        new DimensionRow(BardDimensionField.ID, [(BardDimensionField.ID): id, (BardDimensionField.DESC): id])
+    }
+
     // The following methods manually translate specific Api filter queries into Druid filters. The selector filters
     // are derived based on the values of the 'ages' map in QueryBuildingTestingResources
     Filter makeIdEq() {
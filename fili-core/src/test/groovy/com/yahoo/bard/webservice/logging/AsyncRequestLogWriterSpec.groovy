@@ -0,0 +1,200 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.logging
+
+import static com.yahoo.bard.webservice.logging.AsyncRequestLogWriter.DROPPED_METER
+import static com.yahoo.bard.webservice.logging.AsyncRequestLogWriter.DropPolicy.CALLER_WRITES
+import static com.yahoo.bard.webservice.logging.AsyncRequestLogWriter.DropPolicy.DROP_NEWEST
+import static com.yahoo.bard.webservice.logging.AsyncRequestLogWriter.DropPolicy.DROP_OLDEST
+import static com.yahoo.bard.webservice.logging.AsyncRequestLogWriter.QUEUE_DEPTH_GAUGE
+
+import com.yahoo.bard.webservice.logging.blocks.Threads
+
+import com.codahale.metrics.MetricRegistry
+import com.google.common.util.concurrent.Uninterruptibles
+
+import org.slf4j.MDC
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class AsyncRequestLogWriterSpec extends Specification {
+
+    MetricRegistry registry = new MetricRegistry()
+    List<String> written = new CopyOnWriteArrayList<>()
+
+    // Formats each log as its id
+    LogFormatter formatter = { LogBlock logBlock -> logBlock.uuid } as LogFormatter
+
+    LogBlock logBlock(String uuid) {
+        LogBlock logBlock = new LogBlock(uuid)
+        logBlock.add(new Threads([uuid] as Set))
+        return logBlock
+    }
+
+    def "Queued logs are written in order by the writer thread, with the id of their request in the MDC"() {
+        given:
+        List<String> ids = new CopyOnWriteArrayList<>()
+        List<String> threads = new CopyOnWriteArrayList<>()
+        AsyncRequestLogWriter writer = new AsyncRequestLogWriter(10, 2, DROP_NEWEST, { formatter }, { String line ->
+            written << line
+            ids << MDC.get(RequestLog.ID_KEY)
+            threads << Thread.currentThread().name
+        }, registry)
+
+        when:
+        ['a', 'b', 'c', 'd', 'e'].each { writer.write(logBlock(it)) }
+
+        then:
+        writer.close(5, TimeUnit.SECONDS)
+        written == ['a', 'b', 'c', 'd', 'e']
+        ids == written
+        threads.every { it.startsWith("request-log-writer-") }
+        MDC.get(RequestLog.ID_KEY) == null
+    }
+
+    @Unroll
+    def "When the queue is full, #dropPolicy writes #expected"() {
+        given: "a writer thread stuck writing the first log"
+        CountDownLatch started = new CountDownLatch(1)
+        CountDownLatch release = new CountDownLatch(1)
+        AsyncRequestLogWriter writer = new AsyncRequestLogWriter(1, 10, dropPolicy, { formatter }, { String line ->
+            written << line
+            if (line == 'a') {
+                started.countDown()
+                // Closing the writer interrupts its thread, which may still be waking up from the wait
+                Uninterruptibles.awaitUninterruptibly(release)
+            }
+        }, registry)
+        writer.write(logBlock('a'))
+        started.await()
+
+        when:
+        writer.write(logBlock('b'))
+        int depth = registry.gauges[QUEUE_DEPTH_GAUGE].value
+        writer.write(logBlock('c'))
+        release.countDown()
+
+        then:
+        writer.close(5, TimeUnit.SECONDS)
+        depth == 1
+        written == expected
+        registry.meter(DROPPED_METER).count == dropped
+
+        where:
+        dropPolicy    | expected        | dropped
+        DROP_NEWEST   | ['a', 'b']      | 1
+        DROP_OLDEST   | ['a', 'c']      | 1
+        CALLER_WRITES | ['a', 'c', 'b'] | 0
+    }
+
+    def "Logs written after the writer is closed are written by the caller"() {
+        given:
+        List<String> threads = new CopyOnWriteArrayList<>()
+        AsyncRequestLogWriter writer = new AsyncRequestLogWriter(10, 10, DROP_NEWEST, { formatter }, { String line ->
+            written << line
+            threads << Thread.currentThread().name
+        }, registry)
+        writer.close(5, TimeUnit.SECONDS)
+
+        when:
+        writer.write(logBlock('a'))
+
+        then:
+        written == ['a']
+        threads == [Thread.currentThread().name]
+    }
+
+    /**
+     * Write logs as a single batch, by holding the writer thread on a first log until they are all queued.
+     *
+     * @param batchFormatter  The formatter of the logs
+     * @param sink  Writes a formatted log
+     * @param uuids  The ids of the logs of the batch
+     */
+    void writeBatch(LogFormatter batchFormatter, Closure sink, List<String> uuids) {
+        CountDownLatch started = new CountDownLatch(1)
+        CountDownLatch release = new CountDownLatch(1)
+        AsyncRequestLogWriter writer = new AsyncRequestLogWriter(10, 10, DROP_NEWEST, { batchFormatter }, {
+            String line ->
+                if (line == 'first') {
+                    started.countDown()
+                    Uninterruptibles.awaitUninterruptibly(release)
+                } else {
+                    sink(line)
+                }
+        }, registry)
+        writer.write(logBlock('first'))
+        started.await()
+        uuids.each { writer.write(logBlock(it)) }
+        release.countDown()
+        assert writer.close(5, TimeUnit.SECONDS)
+    }
+
+    def "A log failing to be written is dropped without losing the others of its batch"() {
+        when:
+        writeBatch(formatter, { String line ->
+            if (line == 'b') {
+                throw new IllegalStateException("sink failed")
+            }
+            written << line
+        }, ['a', 'b', 'c'])
+
+        then:
+        written == ['a', 'c']
+        registry.meter(DROPPED_METER).count == 1
+    }
+
+    def "A batch failing to be formatted is formatted one log at a time, dropping the logs which cannot be"() {
+        given:
+        LogFormatter failingBatchFormatter = new LogFormatter() {
+            @Override
+            String format(LogBlock logBlock) {
+                if (logBlock.uuid == 'b') {
+                    throw new IllegalStateException("format failed")
+                }
+                return logBlock.uuid
+            }
+
+            @Override
+            List<String> formatAll(List<LogBlock> logBlocks) {
+                if (logBlocks.size() > 1) {
+                    throw new IllegalStateException("batch format failed")
+                }
+                return logBlocks.collect { it.uuid }
+            }
+        }
+
+        when:
+        writeBatch(failingBatchFormatter, { String line -> written << line }, ['a', 'b', 'c'])
+
+        then:
+        written == ['a', 'c']
+        registry.meter(DROPPED_METER).count == 1
+    }
+
+    def "JSON formatting of a batch matches formatting each log, even past a log that fails to serialize"() {
+        given:
+        JsonLogFormatter jsonLogFormatter = new JsonLogFormatter()
+        LogBlock failing = new LogBlock('failing')
+        failing.add(new UnserializableInfo())
+        List<LogBlock> batch = [logBlock('a'), failing, logBlock('b'), logBlock('c')]
+
+        expect:
+        jsonLogFormatter.formatAll(batch) == batch.collect { jsonLogFormatter.format(it) }
+        jsonLogFormatter.formatAll(batch)[1] == failing.toString()
+    }
+
+    /**
+     * Log info whose serialization fails.
+     */
+    static class UnserializableInfo implements LogInfo {
+        String getValue() {
+            throw new IllegalStateException("Not serializable")
+        }
+    }
+}
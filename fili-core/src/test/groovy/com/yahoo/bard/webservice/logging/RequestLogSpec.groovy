@@ -0,0 +1,138 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.logging
+
+import static com.yahoo.bard.webservice.druid.client.impl.AsyncDruidWebServiceImpl.DRUID_QUERY_TIMER
+import static com.yahoo.bard.webservice.web.handlers.workflow.DruidWorkflow.REQUEST_WORKFLOW_TIMER
+
+import com.yahoo.bard.webservice.logging.blocks.Threads
+
+import spock.lang.Specification
+
+class RequestLogSpec extends Specification {
+
+    def setup() {
+        RequestLog.dump()
+    }
+
+    def cleanup() {
+        RequestLog.dump()
+    }
+
+    def "Request ids are distinct random UUIDs"() {
+        when:
+        Set<String> ids = (1..100).collect {
+            String id = RequestLog.getId()
+            RequestLog.dump()
+            id
+        } as Set
+
+        then:
+        ids.size() == 100
+        ids.every { UUID uuid = UUID.fromString(it); uuid.version() == 4 && uuid.variant() == 2 }
+    }
+
+    def "Phases timed by callers are named after the class of the caller"() {
+        when:
+        RequestLog.startTiming(this)
+        RequestLog.stopTiming(this)
+
+        then:
+        RequestLog.getDurations().keySet() == [RequestLogSpec.simpleName] as Set
+        !RequestLog.isRunning(this)
+    }
+
+    def "A copy keeps the phases timed so far, and neither the copy nor the original sees phases added later"() {
+        given:
+        RequestLog.startTiming("first")
+        RequestLog.stopTiming("first")
+        RequestLog snapshot = RequestLog.copy()
+
+        when: "the original times another phase"
+        RequestLog.startTiming("second")
+        RequestLog.stopTiming("second")
+
+        then:
+        RequestLog.getDurations().keySet() == ["first", "second"] as Set
+
+        when: "the copy is restored and times a phase of its own"
+        RequestLog.restore(snapshot)
+        RequestLog.startTiming("third")
+        RequestLog.stopTiming("third")
+
+        then:
+        RequestLog.getDurations().keySet() == ["first", "third"] as Set
+
+        when: "the copy is restored again"
+        RequestLog.restore(snapshot)
+
+        then:
+        RequestLog.getDurations().keySet() == ["first"] as Set
+    }
+
+    def "A phase started before a dump can be stopped after a restore in another thread"() {
+        given:
+        String id = RequestLog.getId()
+        RequestLog.startTiming("handoff")
+        RequestLog snapshot = RequestLog.dump()
+
+        when:
+        Map<String, Long> durations
+        Thread thread = Thread.start {
+            RequestLog.restore(snapshot)
+            RequestLog.stopTiming("handoff")
+            durations = RequestLog.getDurations()
+            RequestLog.dump()
+        }
+        thread.join()
+
+        then:
+        durations.handoff > 0
+        RequestLog.getId() != id
+    }
+
+    def "Accumulating a request log adds its druid query timers and threads to the current one"() {
+        given:
+        RequestLog.startTiming(REQUEST_WORKFLOW_TIMER)
+        RequestLog.stopTiming(REQUEST_WORKFLOW_TIMER)
+        RequestLog snapshot = RequestLog.copy()
+        String druidTimer = DRUID_QUERY_TIMER + "query1"
+
+        and: "A split query timed in another thread"
+        RequestLog split
+        Thread thread = Thread.start {
+            RequestLog.restore(snapshot)
+            RequestLog.startTiming(druidTimer)
+            RequestLog.stopTiming(druidTimer)
+            RequestLog.startTiming("ignored")
+            RequestLog.stopTiming("ignored")
+            split = RequestLog.dump()
+        }
+        thread.join()
+
+        when:
+        RequestLog.accumulate(split)
+
+        then:
+        RequestLog.getDurations().keySet() == [REQUEST_WORKFLOW_TIMER, druidTimer] as Set
+
+        when:
+        RequestLog.export()
+
+        then:
+        ((Threads) RequestLog.retrieve(Threads)).threads == [Thread.currentThread().name, thread.name] as LinkedHashSet
+    }
+
+    def "Request logs of other requests are not accumulated"() {
+        given:
+        RequestLog.startTiming(DRUID_QUERY_TIMER + "other")
+        RequestLog other = RequestLog.dump()
+        RequestLog.startTiming("current")
+
+        when:
+        RequestLog.accumulate(other)
+
+        then:
+        RequestLog.getDurations().keySet() == ["current"] as Set
+    }
+}
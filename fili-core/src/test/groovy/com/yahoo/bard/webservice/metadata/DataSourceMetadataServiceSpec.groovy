@@ -62,6 +62,53 @@ class DataSourceMetadataServiceSpec extends BaseDataSourceMetadataSpec {
         jtb.tearDown()
     }
 
+    def "updating the metadata service indexes the segments of the data source"() {
+        setup:
+        DataSourceName dataSourceName = DataSourceName.of(tableName)
+        DataSourceMetadataService metadataService = new DataSourceMetadataService()
+
+        when:
+        metadataService.update(dataSourceName, metadata)
+        SortedMap<DateTime, Map<String, SegmentInfo>> segmentsByTime = metadataService.getSegments(
+                [dataSourceName] as Set
+        ).first()
+        Set<SegmentSignatureIndex> indexes = metadataService.getSegmentSignatureIndexes([dataSourceName] as Set)
+
+        then:
+        indexes.size() == 1
+        indexes.first().isIndexOf(segmentsByTime)
+        indexes.first().getIntervalHash(intervals["interval12"]) == segmentsByTime.hashCode()
+
+        and: "data sources without segments have no index"
+        metadataService.getSegmentSignatureIndexes([DataSourceName.of("InvalidTable")] as Set).isEmpty()
+    }
+
+    def "every update publishes a snapshot of the intervals by column with a newer version"() {
+        setup:
+        DataSourceName dataSourceName = DataSourceName.of(tableName)
+        DataSourceMetadataService metadataService = new DataSourceMetadataService()
+
+        expect: "data sources without metadata have no version"
+        !metadataService.getAvailabilityVersion(dataSourceName).present
+
+        when:
+        metadataService.update(dataSourceName, metadata)
+        AvailabilitySnapshot first = metadataService.getAvailabilitySnapshot(dataSourceName)
+        metadataService.update(dataSourceName, metadata)
+        AvailabilitySnapshot second = metadataService.getAvailabilitySnapshot(dataSourceName)
+
+        then:
+        second.version > first.version
+        metadataService.getAvailabilityVersion(dataSourceName) == OptionalLong.of(second.version)
+        second.intervalsByColumn == metadataService.getAvailableIntervalsByDataSource(dataSourceName)
+        second.intervalsByColumn == first.intervalsByColumn
+
+        and: "versions increase across services"
+        DataSourceMetadataService otherService = new DataSourceMetadataService()
+        otherService.update(dataSourceName, metadata)
+        otherService.getAvailabilitySnapshot(dataSourceName).version > second.version
+    }
+
     def "grouping segment data by date time behave as expected"() {
         given:
         ConcurrentSkipListMap<DateTime, Map<String, SegmentInfo>> segmentByTime = DataSourceMetadataService
@@ -151,6 +151,29 @@ class SegmentIntervalsHashIdGeneratorSpec extends BaseDataSourceMetadataSpec {
         hashCode.present && hashCode.get() == availabilityList1.hashCode() as Long
     }
 
+    def "test equal segments of several data sources are hashed once, as by getSegmentHash"() {
+        setup:
+        DataSourceMetadataService service = new DataSourceMetadataService()
+        Set<DataSourceName> dataSourceNames = [DataSourceName.of(tableName), DataSourceName.of("copy")] as Set
+        dataSourceNames.each {
+            service.allSegmentsByTime.put(it, new AtomicReference<>(new ConcurrentSkipListMap<>(availabilityList1)))
+        }
+
+        DataSource dataSource = Mock(DataSource)
+        dataSource.physicalTable >> Mock(ConstrainedTable) {
+            getDataSourceNames() >> dataSourceNames
+        }
+
+        DruidAggregationQuery<?> query = Mock(DruidAggregationQuery)
+        query.intervals >> [interval1, interval2]
+        query.innermostQuery >> query
+        query.dataSource >> dataSource
+
+        expect:
+        new SegmentIntervalsHashIdGenerator(service).getSegmentSetId(query) ==
+                segmentSetIdGenerator.getSegmentHash([availabilityList1, availabilityList1].stream())
+    }
+
     @Unroll
     def "test getSegmentHash produces the #expectedHash for #requestedSegment"() {
         expect:
@@ -0,0 +1,55 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.metadata
+
+import org.joda.time.DateTime
+import org.joda.time.Interval
+
+import spock.lang.Shared
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.util.concurrent.ConcurrentSkipListMap
+
+class SegmentSignatureIndexSpec extends Specification {
+
+    @Shared SortedMap<DateTime, Map<String, SegmentInfo>> segments = new ConcurrentSkipListMap<>()
+    @Shared SegmentSignatureIndex index
+
+    def setupSpec() {
+        (1..5).each { day ->
+            DateTime start = new DateTime(String.format("2017-01-%02d", day * 2))
+            segments.put(start, [
+                    ("segment_$day" as String): Mock(SegmentInfo),
+                    ("other_$day" as String): Mock(SegmentInfo)
+            ])
+        }
+        index = new SegmentSignatureIndex(segments)
+    }
+
+    @Unroll
+    def "The hash of #interval is the hash of the segments starting within it"() {
+        expect:
+        index.getIntervalHash(new Interval(interval)) ==
+                segments.subMap(new Interval(interval).start, new Interval(interval).end).hashCode()
+
+        where:
+        interval << [
+                "2016-01-01/2016-02-01",
+                "2018-01-01/2018-02-01",
+                "2016-01-01/2018-01-01",
+                "2017-01-02/2017-01-10",
+                "2017-01-02/2017-01-11",
+                "2017-01-03/2017-01-06",
+                "2017-01-04/2017-01-05",
+                "2017-01-05/2017-01-06",
+                "2017-01-09/2017-01-12"
+        ]
+    }
+
+    def "An index only indexes the map it was built from"() {
+        expect:
+        index.isIndexOf(segments)
+        !index.isIndexOf(new ConcurrentSkipListMap<>(segments))
+    }
+}
@@ -47,6 +47,9 @@ class MetricUnionAvailabilitySpec extends Specification {
         availability1.dataSourceNames >> ([DataSourceName.of('source1')] as Set)
         availability2.dataSourceNames >> ([DataSourceName.of('source2')] as Set)
 
+        availability1.getVersion() >> OptionalLong.empty()
+        availability2.getVersion() >> OptionalLong.empty()
+
         metric1 = 'metric1'
         metric2 = 'metric2'
 
@@ -48,6 +48,8 @@ class PartitionAvailabilitySpec extends Specification{
         availability1.getDataSourceNames() >> ([TableName.of(SOURCE1)] as Set)
         availability2.getDataSourceNames() >> ([TableName.of(SOURCE2)] as Set)
 
+        availability1.getVersion() >> OptionalLong.empty()
+        availability2.getVersion() >> OptionalLong.empty()
     }
 
     @Unroll
@@ -171,14 +173,17 @@ class PartitionAvailabilitySpec extends Specification{
         Availability early = Mock(Availability)
         early.getAvailableIntervals(_ as PhysicalDataSourceConstraint) >> earlyInterval
         early.getDataSourceNames() >> ([TableName.of('early')] as Set)
+        early.getVersion() >> OptionalLong.empty()
 
         Availability mid = Mock(Availability)
         mid.getAvailableIntervals(_ as PhysicalDataSourceConstraint) >> midInterval
         mid.getDataSourceNames() >> ([TableName.of('mid')] as Set)
+        mid.getVersion() >> OptionalLong.empty()
 
         Availability late = Mock(Availability)
         late.getAvailableIntervals(_ as PhysicalDataSourceConstraint) >> lateInterval
         late.getDataSourceNames() >> ([TableName.of('late')] as Set)
+        late.getVersion() >> OptionalLong.empty()
 
         Set<Availability> availabilities = [early, mid, late].findAll { partitionsImpacted.containsAll(it.dataSourceNames.collect() {it.asName()}) } as Set
         PhysicalDataSourceConstraint constraint = Mock(PhysicalDataSourceConstraint)
@@ -0,0 +1,150 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.table.availability
+
+import com.yahoo.bard.webservice.config.SystemConfig
+import com.yahoo.bard.webservice.config.SystemConfigProvider
+import com.yahoo.bard.webservice.data.config.names.DataSourceName
+import com.yahoo.bard.webservice.metadata.DataSourceMetadataService
+import com.yahoo.bard.webservice.table.resolver.DataSourceFilter
+import com.yahoo.bard.webservice.table.resolver.PhysicalDataSourceConstraint
+import com.yahoo.bard.webservice.util.SimplifiedIntervalList
+
+import org.joda.time.Interval
+
+import spock.lang.Specification
+
+import java.util.function.Supplier
+
+class VersionedIntervalsCacheSpec extends Specification {
+
+    SystemConfig systemConfig = SystemConfigProvider.getInstance()
+
+    VersionedIntervalsCache cache = new VersionedIntervalsCache(10)
+
+    int loads = 0
+    SimplifiedIntervalList loaded = new SimplifiedIntervalList([new Interval('2017/2018')])
+    Supplier<SimplifiedIntervalList> loader = {
+        loads++
+        new SimplifiedIntervalList(loaded)
+    }
+
+    def "Intervals are computed once per key and version"() {
+        when:
+        SimplifiedIntervalList first = cache.get(OptionalLong.of(1), 'a', loader)
+        SimplifiedIntervalList second = cache.get(OptionalLong.of(1), 'a', loader)
+        cache.get(OptionalLong.of(1), 'b', loader)
+
+        then:
+        loads == 2
+        first == loaded
+        second == loaded
+
+        and: "callers get copies of the memoized intervals"
+        !first.is(second)
+    }
+
+    def "Memoized intervals are copied as they are, without being simplified again"() {
+        given: "intervals out of order, which simplifying would sort"
+        SimplifiedIntervalList unsorted = new SimplifiedIntervalList()
+        unsorted.addLast(new Interval('2019/2020'))
+        unsorted.addLast(new Interval('2017/2018'))
+
+        when:
+        cache.get(OptionalLong.of(1), 'a', { unsorted })
+        SimplifiedIntervalList memoized = cache.get(OptionalLong.of(1), 'a', loader)
+
+        then:
+        memoized as List == unsorted as List
+        !memoized.is(unsorted)
+    }
+
+    def "Intervals are not memoized by default"() {
+        given:
+        VersionedIntervalsCache defaultCache = new VersionedIntervalsCache()
+
+        when:
+        defaultCache.get(OptionalLong.of(1), 'a', loader)
+        defaultCache.get(OptionalLong.of(1), 'a', loader)
+
+        then:
+        loads == 2
+    }
+
+    def "A newer version drops the intervals of older ones"() {
+        given:
+        cache.get(OptionalLong.of(1), 'a', loader)
+
+        when:
+        cache.get(OptionalLong.of(2), 'a', loader)
+        cache.get(OptionalLong.of(2), 'a', loader)
+
+        then:
+        loads == 2
+    }
+
+    def "Intervals computed at a version older than the memoized one are not memoized"() {
+        given:
+        cache.get(OptionalLong.of(2), 'a', loader)
+
+        when:
+        cache.get(OptionalLong.of(1), 'b', loader)
+        cache.get(OptionalLong.of(1), 'b', loader)
+        cache.get(OptionalLong.of(2), 'a', loader)
+
+        then:
+        loads == 3
+    }
+
+    def "Intervals are not memoized without a version, or when memoizing is off"() {
+        when:
+        2.times { cache.get(OptionalLong.empty(), 'a', loader) }
+        2.times { new VersionedIntervalsCache(0).get(OptionalLong.of(1), 'a', loader) }
+
+        then:
+        loads == 4
+    }
+
+    def "Availabilities recompute their intervals only when the version of their data sources changes"() {
+        given: "Memoizing turned on"
+        String original = systemConfig.setProperty(VersionedIntervalsCache.MAX_ENTRIES_KEY, "10")
+
+        and: "Two data sources which share a metadata service"
+        long version = 1
+        Map<String, SimplifiedIntervalList> intervals = [
+                column: new SimplifiedIntervalList([new Interval('2017/2018')])
+        ]
+        DataSourceMetadataService metadataService = Spy(DataSourceMetadataService)
+        metadataService.getAvailabilityVersion(_) >> { OptionalLong.of(version) }
+
+        StrictAvailability availability1 = new StrictAvailability(DataSourceName.of('source1'), metadataService)
+        StrictAvailability availability2 = new StrictAvailability(DataSourceName.of('source2'), metadataService)
+        PartitionAvailability partitionAvailability = new PartitionAvailability(
+                [(availability1): { true } as DataSourceFilter, (availability2): { true } as DataSourceFilter]
+        )
+
+        PhysicalDataSourceConstraint constraint = Mock(PhysicalDataSourceConstraint)
+        constraint.getAllColumnPhysicalNames() >> (['column'] as Set)
+
+        when:
+        partitionAvailability.getAvailableIntervals(constraint)
+        SimplifiedIntervalList memoized = partitionAvailability.getAvailableIntervals(constraint)
+
+        then: "the intervals by column are read once for each data source"
+        2 * metadataService.getAvailableIntervalsByDataSource(_) >> { intervals }
+        memoized == intervals.column
+        partitionAvailability.getVersion() == OptionalLong.of(1)
+
+        when: "the metadata of a data source is updated"
+        version = 2
+        intervals = [column: new SimplifiedIntervalList([new Interval('2017/2019')])]
+        SimplifiedIntervalList updated = partitionAvailability.getAvailableIntervals(constraint)
+
+        then:
+        2 * metadataService.getAvailableIntervalsByDataSource(_) >> { intervals }
+        updated == intervals.column
+
+        cleanup:
+        systemConfig.resetProperty(VersionedIntervalsCache.MAX_ENTRIES_KEY, original)
+    }
+}
@@ -2,8 +2,11 @@
 // Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
 package com.yahoo.bard.webservice.table.resolver
 
+import com.yahoo.bard.webservice.application.MetricRegistryFactory
+import com.yahoo.bard.webservice.table.ConfigPhysicalTable
 import com.yahoo.bard.webservice.table.PhysicalTable
 import com.yahoo.bard.webservice.table.PhysicalTableSchema
+import com.yahoo.bard.webservice.table.availability.Availability
 
 import spock.lang.Shared
 import spock.lang.Specification
@@ -171,4 +174,100 @@ class BasePhysicalTableResolverSpec extends Specification {
         [matchThree, matchAllButTablesNamedOne] | pickFirst | three
         [matchAll]                              | pickLast  | three
     }
+
+    /**
+     * Build a resolver which caches resolutions, and counts the resolutions it does not find in its cache.
+     *
+     * @param counter  Counts the resolutions
+     *
+     * @return the resolver
+     */
+    BasePhysicalTableResolver buildCachingResolver(List<Integer> counter) {
+        return new BasePhysicalTableResolver(10, 60000) {
+            @Override
+            List<PhysicalTableMatcher> getMatchers(QueryPlanningConstraint requestConstraint) {
+                counter[0]++
+                return [matchAll]
+            }
+
+            @Override
+            BinaryOperator<PhysicalTable> getBetterTableOperator(QueryPlanningConstraint requestConstraint) {
+                return pickFirst
+            }
+        }
+    }
+
+    def "Resolutions are cached by request and candidates until the availability of a candidate changes"() {
+        setup:
+        long version = 1
+        Availability availability = Mock(Availability)
+        availability.getVersion() >> { OptionalLong.of(version) }
+        ConfigPhysicalTable first = Mock(ConfigPhysicalTable)
+        ConfigPhysicalTable second = Mock(ConfigPhysicalTable)
+        [first, second].each {
+            it.getAvailability() >> availability
+            it.getSchema() >> Mock(PhysicalTableSchema)
+        }
+
+        List<Integer> resolutions = [0]
+        BasePhysicalTableResolver resolver = buildCachingResolver(resolutions)
+
+        when:
+        PhysicalTable resolved = resolver.resolve([first, second], dataSourceConstraint)
+        PhysicalTable cached = resolver.resolve([first, second], dataSourceConstraint)
+
+        then:
+        resolutions[0] == 1
+        resolved.is(first)
+        cached.is(first)
+
+        when: "the request or the candidates differ"
+        resolver.resolve([first, second], Mock(QueryPlanningConstraint))
+        resolver.resolve([second, first], dataSourceConstraint)
+
+        then:
+        resolutions[0] == 3
+
+        when: "the availability of a candidate changes"
+        version = 2
+        resolver.resolve([first, second], dataSourceConstraint)
+
+        then:
+        resolutions[0] == 4
+    }
+
+    def "Resolutions are not cached for candidates without a versioned availability"() {
+        setup:
+        Availability availability = Mock(Availability)
+        availability.getVersion() >> OptionalLong.empty()
+        ConfigPhysicalTable table = Mock(ConfigPhysicalTable)
+        table.getAvailability() >> availability
+        table.getSchema() >> Mock(PhysicalTableSchema)
+
+        List<Integer> resolutions = [0]
+        BasePhysicalTableResolver resolver = buildCachingResolver(resolutions)
+
+        when:
+        resolver.resolve([table], dataSourceConstraint)
+        resolver.resolve([table], dataSourceConstraint)
+        resolver.resolve([one], dataSourceConstraint)
+        resolver.resolve([one], dataSourceConstraint)
+
+        then:
+        resolutions[0] == 4
+    }
+
+    def "Every resolution marks the meter of the resolved table, whether or not it is cached"() {
+        setup:
+        physicalTableResolver.matchers = [matchThree]
+        physicalTableResolver.betterTable = pickFirst
+        String meterName = "request.physical.table.three." + three.getSchema().getTimeGrain()
+        long count = MetricRegistryFactory.registry.meter(meterName).count
+
+        when:
+        3.times { physicalTableResolver.resolve([one, two, three], dataSourceConstraint) }
+
+        then:
+        MetricRegistryFactory.registry.meter(meterName).count == count + 3
+    }
 }
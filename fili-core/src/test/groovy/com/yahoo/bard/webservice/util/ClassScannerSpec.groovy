@@ -5,6 +5,7 @@ package com.yahoo.bard.webservice.util
 import com.yahoo.bard.webservice.async.jobs.jobrows.JobRow
 import com.yahoo.bard.webservice.druid.model.aggregation.LongSumAggregation
 
+import org.apache.lucene.index.MultiReader
 import org.joda.time.DateTime
 import org.joda.time.DateTimeZone
 import org.joda.time.Days
@@ -40,7 +41,8 @@ class ClassScannerSpec extends Specification {
                  new DateTime(20000),
                  new Interval(1, 2),
                  Days.days(1),
-                 DateTimeZone.UTC
+                 DateTimeZone.UTC,
+                 new MultiReader()
                 ])
     }
 
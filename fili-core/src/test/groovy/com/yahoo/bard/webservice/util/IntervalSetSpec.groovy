@@ -0,0 +1,114 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.util
+
+import org.joda.time.Interval
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class IntervalSetSpec extends Specification {
+
+    static IntervalSet build(List<List<Long>> bounds) {
+        IntervalSet.of(bounds.collect { new Interval(it[0], it[1]) })
+    }
+
+    static List<List<Long>> bounds(IntervalSet set) {
+        (0..<set.size()).collect { [set.getStartMillis(it), set.getEndMillis(it)] }
+    }
+
+    @Unroll
+    def "The intervals #input are sorted and simplified to #expected"() {
+        expect:
+        bounds(build(input)) == expected
+
+        where:
+        input                            | expected
+        []                               | []
+        [[5, 8], [1, 3]]                 | [[1, 3], [5, 8]]
+        [[1, 3], [3, 5]]                 | [[1, 5]]
+        [[1, 10], [2, 4], [9, 12]]       | [[1, 12]]
+        [[4, 4], [1, 2]]                 | [[1, 2]]
+    }
+
+    def "A simplified interval list is copied as it is"() {
+        given:
+        SimplifiedIntervalList list = new SimplifiedIntervalList([new Interval(10, 20), new Interval(1, 5)])
+
+        expect:
+        bounds(list.toIntervalSet()) == [[1, 5], [10, 20]]
+        SimplifiedIntervalList.fromIntervalSet(list.toIntervalSet(), list.first.chronology) == list
+    }
+
+    @Unroll
+    def "#these #operation #those is #expected"() {
+        expect:
+        bounds(build(these)."$operation"(build(those))) == expected
+
+        where:
+        these                | operation   | those                      | expected
+        [[2, 4], [6, 10]]    | "union"     | [[1, 3], [10, 12]]         | [[1, 4], [6, 12]]
+        [[2, 4]]             | "union"     | []                         | [[2, 4]]
+        [[2, 4], [6, 10]]    | "intersect" | [[1, 3], [7, 8], [9, 12]]  | [[2, 3], [7, 8], [9, 10]]
+        [[2, 4], [6, 10]]    | "intersect" | [[4, 6]]                   | []
+        [[0, 10], [20, 30]]  | "subtract"  | [[2, 3], [5, 22], [29, 40]] | [[0, 2], [3, 5], [22, 29]]
+        [[0, 10]]            | "subtract"  | [[0, 10]]                  | []
+        [[0, 10]]            | "subtract"  | []                         | [[0, 10]]
+    }
+
+    @Unroll
+    def "#set contains #interval is #contains and overlaps it is #overlaps"() {
+        given:
+        IntervalSet intervals = build(set)
+
+        expect:
+        intervals.contains(new Interval(interval[0], interval[1])) == contains
+        intervals.overlaps(new Interval(interval[0], interval[1])) == overlaps
+
+        where:
+        set                  | interval | contains | overlaps
+        [[2, 4], [6, 10]]    | [2, 4]   | true     | true
+        [[2, 4], [6, 10]]    | [7, 9]   | true     | true
+        [[2, 4], [6, 10]]    | [3, 7]   | false    | true
+        [[2, 4], [6, 10]]    | [4, 6]   | false    | false
+        [[2, 4], [6, 10]]    | [0, 2]   | false    | false
+        [[2, 4], [6, 10]]    | [9, 11]  | false    | true
+        [[2, 4], [6, 10]]    | [10, 12] | false    | false
+        []                   | [0, 1]   | false    | false
+    }
+
+    def "Set operations agree with the instants of their operands"() {
+        given:
+        Random random = new Random(42)
+        Closure<IntervalSet> randomSet = {
+            IntervalSet.of((0..<random.nextInt(12)).collect {
+                long start = random.nextInt(100)
+                new Interval(start, start + 1 + random.nextInt(15))
+            })
+        }
+
+        expect:
+        200.times {
+            IntervalSet these = randomSet()
+            IntervalSet those = randomSet()
+            IntervalSet union = these.union(those)
+            IntervalSet intersection = these.intersect(those)
+            IntervalSet difference = these.subtract(those)
+            (0L..120L).each { long instant ->
+                assert union.contains(instant) == (these.contains(instant) || those.contains(instant))
+                assert intersection.contains(instant) == (these.contains(instant) && those.contains(instant))
+                assert difference.contains(instant) == (these.contains(instant) && !those.contains(instant))
+            }
+            [union, intersection, difference].each { assert IntervalSet.of(toIntervals(it)) == it }
+        }
+    }
+
+    def "The total duration sums the lengths of the intervals"() {
+        expect:
+        build([[0, 10], [5, 12], [20, 25]]).totalDurationMillis == 17
+    }
+
+    static List<Interval> toIntervals(IntervalSet set) {
+        bounds(set).collect { new Interval(it[0], it[1]) }
+    }
+}
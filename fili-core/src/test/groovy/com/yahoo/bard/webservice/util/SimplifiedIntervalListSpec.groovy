@@ -189,4 +189,17 @@ class SimplifiedIntervalListSpec extends Specification {
         Days.ONE   | [["2015", Days.THREE], ["2013", Days.ONE]] | ["2013", "2015-01-01", "2015-01-02", "2015-01-03"]
         Days.THREE | [["2015", Days.THREE]]                     | ["2015-01-01"]
     }
+
+    def "The union and intersection of many lists merge all of them"() {
+        given:
+        List<SimplifiedIntervalList> lists = [tinyEvenIntervals, tinyOddIntervals, largeEvenInterval].collect {
+            new SimplifiedIntervalList(buildIntervalListNum(it))
+        }
+
+        expect:
+        SimplifiedIntervalList.unionAll(lists) == lists[0].union(lists[1]).union(lists[2])
+        SimplifiedIntervalList.intersectAll(lists) == lists[0].intersect(lists[1]).intersect(lists[2])
+        SimplifiedIntervalList.unionAll([]).isEmpty()
+        SimplifiedIntervalList.intersectAll([]).isEmpty()
+    }
 }
@@ -62,6 +62,7 @@ class JsonResponseSpec extends Specification {
             getLastPage() >> OptionalInt.of(3)
             getNextPage() >> OptionalInt.of(3)
             getPreviousPage() >> OptionalInt.of(1)
+            getNextCursor() >> Optional.empty()
             getPage() >> PAGE
             getNumResults() >> 6
             getPerPage() >> PER_PAGE
@@ -25,6 +25,9 @@ import com.yahoo.bard.webservice.util.Pagination
 import com.yahoo.bard.webservice.util.SimplifiedIntervalList
 import com.yahoo.bard.webservice.web.apirequest.DataApiRequest
 
+import com.fasterxml.jackson.core.JsonGenerator
+import com.fasterxml.jackson.databind.ObjectMapper
+
 import org.joda.time.DateTime
 import org.joda.time.DateTimeZone
 
@@ -235,4 +238,99 @@ class ResponseDataSpec extends Specification {
         expect:
         row == expectedRow
     }
+
+    def "Rows written straight to a generator match the rows built as maps"() {
+        given:
+        ObjectMapper mapper = new ObjectMapper()
+        StringWriter written = new StringWriter()
+        JsonGenerator generator = mapper.getFactory().createGenerator(written)
+
+        when:
+        generator.writeStartArray()
+        resultSet.each { response.writeResultRow(generator, it) }
+        generator.writeEndArray()
+        generator.close()
+
+        then:
+        written.toString() == mapper.writeValueAsString(resultSet.collect { response.buildResultRow(it) })
+    }
+
+    def "Rows written straight to a generator with sidecars match the rows built as maps"() {
+        given:
+        ObjectMapper mapper = new ObjectMapper()
+        StringWriter written = new StringWriter()
+        JsonGenerator generator = mapper.getFactory().createGenerator(written)
+        Map<Dimension, Set<Map<DimensionField, String>>> writtenSidecars = sidecars()
+        Map<Dimension, Set<Map<DimensionField, String>>> builtSidecars = sidecars()
+
+        when:
+        generator.writeStartArray()
+        (resultSet + resultSet).each { response.writeResultRowWithSidecars(generator, it, writtenSidecars) }
+        generator.writeEndArray()
+        generator.close()
+
+        then:
+        written.toString() == mapper.writeValueAsString(
+                (resultSet + resultSet).collect { response.buildResultRowWithSidecars(it, builtSidecars) }
+        )
+        writtenSidecars.collectEntries { [(it.key): it.value as List] } ==
+                builtSidecars.collectEntries { [(it.key): it.value as List] }
+        writtenSidecars.values()*.size() == [2, 2, 2]
+    }
+
+    def "Each write of a response with sidecars loads the dimension rows into its own sidecar map"() {
+        given:
+        JsonGenerator generator = new ObjectMapper().getFactory().createGenerator(new StringWriter())
+        Map<Dimension, Set<Map<DimensionField, String>>> firstSidecars = sidecars()
+        Map<Dimension, Set<Map<DimensionField, String>>> secondSidecars = sidecars()
+
+        when: "the same response is written twice"
+        resultSet.each { response.writeResultRowWithSidecars(generator, it, firstSidecars) }
+        resultSet.each { response.writeResultRowWithSidecars(generator, it, secondSidecars) }
+
+        then:
+        firstSidecars.values()*.size() == [2, 2, 2]
+        secondSidecars == firstSidecars
+    }
+
+    def "Writing rows with sidecars adds the key field to the requested dimension fields"() {
+        given:
+        JsonGenerator generator = new ObjectMapper().getFactory().createGenerator(new StringWriter())
+
+        when:
+        resultSet.each { response.writeResultRowWithSidecars(generator, it, sidecars()) }
+
+        then:
+        response.getRequestedApiDimensionFields().every { it.value.contains(it.key.key) }
+
+        and: "the dimension showing only its description gets its key as well"
+        response.getRequestedApiDimensionFields().find { it.key.apiName == "property" }.value ==
+                [BardDimensionField.DESC, BardDimensionField.ID] as Set
+    }
+
+    def "Rows filled into an array follow the CSV header order"() {
+        given:
+        Object[] row = new Object[8]
+        // Leftovers from a previous row are cleared
+        Arrays.fill(row, "stale")
+
+        when:
+        response.fillResultRow(resultSet.get(1), row)
+
+        then:
+        row as List == [
+                dateTime.toString(DateTimeFormatterFactory.getOutputFormatter()),
+                "ysports",
+                "yahoo sports",
+                "desk",
+                "desktop ,\" desc..",
+                "India",
+                10,
+                10
+        ]
+    }
+
+    Map<Dimension, Set<Map<DimensionField, String>>> sidecars() {
+        resultSet.getSchema().getColumns(DimensionColumn).collectEntries { [(it.dimension): new LinkedHashSet()] }
+    }
 }
@@ -2,15 +2,20 @@
 // Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
 package com.yahoo.bard.webservice.web.handlers
 
+import com.yahoo.bard.webservice.config.BardFeatureFlag
 import com.yahoo.bard.webservice.druid.client.DruidWebService
+import com.yahoo.bard.webservice.druid.client.StreamingSuccessCallback
 import com.yahoo.bard.webservice.druid.client.SuccessCallback
 import com.yahoo.bard.webservice.druid.model.query.GroupByQuery
+import com.yahoo.bard.webservice.druid.model.query.QueryContext
 import com.yahoo.bard.webservice.logging.blocks.BardQueryInfo
 import com.yahoo.bard.webservice.logging.blocks.BardQueryInfoUtils
 import com.yahoo.bard.webservice.web.apirequest.DataApiRequest
 import com.yahoo.bard.webservice.web.responseprocessors.LoggingContext
 import com.yahoo.bard.webservice.web.responseprocessors.ResponseProcessor
+import com.yahoo.bard.webservice.web.responseprocessors.StreamingResponseProcessor
 
+import com.fasterxml.jackson.core.JsonParser
 import com.fasterxml.jackson.databind.JsonNode
 import com.fasterxml.jackson.databind.ObjectMapper
 import com.fasterxml.jackson.databind.ObjectWriter
@@ -29,6 +34,7 @@ class AsyncWebServiceRequestHandlerSpec extends Specification {
 
     def cleanup() {
         BardQueryInfoUtils.resetBardQueryInfo()
+        BardFeatureFlag.STREAMING_DRUID_RESPONSE.reset()
     }
 
     def "Test handle request invokes asynch call"() {
@@ -71,4 +77,80 @@ class AsyncWebServiceRequestHandlerSpec extends Specification {
         then:
         1 * response.processResponse(rootNode, groupByQuery, _ as LoggingContext)
     }
+
+    def "With streaming enabled, a streaming response processor is handed the token stream"() {
+        setup:
+        BardFeatureFlag.STREAMING_DRUID_RESPONSE.setOn(true)
+        DruidWebService dws = Mock(DruidWebService)
+        RequestContext rc = Mock(RequestContext)
+        GroupByQuery groupByQuery = Mock(GroupByQuery)
+        StreamingResponseProcessor response = Mock(StreamingResponseProcessor)
+        JsonParser parser = Mock(JsonParser)
+        AsyncWebServiceRequestHandler handler = new AsyncWebServiceRequestHandler(dws, Mock(ObjectMapper))
+
+        SuccessCallback sc = null
+
+        when:
+        handler.handleRequest(rc, Mock(DataApiRequest), groupByQuery, response)
+
+        then:
+        1 * dws.postDruidQuery(rc, _, _, _, groupByQuery) >> { a0, a1, a2, a3, a4 ->
+            sc = a1
+            return Mock(Future)
+        }
+        sc instanceof StreamingSuccessCallback
+
+        when:
+        ((StreamingSuccessCallback) sc).invoke(parser)
+
+        then:
+        1 * response.processResponse(parser, groupByQuery, _ as LoggingContext)
+    }
+
+    def "With streaming disabled, a streaming response processor is handed the tree"() {
+        setup:
+        DruidWebService dws = Mock(DruidWebService)
+        RequestContext rc = Mock(RequestContext)
+        GroupByQuery groupByQuery = Mock(GroupByQuery)
+        StreamingResponseProcessor response = Mock(StreamingResponseProcessor)
+        JsonNode rootNode = Mock(JsonNode)
+        AsyncWebServiceRequestHandler handler = new AsyncWebServiceRequestHandler(dws, Mock(ObjectMapper))
+
+        SuccessCallback sc = null
+
+        when:
+        handler.handleRequest(rc, Mock(DataApiRequest), groupByQuery, response)
+
+        then:
+        1 * dws.postDruidQuery(rc, _, _, _, groupByQuery) >> { a0, a1, a2, a3, a4 ->
+            sc = a1
+            return Mock(Future)
+        }
+        !(sc instanceof StreamingSuccessCallback)
+
+        when:
+        sc.invoke(rootNode)
+
+        then:
+        1 * response.processResponse(rootNode, groupByQuery, _ as LoggingContext)
+    }
+
+    def "Queries of a request whose queries were abandoned are recorded but not sent"() {
+        setup:
+        DruidWebService dws = Mock(DruidWebService)
+        RequestContext rc = new RequestContext(null, false)
+        GroupByQuery groupByQuery = Mock(GroupByQuery)
+        groupByQuery.getContext() >> new QueryContext([:]).withQueryId("abandoned")
+        AsyncWebServiceRequestHandler handler = new AsyncWebServiceRequestHandler(dws, Mock(ObjectMapper))
+        rc.abandonDruidQueries()
+
+        when:
+        boolean handled = handler.handleRequest(rc, Mock(DataApiRequest), groupByQuery, Mock(ResponseProcessor))
+
+        then:
+        handled
+        0 * dws.postDruidQuery(*_)
+        rc.abandonDruidQueries() == [groupByQuery.context.queryId] as Set
+        bardQueryInfo.queryCounter.get(BardQueryInfo.FACT_QUERIES).get() == 0
+    }
 }
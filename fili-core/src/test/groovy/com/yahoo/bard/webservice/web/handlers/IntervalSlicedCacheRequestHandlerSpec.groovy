@@ -0,0 +1,247 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.web.handlers
+
+import static com.yahoo.bard.webservice.config.BardFeatureFlag.CACHE_PARTIAL_DATA
+import static com.yahoo.bard.webservice.web.responseprocessors.ResponseContextKeys.VOLATILE_INTERVALS_CONTEXT_KEY
+
+import com.yahoo.bard.webservice.application.ObjectMappersSuite
+import com.yahoo.bard.webservice.data.cache.TestTupleDataCache
+import com.yahoo.bard.webservice.data.dimension.Dimension
+import com.yahoo.bard.webservice.druid.model.aggregation.CardinalityAggregation
+import com.yahoo.bard.webservice.druid.model.aggregation.FilteredAggregation
+import com.yahoo.bard.webservice.druid.model.aggregation.LongSumAggregation
+import com.yahoo.bard.webservice.druid.model.filter.SelectorFilter
+import com.yahoo.bard.webservice.druid.model.orderby.LimitSpec
+import com.yahoo.bard.webservice.druid.model.query.DruidAggregationQuery
+import com.yahoo.bard.webservice.druid.model.query.GroupByQuery
+import com.yahoo.bard.webservice.druid.model.query.TimeSeriesQuery
+import com.yahoo.bard.webservice.logging.blocks.BardQueryInfoUtils
+import com.yahoo.bard.webservice.metadata.QuerySigningService
+import com.yahoo.bard.webservice.metadata.SegmentIntervalsHashIdGenerator
+import com.yahoo.bard.webservice.util.SimplifiedIntervalList
+import com.yahoo.bard.webservice.web.RequestUtils
+import com.yahoo.bard.webservice.web.apirequest.DataApiRequest
+import com.yahoo.bard.webservice.web.responseprocessors.CacheV2ResponseProcessor
+import com.yahoo.bard.webservice.web.responseprocessors.LoggingContext
+import com.yahoo.bard.webservice.web.responseprocessors.ResponseContext
+import com.yahoo.bard.webservice.web.responseprocessors.ResponseProcessor
+
+import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.databind.ObjectMapper
+
+import org.joda.time.Interval
+
+import spock.lang.Specification
+
+import javax.ws.rs.container.ContainerRequestContext
+import javax.ws.rs.core.MultivaluedHashMap
+
+class IntervalSlicedCacheRequestHandlerSpec extends Specification {
+
+    ObjectMapper mapper = new ObjectMappersSuite().getMapper()
+
+    DataRequestHandler next = Mock(DataRequestHandler)
+    TestTupleDataCache dataCache = new TestTupleDataCache()
+    QuerySigningService<Long> querySigningService = Mock(SegmentIntervalsHashIdGenerator)
+    long segmentSetId = 1234L
+
+    DataApiRequest apiRequest = Mock(DataApiRequest)
+    ResponseContext responseContext = new ResponseContext()
+    ResponseProcessor response = Mock(ResponseProcessor)
+
+    IntervalSlicedCacheRequestHandler handler
+
+    def setup() {
+        querySigningService.getSegmentSetId(_) >> { Optional.of(segmentSetId) }
+        response.getResponseContext() >> responseContext
+        handler = new IntervalSlicedCacheRequestHandler(next, dataCache, querySigningService, mapper)
+        BardQueryInfoUtils.initializeBardQueryInfo()
+    }
+
+    def cleanup() {
+        CACHE_PARTIAL_DATA.reset()
+        BardQueryInfoUtils.resetBardQueryInfo()
+    }
+
+    RequestContext requestContext() {
+        ContainerRequestContext containerRequestContext = Mock(ContainerRequestContext)
+        containerRequestContext.getHeaders() >> (["Bard-Testing": "###BYPASS###", "ClientId": "UI"] as
+                MultivaluedHashMap<String, String>)
+        new RequestContext(containerRequestContext, true)
+    }
+
+    TimeSeriesQuery query(String interval) {
+        RequestUtils.buildTimeSeriesQuery().withAllIntervals([new Interval(interval)])
+    }
+
+    JsonNode rows(int... days) {
+        mapper.readTree(mapper.writeValueAsString(days.collect {
+            [timestamp: String.format("2017-01-%02dT00:00:00.000Z", it), result: [pageViews: it]]
+        }))
+    }
+
+    /**
+     * Run a query through the handler, answering what reaches Druid with a row for each of the given days.
+     *
+     * @return the intervals of the query sent to Druid, or null if none was sent
+     */
+    List<Interval> run(DruidAggregationQuery<?> query, int... druidDays) {
+        List<Interval> sentIntervals = null
+        DataRequestHandler druid = Mock(DataRequestHandler)
+        druid.handleRequest(_, _, _, _) >> { RequestContext context, DataApiRequest request,
+                                            DruidAggregationQuery<?> sent, ResponseProcessor processor ->
+            sentIntervals = sent.intervals
+            processor.processResponse(rows(druidDays), sent, Mock(LoggingContext))
+            true
+        }
+        new IntervalSlicedCacheRequestHandler(druid, dataCache, querySigningService, mapper)
+                .handleRequest(requestContext(), apiRequest, query, response)
+        sentIntervals
+    }
+
+    def "A query with nothing cached is sent whole, and each of its buckets is cached"() {
+        when:
+        List<Interval> sent = run(query("2017-01-01/2017-01-04"), 1, 2, 3)
+
+        then:
+        sent == [new Interval("2017-01-01/2017-01-04")]
+        1 * response.processResponse(rows(1, 2, 3), { it.intervals == [new Interval("2017-01-01/2017-01-04")] }, _)
+        dataCache.client.size() == 3
+    }
+
+    def "A query moved forward by a day only fetches the new day"() {
+        given:
+        run(query("2017-01-01/2017-01-04"), 1, 2, 3)
+        TimeSeriesQuery moved = query("2017-01-02/2017-01-05")
+
+        when:
+        List<Interval> sent = run(moved, 4)
+
+        then:
+        sent == [new Interval("2017-01-04/2017-01-05")]
+        1 * response.processResponse(rows(2, 3, 4), moved, _)
+        dataCache.client.size() == 4
+    }
+
+    def "A query with every bucket cached is answered without Druid"() {
+        given:
+        run(query("2017-01-01/2017-01-04"), 1, 2, 3)
+        TimeSeriesQuery middle = query("2017-01-02/2017-01-04")
+
+        when:
+        handler.handleRequest(requestContext(), apiRequest, middle, response)
+
+        then:
+        0 * next.handleRequest(*_)
+        1 * response.processResponse(rows(2, 3), middle, _)
+    }
+
+    def "The buckets of a query are read from the cache in one bulk read"() {
+        given:
+        run(query("2017-01-01/2017-01-04"), 1, 2, 3)
+        TestTupleDataCache bulkCache = Spy(TestTupleDataCache)
+        dataCache.client.each { key, entry -> bulkCache.set(key, entry) }
+        TimeSeriesQuery longer = query("2017-01-01/2017-01-06")
+
+        when:
+        new IntervalSlicedCacheRequestHandler(next, bulkCache, querySigningService, mapper)
+                .handleRequest(requestContext(), apiRequest, longer, response)
+
+        then:
+        1 * bulkCache.getAll({ it.size() == 5 }, _)
+        0 * bulkCache.get(*_)
+        1 * next.handleRequest(_, _, { it.intervals == [new Interval("2017-01-04/2017-01-06")] }, _) >> true
+    }
+
+    def "Buckets of queries aggregating on dimensions are cached"() {
+        given:
+        Dimension dimension = Mock(Dimension) { getApiName() >> "platform" }
+        TimeSeriesQuery aggregating = query("2017-01-01/2017-01-04").withAggregations([
+                new CardinalityAggregation("platforms", [dimension] as Set, false),
+                new FilteredAggregation(
+                        "webPageViews",
+                        new LongSumAggregation("pageViews", "page_views"),
+                        new SelectorFilter(dimension, "web")
+                )
+        ])
+        run(aggregating, 1, 2, 3)
+
+        when:
+        handler.handleRequest(requestContext(), apiRequest, aggregating, response)
+
+        then:
+        dataCache.client.size() == 3
+        0 * next.handleRequest(*_)
+        1 * response.processResponse(rows(1, 2, 3), aggregating, _)
+    }
+
+    def "Buckets cached under another segment set are fetched again"() {
+        given:
+        run(query("2017-01-01/2017-01-04"), 1, 2, 3)
+        segmentSetId = 5678L
+
+        expect:
+        run(query("2017-01-01/2017-01-04"), 1, 2, 3) == [new Interval("2017-01-01/2017-01-04")]
+    }
+
+    def "Volatile buckets are always fetched and never cached without partial data caching"() {
+        given:
+        responseContext.put(
+                VOLATILE_INTERVALS_CONTEXT_KEY.name,
+                new SimplifiedIntervalList([new Interval("2017-01-03/2017-01-04")])
+        )
+        run(query("2017-01-01/2017-01-04"), 1, 2, 3)
+
+        when:
+        List<Interval> sent = run(query("2017-01-01/2017-01-04"), 3)
+
+        then:
+        sent == [new Interval("2017-01-03/2017-01-04")]
+        1 * response.processResponse(rows(1, 2, 3), _, _)
+        dataCache.client.size() == 2
+    }
+
+    def "Volatile buckets are cached and read back with partial data caching"() {
+        given:
+        CACHE_PARTIAL_DATA.setOn(true)
+        responseContext.put(
+                VOLATILE_INTERVALS_CONTEXT_KEY.name,
+                new SimplifiedIntervalList([new Interval("2017-01-03/2017-01-04")])
+        )
+        run(query("2017-01-01/2017-01-04"), 1, 2, 3)
+
+        when:
+        List<Interval> sent = run(query("2017-01-01/2017-01-04"), 3)
+
+        then:
+        sent == null
+        1 * response.processResponse(rows(1, 2, 3), _, _)
+        dataCache.client.size() == 3
+    }
+
+    def "Buckets without any rows are cached as empty"() {
+        given:
+        run(query("2017-01-01/2017-01-04"), 1, 3)
+
+        when:
+        handler.handleRequest(requestContext(), apiRequest, query("2017-01-01/2017-01-04"), response)
+
+        then:
+        0 * next.handleRequest(*_)
+        1 * response.processResponse(rows(1, 3), _, _)
+    }
+
+    def "Grouping queries with a limit are cached whole"() {
+        given:
+        GroupByQuery limited = RequestUtils.buildGroupByQuery()
+                .withAllIntervals([new Interval("2017-01-01/2017-01-04")])
+                .withLimitSpec(new LimitSpec([] as LinkedHashSet, OptionalInt.of(10)))
+
+        when:
+        handler.handleRequest(requestContext(), apiRequest, limited, response)
+
+        then:
+        1 * next.handleRequest(_, _, limited, { it instanceof CacheV2ResponseProcessor })
+    }
+}
@@ -6,14 +6,21 @@ import static com.yahoo.bard.webservice.data.time.DefaultTimeGrain.DAY
 import static com.yahoo.bard.webservice.data.time.DefaultTimeGrain.MONTH
 import static com.yahoo.bard.webservice.data.time.AllGranularity.INSTANCE
 
+import com.yahoo.bard.webservice.druid.client.FailureCallback
 import com.yahoo.bard.webservice.druid.client.HttpErrorCallback
+import com.yahoo.bard.webservice.druid.model.query.DruidAggregationQuery
 import com.yahoo.bard.webservice.druid.model.query.GroupByQuery
 import com.yahoo.bard.webservice.data.time.Granularity
+import com.yahoo.bard.webservice.logging.RequestLog
 import com.yahoo.bard.webservice.util.SimplifiedIntervalList
 import com.yahoo.bard.webservice.web.apirequest.DataApiRequest
+import com.yahoo.bard.webservice.web.responseprocessors.LoggingContext
 import com.yahoo.bard.webservice.web.responseprocessors.ResponseProcessor
 import com.yahoo.bard.webservice.web.responseprocessors.SplitQueryResponseProcessor
 
+import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.databind.ObjectMapper
+
 import org.joda.time.DateTime
 import org.joda.time.Duration
 import org.joda.time.Interval
@@ -21,10 +28,13 @@ import org.joda.time.Interval
 import spock.lang.Specification
 import spock.lang.Unroll
 
+import java.util.concurrent.Executor
 import java.util.concurrent.atomic.AtomicLong
 
 class SplitQueryRequestHandlerSpec extends Specification {
 
+    static final Executor DIRECT = { Runnable task -> task.run() } as Executor
+
     DataRequestHandler next = Mock(DataRequestHandler)
 
     RequestContext rc = Mock(RequestContext)
@@ -51,6 +61,8 @@ class SplitQueryRequestHandlerSpec extends Specification {
 
     @Unroll
     def "Handler splits an interval by a time grain"() {
+        // Without a concurrency limit every sub-query is sent at once
+        handler = new SplitQueryRequestHandler(next, 0)
         groupByQuery.granularity >> timeGrain
         groupByQuery.intervals >> [interval]
         rc.numberOfIncoming >> new AtomicLong(1)
@@ -110,6 +122,120 @@ class SplitQueryRequestHandlerSpec extends Specification {
         0 * _._
     }
     
+    def "Handler keeps at most the concurrency limit of sub-queries in flight"() {
+        setup:
+        handler = new SplitQueryRequestHandler(next, 2, DIRECT)
+        FailureCallback failureCallback = Mock(FailureCallback)
+        List<DruidAggregationQuery> sent = []
+        SplitQueryResponseProcessor merging = null
+
+        groupByQuery.granularity >> DAY
+        groupByQuery.intervals >> [week]
+        groupByQuery.withAllIntervals(_) >> { args -> splitQuery(args[0] as List) }
+        rc.numberOfIncoming >> new AtomicLong(1)
+        rc.numberOfOutgoing >> new AtomicLong(1)
+        response.getFailureCallback(_) >> failureCallback
+        next.handleRequest(rc, apiRequest, _, _) >> { args ->
+            sent << args[2]
+            merging = args[3]
+            true
+        }
+
+        when:
+        handler.handleRequest(rc, apiRequest, groupByQuery, response)
+
+        then:
+        sent.size() == 2
+
+        when: "A sub-query completes"
+        merging.processResponse(emptyResponse(), sent[1], new LoggingContext(RequestLog.dump()))
+
+        then: "The next sub-query in bucket order is sent"
+        sent.size() == 3
+        sent*.intervals == (0..2).collect { [new Interval(startInstant.plusDays(it), startInstant.plusDays(it + 1))] }
+
+        when: "A sub-query fails"
+        merging.getFailureCallback(sent[0]).invoke(new IllegalStateException())
+        merging.processResponse(emptyResponse(), sent[2], new LoggingContext(RequestLog.dump()))
+
+        then: "No more sub-queries are sent"
+        1 * failureCallback.invoke(_)
+        sent.size() == 3
+    }
+
+    def "Sub-queries completing while they are sent do not nest the sending of later sub-queries"() {
+        setup:
+        handler = new SplitQueryRequestHandler(next, 1, DIRECT)
+        int depth = 0
+        int maxDepth = 0
+        List<DruidAggregationQuery> sent = []
+
+        groupByQuery.granularity >> DAY
+        groupByQuery.intervals >> [month]
+        groupByQuery.withAllIntervals(_) >> { args -> splitQuery(args[0] as List) }
+        rc.numberOfIncoming >> new AtomicLong(1)
+        rc.numberOfOutgoing >> new AtomicLong(1)
+        next.handleRequest(rc, apiRequest, _, _) >> { args ->
+            sent << args[2]
+            maxDepth = Math.max(maxDepth, ++depth)
+            // Answer right away, as a cache hit would
+            args[3].processResponse(emptyResponse(), args[2], new LoggingContext(RequestLog.dump()))
+            depth--
+            true
+        }
+
+        when:
+        handler.handleRequest(rc, apiRequest, groupByQuery, response)
+
+        then:
+        sent.size() == 31
+        maxDepth == 1
+        1 * response.processResponse(_, groupByQuery, _)
+    }
+
+    def "Sub-queries following completed ones are sent by the dispatcher rather than the completing thread"() {
+        setup:
+        List<Runnable> dispatches = []
+        handler = new SplitQueryRequestHandler(next, 1, { Runnable task -> dispatches << task } as Executor)
+        List<DruidAggregationQuery> sent = []
+        SplitQueryResponseProcessor merging = null
+
+        groupByQuery.granularity >> DAY
+        groupByQuery.intervals >> [week]
+        groupByQuery.withAllIntervals(_) >> { args -> splitQuery(args[0] as List) }
+        rc.numberOfIncoming >> new AtomicLong(1)
+        rc.numberOfOutgoing >> new AtomicLong(1)
+        next.handleRequest(rc, apiRequest, _, _) >> { args ->
+            sent << args[2]
+            merging = args[3]
+            true
+        }
+        handler.handleRequest(rc, apiRequest, groupByQuery, response)
+
+        when: "A sub-query completes"
+        merging.processResponse(emptyResponse(), sent[0], new LoggingContext(RequestLog.dump()))
+
+        then: "The completing thread only hands the sending of the next sub-query to the dispatcher"
+        sent.size() == 1
+        dispatches.size() == 1
+
+        when:
+        dispatches[0].run()
+
+        then:
+        sent.size() == 2
+    }
+
+    GroupByQuery splitQuery(List<Interval> intervals) {
+        GroupByQuery split = Mock(GroupByQuery)
+        split.getIntervals() >> intervals
+        split
+    }
+
+    JsonNode emptyResponse() {
+        new ObjectMapper().createArrayNode()
+    }
+
     SimplifiedIntervalList buildIntervals(List<String> intervals) {
         intervals.collect({ new Interval(it) }) as SimplifiedIntervalList
     }
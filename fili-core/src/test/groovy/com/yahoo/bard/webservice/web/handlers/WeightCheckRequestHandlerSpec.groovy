@@ -6,16 +6,20 @@ import static com.yahoo.bard.webservice.data.time.DefaultTimeGrain.DAY
 
 import com.yahoo.bard.webservice.logging.blocks.BardQueryInfoUtils
 import com.yahoo.bard.webservice.application.ObjectMappersSuite
+import com.yahoo.bard.webservice.config.BardFeatureFlag
 import com.yahoo.bard.webservice.druid.client.DruidWebService
 import com.yahoo.bard.webservice.druid.client.FailureCallback
 import com.yahoo.bard.webservice.druid.client.HttpErrorCallback
 import com.yahoo.bard.webservice.druid.client.SuccessCallback
 import com.yahoo.bard.webservice.druid.model.query.DruidAggregationQuery
 import com.yahoo.bard.webservice.druid.model.query.GroupByQuery
+import com.yahoo.bard.webservice.druid.model.query.QueryContext
 import com.yahoo.bard.webservice.druid.model.query.WeightEvaluationQuery
 import com.yahoo.bard.webservice.logging.blocks.BardQueryInfo
 import com.yahoo.bard.webservice.web.apirequest.DataApiRequest
+import com.yahoo.bard.webservice.web.responseprocessors.LoggingContext
 import com.yahoo.bard.webservice.web.responseprocessors.ResponseProcessor
+import com.yahoo.bard.webservice.web.responseprocessors.SpeculativeWeightCheckResponseProcessor
 import com.yahoo.bard.webservice.web.responseprocessors.WeightCheckResponseProcessor
 import com.yahoo.bard.webservice.web.util.QueryWeightUtil
 
@@ -26,6 +30,8 @@ import com.fasterxml.jackson.databind.JsonNode
 import com.fasterxml.jackson.databind.ObjectMapper
 import com.fasterxml.jackson.databind.ObjectWriter
 
+import org.joda.time.Interval
+
 import spock.lang.Specification
 
 class WeightCheckRequestHandlerSpec extends Specification {
@@ -61,6 +67,7 @@ class WeightCheckRequestHandlerSpec extends Specification {
 
     def cleanup() {
         BardQueryInfoUtils.resetBardQueryInfo()
+        BardFeatureFlag.SPECULATIVE_WEIGHT_CHECK.reset()
     }
 
     def "Test constructor"() {
@@ -295,4 +302,148 @@ class WeightCheckRequestHandlerSpec extends Specification {
         and:
         bardQueryInfo.queryCounter.get(BardQueryInfo.WEIGHT_CHECK).get() == 0
     }
+
+    def "Speculative weight checks send the query together with its weight check"() {
+        setup:
+        WeightCheckRequestHandler handler = buildSpeculativeHandler()
+
+        when:
+        handler.handleRequest(context, request, groupByQuery, response)
+
+        then:
+        1 * webService.postDruidQuery(context, _, _, _, _ as WeightEvaluationQuery)
+        1 * next.handleRequest(context, request, groupByQuery, _ as SpeculativeWeightCheckResponseProcessor) >> true
+    }
+
+    def "A speculative query refused by its weight check is cancelled, and its answer is dropped"() {
+        setup:
+        WeightCheckRequestHandler handler = buildSpeculativeHandler()
+        SuccessCallback weightSuccess
+        ResponseProcessor speculativeResponse
+        webService.postDruidQuery(*_) >> { weightSuccess = it[1]; null }
+        next.handleRequest(*_) >> { speculativeResponse = it[3]; context.addDruidQuery(groupByQuery); true }
+        HttpErrorCallback ec = Mock(HttpErrorCallback)
+        long wasted = SpeculativeWeightCheckResponseProcessor.WASTED_TIMER.count
+        handler.handleRequest(context, request, groupByQuery, response)
+
+        when: "The weight check refuses the query"
+        weightSuccess.invoke(weightResult(200))
+
+        then:
+        1 * webService.cancelDruidQuery(groupByQuery.context.queryId)
+        1 * response.getErrorCallback(groupByQuery) >> ec
+        1 * ec.invoke(507, _, _)
+        SpeculativeWeightCheckResponseProcessor.WASTED_TIMER.count == wasted + 1
+
+        when: "The query answers"
+        speculativeResponse.processResponse(weightResult(0), groupByQuery, Mock(LoggingContext))
+
+        then:
+        0 * response.processResponse(*_)
+    }
+
+    def "The answer of a speculative query settles the request before its weight check does"() {
+        setup:
+        WeightCheckRequestHandler handler = buildSpeculativeHandler()
+        SuccessCallback weightSuccess
+        ResponseProcessor speculativeResponse
+        webService.postDruidQuery(*_) >> { weightSuccess = it[1]; null }
+        next.handleRequest(*_) >> { speculativeResponse = it[3]; true }
+        long saved = SpeculativeWeightCheckResponseProcessor.SAVED_TIMER.count
+        handler.handleRequest(context, request, groupByQuery, response)
+
+        when: "The query answers"
+        speculativeResponse.processResponse(weightResult(0), groupByQuery, Mock(LoggingContext))
+
+        then:
+        1 * response.processResponse(_, groupByQuery, _)
+        SpeculativeWeightCheckResponseProcessor.SAVED_TIMER.count == saved + 1
+
+        when: "The weight check refuses the query"
+        weightSuccess.invoke(weightResult(200))
+
+        then:
+        0 * webService.cancelDruidQuery(_)
+        0 * response.getErrorCallback(_)
+    }
+
+    def "A speculative query passing its weight check is answered"() {
+        setup:
+        WeightCheckRequestHandler handler = buildSpeculativeHandler()
+        SuccessCallback weightSuccess
+        ResponseProcessor speculativeResponse
+        webService.postDruidQuery(*_) >> { weightSuccess = it[1]; null }
+        next.handleRequest(*_) >> { speculativeResponse = it[3]; true }
+        long saved = SpeculativeWeightCheckResponseProcessor.SAVED_TIMER.count
+        handler.handleRequest(context, request, groupByQuery, response)
+
+        when: "The weight check passes the query, then the query answers"
+        weightSuccess.invoke(weightResult(60))
+        speculativeResponse.processResponse(weightResult(0), groupByQuery, Mock(LoggingContext))
+
+        then:
+        0 * webService.cancelDruidQuery(_)
+        1 * response.processResponse(_, groupByQuery, _)
+        SpeculativeWeightCheckResponseProcessor.SAVED_TIMER.count == saved + 1
+    }
+
+    def "A speculative query refused before it is sent is not sent"() {
+        setup:
+        WeightCheckRequestHandler handler = buildSpeculativeHandler()
+        response.getErrorCallback(groupByQuery) >> Mock(HttpErrorCallback)
+
+        when: "The weight check answers as it is sent"
+        handler.handleRequest(context, request, groupByQuery, response)
+
+        then:
+        1 * webService.postDruidQuery(*_) >> { it[1].invoke(weightResult(200)); null }
+        0 * next.handleRequest(*_)
+        0 * webService.cancelDruidQuery(_)
+    }
+
+    def "A refused speculative query split by interval cancels the split queries that were sent"() {
+        setup: "a query over two days, split into a query per day"
+        WeightCheckRequestHandler handler = buildSpeculativeHandler()
+        handler = new WeightCheckRequestHandler(
+                new SplitQueryRequestHandler(new AsyncWebServiceRequestHandler(webService, MAPPER)),
+                webService,
+                queryWeightUtil,
+                MAPPER
+        )
+        groupByQuery.getIntervals() >> [new Interval("2014-09-01/2014-09-03")]
+        List<GroupByQuery> splitQueries = (1..2).collect {
+            GroupByQuery splitQuery = Mock(GroupByQuery)
+            splitQuery.getContext() >> groupByQuery.context.fork()
+            splitQuery
+        }
+        groupByQuery.withAllIntervals(_) >>> splitQueries
+        response.getErrorCallback(groupByQuery) >> Mock(HttpErrorCallback)
+
+        SuccessCallback weightSuccess
+        webService.postDruidQuery(_, _, _, _, _ as WeightEvaluationQuery) >> { weightSuccess = it[1]; null }
+        handler.handleRequest(context, request, groupByQuery, response)
+
+        when: "The weight check refuses the query"
+        weightSuccess.invoke(weightResult(200))
+
+        then: "The split queries are cancelled by the ids they were sent with"
+        1 * webService.cancelDruidQuery(splitQueries[0].context.queryId)
+        1 * webService.cancelDruidQuery(splitQueries[1].context.queryId)
+        0 * webService.cancelDruidQuery(_)
+    }
+
+    WeightCheckRequestHandler buildSpeculativeHandler() {
+        BardFeatureFlag.SPECULATIVE_WEIGHT_CHECK.setOn(true)
+        queryWeightUtil.skipWeightCheckQuery(groupByQuery) >> false
+        queryWeightUtil.makeWeightEvaluationQuery(groupByQuery) >> Mock(WeightEvaluationQuery)
+        queryWeightUtil.getQueryWeightThreshold(DAY) >> 100
+        groupByQuery.getGranularity() >> DAY
+        groupByQuery.getContext() >> new QueryContext([:]).withQueryId("speculative")
+        context = new RequestContext(null, false)
+        return new WeightCheckRequestHandler(next, webService, queryWeightUtil, MAPPER)
+    }
+
+    JsonNode weightResult(int count) {
+        MAPPER.readTree("""[ { "version" : "v1", "event" : { "count" : $count } } ]""")
+    }
 }
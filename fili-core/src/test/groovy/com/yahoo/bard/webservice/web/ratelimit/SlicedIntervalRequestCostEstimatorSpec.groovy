@@ -0,0 +1,51 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.web.ratelimit
+
+import com.yahoo.bard.webservice.web.util.QueryWeightUtil
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import org.glassfish.jersey.uri.UriComponent
+
+import javax.ws.rs.container.ContainerRequestContext
+import javax.ws.rs.core.UriInfo
+
+class SlicedIntervalRequestCostEstimatorSpec extends Specification {
+
+    SlicedIntervalRequestCostEstimator estimator = new SlicedIntervalRequestCostEstimator(new QueryWeightUtil())
+
+    ContainerRequestContext request(String uri) {
+        URI parsed = new URI(uri)
+        UriInfo uriInfo = Mock(UriInfo)
+        uriInfo.getPathSegments() >> UriComponent.decodePath(parsed, true)
+        uriInfo.getQueryParameters() >> UriComponent.decodeQuery(parsed, true)
+        ContainerRequestContext request = Mock(ContainerRequestContext)
+        request.getUriInfo() >> uriInfo
+        request
+    }
+
+    @Unroll
+    def "#uri costs #expected tokens"() {
+        expect:
+        estimator.estimateCost(request(uri)) == expected
+
+        where:
+        uri                                                                        | expected
+        "/v1/data/shapes/day?dateTime=2017-01-01/2017-01-08"                       | 1
+        "/v1/data/shapes/day/color?dateTime=2017-01-01/2017-02-01"                 | 1
+        "/v1/data/shapes/day?dateTime=2017-01-01/2018-01-01"                       | 12
+        "/v1/data/shapes/day?dateTime=2017-01-01/2017-07-01,2017-07-01/2018-01-01" | 12
+        "/v1/data/shapes/week?dateTime=2017-01-02/2018-01-01"                      | 6
+        "/v1/data/shapes/all?dateTime=2017-01-01/2018-01-01"                       | 1
+        "/v1/data/shapes/day?dateTime=P365D/current"                               | 12
+        "/v1/data/shapes/day?dateTime=current/P365D"                               | 12
+        "/v1/data/shapes/week?dateTime=P52W/next"                                  | 6
+        "/v1/data/shapes/day?dateTime=P1D/unparseable"                             | 1
+        "/v1/data/shapes/day?dateTime=P1D/P2D"                                     | 1
+        "/v1/data/shapes/fortnight?dateTime=2017-01-01/2018-01-01"                 | 1
+        "/v1/data/shapes/day"                                                      | 1
+        "/v1/tables/shapes?dateTime=2017-01-01/2018-01-01"                         | 1
+    }
+}
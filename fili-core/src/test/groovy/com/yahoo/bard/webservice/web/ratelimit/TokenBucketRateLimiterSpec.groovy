@@ -0,0 +1,199 @@
+// Copyright 2018 Oath Inc.
+// Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
+package com.yahoo.bard.webservice.web.ratelimit
+
+import static com.yahoo.bard.webservice.web.ratelimit.TokenBucketRateLimiter.REQUEST_LIMIT_GLOBAL_KEY
+import static com.yahoo.bard.webservice.web.ratelimit.TokenBucketRateLimiter.REQUEST_LIMIT_PER_USER_KEY
+import static com.yahoo.bard.webservice.web.ratelimit.TokenBucketRateLimiter.TOKENS_PER_MINUTE_PER_USER_KEY
+import static com.yahoo.bard.webservice.web.ratelimit.TokenBucketRateLimiter.TOKEN_CAPACITY_PER_USER_KEY
+import static com.yahoo.bard.webservice.web.ratelimit.TokenBucketRateLimiter.TOKEN_CAPACITY_UI_KEY
+
+import com.yahoo.bard.webservice.config.SystemConfig
+import com.yahoo.bard.webservice.config.SystemConfigProvider
+
+import spock.lang.Specification
+
+import java.security.Principal
+import java.util.concurrent.TimeUnit
+import java.util.function.LongSupplier
+
+import javax.ws.rs.HttpMethod
+import javax.ws.rs.container.ContainerRequestContext
+import javax.ws.rs.core.MultivaluedHashMap
+import javax.ws.rs.core.SecurityContext
+
+class TokenBucketRateLimiterSpec extends Specification {
+
+    static SystemConfig systemConfig = SystemConfigProvider.getInstance()
+    static Map<String, String> originals = [:]
+
+    long now = 0
+    long cost = 1
+    TokenBucketRateLimiter rateLimiter
+    List<RateLimitRequestToken> tokens = []
+
+    def setupSpec() {
+        [
+                (REQUEST_LIMIT_GLOBAL_KEY): "3",
+                (REQUEST_LIMIT_PER_USER_KEY): "3",
+                (TOKEN_CAPACITY_PER_USER_KEY): "10",
+                (TOKENS_PER_MINUTE_PER_USER_KEY): "60",
+                (TOKEN_CAPACITY_UI_KEY): "20"
+        ].each { key, value -> originals[key] = systemConfig.setProperty(key, value) }
+    }
+
+    def cleanupSpec() {
+        originals.each { key, value -> systemConfig.resetProperty(key, value) }
+    }
+
+    def setup() {
+        rateLimiter = new TokenBucketRateLimiter({ cost } as RequestCostEstimator, { now } as LongSupplier)
+        rateLimiter.with {
+            [requestGlobalCounter, usersCounter].each { it.dec(it.count) }
+            [requestUserMeter, requestUiMeter, rejectUserMeter, rejectGlobalMeter, tokensMeter].each {
+                it.mark(-it.count)
+            }
+        }
+    }
+
+    def cleanup() {
+        // Release the tokens here rather than on finalization, which would skew the shared metrics of other specs
+        tokens*.close()
+    }
+
+    RateLimitRequestToken getToken(ContainerRequestContext request) {
+        RateLimitRequestToken token = rateLimiter.getToken(request)
+        tokens.add(token)
+        token
+    }
+
+    ContainerRequestContext request(String userName, boolean isUi = false) {
+        Principal user = Mock(Principal)
+        user.getName() >> userName
+        SecurityContext securityContext = Mock(SecurityContext)
+        securityContext.getUserPrincipal() >> user
+        ContainerRequestContext request = Mock(ContainerRequestContext)
+        request.getHeaders() >> new MultivaluedHashMap<>(isUi ? [clientid: "UI", referer: "test"] : [:])
+        request.getMethod() >> HttpMethod.GET
+        request.getSecurityContext() >> securityContext
+        request
+    }
+
+    def "Requests are charged their cost until the bucket of their user runs out"() {
+        given:
+        cost = 4
+
+        expect:
+        getToken(request("heavy")).isBound()
+        getToken(request("heavy")).isBound()
+        !getToken(request("heavy")).isBound()
+
+        and: "other users are not affected"
+        getToken(request("light")).isBound()
+
+        and:
+        rateLimiter.tokensMeter.count == 12
+        rateLimiter.rejectUserMeter.count == 1
+    }
+
+    def "A rejected user gets tokens back as the bucket refills"() {
+        given:
+        cost = 10
+        getToken(request("user")).close()
+
+        expect:
+        !getToken(request("user")).isBound()
+
+        when: "the bucket refills one token per second"
+        now += TimeUnit.SECONDS.toNanos(9)
+
+        then:
+        !getToken(request("user")).isBound()
+
+        when:
+        now += TimeUnit.SECONDS.toNanos(1)
+
+        then:
+        getToken(request("user")).isBound()
+    }
+
+    def "Requests costing more than the bucket holds are capped at its capacity"() {
+        given:
+        cost = 1000
+
+        expect:
+        getToken(request("user")).isBound()
+        rateLimiter.tokensMeter.count == 10
+
+        and: "UI requests draw from their own, larger bucket"
+        getToken(request("user", true)).isBound()
+        rateLimiter.tokensMeter.count == 30
+    }
+
+    def "Requests in flight are bounded globally and released when their token closes"() {
+        given:
+        List<RateLimitRequestToken> inFlight = (1..3).collect { getToken(request("user$it")) }
+
+        expect:
+        inFlight.every { it.isBound() }
+        !getToken(request("user4")).isBound()
+        rateLimiter.rejectGlobalMeter.count == 1
+
+        when:
+        inFlight[0].close()
+
+        then:
+        getToken(request("user4")).isBound()
+        rateLimiter.requestGlobalCounter.count == 3
+    }
+
+    def "Requests in flight are bounded per user, and released when their token closes"() {
+        given:
+        systemConfig.setProperty(REQUEST_LIMIT_PER_USER_KEY, "2")
+        rateLimiter = new TokenBucketRateLimiter({ cost } as RequestCostEstimator, { now } as LongSupplier)
+        systemConfig.setProperty(REQUEST_LIMIT_PER_USER_KEY, "3")
+        List<RateLimitRequestToken> inFlight = (1..2).collect { getToken(request("user")) }
+
+        expect:
+        inFlight.every { it.isBound() }
+        !getToken(request("user")).isBound()
+        rateLimiter.rejectUserMeter.count == 1
+        rateLimiter.tokensMeter.count == 2
+
+        and: "other users are not affected"
+        getToken(request("other")).isBound()
+
+        when:
+        inFlight*.close()
+
+        then:
+        rateLimiter.userCounts == [other: 1]
+        getToken(request("user")).isBound()
+    }
+
+    def "The bucket of a user is dropped once it would be full again"() {
+        given:
+        cost = 10
+        getToken(request("user")).close()
+
+        expect:
+        rateLimiter.userBuckets.size() == 1
+        rateLimiter.usersCounter.count == 1
+
+        when: "the bucket is not yet full"
+        now += TimeUnit.SECONDS.toNanos(9)
+        rateLimiter.userBuckets.cleanUp()
+
+        then:
+        rateLimiter.userBuckets.size() == 1
+        !getToken(request("user")).isBound()
+
+        when: "the bucket would be full again"
+        now += TimeUnit.SECONDS.toNanos(10)
+        rateLimiter.userBuckets.cleanUp()
+
+        then:
+        rateLimiter.userBuckets.size() == 0
+        rateLimiter.usersCounter.count == 0
+    }
+}
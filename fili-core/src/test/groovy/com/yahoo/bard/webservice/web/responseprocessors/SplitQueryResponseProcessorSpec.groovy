@@ -121,6 +121,24 @@ public class SplitQueryResponseProcessorSpec extends Specification {
         result.getKey().equals(nodeExpected)
     }
 
+    def "Responses arriving out of order are merged in interval order"() {
+        setup:
+        groupByQuery2.getIntervals() >> [interval2] >> [interval1]
+
+        when: "The later interval arrives first"
+        sqrp.processResponse(node2, groupByQuery2, new LoggingContext(RequestLog.dump()))
+
+        then: "It is held until the earlier interval arrives"
+        0 * next.processResponse(_, _, _)
+
+        when:
+        sqrp.processResponse(node1, groupByQuery2, new LoggingContext(RequestLog.dump()))
+
+        then:
+        1 * next.processResponse(nodeExpected, groupByQuery1, _)
+        sqrp.completedIntervals*.key == [null, null]
+    }
+
     def "Test process response with good Data"() {
         setup:
         groupByQuery2.getIntervals() >> [interval1] >> [interval2]
@@ -2,8 +2,11 @@
 // Licensed under the terms of the Apache license. Please see LICENSE.md file distributed with this work for terms.
 package com.yahoo.bard.webservice.data.cache;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiPredicate;
 
 /**
  * An implementation of the tuple data cache using a HashMap. Uses plain text keys instead of their hashes.
@@ -19,6 +22,20 @@ public class TestTupleDataCache implements TupleDataCache<String, Long, String>
         return client.get(key);
     }
 
+    @Override
+    public Map<String, TupleDataCache.DataEntry<String, Long, String>> getAll(
+            Collection<String> keys,
+            BiPredicate<String, Long> isValid
+    ) {
+        Map<String, TupleDataCache.DataEntry<String, Long, String>> entries = new LinkedHashMap<>();
+        for (String key : keys) {
+            if (client.containsKey(key)) {
+                entries.put(key, client.get(key));
+            }
+        }
+        return entries;
+    }
+
     @Override
     public boolean set(String key, TupleDataCache.DataEntry<String, Long, String> value)
             throws IllegalStateException {
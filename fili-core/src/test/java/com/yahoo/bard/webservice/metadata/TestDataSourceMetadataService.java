@@ -9,6 +9,7 @@ import org.joda.time.Interval;
 
 import java.util.Collections;
 import java.util.Map;
+import java.util.OptionalLong;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -47,4 +48,10 @@ public class TestDataSourceMetadataService extends DataSourceMetadataService {
                         )
                 );
     }
+
+    @Override
+    public OptionalLong getAvailabilityVersion(DataSourceName dataSourceName) {
+        // The test intervals are changed in place, so intervals computed from them must not be reused
+        return OptionalLong.empty();
+    }
 }
@@ -26,6 +26,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Future;
 
@@ -57,6 +59,7 @@ public class TestDruidWebService implements DruidWebService {
     public Integer timeout = null;
     public String weightResponse = "[ { \"event\" : { \"count\" : 19 } } ]";
     public DruidServiceConfig serviceConfig;
+    public List<String> cancelledQueryIds = new ArrayList<>();
 
     /**
      * Constructor.
@@ -203,6 +206,15 @@ public class TestDruidWebService implements DruidWebService {
         jsonResponse = () -> response;
     }
 
+    /**
+     * Records the id of the cancelled query.
+     */
+    @Override
+    public Future<Response> cancelDruidQuery(String queryId) {
+        cancelledQueryIds.add(queryId);
+        return ConcurrentUtils.constantFuture(null);
+    }
+
     @Override
     public Integer getTimeout() {
         return serviceConfig.getTimeout();